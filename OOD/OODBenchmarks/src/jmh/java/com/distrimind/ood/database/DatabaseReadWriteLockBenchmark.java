@@ -0,0 +1,159 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compare the contention of the single {@link ReentrantLock} formerly used by {@link DatabaseWrapper} with the
+ * contention of {@link DatabaseReadWriteLock}, with only readers, and with readers and one writer.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+public class DatabaseReadWriteLockBenchmark {
+	private static final long CRITICAL_SECTION_TOKENS=256;
+
+	public enum LockType
+	{
+		REENTRANT_LOCK,
+		READ_WRITE_LOCK
+	}
+
+	@Param
+	public LockType lockType;
+
+	private ReentrantLock reentrantLock;
+	private DatabaseReadWriteLock readWriteLock;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		reentrantLock=new ReentrantLock();
+		readWriteLock=new DatabaseReadWriteLock();
+	}
+
+	private void read()
+	{
+		if (lockType==LockType.REENTRANT_LOCK)
+		{
+			reentrantLock.lock();
+			try {
+				Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+			}
+			finally {
+				reentrantLock.unlock();
+			}
+		}
+		else
+		{
+			readWriteLock.lockRead();
+			try {
+				Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+			}
+			finally {
+				readWriteLock.unlockRead();
+			}
+		}
+	}
+
+	private void write()
+	{
+		if (lockType==LockType.REENTRANT_LOCK)
+		{
+			reentrantLock.lock();
+			try {
+				Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+			}
+			finally {
+				reentrantLock.unlock();
+			}
+		}
+		else
+		{
+			readWriteLock.lockWrite();
+			try {
+				Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+			}
+			finally {
+				readWriteLock.unlockWrite();
+			}
+		}
+	}
+
+	@Benchmark
+	@Group("readers")
+	@GroupThreads(8)
+	public void readersOnly()
+	{
+		read();
+	}
+
+	@Benchmark
+	@Group("readersAndWriter")
+	@GroupThreads(7)
+	public void reader()
+	{
+		read();
+	}
+
+	@Benchmark
+	@Group("readersAndWriter")
+	@GroupThreads(1)
+	public void writer()
+	{
+		write();
+	}
+}
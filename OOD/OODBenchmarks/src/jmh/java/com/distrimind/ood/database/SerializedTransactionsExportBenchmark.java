@@ -0,0 +1,135 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import com.distrimind.ood.database.benchmarks.schema.RecordsTable;
+import com.distrimind.util.DecentralizedIDGenerator;
+import com.distrimind.util.DecentralizedValue;
+import com.distrimind.util.io.RandomByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measure the cost of a cache hit when a direct transaction is exported to a peer : the transaction header, which
+ * is serialized again for each export since its concerned hosts can change, and the cached events, which are
+ * written without being serialized again. The benchmark {@link #cachedEventsOnly()} gives the cost of writing the
+ * cached events alone.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializedTransactionsExportBenchmark {
+	private static final AtomicInteger databaseNumber=new AtomicInteger(0);
+
+	@Param({"1", "10", "50"})
+	public int concernedHostsNumber;
+
+	@Param({"256", "16384"})
+	public int eventsSizeInBytes;
+
+	private DatabaseWrapper wrapper;
+	private DatabaseTransactionEventsTable transactionsTable;
+	private DatabaseTransactionEventsTable.Record transaction;
+	private SerializedTransactionsCache.SerializedEvents events;
+	private RandomByteArrayOutputStream out;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		wrapper=BenchmarkDatabaseType.H2.newDatabaseWrapper("oodexportbenchmark"+databaseNumber.incrementAndGet());
+		wrapper.getDatabaseConfigurationsBuilder()
+				.addConfiguration(new DatabaseConfiguration(new DatabaseSchema(RecordsTable.class.getPackage(),
+						new HashSet<>(Collections.singletonList(RecordsTable.class)))), false, true)
+				.commit();
+		transactionsTable=wrapper.getDatabaseTransactionEventsTable();
+		Set<DecentralizedValue> hosts=new HashSet<>();
+		for (int i=0;i<concernedHostsNumber;i++)
+			hosts.add(new DecentralizedIDGenerator());
+		transaction=new DatabaseTransactionEventsTable.Record(1, System.currentTimeMillis(), RecordsTable.class.getPackage().getName(), hosts);
+		byte[] b=new byte[eventsSizeInBytes];
+		new Random(0).nextBytes(b);
+		events=new SerializedTransactionsCache.SerializedEvents(b, 0, b.length);
+		out=new RandomByteArrayOutputStream();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		out.close();
+		wrapper.close();
+	}
+
+	@Benchmark
+	public long headerAndCachedEvents() throws Exception {
+		out.setLength(0);
+		out.writeByte(DatabaseTransactionsPerHostTable.EXPORT_DIRECT_TRANSACTION);
+		transactionsTable.serialize(transaction, out, true, false);
+		events.writeTo(out);
+		out.writeByte(DatabaseTransactionsPerHostTable.EXPORT_DIRECT_TRANSACTION_FINISHED);
+		return out.length();
+	}
+
+	@Benchmark
+	public long cachedEventsOnly() throws Exception {
+		out.setLength(0);
+		events.writeTo(out);
+		return out.length();
+	}
+}
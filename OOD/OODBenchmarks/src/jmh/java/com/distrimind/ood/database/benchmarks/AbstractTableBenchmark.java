@@ -0,0 +1,175 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database.benchmarks;
+
+import com.distrimind.ood.database.BackupConfiguration;
+import com.distrimind.ood.database.BenchmarkDatabaseType;
+import com.distrimind.ood.database.DatabaseConfiguration;
+import com.distrimind.ood.database.DatabaseSchema;
+import com.distrimind.ood.database.DatabaseWrapper;
+import com.distrimind.ood.database.benchmarks.schema.MemoryRecordsTable;
+import com.distrimind.ood.database.benchmarks.schema.RecordsTable;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Common state of benchmarks : a database, whose type and size are benchmark parameters, filled with
+ * {@link #recordsNumber} records into each table. Records are distributed into groups of
+ * {@link #RECORDS_NUMBER_PER_GROUP} records.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class AbstractTableBenchmark {
+	static final int RECORDS_NUMBER_PER_GROUP=100;
+	private static final AtomicInteger databaseNumber=new AtomicInteger(0);
+
+	@Param({"H2", "HSQLDB", "DERBY"})
+	public BenchmarkDatabaseType databaseType;
+
+	@Param({"1000", "10000"})
+	public int recordsNumber;
+
+	protected DatabaseWrapper wrapper;
+	protected RecordsTable recordsTable;
+	protected MemoryRecordsTable memoryRecordsTable;
+
+	@Setup(Level.Trial)
+	public void loadDatabase() throws Exception {
+		wrapper=databaseType.newDatabaseWrapper("oodbenchmark"+databaseNumber.incrementAndGet());
+		wrapper.getDatabaseConfigurationsBuilder()
+				.addConfiguration(new DatabaseConfiguration(new DatabaseSchema(RecordsTable.class.getPackage(),
+						new HashSet<>(Arrays.asList(RecordsTable.class, MemoryRecordsTable.class))), getBackupConfiguration()), false, true)
+				.commit();
+		recordsTable=wrapper.getTableInstance(RecordsTable.class);
+		memoryRecordsTable=wrapper.getTableInstance(MemoryRecordsTable.class);
+		List<Map<String, Object>> records=new ArrayList<>(recordsNumber);
+		for (int i=0;i<recordsNumber;i++)
+			records.add(newRecord(i/RECORDS_NUMBER_PER_GROUP, i));
+		recordsTable.addRecords(1000, records);
+		records.clear();
+		for (int i=0;i<recordsNumber;i++)
+		{
+			Map<String, Object> m=newRecord(i/RECORDS_NUMBER_PER_GROUP, i);
+			m.remove("amount");
+			m.put("id", i);
+			records.add(m);
+		}
+		memoryRecordsTable.addRecords(1000, records);
+		onDatabaseLoaded();
+	}
+
+	@TearDown(Level.Trial)
+	public void closeDatabase() throws Exception {
+		if (wrapper!=null) {
+			wrapper.close();
+			wrapper = null;
+		}
+		onDatabaseClosed();
+	}
+
+	/**
+	 * Called at the end of the trial setup, when the tables have been filled
+	 * @throws Exception if a problem occurs
+	 */
+	protected void onDatabaseLoaded() throws Exception
+	{
+
+	}
+
+	/**
+	 * Called at the end of the trial tear down, when the database has been closed
+	 * @throws Exception if a problem occurs
+	 */
+	protected void onDatabaseClosed() throws Exception
+	{
+
+	}
+
+	/**
+	 * @return the backup configuration of the database, or null if the internal backup is not activated
+	 */
+	protected BackupConfiguration getBackupConfiguration()
+	{
+		return null;
+	}
+
+	static Map<String, Object> newRecord(int groupID, int amount)
+	{
+		Map<String, Object> m=new HashMap<>();
+		m.put("groupID", groupID);
+		m.put("amount", amount);
+		m.put("label", "label"+amount);
+		return m;
+	}
+
+	protected int getGroupsNumber()
+	{
+		return (recordsNumber+RECORDS_NUMBER_PER_GROUP-1)/RECORDS_NUMBER_PER_GROUP;
+	}
+
+	protected int randomGroupID()
+	{
+		return ThreadLocalRandom.current().nextInt(getGroupsNumber());
+	}
+
+	protected int randomRecordIndex()
+	{
+		return ThreadLocalRandom.current().nextInt(recordsNumber);
+	}
+}
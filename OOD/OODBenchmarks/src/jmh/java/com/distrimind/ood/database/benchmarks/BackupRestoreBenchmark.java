@@ -0,0 +1,99 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database.benchmarks;
+
+import com.distrimind.ood.database.BackupConfiguration;
+import com.distrimind.ood.database.BackupRestoreManager;
+import com.distrimind.ood.database.benchmarks.schema.RecordsTable;
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.util.FileTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the creation of a backup reference and of the database restoration, with an external backup
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BackupRestoreBenchmark extends AbstractTableBenchmark {
+	private File backupDirectory;
+	private BackupRestoreManager backupRestoreManager;
+	private long restorationDateUTC;
+
+	@Override
+	protected void onDatabaseLoaded() throws Exception {
+		backupDirectory=Files.createTempDirectory("oodbenchmark").toFile();
+		backupRestoreManager=wrapper.getExternalBackupRestoreManager(backupDirectory, RecordsTable.class.getPackage(),
+				new BackupConfiguration(TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(1), 100_000_000, TimeUnit.HOURS.toMillis(1), null));
+		backupRestoreManager.createBackupReference();
+		// the restoration uses the first backup reference, even if benchmarks add new ones
+		restorationDateUTC=System.currentTimeMillis();
+		Thread.sleep(2);
+	}
+
+	@Override
+	protected void onDatabaseClosed() {
+		if (backupDirectory!=null) {
+			FileTools.deleteDirectory(backupDirectory);
+			backupDirectory = null;
+		}
+	}
+
+	@Benchmark
+	public long createBackupReference() throws DatabaseException {
+		return backupRestoreManager.createBackupReference();
+	}
+
+	@Benchmark
+	public boolean restoreDatabase() throws DatabaseException {
+		return backupRestoreManager.restoreDatabaseToDateUTC(restorationDateUTC);
+	}
+}
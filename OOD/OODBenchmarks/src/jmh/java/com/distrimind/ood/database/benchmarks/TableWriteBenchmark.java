@@ -0,0 +1,128 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database.benchmarks;
+
+import com.distrimind.ood.database.benchmarks.schema.RecordsTable;
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks of record insertions, updates and removals
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TableWriteBenchmark extends AbstractTableBenchmark {
+	/**
+	 * Group of records added by benchmarks, and removed after each iteration
+	 */
+	static final int ADDED_GROUP_ID=-1;
+	static final int ADDED_RECORDS_NUMBER_PER_BATCH=100;
+	private static final AtomicInteger removedGroupIDs=new AtomicInteger(ADDED_GROUP_ID);
+
+	private Map<String, Object>[] addedRecords;
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void onDatabaseLoaded() {
+		addedRecords=new Map[ADDED_RECORDS_NUMBER_PER_BATCH];
+		for (int i=0;i<addedRecords.length;i++)
+			addedRecords[i]=newRecord(ADDED_GROUP_ID, i);
+	}
+
+	@TearDown(Level.Iteration)
+	public void removeAddedRecords() throws DatabaseException {
+		recordsTable.removeRecordsWithCascade("groupID<=%g", "g", ADDED_GROUP_ID);
+	}
+
+	/**
+	 * Group of records added before each invocation of {@link #removeRecordsWithCascade(RemovedGroup)}
+	 */
+	@State(Scope.Thread)
+	public static class RemovedGroup {
+		int groupID;
+
+		@Setup(Level.Invocation)
+		public void addGroup(TableWriteBenchmark benchmark) throws DatabaseException {
+			groupID=removedGroupIDs.decrementAndGet();
+			List<Map<String, Object>> records=new ArrayList<>(RECORDS_NUMBER_PER_GROUP);
+			for (int i=0;i<RECORDS_NUMBER_PER_GROUP;i++)
+				records.add(newRecord(groupID, i));
+			benchmark.recordsTable.addRecords(RECORDS_NUMBER_PER_GROUP, records);
+		}
+	}
+
+	@Benchmark
+	public RecordsTable.Record addRecord() throws DatabaseException {
+		return recordsTable.addRecord(newRecord(ADDED_GROUP_ID, randomRecordIndex()));
+	}
+
+	@Benchmark
+	public List<RecordsTable.Record> addRecords() throws DatabaseException {
+		return recordsTable.addRecords(addedRecords);
+	}
+
+	@Benchmark
+	public long updateRecords() throws DatabaseException {
+		Map<String, Object> modifications=new HashMap<>();
+		modifications.put("amount", randomRecordIndex());
+		return recordsTable.updateRecords(modifications, "groupID=%g", "g", randomGroupID());
+	}
+
+	@Benchmark
+	public long removeRecordsWithCascade(RemovedGroup removedGroup) throws DatabaseException {
+		return recordsTable.removeRecordsWithCascade("groupID=%g", "g", removedGroup.groupID);
+	}
+}
@@ -0,0 +1,144 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+/**
+ * Aggregate function computed for each group of records, equivalent to the SQL functions COUNT, SUM, MIN, MAX and
+ * AVG.
+ *
+ * The values of the functions are typed as follow :
+ * <ul>
+ *     <li>{@link Function#COUNT} returns a {@link Long}</li>
+ *     <li>{@link Function#SUM} returns a {@link Long} for integer fields, and a {@link Double} for floating point
+ *     fields</li>
+ *     <li>{@link Function#MIN} and {@link Function#MAX} return a value of the type of the field</li>
+ *     <li>{@link Function#AVG} returns a {@link Double}</li>
+ * </ul>
+ * Except for {@link Function#COUNT}, the value is null if all field values are null into the group.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ * @see Table#getAggregatedResults(Aggregate[], String, java.util.Map, String...)
+ */
+public final class Aggregate {
+	public enum Function {
+		COUNT,
+		SUM,
+		MIN,
+		MAX,
+		AVG
+	}
+
+	private final Function function;
+	private final String fieldName;
+
+	private Aggregate(Function function, String fieldName) {
+		if (function == null)
+			throw new NullPointerException();
+		if (fieldName == null && function != Function.COUNT)
+			throw new NullPointerException();
+		this.function = function;
+		this.fieldName = fieldName;
+	}
+
+	/**
+	 * @return the number of records of each group
+	 */
+	public static Aggregate count() {
+		return new Aggregate(Function.COUNT, null);
+	}
+
+	/**
+	 * @param fieldName the field name. It is possible to use fields of records pointed by foreign keys, like with
+	 *                  {@link Table#getOrderedRecords(boolean, String...)}.
+	 * @return the number of not null values of the given field, into each group
+	 */
+	public static Aggregate count(String fieldName) {
+		if (fieldName == null)
+			throw new NullPointerException();
+		return new Aggregate(Function.COUNT, fieldName);
+	}
+
+	/**
+	 * @param fieldName the field name. Only byte, short, int, long, float and double fields are authorized.
+	 * @return the sum of the field values, into each group
+	 */
+	public static Aggregate sum(String fieldName) {
+		return new Aggregate(Function.SUM, fieldName);
+	}
+
+	/**
+	 * @param fieldName the field name. Only comparable fields are authorized.
+	 * @return the minimum field value, into each group
+	 */
+	public static Aggregate min(String fieldName) {
+		return new Aggregate(Function.MIN, fieldName);
+	}
+
+	/**
+	 * @param fieldName the field name. Only comparable fields are authorized.
+	 * @return the maximum field value, into each group
+	 */
+	public static Aggregate max(String fieldName) {
+		return new Aggregate(Function.MAX, fieldName);
+	}
+
+	/**
+	 * @param fieldName the field name. Only byte, short, int, long, float and double fields are authorized.
+	 * @return the average of the field values, into each group
+	 */
+	public static Aggregate avg(String fieldName) {
+		return new Aggregate(Function.AVG, fieldName);
+	}
+
+	public Function getFunction() {
+		return function;
+	}
+
+	/**
+	 * @return the concerned field name, or null if all records are counted
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	@Override
+	public String toString() {
+		return function.name() + "(" + (fieldName == null ? "*" : fieldName) + ")";
+	}
+}
@@ -0,0 +1,125 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import java.util.HashMap;
+
+/**
+ * Aggregated values of a group of records.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ * @see Table#getAggregatedResults(Aggregate[], String, java.util.Map, String...)
+ * @see Aggregate
+ */
+public final class AggregatedResult {
+	private final HashMap<String, Object> group;
+	private final Aggregate[] aggregates;
+	private final Object[] values;
+
+	AggregatedResult(HashMap<String, Object> group, Aggregate[] aggregates, Object[] values) {
+		this.group = group;
+		this.aggregates = aggregates;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the identity of the group by association a set of table fields with
+	 * their instance.
+	 *
+	 * @return identity of the group
+	 */
+	public HashMap<String, Object> getGroupIdentity() {
+		return group;
+	}
+
+	/**
+	 * @param aggregateIndex the index of the aggregate, into the aggregates given to the query
+	 * @return the value of the aggregate
+	 */
+	public Object getValue(int aggregateIndex) {
+		return values[aggregateIndex];
+	}
+
+	/**
+	 * @param aggregate the aggregate given to the query
+	 * @return the value of the aggregate
+	 * @throws IllegalArgumentException if the aggregate was not given to the query
+	 */
+	public Object getValue(Aggregate aggregate) {
+		for (int i = 0; i < aggregates.length; i++) {
+			if (aggregates[i] == aggregate)
+				return values[i];
+		}
+		throw new IllegalArgumentException("Unknown aggregate " + aggregate);
+	}
+
+	/**
+	 * @param aggregateIndex the index of the aggregate, into the aggregates given to the query
+	 * @return the value of the aggregate as a number, or null
+	 */
+	public Number getNumber(int aggregateIndex) {
+		return (Number) values[aggregateIndex];
+	}
+
+	/**
+	 * @param aggregateIndex the index of the aggregate, into the aggregates given to the query
+	 * @return the value of the aggregate as a long, or 0 if the value is null
+	 */
+	public long getLong(int aggregateIndex) {
+		Number n = getNumber(aggregateIndex);
+		return n == null ? 0 : n.longValue();
+	}
+
+	/**
+	 * @param aggregateIndex the index of the aggregate, into the aggregates given to the query
+	 * @return the value of the aggregate as a double, or {@link Double#NaN} if the value is null
+	 */
+	public double getDouble(int aggregateIndex) {
+		Number n = getNumber(aggregateIndex);
+		return n == null ? Double.NaN : n.doubleValue();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("AggregatedResult{group=").append(group);
+		for (int i = 0; i < aggregates.length; i++)
+			sb.append(", ").append(aggregates[i]).append("=").append(values[i]);
+		return sb.append("}").toString();
+	}
+}
@@ -73,6 +73,27 @@ public class BackupConfiguration extends MultiFormatProperties {
 	 */
 	//private int maxIndexSize=16384;
 
+	/**
+	 * Max number of records inserted with one batch during a restoration.
+	 * Records added into the same table are restored with batches of inserts,
+	 * and their constraints are checked by the database. A value equals to 1 restores records one by one.
+	 */
+	private int maxRecordsNumberPerRestorationBatch=1000;
+
+	/**
+	 * Max number of threads used to create a backup reference.
+	 * When greater than 1, tables are dumped in parallel into temporary parts, which are then merged into the backup reference.
+	 */
+	private int maxThreadsNumberForBackupReference=1;
+
+	/**
+	 * Tells if the events of every backed up transaction are compressed together with Deflate, before being
+	 * encrypted when backup parts are sent to the central database backup. Records of backup references are
+	 * compressed per block of 1 MiB.
+	 * Compressed backups can only be read by versions of OOD that support compression.
+	 */
+	private boolean backupCompressed=false;
+
 	/**
 	 * The backup progress monitor's parameter
 	 */
@@ -153,6 +174,34 @@ public class BackupConfiguration extends MultiFormatProperties {
 		this.restoreProgressMonitorParameters = restoreProgressMonitorParameters;
 	}
 
+	public int getMaxRecordsNumberPerRestorationBatch() {
+		return maxRecordsNumberPerRestorationBatch;
+	}
+
+	public void setMaxRecordsNumberPerRestorationBatch(int maxRecordsNumberPerRestorationBatch) {
+		if (maxRecordsNumberPerRestorationBatch<1)
+			throw new IllegalArgumentException();
+		this.maxRecordsNumberPerRestorationBatch = maxRecordsNumberPerRestorationBatch;
+	}
+
+	public int getMaxThreadsNumberForBackupReference() {
+		return maxThreadsNumberForBackupReference;
+	}
+
+	public void setMaxThreadsNumberForBackupReference(int maxThreadsNumberForBackupReference) {
+		if (maxThreadsNumberForBackupReference<1)
+			throw new IllegalArgumentException();
+		this.maxThreadsNumberForBackupReference = maxThreadsNumberForBackupReference;
+	}
+
+	public boolean isBackupCompressed() {
+		return backupCompressed;
+	}
+
+	public void setBackupCompressed(boolean backupCompressed) {
+		this.backupCompressed = backupCompressed;
+	}
+
 	private static final int maxStreamBufferSizeForBackupRestoration=2097152;
 
 	int getMaxStreamBufferSizeForBackupRestoration()
@@ -179,6 +228,9 @@ public class BackupConfiguration extends MultiFormatProperties {
 				", maxBackupDurationInMs=" + maxBackupDurationInMs +
 				", maxBackupFileSizeInBytes=" + maxBackupFileSizeInBytes +
 				", maxBackupFileAgeInMs=" + maxBackupFileAgeInMs +
+				", maxRecordsNumberPerRestorationBatch=" + maxRecordsNumberPerRestorationBatch +
+				", maxThreadsNumberForBackupReference=" + maxThreadsNumberForBackupReference +
+				", backupCompressed=" + backupCompressed +
 				'}';
 	}
 }
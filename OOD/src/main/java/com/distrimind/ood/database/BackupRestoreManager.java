@@ -54,11 +54,15 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * @author Jason Mahdjoub
@@ -71,6 +75,12 @@ public class BackupRestoreManager {
 	//private final static int RECORDS_INDEX_POSITION=LAST_BACKUP_UTC_POSITION+8;
 	private final static int LIST_CLASSES_POSITION=LAST_BACKUP_UTC_POSITION+26;
 	public static final int MIN_TRANSACTION_SIZE_IN_BYTES=38;
+	static final int RAW_EVENTS_BLOCK=-1;
+	static final int DEFLATED_EVENTS_BLOCK=-2;
+	private static final int TRANSACTION_BLOCK_FORMAT_OFFSET=21;
+	private static final int MAX_DEFLATED_REFERENCE_BLOCK_SIZE_IN_BYTES=1<<20;
+	private static final ThreadLocal<Deflater> deflaters=ThreadLocal.withInitial(Deflater::new);
+	private static final ThreadLocal<Inflater> inflaters=ThreadLocal.withInitial(Inflater::new);
 
 	private ArrayList<Long> fileReferenceTimeStamps;
 	private ArrayList<Long> fileTimeStamps;
@@ -473,6 +483,18 @@ public class BackupRestoreManager {
 	private void backupRecordEvent(RandomOutputStream out, Table<?> table, DatabaseRecord oldRecord, DatabaseRecord newRecord, DatabaseEventType eventType/*, RecordsIndex index*/) throws DatabaseException {
 		try {
 			int start=(int)out.currentPosition();
+			writeRecordEvent(out, table, oldRecord, newRecord, eventType);
+			out.writeInt(start);
+			/*index.writeRecord(out, start, pks, 0, pks.length);*/
+
+
+		} catch (IOException e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
+	private void writeRecordEvent(RandomOutputStream out, Table<?> table, DatabaseRecord oldRecord, DatabaseRecord newRecord, DatabaseEventType eventType) throws DatabaseException {
+		try {
 			out.writeByte(eventType.getByte());
 
 			int tableIndex=classes.indexOf(table.getClass());
@@ -513,15 +535,104 @@ public class BackupRestoreManager {
 						throw new IllegalAccessError();
 				}
 			}
-			out.writeInt(start);
-			/*index.writeRecord(out, start, pks, 0, pks.length);*/
-
-
 		} catch (DatabaseException | IOException e) {
 			throw DatabaseException.getDatabaseException(e);
 		}
 	}
 
+	/**
+	 * Write the events buffered for the current transaction block as a single Deflate stream, and mark the block
+	 * as deflated into its transaction header. The block keeps its header and its queue, so that transactions
+	 * boundaries stay the random access points of the backup file. Positions of the compressed events are relative
+	 * to the start of the block. The buffer is emptied. Nothing is done if no event was buffered.
+	 * @param out the backup file
+	 * @param transactionReference the position of the transaction header
+	 * @param events the buffered events
+	 * @throws DatabaseException if a problem occurs
+	 */
+	private void writeDeflatedEvents(RandomOutputStream out, int transactionReference, RandomByteArrayOutputStream events) throws DatabaseException {
+		try {
+			if (events.length()==0)
+				return;
+			events.writeByte(-1);
+			byte[] data=events.getBytes();
+			events.setLength(0);
+			events.seek(0);
+			long blockPosition=out.currentPosition();
+			out.seek(transactionReference+TRANSACTION_BLOCK_FORMAT_OFFSET);
+			out.writeInt(DEFLATED_EVENTS_BLOCK);
+			out.seek(blockPosition);
+			out.writeInt(data.length);
+			out.writeInt(-1);
+			Deflater deflater=deflaters.get();
+			deflater.reset();
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer=new byte[8192];
+			int compressedSize=0;
+			while (!deflater.finished())
+			{
+				int s=deflater.deflate(buffer);
+				out.write(buffer, 0, s);
+				compressedSize+=s;
+			}
+			long end=out.currentPosition();
+			out.seek(blockPosition+4);
+			out.writeInt(compressedSize);
+			out.seek(end);
+		}
+		catch(IOException e)
+		{
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
+	/**
+	 * Read a deflated block of events
+	 * @param in the backup file, positioned after the transaction header
+	 * @return the decompressed events, whose positions are relative to the start of the block, and which end with
+	 * the byte -1
+	 * @throws IOException if a problem occurs
+	 */
+	static RandomInputStream readDeflatedEvents(RandomInputStream in) throws IOException {
+		int size=in.readInt();
+		int compressedSize=in.readInt();
+		if (size<=0 || compressedSize<=0)
+			throw new IOException();
+		byte[] compressedEvents=new byte[compressedSize];
+		in.readFully(compressedEvents, 0, compressedSize);
+		byte[] events=new byte[size];
+		Inflater inflater=inflaters.get();
+		inflater.reset();
+		inflater.setInput(compressedEvents);
+		try {
+			int s=0;
+			while (s<size)
+			{
+				int n=inflater.inflate(events, s, size-s);
+				if (n==0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+					throw new IOException("Unexpected end of compressed data");
+				s+=n;
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new IOException(e);
+		}
+		return new RandomByteArrayInputStream(events);
+	}
+
+	/**
+	 * Close the current block of a backup reference, whose events were buffered, and open a new block with the same
+	 * time stamp.
+	 */
+	private void startNewDeflatedReferenceBlock(RandomOutputStream out, AtomicLong currentBackupTime, AtomicInteger nextTransactionReference, RandomByteArrayOutputStream events) throws DatabaseException {
+		writeDeflatedEvents(out, nextTransactionReference.get(), events);
+		saveTransactionQueue(out, nextTransactionReference.get(), currentBackupTime.get(), null, null);
+		positionFileForNewEvent(out);
+		nextTransactionReference.set(saveTransactionHeader(out, currentBackupTime.get()));
+	}
+
 	private void saveTablesHeader(RandomOutputStream out) throws DatabaseException {
 		try {
 			if (classes.size()>Short.MAX_VALUE)
@@ -873,89 +984,99 @@ public class BackupRestoreManager {
 							saveHeader(rout.get(), currentBackupTime.get(), true/*, null, index*/);
 
 							final AtomicInteger nextTransactionReference = new AtomicInteger(saveTransactionHeader(rout.get(), currentBackupTime.get()));
+							//records are compressed per block of events, when the block is full, and at the end of each table
+							final RandomByteArrayOutputStream deflatedEvents=backupConfiguration.isBackupCompressed()?new RandomByteArrayOutputStream():null;
 
 
-
-							for (Class<? extends Table<?>> c : classes) {
-								final Table<?> table = databaseWrapper.getTableInstance(c);
-
-
-								globalNumberOfSavedRecords.set(databaseWrapper.runSynchronizedTransaction(new SynchronizedTransaction<Long>() {
-									long originalPosition = rout.get().currentPosition();
-									long numberOfSavedRecords=globalNumberOfSavedRecords.get();
-									long startPosition=0;
-									RandomOutputStream out = rout.get();
-
-									@Override
-									public Long run() throws Exception {
-
-										table.getPaginatedRecordsWithUnknownType(startPosition==0?-1:startPosition, startPosition==0?-1:Long.MAX_VALUE, new Filter<DatabaseRecord>() {
+							if (backupConfiguration.getMaxThreadsNumberForBackupReference()>1 && classes.size()>1 && !databaseWrapper.isInTransactionByCurrentThread()) {
+								globalNumberOfSavedRecords.set(dumpTablesInParallel(backupTime, rout, currentBackupTime, nextTransactionReference, deflatedEvents, maxBufferSize, maxBuffersNumber, progressMonitor, totalRecords));
+							}
+							else {
+								for (Class<? extends Table<?>> c : classes) {
+									final Table<?> table = databaseWrapper.getTableInstance(c);
 
 
+									globalNumberOfSavedRecords.set(databaseWrapper.runSynchronizedTransaction(new SynchronizedTransaction<Long>() {
+										long originalPosition = rout.get().currentPosition();
+										long numberOfSavedRecords=globalNumberOfSavedRecords.get();
+										long startPosition=0;
+										int bufferedRecords=0;
+										RandomOutputStream out = rout.get();
 
-											@Override
-											public boolean nextRecord(DatabaseRecord _record) throws DatabaseException {
-												backupRecordEvent(out, table, null, _record, DatabaseEventType.ADD/*, index.get()*/);
-												try {
-													originalPosition = out.currentPosition();
-													++startPosition;
-													if (progressMonitor != null) {
+										@Override
+										public Long run() throws Exception {
 
-														++numberOfSavedRecords;
-														progressMonitor.setProgress((int) (((numberOfSavedRecords+1) * 1000) / totalRecords));
-													}
+											table.getPaginatedRecordsWithUnknownType(startPosition==0?-1:startPosition, startPosition==0?-1:Long.MAX_VALUE, new Filter<DatabaseRecord>() {
 
-													if (out.currentPosition() >= backupConfiguration.getMaxBackupFileSizeInBytes()) {
-														saveTransactionQueue(rout.get(), nextTransactionReference.get(), currentBackupTime.get(), null, null/*, index.get()*/);
-														out.close();
 
-														//index.set(null);
 
-														long curTime = System.currentTimeMillis();
-														while (curTime == currentBackupTime.get()) {
-															try {
-																//noinspection BusyWait
-																Thread.sleep(1);
-															} catch (InterruptedException e) {
-																e.printStackTrace();
+												@Override
+												public boolean nextRecord(DatabaseRecord _record) throws DatabaseException {
+													try {
+														if (deflatedEvents==null)
+															backupRecordEvent(out, table, null, _record, DatabaseEventType.ADD/*, index.get()*/);
+														else {
+															backupRecordEvent(deflatedEvents, table, null, _record, DatabaseEventType.ADD);
+															++bufferedRecords;
+															if (deflatedEvents.length()>=MAX_DEFLATED_REFERENCE_BLOCK_SIZE_IN_BYTES) {
+																startNewDeflatedReferenceBlock(out, currentBackupTime, nextTransactionReference, deflatedEvents);
+																bufferedRecords=0;
 															}
-															curTime = System.currentTimeMillis();
 														}
-														currentBackupTime.set(curTime);
-														File file = initNewFileForBackupIncrement(curTime);
-														rout.set(out = new BufferedRandomOutputStream(new RandomFileOutputStream(file, RandomFileOutputStream.AccessMode.READ_AND_WRITE), maxBufferSize, maxBuffersNumber));
-														saveHeader(out, curTime, false/*, null, index*/);
-														nextTransactionReference.set(saveTransactionHeader(out, currentBackupTime.get()));
 														originalPosition = out.currentPosition();
+														++startPosition;
+														if (progressMonitor != null) {
+
+															++numberOfSavedRecords;
+															progressMonitor.setProgress((int) (((numberOfSavedRecords+1) * 1000) / totalRecords));
+														}
 
+														if (out.currentPosition() >= backupConfiguration.getMaxBackupFileSizeInBytes()) {
+															out = startNewBackupReferencePart(rout, currentBackupTime, nextTransactionReference, maxBufferSize, maxBuffersNumber);
+															originalPosition = out.currentPosition();
+														}
+													} catch (IOException e) {
+														throw Objects.requireNonNull(DatabaseException.getDatabaseException(e));
 													}
-												} catch (IOException e) {
-													throw Objects.requireNonNull(DatabaseException.getDatabaseException(e));
-												}
 
-												return false;
+													return false;
+												}
+											});
+											if (deflatedEvents!=null && bufferedRecords>0) {
+												startNewDeflatedReferenceBlock(out, currentBackupTime, nextTransactionReference, deflatedEvents);
+												bufferedRecords=0;
+												originalPosition = out.currentPosition();
 											}
-										});
-										return numberOfSavedRecords;
-									}
+											return numberOfSavedRecords;
+										}
 
-									@Override
-									public TransactionIsolation getTransactionIsolation() {
-										return TransactionIsolation.TRANSACTION_SERIALIZABLE;
-									}
+										@Override
+										public TransactionIsolation getTransactionIsolation() {
+											return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+										}
 
-									@Override
-									public boolean doesWriteData() {
-										return false;
-									}
+										@Override
+										public boolean doesWriteData() {
+											return false;
+										}
 
-									@Override
-									public void initOrReset() throws Exception {
-										rout.get().setLength(originalPosition);
-									}
-								}));
+										@Override
+										public void initOrReset() throws Exception {
+											rout.get().setLength(originalPosition);
+											if (deflatedEvents!=null) {
+												//buffered records were not written, and must be read again
+												startPosition-=bufferedRecords;
+												bufferedRecords=0;
+												deflatedEvents.setLength(0);
+												deflatedEvents.seek(0);
+											}
+										}
+									}));
 
+								}
 							}
+							if (deflatedEvents!=null)
+								writeDeflatedEvents(rout.get(), nextTransactionReference.get(), deflatedEvents);
 							saveTransactionQueue(rout.get(), nextTransactionReference.get(), currentBackupTime.get(), null, null/*, index.get()*/);
 
 						} finally {
@@ -996,6 +1117,158 @@ public class BackupRestoreManager {
 		}
 	}
 
+	private RandomOutputStream startNewBackupReferencePart(AtomicReference<RandomOutputStream> rout, AtomicLong currentBackupTime, AtomicInteger nextTransactionReference, int maxBufferSize, int maxBuffersNumber) throws DatabaseException, IOException {
+		saveTransactionQueue(rout.get(), nextTransactionReference.get(), currentBackupTime.get(), null, null/*, index.get()*/);
+		rout.get().close();
+
+		//index.set(null);
+
+		long curTime = System.currentTimeMillis();
+		while (curTime == currentBackupTime.get()) {
+			try {
+				//noinspection BusyWait
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			curTime = System.currentTimeMillis();
+		}
+		currentBackupTime.set(curTime);
+		File file = initNewFileForBackupIncrement(curTime);
+		RandomOutputStream out = new BufferedRandomOutputStream(new RandomFileOutputStream(file, RandomFileOutputStream.AccessMode.READ_AND_WRITE), maxBufferSize, maxBuffersNumber);
+		rout.set(out);
+		saveHeader(out, curTime, false/*, null, index*/);
+		nextTransactionReference.set(saveTransactionHeader(out, currentBackupTime.get()));
+		return out;
+	}
+
+	/**
+	 * Dump every table into its own temporary part, with several threads, and merge the parts into the backup
+	 * reference, following the order of tables. The current thread holds the database read lock, and delegates
+	 * it to the threads that dump tables. Since no transaction can be committed during the backup, every thread
+	 * reads the same state of the database. When backups are compressed, merged events are buffered and compressed
+	 * per block.
+	 */
+	private long dumpTablesInParallel(long backupTime, AtomicReference<RandomOutputStream> rout, AtomicLong currentBackupTime, AtomicInteger nextTransactionReference, RandomByteArrayOutputStream deflatedEvents, final int maxBufferSize, final int maxBuffersNumber, ProgressMonitorDM progressMonitor, long totalRecords) throws DatabaseException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(backupConfiguration.getMaxThreadsNumberForBackupReference(), classes.size()), r -> {
+			Thread t = new Thread(r, "OOD backup reference of " + dbPackage.getName());
+			t.setDaemon(true);
+			return t;
+		});
+		ArrayList<File> parts = new ArrayList<>(classes.size());
+		try {
+			ArrayList<Future<Long>> dumps = new ArrayList<>(classes.size());
+			for (int i = 0; i < classes.size(); i++) {
+				final Table<?> table = databaseWrapper.getTableInstance(classes.get(i));
+				final File part = new File(backupDirectory, "backup-ood-" + backupTime + "-" + i + ".dpart");
+				parts.add(part);
+				dumps.add(executor.submit(databaseWrapper.getTaskWithDelegatedReadLock(() -> dumpTable(table, part, maxBufferSize, maxBuffersNumber))));
+			}
+			long numberOfSavedRecords = 0;
+			byte[] buffer = new byte[8192];
+			for (int i = 0; i < parts.size(); i++) {
+				dumps.get(i).get();
+				try (RandomInputStream in = new BufferedRandomInputStream(new RandomFileInputStream(parts.get(i)), maxBufferSize, maxBuffersNumber)) {
+					RandomOutputStream out = rout.get();
+					while (in.available() > 0) {
+						int size = in.readInt();
+						if (size < 0)
+							throw new IOException();
+						if (size > buffer.length)
+							buffer = new byte[Math.max(size, buffer.length * 2)];
+						in.readFully(buffer, 0, size);
+						RandomOutputStream eventsOut = deflatedEvents == null ? out : deflatedEvents;
+						int start = (int) eventsOut.currentPosition();
+						eventsOut.write(buffer, 0, size);
+						eventsOut.writeInt(start);
+						if (deflatedEvents != null && deflatedEvents.length() >= MAX_DEFLATED_REFERENCE_BLOCK_SIZE_IN_BYTES)
+							startNewDeflatedReferenceBlock(out, currentBackupTime, nextTransactionReference, deflatedEvents);
+						if (progressMonitor != null) {
+							++numberOfSavedRecords;
+							progressMonitor.setProgress((int) (((numberOfSavedRecords + 1) * 1000) / totalRecords));
+						}
+						if (out.currentPosition() >= backupConfiguration.getMaxBackupFileSizeInBytes())
+							out = startNewBackupReferencePart(rout, currentBackupTime, nextTransactionReference, maxBufferSize, maxBuffersNumber);
+					}
+				}
+				if (!parts.get(i).delete())
+					throw new DatabaseException("Impossible to delete file " + parts.get(i));
+			}
+			return numberOfSavedRecords;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw DatabaseException.getDatabaseException((Exception) e.getCause());
+			else
+				throw DatabaseException.getDatabaseException(e);
+		} catch (InterruptedException | IOException e) {
+			throw DatabaseException.getDatabaseException(e);
+		} finally {
+			executor.shutdownNow();
+			try {
+				//the read lock must be held until the end of the dumps
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			for (File part : parts) {
+				if (part.exists())
+					//noinspection ResultOfMethodCallIgnored
+					part.delete();
+			}
+		}
+	}
+
+	/**
+	 * Dump a table into a temporary part. Every event is preceded by its size, and is not followed by its position,
+	 * which is only known when the part is merged into the backup reference.
+	 */
+	private long dumpTable(final Table<?> table, final File part, final int maxBufferSize, final int maxBuffersNumber) throws DatabaseException {
+		return databaseWrapper.runSynchronizedTransaction(new SynchronizedTransaction<Long>() {
+			long numberOfSavedRecords=0;
+
+			@Override
+			public Long run() throws Exception {
+				try (RandomOutputStream out = new BufferedRandomOutputStream(new RandomFileOutputStream(part, RandomFileOutputStream.AccessMode.READ_AND_WRITE), maxBufferSize, maxBuffersNumber)) {
+					out.setLength(0);
+					table.getPaginatedRecordsWithUnknownType(-1, -1, new Filter<DatabaseRecord>() {
+						@Override
+						public boolean nextRecord(DatabaseRecord _record) throws DatabaseException {
+							try {
+								long start = out.currentPosition();
+								out.writeInt(-1);
+								writeRecordEvent(out, table, null, _record, DatabaseEventType.ADD);
+								long end = out.currentPosition();
+								out.seek(start);
+								out.writeInt((int) (end - start - 4));
+								out.seek(end);
+								++numberOfSavedRecords;
+							} catch (IOException e) {
+								throw Objects.requireNonNull(DatabaseException.getDatabaseException(e));
+							}
+							return false;
+						}
+					});
+				}
+				return numberOfSavedRecords;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return false;
+			}
+
+			@Override
+			public void initOrReset() {
+				numberOfSavedRecords=0;
+			}
+		});
+	}
+
 	/**
 	 * Clean old backups
 	 * @throws DatabaseException if a problem occurs
@@ -1514,6 +1787,7 @@ public class BackupRestoreManager {
 			final ArrayList<Table<?>> tables=tbls;
 			final int maxBufferSize = backupConfiguration.getMaxStreamBufferSizeForBackupRestoration();
 			final int maxBuffersNumber = backupConfiguration.getMaxStreamBufferNumberForBackupRestoration();
+			final int maxRecordsNumberPerBatch = backupConfiguration.getMaxRecordsNumberPerRestorationBatch();
 			final Reference<Boolean> addResetDB=new Reference<>(true);
 			try{
 				databaseWrapper.getSynchronizer().startExtendedTransaction();
@@ -1540,13 +1814,27 @@ public class BackupRestoreManager {
 							previousTransactionUTC=currentTransactionUTC;
 							if (currentTransactionUTC>dateUTCInMs)
 								break fileloop;
-							if (in.readInt()!=-1)
+							int blockFormat=in.readInt();
+							if (blockFormat!=RAW_EVENTS_BLOCK && blockFormat!=DEFLATED_EVENTS_BLOCK)
 								throw new IOException();
-
-							final long dataTransactionStartPosition=in.currentPosition();
+							final boolean deflatedBlock=blockFormat==DEFLATED_EVENTS_BLOCK;
+							final long blockStartPosition=in.currentPosition();
+							final RandomInputStream eventsIn=deflatedBlock?readDeflatedEvents(in):in;
+							final long deflatedBlockSize=in.currentPosition()-blockStartPosition;
+							final long dataTransactionStartPosition=eventsIn.currentPosition();
 							final long pp=progressPosition;
 							progressPosition=databaseWrapper.runSynchronizedTransaction(new SynchronizedTransaction<Long>() {
 								long progressPosition=pp;
+								Table<?> batchTable=null;
+								final ArrayList<DatabaseRecord> batchRecords=new ArrayList<>();
+
+								private void flushBatch() throws DatabaseException {
+									if (batchRecords.size()==0)
+										return;
+									restoreAddedRecords(batchTable, batchRecords);
+									batchRecords.clear();
+								}
+
 								@Override
 								public Long run() throws Exception {
 									if (addResetDB.get())
@@ -1567,74 +1855,73 @@ public class BackupRestoreManager {
 									}
 									for(;;) {
 
-										int startRecord = (int) in.currentPosition();
-										byte eventTypeCode = in.readByte();
-										if (eventTypeCode == -1)
+										int startRecord = (int) eventsIn.currentPosition();
+										byte eventTypeCode = eventsIn.readByte();
+										if (eventTypeCode == -1) {
+											flushBatch();
+											if (deflatedBlock)
+												progressPosition += deflatedBlockSize;
 											return progressPosition;
+										}
 										DatabaseEventType eventType = DatabaseEventType.getEnum(eventTypeCode);
 										if (eventType == null)
 											throw new IOException();
-										int tableIndex = in.readUnsignedShort();
+										int tableIndex = eventsIn.readUnsignedShort();
 										if (tableIndex >= tables.size())
 											throw new IOException();
 										Table<?> table = tables.get(tableIndex);
+										if (eventType!=DatabaseEventType.ADD || table!=batchTable)
+											flushBatch();
 										//Table<?> oldTable = oldTables.get(tableIndex);
 										if (eventType==DatabaseEventType.REMOVE_ALL_RECORDS_WITH_CASCADE)
 										{
 											table.removeAllRecordsWithCascade();
 										}
 										else {
-											int s=in.readBytesArray(recordBuffer, 0, false, Table.MAX_PRIMARY_KEYS_SIZE_IN_BYTES);
+											int s=eventsIn.readBytesArray(recordBuffer, 0, false, Table.MAX_PRIMARY_KEYS_SIZE_IN_BYTES);
 											
 											switch (eventType) {
 												case ADD: {
 													assert eventTypeCode == 2;
-													HashMap<String, Object> hm = new HashMap<>();
-													table.deserializeFields(hm, recordBuffer, 0, s, true, false, false);
+													DatabaseRecord dr = table.getNewRecordInstance(false);
+													table.deserializeFields(dr, recordBuffer, 0, s, true, false, false);
 
-													if (in.readBoolean()) {
-														s=in.readBytesArray(recordBuffer, 0, false, Table.MAX_PRIMARY_KEYS_SIZE_IN_BYTES);
-														table.deserializeFields(hm, recordBuffer, 0, s, false, true, false);
+													if (eventsIn.readBoolean()) {
+														s=eventsIn.readBytesArray(recordBuffer, 0, false, Table.MAX_PRIMARY_KEYS_SIZE_IN_BYTES);
+														table.deserializeFields(dr, recordBuffer, 0, s, false, true, false);
 													}
 
-													if (in.readBoolean()) {
-														s=in.readBytesArray(recordBuffer, 0, false, Table.MAX_NON_KEYS_SIZE_IN_BYTES);
-														table.deserializeFields(hm, recordBuffer, 0, s, false, false, true);
+													if (eventsIn.readBoolean()) {
+														s=eventsIn.readBytesArray(recordBuffer, 0, false, Table.MAX_NON_KEYS_SIZE_IN_BYTES);
+														table.deserializeFields(dr, recordBuffer, 0, s, false, false, true);
 													}
 
-													try {
-														 table.addUntypedRecord(hm);
-														//newRecord = table.addUntypedRecord(hm, drRecord == null, null);
-													} catch (ConstraintsNotRespectedDatabaseException ignored) {
-														//TODO this exception occurs sometimes but should not. See why.
-														DatabaseRecord newRecord = table.getRecord(hm);
-														for (FieldAccessor fa : table.getFieldAccessors()) {
-															if (!fa.isPrimaryKey()) {
-																fa.setValue(newRecord, hm.get(fa.getFieldName()));
-															}
-														}
-														table.updateUntypedRecord(newRecord, true, null);
+													if (maxRecordsNumberPerBatch>1) {
+														batchTable = table;
+														batchRecords.add(dr);
+														if (batchRecords.size() >= maxRecordsNumberPerBatch)
+															flushBatch();
 													}
-
-
+													else
+														restoreAddedRecord(table, table.getMap(dr, true, true));
 												}
 												break;
 												case UPDATE: {
 													DatabaseRecord dr = table.getNewRecordInstance(false);
 													table.deserializeFields(dr, recordBuffer, 0, s, true, false, false);
 
-													if (in.readBoolean()) {
-														s = in.readUnsignedInt24Bits();
-														in.readFully(recordBuffer, 0, s);
+													if (eventsIn.readBoolean()) {
+														s = eventsIn.readUnsignedInt24Bits();
+														eventsIn.readFully(recordBuffer, 0, s);
 														table.deserializeFields(dr, recordBuffer, 0, s, false, true, false);
 													}
 
-													if (in.readBoolean()) {
-														s = in.readInt();
+													if (eventsIn.readBoolean()) {
+														s = eventsIn.readInt();
 														if (s < 0)
 															throw new IOException();
 														if (s > 0) {
-															in.readFully(recordBuffer, 0, s);
+															eventsIn.readFully(recordBuffer, 0, s);
 
 															table.deserializeFields(dr, recordBuffer, 0, s, false, false, true);
 														}
@@ -1664,10 +1951,10 @@ public class BackupRestoreManager {
 
 											}
 										}
-										if (in.readInt() != startRecord)
+										if (eventsIn.readInt() != startRecord)
 											throw new IOException();
-										if (progressMonitor != null && totalSize != 0) {
-											progressPosition += in.currentPosition() - startRecord;
+										if (progressMonitor != null && totalSize != 0 && !deflatedBlock) {
+											progressPosition += eventsIn.currentPosition() - startRecord;
 											progressMonitor.setProgress((int) (((progressPosition+1) * 1000) / totalSize));
 										}
 									}
@@ -1685,9 +1972,13 @@ public class BackupRestoreManager {
 
 								@Override
 								public void initOrReset() throws Exception {
-									in.seek(dataTransactionStartPosition);
+									batchTable=null;
+									batchRecords.clear();
+									eventsIn.seek(dataTransactionStartPosition);
 								}
 							});
+							if (deflatedBlock && in.readByte()!=-1)
+								throw new IOException();
 							if (nextTransaction<0)
 								break;
 							if (in.readInt()!=startTransaction)
@@ -1739,6 +2030,43 @@ public class BackupRestoreManager {
 			databaseWrapper.unlockWrite();
 		}
 	}
+	/**
+	 * Restore added records with one batch of inserts. If the batch does not respect the table constraints, for
+	 * instance because one of the records is already present, the batch is rolled back to its savepoint, and the
+	 * records are restored one by one. Other failures are not retried.
+	 */
+	static void restoreAddedRecords(Table<?> table, List<DatabaseRecord> records) throws DatabaseException {
+		try {
+			table.addUntypedRecordsForRestoration(records);
+		}
+		catch (ConstraintsNotRespectedDatabaseException e)
+		{
+			for (DatabaseRecord dr : records)
+				restoreAddedRecord(table, table.getMap(dr, true, true));
+		}
+	}
+
+	private static void restoreAddedRecord(Table<?> table, Map<String, Object> hm) throws DatabaseException {
+		try {
+			table.addUntypedRecord(hm);
+		} catch (ConstraintsNotRespectedDatabaseException e) {
+			//an added event replayed over a record that is already present is applied as an update.
+			//other constraint violations, like duplicated unique fields, cannot be restored.
+			HashMap<String, Object> pks = new HashMap<>();
+			for (FieldAccessor fa : table.getPrimaryKeysFieldAccessors())
+				pks.put(fa.getFieldName(), hm.get(fa.getFieldName()));
+			DatabaseRecord newRecord = table.getRecord(pks);
+			if (newRecord==null)
+				throw e;
+			for (FieldAccessor fa : table.getFieldAccessors()) {
+				if (!fa.isPrimaryKey()) {
+					fa.setValue(newRecord, hm.get(fa.getFieldName()));
+				}
+			}
+			table.updateUntypedRecord(newRecord, true, null);
+		}
+	}
+
 	static void positionForDataRead(RandomInputStream in, boolean reference) throws DatabaseException {
 		try {
 
@@ -1857,6 +2185,8 @@ public class BackupRestoreManager {
 		private final int oldLength;
 		private final long oldLastFile;
 		private final Long firstTransactionID;
+		//events are compressed together when the transaction is validated
+		private final RandomByteArrayOutputStream deflatedEvents;
 
 
 		private Transaction(long fileTimeStamp, long lastTransactionUTC, RandomOutputStream out, /*RecordsIndex index, */long oldLastFile, int oldLength, Long firstTransactionID) throws DatabaseException {
@@ -1867,6 +2197,7 @@ public class BackupRestoreManager {
 			this.oldLastFile=oldLastFile;
 			this.oldLength=oldLength;
 			this.firstTransactionID=firstTransactionID;
+			this.deflatedEvents=backupConfiguration.isBackupCompressed()?new RandomByteArrayOutputStream():null;
 
 			transactionUTC=System.currentTimeMillis();
 			while(transactionUTC==lastTransactionUTC)
@@ -1894,7 +2225,7 @@ public class BackupRestoreManager {
 		@Override
 		final long getBackupPosition() throws DatabaseException {
 			try {
-				return out.currentPosition();
+				return deflatedEvents==null?out.currentPosition():deflatedEvents.currentPosition();
 			} catch (IOException e) {
 				throw DatabaseException.getDatabaseException(e);
 			}
@@ -1905,7 +2236,12 @@ public class BackupRestoreManager {
 		final void cancelTransaction(long backupPosition) throws DatabaseException
 		{
 			try {
-				out.setLength(backupPosition);
+				if (deflatedEvents==null)
+					out.setLength(backupPosition);
+				else {
+					deflatedEvents.setLength(backupPosition);
+					deflatedEvents.seek(backupPosition);
+				}
 				lastBackupEventUTC=Long.MIN_VALUE;
 				//transactionsInterval=null;
 			} catch (IOException e) {
@@ -1960,6 +2296,8 @@ public class BackupRestoreManager {
 						cancelTransaction();
 						return;
 					}
+					if (deflatedEvents!=null)
+						writeDeflatedEvents(out, nextTransactionReference, deflatedEvents);
 					saveTransactionQueue(out, nextTransactionReference, transactionUTC, firstTransactionID, /*transactionToSynchronize ? */transactionID /*: null/*, index*/);
 
 					try {
@@ -2001,7 +2339,7 @@ public class BackupRestoreManager {
 				return;
 			++transactionsNumber;
 
-			BackupRestoreManager.this.backupRecordEvent(out, _de.getTable(), _de.getOldDatabaseRecord(), _de.getNewDatabaseRecord(), _de.getType()/*, index*/);
+			BackupRestoreManager.this.backupRecordEvent(deflatedEvents==null?out:deflatedEvents, _de.getTable(), _de.getOldDatabaseRecord(), _de.getNewDatabaseRecord(), _de.getType()/*, index*/);
 		}
 
 	}
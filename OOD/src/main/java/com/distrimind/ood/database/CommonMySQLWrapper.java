@@ -713,6 +713,12 @@ public abstract class CommonMySQLWrapper extends DatabaseWrapper{
 		return true;
 	}
 
+	@Override
+	protected int getStreamingFetchSize() {
+		//row by row streaming (Integer.MIN_VALUE) forbids other queries on the same connection until the result set is closed
+		return 0;
+	}
+
 	@Override
 	protected boolean supportFullSqlFieldName() {
 		return true;
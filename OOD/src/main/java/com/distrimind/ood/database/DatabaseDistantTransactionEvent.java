@@ -269,6 +269,34 @@ final class DatabaseDistantTransactionEvent extends Table<DatabaseDistantTransac
 		return databaseDistantEventsTable;
 	}
 
+	/**
+	 * @param hostID the host identifier
+	 * @param minLocalID the minimum local identifier (inclusive)
+	 * @param maxLocalID the maximum local identifier (inclusive)
+	 * @return the minimum local identifier of the indirect transactions that the given host has still to receive, or {@link Long#MAX_VALUE} if there is no transaction
+	 * @throws DatabaseException if a problem occurs
+	 */
+	long getFirstLocalIDNotInformed(final DecentralizedValue hostID, long minLocalID, long maxLocalID) throws DatabaseException {
+		final AtomicLong res=new AtomicLong(Long.MAX_VALUE);
+		if (maxLocalID<minLocalID)
+			return res.get();
+		// informed peers are serialized, so that they cannot be tested into the SQL query.
+		// Records are ordered by local identifier: the first concerned record gives the minimum.
+		getOrderedRecords(new Filter<DatabaseDistantTransactionEvent.Record>() {
+
+			@Override
+			public boolean nextRecord(Record _record) throws SerializationDatabaseException {
+				if (_record.isConcernedBy(hostID)) {
+					res.set(_record.getLocalID());
+					stopTableParsing();
+				}
+				return false;
+			}
+		}, "localID<=%maxLocalID AND localID>=%minLocalID AND peersInformedFull=%peersInformedFull",
+				new Object[] {"maxLocalID", maxLocalID, "minLocalID", minLocalID, "peersInformedFull", Boolean.FALSE}, true, "localID");
+		return res.get();
+	}
+
 
 	int exportTransactions(final RandomOutputStream oos, final DatabaseHooksTable.Record hook, final int maxEventsRecords,
 						   final long fromTransactionID, final AtomicLong nearNextLocalID) throws DatabaseException {
@@ -471,40 +471,15 @@ final class DatabaseHooksTable extends Table<DatabaseHooksTable.Record> {
 					throws DatabaseException {
 				if (!excludedHooks.contains(h.getHostID())) {
 					final AtomicLong actualLastID = new AtomicLong(Long.MAX_VALUE);
-					getDatabaseTransactionsPerHostTable()
-							.getRecords(new Filter<DatabaseTransactionsPerHostTable.Record>() {
-
-								@Override
-								public boolean nextRecord(DatabaseTransactionsPerHostTable.Record _record) {
-
-									if (_record.getTransaction().getID() - 1 < actualLastID.get())
-										actualLastID.set(_record.getTransaction().getID() - 1);
-									if (actualLastID.get() == h.getLastValidatedLocalTransactionID())
-										this.stopTableParsing();
-									return false;
-								}
-
-							}, "hook=%hook", "hook", h);
+					long firstID = getDatabaseTransactionsPerHostTable().getFirstTransactionID(h);
+					if (firstID != Long.MAX_VALUE)
+						actualLastID.set(firstID - 1);
 					if (actualLastID.get() > h.getLastValidatedLocalTransactionID()) {
-						getDatabaseDistantTransactionEvent()
-								.getRecords(new Filter<DatabaseDistantTransactionEvent.Record>() {
-
-									@Override
-									public boolean nextRecord(
-											com.distrimind.ood.database.DatabaseDistantTransactionEvent.Record _record)
-											throws SerializationDatabaseException {
-										if (_record.isConcernedBy(h.getHostID())) {
-											if (_record.getLocalID() - 1 < actualLastID.get())
-												actualLastID.set(_record.getLocalID() - 1);
-											if (actualLastID.get() == h.getLastValidatedLocalTransactionID())
-												this.stopTableParsing();
-										}
-										return false;
-									}
-								}, "localID<=%maxLocalID AND localID>%minLocalID and peersInformedFull=%peersInformedFull",
-										"maxLocalID", actualLastID.get() , "minLocalID",
-										h.getLastValidatedLocalTransactionID() , "peersInformedFull",
-										Boolean.FALSE);
+						//same bounds than the previous condition localID>lastValidatedLocalTransactionID AND localID<=actualLastID
+						firstID = getDatabaseDistantTransactionEvent().getFirstLocalIDNotInformed(h.getHostID(),
+								h.getLastValidatedLocalTransactionID() + 1, actualLastID.get());
+						if (firstID != Long.MAX_VALUE)
+							actualLastID.set(firstID - 1);
 					}
 
 					if (actualLastID.get() == Long.MAX_VALUE && h.getLastValidatedLocalTransactionID()<0)
@@ -949,23 +924,10 @@ final class DatabaseHooksTable extends Table<DatabaseHooksTable.Record> {
 	}
 
 	long getGlobalLastValidatedTransactionID() throws DatabaseException {
-		final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
-
-		getRecords(new Filter<DatabaseHooksTable.Record>() {
-
-			@Override
-			public boolean nextRecord(DatabaseHooksTable.Record _record) {
-				if (!_record.concernsLocalDatabaseHost()) {
-					if (min.get() > _record.getLastValidatedLocalTransactionID()) {
-						min.set(_record.getLastValidatedLocalTransactionID());
-					}
-				}
-				return false;
-			}
-		});
-		if (min.get() == Long.MAX_VALUE)
-			min.set(-1);
-		return min.get();
+		Object min = getMinValue("lastValidatedLocalTransactionID", "concernsDatabaseHost=%c", "c", Boolean.FALSE);
+		if (min == null)
+			return -1;
+		return ((Number) min).longValue();
 	}
 
 
@@ -0,0 +1,116 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+/**
+ * Listener which receives metrics about the transactions and the queries of a {@link DatabaseWrapper}.
+ * Register it with {@link DatabaseWrapper#setMetricsListener(DatabaseMetricsListener)}.
+ *
+ * Functions are called synchronously by the thread which uses the database, sometimes when a lock of the database is
+ * held. They must return quickly, and must not use the database. Every function does nothing by default.
+ *
+ * When no listener is registered, no metric is computed.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+public interface DatabaseMetricsListener {
+
+	/**
+	 * Operations applied to records
+	 */
+	enum RecordsOperation
+	{
+		READ,
+		INSERT,
+		UPDATE,
+		DELETE
+	}
+
+	/**
+	 * Called when a transaction has finished, after it was committed or after its last try has failed.
+	 * Transactions run into another transaction are part of the enclosing transaction, and are not reported.
+	 * Durations cover all tries of the transaction.
+	 *
+	 * @param transactionIsolation the transaction isolation
+	 * @param writeData true if the transaction can write data
+	 * @param retriesNumber the number of retries due to a deadlock, a serialization problem or a disconnection
+	 * @param lockWaitDurationInNs the duration spent to acquire the database locks
+	 * @param runDurationInNs the duration spent to run the transaction, including the SQL queries
+	 * @param commitDurationInNs the duration spent to commit
+	 * @param memoryTablesRefreshDurationInNs the duration spent to refresh the tables loaded into memory after the commit
+	 * @param committed true if the transaction was committed
+	 */
+	default void transactionFinished(TransactionIsolation transactionIsolation, boolean writeData, int retriesNumber,
+									 long lockWaitDurationInNs, long runDurationInNs, long commitDurationInNs,
+									 long memoryTablesRefreshDurationInNs, boolean committed)
+	{
+
+	}
+
+	/**
+	 * Called when records were read from the database, or written into the database. Records read from a table
+	 * loaded into memory without querying the database, and records removed by the database through cascading
+	 * foreign keys, are not reported.
+	 * @param table the concerned table
+	 * @param operation the operation
+	 * @param recordsNumber the number of concerned records, greater than 0
+	 */
+	default void recordsProcessed(Table<?> table, RecordsOperation operation, long recordsNumber)
+	{
+
+	}
+
+	/**
+	 * Called when a query asks for a prepared statement of the session cache
+	 * @param hit true if the statement was found into the cache, false if it was prepared
+	 */
+	default void preparedStatementCacheAccessed(boolean hit)
+	{
+
+	}
+
+	/**
+	 * Called when the number of events waiting to be sent by the synchronizer to distant peers has changed
+	 * @param queueDepth the number of events waiting to be sent
+	 */
+	default void synchronizerQueueDepthChanged(int queueDepth)
+	{
+
+	}
+}
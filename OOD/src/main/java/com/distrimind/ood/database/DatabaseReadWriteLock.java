@@ -0,0 +1,179 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read/write lock shared between every {@link DatabaseWrapper} that points to the same database identifier.
+ *
+ * Read locks can be held by several threads at the same time, whereas the write lock is exclusive.
+ * Both locks are reentrant. A thread that holds the write lock can also take the read lock. Like with
+ * {@link ReentrantReadWriteLock}, a thread that only holds read locks cannot take the write lock, because the
+ * upgrade could not be atomic : the write lock must be taken up front (see {@link #canLockWrite()}).
+ *
+ * A thread holding a lock can also delegate its read lock to tasks executed by other threads
+ * (see {@link #getTaskWithDelegatedReadLock(Callable)}).
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+final class DatabaseReadWriteLock {
+	private final ReentrantReadWriteLock lock=new ReentrantReadWriteLock();
+	private final ThreadLocal<Boolean> readLockDelegated=new ThreadLocal<>();
+
+	void lockRead()
+	{
+		if (isReadLockDelegated())
+			return;
+		lock.readLock().lock();
+	}
+
+	void unlockRead()
+	{
+		if (isReadLockDelegated())
+			return;
+		lock.readLock().unlock();
+	}
+
+	void lockWrite()
+	{
+		if (isReadLockDelegated())
+			throw new IllegalStateException("A thread that uses a delegated read lock cannot write");
+		if (!lock.isWriteLockedByCurrentThread() && lock.getReadHoldCount()>0)
+			throw new IllegalStateException("A thread that holds the read lock cannot take the write lock");
+		lock.writeLock().lock();
+	}
+
+	/**
+	 * @return true if the current thread holds the write lock, or if it does not hold any read lock
+	 */
+	boolean canLockWrite()
+	{
+		return lock.isWriteLockedByCurrentThread() || (lock.getReadHoldCount()==0 && !isReadLockDelegated());
+	}
+
+	void unlockWrite()
+	{
+		lock.writeLock().unlock();
+	}
+
+	boolean isWriteLockedByCurrentThread()
+	{
+		return lock.isWriteLockedByCurrentThread();
+	}
+
+	boolean isLockedByCurrentThread()
+	{
+		return lock.isWriteLockedByCurrentThread() || lock.getReadHoldCount()>0 || isReadLockDelegated();
+	}
+
+	private boolean isReadLockDelegated()
+	{
+		return readLockDelegated.get()!=null;
+	}
+
+	/**
+	 * Returns a task that executes the given task under the protection of the lock held by the current thread.
+	 * The thread that executes the returned task does not acquire the read lock itself : it cannot be blocked
+	 * by a writer waiting for the lock, whereas the current thread waits for the end of the task. The current
+	 * thread must hold the lock until the end of the returned task, which must not write data.
+	 * @param task the task to execute into another thread
+	 * @param <V> the result type
+	 * @return the task to execute into another thread
+	 */
+	<V> Callable<V> getTaskWithDelegatedReadLock(final Callable<V> task)
+	{
+		if (task==null)
+			throw new NullPointerException();
+		if (!isLockedByCurrentThread())
+			throw new IllegalStateException("The current thread does not hold the lock");
+		return () -> {
+			readLockDelegated.set(Boolean.TRUE);
+			try {
+				return task.call();
+			}
+			finally {
+				readLockDelegated.remove();
+			}
+		};
+	}
+
+	/**
+	 * @return a new condition associated to the write lock
+	 */
+	Condition newWriteCondition()
+	{
+		return lock.writeLock().newCondition();
+	}
+
+	/**
+	 * Wait for the given condition. The current thread must hold the write lock. Read locks held by the current
+	 * thread are also released during the waiting, like a simple reentrant lock would do.
+	 * @param condition the condition returned by {@link #newWriteCondition()}
+	 * @param time the maximum time to wait
+	 * @param unit the time unit of the time argument
+	 * @return false if the waiting time detectably elapsed before return from the method, else true
+	 * @throws InterruptedException if the current thread is interrupted
+	 */
+	boolean await(Condition condition, long time, TimeUnit unit) throws InterruptedException {
+		int readHolds=lock.getReadHoldCount();
+		releaseReadHolds(readHolds);
+		try {
+			return condition.await(time, unit);
+		}
+		finally {
+			acquireReadHolds(readHolds);
+		}
+	}
+
+	private void releaseReadHolds(int readHolds)
+	{
+		for (int i=0;i<readHolds;i++)
+			lock.readLock().unlock();
+	}
+
+	private void acquireReadHolds(int readHolds)
+	{
+		for (int i=0;i<readHolds;i++)
+			lock.readLock().lock();
+	}
+}
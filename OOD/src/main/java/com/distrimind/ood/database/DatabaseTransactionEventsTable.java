@@ -240,9 +240,9 @@ final class DatabaseTransactionEventsTable extends Table<DatabaseTransactionEven
 	}
 
 	void removeTransactionsFromLastID() throws DatabaseException {
-		if (getDatabaseTransactionsPerHostTable().getRecordsNumber()==0)
+		if (!getDatabaseTransactionsPerHostTable().hasRecords())
 		{
-			if (getRecordsNumber()>0)
+			if (hasRecords())
 			{
 				removeAllRecordsWithCascade();
 				getIDTable().setLastValidatedTransactionID(getIDTable().getLastTransactionID()-1);
@@ -31,6 +31,7 @@ package com.distrimind.ood.database;
 
 import com.distrimind.ood.database.DatabaseEventsTable.DatabaseEventsIterator;
 import com.distrimind.ood.database.DatabaseWrapper.SynchronizationAnomalyType;
+import com.distrimind.ood.database.annotations.Field;
 import com.distrimind.ood.database.annotations.ForeignKey;
 import com.distrimind.ood.database.annotations.PrimaryKey;
 import com.distrimind.ood.database.exceptions.*;
@@ -110,6 +111,7 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 		private DatabaseTransactionEventsTable.Record transaction;
 		@PrimaryKey
 		@ForeignKey
+		@Field(index = true)
 		private DatabaseHooksTable.Record hook;
 
 		void set(DatabaseTransactionEventsTable.Record _transaction, DatabaseHooksTable.Record _hook) {
@@ -243,6 +245,16 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 
 	}
 
+	/**
+	 * @param hook the concerned hook
+	 * @return the minimum transaction identifier that the given hook must receive, or {@link Long#MAX_VALUE} if there is no transaction
+	 * @throws DatabaseException if a problem occurs
+	 */
+	long getFirstTransactionID(DatabaseHooksTable.Record hook) throws DatabaseException {
+		Object id=getMinValue("transaction.id", "hook=%hook", "hook", hook);
+		return id==null?Long.MAX_VALUE:((Number)id).longValue();
+	}
+
 	long validateTransactions(final DatabaseHooksTable.Record hook, final long lastID) throws DatabaseException {
 		if (hook == null)
 			throw new NullPointerException("hook");
@@ -255,37 +267,15 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
                 public Long run() throws Exception {
                     removeRecords("transaction.id<=%lastID AND hook=%hook", "lastID", lastID, "hook", hook);
                     final AtomicLong actualLastID = new AtomicLong(Long.MAX_VALUE);
-                    getRecords(new Filter<Record>() {
-
-                        @Override
-                        public boolean nextRecord(Record _record) {
-                            if (_record.getTransaction().getID() - 1 < actualLastID.get())
-                                actualLastID.set(_record.getTransaction().getID() - 1);
-                            if (actualLastID.get() == lastID)
-                                this.stopTableParsing();
-                            return false;
-                        }
-
-                    }, "hook=%hook", "hook", hook);
+                    long firstID = getFirstTransactionID(hook);
+                    if (firstID != Long.MAX_VALUE)
+                        actualLastID.set(firstID - 1);
                     if (actualLastID.get() > lastID) {
-                        getDatabaseDistantTransactionEvent()
-                                .getRecords(new Filter<DatabaseDistantTransactionEvent.Record>() {
-
-                                                @Override
-                                                public boolean nextRecord(
-                                                        DatabaseDistantTransactionEvent.Record _record)
-                                                        throws SerializationDatabaseException {
-                                                    if (_record.isConcernedBy(hook.getHostID())) {
-                                                        if (_record.getLocalID() - 1 < actualLastID.get())
-                                                            actualLastID.set(_record.getLocalID() - 1);
-                                                        if (actualLastID.get() == lastID)
-                                                            this.stopTableParsing();
-                                                    }
-                                                    return false;
-                                                }
-                                            }, "localID<%maxLocalID AND localID>=%minLocalID and peersInformedFull=%peersInformedFull",
-                                        "maxLocalID", actualLastID.get() - 1, "minLocalID",
-                                        lastID + 1, "peersInformedFull", Boolean.FALSE);
+                        //same bounds than the previous condition localID<actualLastID-1
+                        firstID = getDatabaseDistantTransactionEvent().getFirstLocalIDNotInformed(hook.getHostID(),
+                                lastID + 1, actualLastID.get() - 2);
+                        if (firstID != Long.MAX_VALUE)
+                            actualLastID.set(firstID - 1);
                     }
                     if (actualLastID.get() == Long.MAX_VALUE) {
 						actualLastID.set(getIDTable().getLastTransactionID());
@@ -1050,7 +1040,8 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 					ois.seek(nextTransactionPosition);
 					continue;
 				}
-				if (ois.readInt()!=-1)
+				int blockFormat=ois.readInt();
+				if (blockFormat!=BackupRestoreManager.RAW_EVENTS_BLOCK && blockFormat!=BackupRestoreManager.DEFLATED_EVENTS_BLOCK)
 					throw new DatabaseException("Invalid data");
 				final DatabaseTransactionEventsTable.Record dte=new DatabaseTransactionEventsTable.Record(transactionID, transactionUTC, databasePackage);
 				List<Class<? extends Table<?>>> classes=getDatabaseWrapper().getDatabaseConfiguration(databasePackage).getDatabaseSchema().getSortedTableClasses();
@@ -1065,8 +1056,10 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 					tables.add(t);
 				}
 
-				final long positionOffset=ois.currentPosition();
-				DatabaseEventsTable.DatabaseEventsIterator it=new DatabaseEventsTable.DatabaseEventsIterator(new LimitedRandomInputStream(ois, positionOffset), false){
+				//positions of deflated events are relative to the start of their block
+				final long positionOffset=blockFormat==BackupRestoreManager.DEFLATED_EVENTS_BLOCK?0:ois.currentPosition();
+				final RandomInputStream eventsIn=blockFormat==BackupRestoreManager.DEFLATED_EVENTS_BLOCK?BackupRestoreManager.readDeflatedEvents(ois):new LimitedRandomInputStream(ois, positionOffset);
+				DatabaseEventsTable.DatabaseEventsIterator it=new DatabaseEventsTable.DatabaseEventsIterator(eventsIn, false){
 					Byte eventTypeByte;
 					int position=0;
 					//private final byte[] recordBuffer=new byte[1<<24-1];
@@ -1199,7 +1192,20 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 
 	}
 
-	int exportTransactions(final RandomOutputStream oos, final int hookID, final int maxEventsRecords)
+	/**
+	 * Export the transactions which follow the last validated transaction of the given hook, or which follow the given
+	 * transaction if it was already exported and is not yet validated
+	 *
+	 * @param oos the output stream
+	 * @param hookID the hook identifier
+	 * @param maxEventsRecords the maximum number of exported transactions
+	 * @param lastExportedTransactionID the last transaction identifier already exported to the peer, or {@link Long#MIN_VALUE}
+	 * @param newLastExportedTransactionID the last transaction identifier exported by this call
+	 * @return the number of exported transactions
+	 * @throws DatabaseException if a problem occurs
+	 */
+	int exportTransactions(final RandomOutputStream oos, final int hookID, final int maxEventsRecords,
+						   final long lastExportedTransactionID, final AtomicLong newLastExportedTransactionID)
 			throws DatabaseException {
 
 		final AtomicInteger number = new AtomicInteger(0);
@@ -1207,9 +1213,11 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 		final AtomicLong nearNextLocalID = new AtomicLong();
 		final DatabaseHooksTable.Record hook = getDatabaseHooksTable().getRecord("id", hookID);
 
+		newLastExportedTransactionID.set(lastExportedTransactionID);
 		if (hook == null)
 			return 0;
-		long currentTransactionID = hook.getLastValidatedLocalTransactionID();
+		long currentTransactionID = Math.max(hook.getLastValidatedLocalTransactionID(), lastExportedTransactionID);
+		newLastExportedTransactionID.set(currentTransactionID);
 
 		try {
 			number.set(getDatabaseDistantTransactionEvent().exportTransactions(oos, hook, maxEventsRecords,
@@ -1218,57 +1226,223 @@ final class DatabaseTransactionsPerHostTable extends Table<DatabaseTransactionsP
 				if (number.get() >= maxEventsRecords)
 					return number.get();
 				do {
-					getOrderedRecords(new Filter<DatabaseTransactionsPerHostTable.Record>() {
+					//direct transactions are exported by pages, with one query for the transactions and one query for their events
+					long fromTransactionID=currentTransactionID;
+					while (number.get() < maxEventsRecords) {
+						List<DatabaseTransactionEventsTable.Record> transactions=getTransactionsToExport(hook, fromTransactionID,
+								nearNextLocalID.get(), Math.min(EXPORT_PAGE_SIZE, maxEventsRecords - number.get()));
+						if (transactions.isEmpty())
+							break;
+						exportDirectTransactions(oos, transactions);
+						number.addAndGet(transactions.size());
+						newLastExportedTransactionID.set(transactions.get(transactions.size()-1).getID());
+						if (transactions.size() < EXPORT_PAGE_SIZE)
+							break;
+						fromTransactionID=transactions.get(transactions.size()-1).getID();
+					}
+					currentTransactionID = nearNextLocalID.get();
 
-						@Override
-						public boolean nextRecord(Record _record) throws DatabaseException {
-							try {
-								oos.writeByte(EXPORT_DIRECT_TRANSACTION);
-								getDatabaseTransactionEventsTable().serialize(_record.getTransaction(), oos, true,
-										false);
-								getDatabaseEventsTable().getOrderedRecords(new Filter<DatabaseEventsTable.Record>() {
+					if (number.get() < maxEventsRecords && currentTransactionID != Long.MAX_VALUE) {
+						int n = getDatabaseDistantTransactionEvent().exportTransactions(oos, hook,
+								maxEventsRecords - number.get(), currentTransactionID, nearNextLocalID);
+						if (n > 0)
+							newLastExportedTransactionID.set(currentTransactionID);
+						number.set(number.get() + n);
+					}
+				} while (number.get() < maxEventsRecords && nearNextLocalID.get() != currentTransactionID);
+			} finally {
+				oos.writeByte(EXPORT_FINISHED);
+			}
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
 
-									@Override
-									public boolean nextRecord(
-											com.distrimind.ood.database.DatabaseEventsTable.Record _record)
-											throws DatabaseException {
-										_record.export(oos);
-										return false;
-									}
+		return number.get();
 
-								}, "transaction=%transaction", new Object[] { "transaction", _record.getTransaction() },
-										true, "position");
-								oos.writeByte(EXPORT_DIRECT_TRANSACTION_FINISHED);
-								if (number.incrementAndGet() >= maxEventsRecords) {
-									this.stopTableParsing();
-									return false;
-								}
+	}
+
+	/**
+	 * Maximum number of direct transactions exported with the same queries
+	 */
+	private static final int EXPORT_PAGE_SIZE = 256;
+
+	private List<DatabaseTransactionEventsTable.Record> getTransactionsToExport(DatabaseHooksTable.Record hook, long fromTransactionID,
+																				 long toTransactionID, final int maxTransactions) throws DatabaseException {
+		final ArrayList<DatabaseTransactionEventsTable.Record> res = new ArrayList<>();
+		getOrderedRecords(new Filter<DatabaseTransactionsPerHostTable.Record>() {
+
+			@Override
+			public boolean nextRecord(Record _record) {
+				res.add(_record.getTransaction());
+				if (res.size() >= maxTransactions)
+					stopTableParsing();
+				return false;
+			}
+		}, "transaction.id<%nearNextLocalID AND transaction.id>%previousNearTransactionID AND hook=%hook",
+				new Object[] { "nearNextLocalID", toTransactionID,
+						"previousNearTransactionID", fromTransactionID, "hook", hook },
+				true, "transaction.id");
+		return res;
+	}
+
+	/**
+	 * Serialized events of transactions are shared by the exports of every peer
+	 */
+	private static final long SERIALIZED_TRANSACTIONS_CACHE_SIZE_IN_BYTES = 16L*1024L*1024L;
+	private final SerializedTransactionsCache serializedTransactionsCache = new SerializedTransactionsCache(SERIALIZED_TRANSACTIONS_CACHE_SIZE_IN_BYTES);
+
+	/**
+	 * Forget the serialized transactions whose identifier can be given again to new transactions
+	 * @param transactionID the first canceled transaction identifier
+	 */
+	void removeSerializedTransactionsFromID(long transactionID) {
+		serializedTransactionsCache.removeTransactionsFromID(transactionID);
+	}
+
+	SerializedTransactionsCache getSerializedTransactionsCache() {
+		return serializedTransactionsCache;
+	}
+
+	/**
+	 * Export the given transactions and their events. The header of each transaction is serialized for each export,
+	 * since its concerned hosts can change. Events already serialized for another peer are written from the cache.
+	 * Events of the other transactions are read with one query ordered by transaction, and are
+	 * streamed to the output stream while the query is parsed. They are also kept in memory to be cached,
+	 * until the transaction becomes too big to be cached. Events of transactions which are not concerned by the
+	 * exported hook are skipped.
+	 *
+	 * @param oos the output stream
+	 * @param transactions the transactions to export, ordered by their identifier
+	 * @throws DatabaseException if a problem occurs
+	 */
+	private void exportDirectTransactions(final RandomOutputStream oos, final List<DatabaseTransactionEventsTable.Record> transactions)
+			throws DatabaseException {
+		try {
+			final DirectTransactionsExporter exporter = new DirectTransactionsExporter(oos, transactions);
+			try {
+				if (exporter.firstNotSerializedTransactionID != Long.MAX_VALUE) {
+					getDatabaseEventsTable().getOrderedRecords(new Filter<DatabaseEventsTable.Record>() {
+
+						@Override
+						public boolean nextRecord(DatabaseEventsTable.Record _record) throws DatabaseException {
+							try {
+								exporter.export(_record);
 								return false;
 							} catch (IOException e) {
 								throw DatabaseException.getDatabaseException(e);
 							}
 						}
-					}, "transaction.id<%nearNextLocalID AND transaction.id>%previousNearTransactionID AND hook=%hook",
-							new Object[] { "nearNextLocalID", nearNextLocalID.get(),
-									"previousNearTransactionID", currentTransactionID, "hook", hook },
-							true, "transaction.id");
-					currentTransactionID = nearNextLocalID.get();
 
-					if (number.get() < maxEventsRecords && currentTransactionID != Long.MAX_VALUE)
-						number.set(number.get() + getDatabaseDistantTransactionEvent().exportTransactions(oos, hook,
-								maxEventsRecords - number.get(), currentTransactionID, nearNextLocalID));
-				} while (number.get() < maxEventsRecords && nearNextLocalID.get() != currentTransactionID);
-			} finally {
-				oos.writeByte(EXPORT_FINISHED);
+					}, "transaction.id>=%firstTransactionID AND transaction.id<=%lastTransactionID",
+							new Object[]{"firstTransactionID", exporter.firstNotSerializedTransactionID,
+									"lastTransactionID", exporter.lastNotSerializedTransactionID},
+							true, "transaction.id", "position");
+				}
+				exporter.seek(Long.MAX_VALUE);
 			}
-		} catch (Exception e) {
+			finally {
+				exporter.close();
+			}
+		} catch (IOException e) {
 			throw DatabaseException.getDatabaseException(e);
 		}
+	}
 
-		return number.get();
+	private final class DirectTransactionsExporter {
+		private final RandomOutputStream oos;
+		private final List<DatabaseTransactionEventsTable.Record> transactions;
+		private final SerializedTransactionsCache.SerializedEvents[] serializedEvents;
+		private final long firstNotSerializedTransactionID, lastNotSerializedTransactionID;
+		private int index = 0;
+		private boolean currentTransactionStarted = false;
+		private RandomByteArrayOutputStream currentEvents = null;
+
+		DirectTransactionsExporter(RandomOutputStream oos, List<DatabaseTransactionEventsTable.Record> transactions) {
+			this.oos = oos;
+			this.transactions = transactions;
+			this.serializedEvents = new SerializedTransactionsCache.SerializedEvents[transactions.size()];
+			long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+			for (int i = 0; i < transactions.size(); i++) {
+				serializedEvents[i] = serializedTransactionsCache.get(transactions.get(i));
+				if (serializedEvents[i] == null) {
+					first = Math.min(first, transactions.get(i).getID());
+					last = transactions.get(i).getID();
+				}
+			}
+			this.firstNotSerializedTransactionID = first;
+			this.lastNotSerializedTransactionID = last;
+		}
 
+		/**
+		 * Write the given event, after the transactions which precede its transaction
+		 * @param event the event
+		 */
+		void export(DatabaseEventsTable.Record event) throws DatabaseException, IOException {
+			if (!seek(event.getTransaction().getID()))
+				return;
+			event.export(oos);
+			if (currentEvents != null) {
+				event.export(currentEvents);
+				//the transaction will not be cached : stop keeping it into memory
+				if (currentEvents.length() > serializedTransactionsCache.getMaxTransactionSizeInBytes())
+					closeCurrentEvents();
+			}
+		}
+
+		/**
+		 * Write the transactions whose identifier is lower than the given identifier, and start the transaction
+		 * which has the given identifier
+		 * @param transactionID the transaction identifier of the next event
+		 * @return true if the next event belongs to an exported transaction, false if the event must be skipped
+		 */
+		boolean seek(long transactionID) throws DatabaseException, IOException {
+			while (index < transactions.size()) {
+				DatabaseTransactionEventsTable.Record t = transactions.get(index);
+				if (t.getID() > transactionID)
+					return false;
+				if (serializedEvents[index] != null) {
+					writeTransactionHeader(t);
+					serializedEvents[index].writeTo(oos);
+					oos.writeByte(EXPORT_DIRECT_TRANSACTION_FINISHED);
+					++index;
+					continue;
+				}
+				if (!currentTransactionStarted) {
+					writeTransactionHeader(t);
+					currentTransactionStarted = true;
+					if (serializedTransactionsCache.getMaxTransactionSizeInBytes() > 0)
+						currentEvents = new RandomByteArrayOutputStream();
+				}
+				if (t.getID() == transactionID)
+					return true;
+				if (currentEvents != null) {
+					serializedTransactionsCache.put(t, currentEvents.getBytes());
+					closeCurrentEvents();
+				}
+				oos.writeByte(EXPORT_DIRECT_TRANSACTION_FINISHED);
+				currentTransactionStarted = false;
+				++index;
+			}
+			return false;
+		}
+
+		private void writeTransactionHeader(DatabaseTransactionEventsTable.Record transaction) throws DatabaseException, IOException {
+			oos.writeByte(EXPORT_DIRECT_TRANSACTION);
+			getDatabaseTransactionEventsTable().serialize(transaction, oos, true, false);
+		}
+
+		private void closeCurrentEvents() throws IOException {
+			currentEvents.close();
+			currentEvents = null;
+		}
+
+		void close() throws IOException {
+			if (currentEvents != null)
+				closeCurrentEvents();
+		}
 	}
 
+
 	static final byte EXPORT_FINISHED = 1;
 	static final byte EXPORT_DIRECT_TRANSACTION = 2;
 	static final byte EXPORT_DIRECT_TRANSACTION_EVENT = 4;
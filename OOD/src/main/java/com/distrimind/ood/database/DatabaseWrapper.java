@@ -70,14 +70,13 @@ import java.security.PrivilegedActionException;
 import java.sql.*;
 import java.util.Date;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Formatter;
 import java.util.logging.*;
 import java.util.stream.Collectors;
@@ -120,7 +119,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 	protected final boolean loadToMemory;
 	protected final File databaseDirectory;
 	protected final String databaseIdentifier;
-	private static final HashMap<String, Lock> lockers = new HashMap<>();
+	private static final HashMap<String, DatabaseReadWriteLock> lockers = new HashMap<>();
 	private static final HashMap<String, Integer> number_of_shared_lockers = new HashMap<>();
 	final static String ROW_PROPERTIES_OF_TABLES = "ROW_PROPERTIES_OF_TABLES__";
 	final static String VERSIONS_OF_DATABASE= "VERSIONS_OF_DATABASE__";
@@ -139,6 +138,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 	private final DatabaseSynchronizer synchronizer;
 	protected volatile int maxTransactionsToSynchronizeAtTheSameTime = 1000;
+	protected volatile int maxSynchronizationWindowSize = 1;
 	volatile int maxTransactionsEventsKeptIntoMemory = 100;
 	protected Database actualDatabaseLoading = null;
 	volatile int maxTransactionEventsKeptIntoMemoryDuringImportInBytes =10000000;
@@ -146,6 +146,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 	private volatile AbstractSecureRandom randomForKeys;
 	private final boolean alwaysDisconnectAfterOnTransaction;
 	private static final int MAX_TRANSACTIONS_TO_SYNCHRONIZE_AT_THE_SAME_TIME=1000000;
+	static final int MAX_CACHED_PREPARED_STATEMENTS_PER_SESSION=128;
 	public static final int MAX_DISTANT_PEERS=50;
 	public static final int MAX_PACKAGE_TO_SYNCHRONIZE=200;
 	private static volatile int MAX_HOST_NUMBERS=5;
@@ -153,6 +154,9 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 	private final DatabaseConfigurationsBuilder databaseConfigurationsBuilder;
 	private volatile Logger networkLogger=null;
 	private volatile Logger databaseLogger=null;
+	static final DatabaseMetricsListener NO_METRICS_LISTENER=new DatabaseMetricsListener() {
+	};
+	private volatile DatabaseMetricsListener metricsListener=NO_METRICS_LISTENER;
 
 	public static int getMaxHostNumbers() {
 		return MAX_HOST_NUMBERS;
@@ -167,6 +171,22 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 	public Logger getNetworkLogger() {
 		return networkLogger;
 	}
+
+	/**
+	 * Set the listener which receives metrics about transactions and queries
+	 * @param metricsListener the metrics listener, or null to stop computing metrics
+	 */
+	public void setMetricsListener(DatabaseMetricsListener metricsListener) {
+		this.metricsListener = metricsListener==null?NO_METRICS_LISTENER:metricsListener;
+	}
+
+	/**
+	 * @return the listener which receives metrics about transactions and queries, or a listener which does nothing
+	 * if no listener was registered
+	 */
+	public DatabaseMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
 	public void setDatabaseLogLevel(Level level)
 	{
 
@@ -291,6 +311,31 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		this.maxTransactionsToSynchronizeAtTheSameTime = Math.max(maxTransactionsToSynchronizeAtTheSameTime, MAX_TRANSACTIONS_TO_SYNCHRONIZE_AT_THE_SAME_TIME);
 	}
 
+	/**
+	 * Gets the max number of batches of transactions sent to a distant peer without waiting for their acknowledgment
+	 *
+	 * @return the max number of batches of transactions sent to a distant peer without waiting for their acknowledgment
+	 */
+	public int getMaxSynchronizationWindowSize() {
+		return maxSynchronizationWindowSize;
+	}
+
+	/**
+	 * Set the max number of batches of transactions sent to a distant peer without waiting for their acknowledgment.
+	 * When it is greater than 1, the next batch is sent as soon as the previous one has been exported, and the number
+	 * of batches in flight adapts to the measured round trip time and to the export duration of a batch.
+	 * The peer acknowledges batches cumulatively with its last validated transaction, and receives them in order.
+	 * By default, only one batch is sent at the same time.
+	 *
+	 * @param maxSynchronizationWindowSize
+	 *            the max number of batches
+	 */
+	public void setMaxSynchronizationWindowSize(int maxSynchronizationWindowSize) {
+		if (maxSynchronizationWindowSize<1)
+			throw new IllegalArgumentException();
+		this.maxSynchronizationWindowSize = maxSynchronizationWindowSize;
+	}
+
 	private static class DatabasePerVersion
 	{
 		HashMap<Class<? extends Table<?>>, Table<?>> tables_instances = new HashMap<>();
@@ -880,9 +925,25 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 		private boolean connected;
 		private boolean initializing;
-		private boolean transferInProgress = false;
+		private boolean batchToExport = false;
+		private final ArrayDeque<TransferredBatch> transferredBatches = new ArrayDeque<>();
+		private long lastExportedTransactionID = Long.MIN_VALUE;
+		private int transfersGeneration = 0;
+		private double smoothedRoundTripTimeInNs = -1;
+		private double smoothedExportDurationInNs = -1;
+		private static final long MIN_BATCH_EXPORT_DURATION_IN_NS = 1000000L;
 		private boolean localHost;
 
+		private static final class TransferredBatch {
+			private final long lastTransactionID;
+			private final long exportTimeInNs;
+
+			TransferredBatch(long lastTransactionID, long exportTimeInNs) {
+				this.lastTransactionID = lastTransactionID;
+				this.exportTimeInNs = exportTimeInNs;
+			}
+		}
+
 		boolean isLocalHost()
 		{
 			return localHost;
@@ -905,7 +966,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 		void setConnected(boolean connected) {
 			if (this.connected && !connected) {
-				transferInProgress = false;
+				resetTransfers();
 			}
 			this.connected = connected;
 			this.initializing = false;
@@ -926,12 +987,76 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		}
 
 
-		public boolean isTransferInProgress() {
-			return transferInProgress;
+		/**
+		 * @param maxWindowSize the maximum number of batches of transactions sent to the peer and not yet acknowledged
+		 * @return true if a new batch of transactions cannot be sent now
+		 */
+		boolean isTransferInProgress(int maxWindowSize) {
+			return batchToExport || transferredBatches.size() >= getWindowSize(maxWindowSize);
+		}
+
+		/**
+		 * The number of batches in flight must cover the round trip time, while a new batch is exported when the
+		 * previous one has been exported. Until the first acknowledgment, only one batch is sent.
+		 */
+		int getWindowSize(int maxWindowSize) {
+			if (maxWindowSize <= 1 || smoothedRoundTripTimeInNs < 0 || smoothedExportDurationInNs < 0)
+				return 1;
+			double w = 1 + Math.ceil(smoothedRoundTripTimeInNs / Math.max(smoothedExportDurationInNs, MIN_BATCH_EXPORT_DURATION_IN_NS));
+			return (int) Math.min(w, maxWindowSize);
+		}
+
+		void newBatchToExport() {
+			batchToExport = true;
+		}
+
+		/**
+		 * @return the last transaction identifier exported to the peer, and not acknowledged, or {@link Long#MIN_VALUE}
+		 */
+		long getLastExportedTransactionID() {
+			return transferredBatches.isEmpty() ? Long.MIN_VALUE : lastExportedTransactionID;
+		}
+
+		int getTransfersGeneration() {
+			return transfersGeneration;
 		}
 
-		public void setTransferInProgress(boolean _transferInProgress) {
-			transferInProgress = _transferInProgress;
+		void batchExported(int transfersGeneration, long lastExportedTransactionID, long exportDurationInNs) {
+			if (transfersGeneration != this.transfersGeneration)
+				return;
+			batchToExport = false;
+			this.lastExportedTransactionID = Math.max(this.lastExportedTransactionID, lastExportedTransactionID);
+			transferredBatches.addLast(new TransferredBatch(this.lastExportedTransactionID, System.nanoTime()));
+			smoothedExportDurationInNs = smooth(smoothedExportDurationInNs, exportDurationInNs);
+		}
+
+		/**
+		 * Acknowledgments are cumulative: every batch whose transactions have been validated by the peer is removed
+		 * @param lastValidatedTransactionID the last transaction identifier validated by the peer
+		 */
+		void acknowledge(long lastValidatedTransactionID, int maxWindowSize) {
+			TransferredBatch acknowledged = null;
+			while (!transferredBatches.isEmpty() && transferredBatches.getFirst().lastTransactionID <= lastValidatedTransactionID)
+				acknowledged = transferredBatches.removeFirst();
+			if (acknowledged != null)
+				smoothedRoundTripTimeInNs = smooth(smoothedRoundTripTimeInNs, System.nanoTime() - acknowledged.exportTimeInNs);
+			else if (transferredBatches.size() >= getWindowSize(maxWindowSize) || maxWindowSize <= 1) {
+				//the peer did not validate the sent transactions: they are sent again from the last validated transaction
+				resetTransfers();
+			}
+			if (transferredBatches.isEmpty())
+				lastExportedTransactionID = Long.MIN_VALUE;
+		}
+
+		void resetTransfers() {
+			batchToExport = false;
+			transferredBatches.clear();
+			lastExportedTransactionID = Long.MIN_VALUE;
+			++transfersGeneration;
+		}
+
+		private static double smooth(double average, long sample) {
+			return average < 0 ? sample : average + (sample - average) / 8;
 		}
 
 		public DecentralizedValue getHostID() {
@@ -1114,7 +1239,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		protected final HashMap<DecentralizedValue, ConnectedPeersWithCentralBackup> initializedHooksWithCentralBackup = new HashMap<>();
 		protected boolean centralBackupInitialized=false;
 		protected boolean centralBackupAvailable=false;
-		private final Condition newEventCondition=locker.newCondition();
+		private final Condition newEventCondition=locker.newWriteCondition();
 		private boolean extendedTransactionInProgress=false;
 		private long lastTransactionID=Long.MIN_VALUE;
 		final Set<String> backupDatabasePartsSynchronizingWithCentralDatabaseBackup=new HashSet<>();
@@ -1152,6 +1277,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		void cancelExtendedTransaction() throws DatabaseException {
 			getDatabaseTransactionEventsTable().removeRecordsWithCascade("id>=%id", "id", lastTransactionID);
 			getTransactionIDTable().setLastTransactionID(lastTransactionID);
+			getDatabaseTransactionsPerHostTable().removeSerializedTransactionsFromID(lastTransactionID);
 			lastTransactionID=Long.MIN_VALUE;
 			extendedTransactionInProgress=false;
 		}
@@ -1252,6 +1378,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			try {
 				lockWrite();
 
+				metricsListener.synchronizerQueueDepthChanged(events.size());
 				if (!extendedTransactionInProgress && canNotify && notifier != null) {
 					notify = true;
 					canNotify = false;
@@ -1280,6 +1407,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				}
 				else {
 					DatabaseEvent e = events.removeFirst();
+					metricsListener.synchronizerQueueDepthChanged(events.size());
 					if (e instanceof AuthenticatedP2PMessage)
 					{
 						((AuthenticatedP2PMessage) e).messageSent(DatabaseWrapper.this);
@@ -1310,7 +1438,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				DatabaseEvent de;
 				while ((de = nextEvent()) == null) {
 					//noinspection ResultOfMethodCallIgnored
-					newEventCondition.await(minFilePartDurationBeforeBecomingFinalFilePart, TimeUnit.MILLISECONDS);
+					locker.await(newEventCondition, minFilePartDurationBeforeBecomingFinalFilePart, TimeUnit.MILLISECONDS);
 				}
 				return de;
 			}
@@ -1615,13 +1743,57 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 						addNewDatabaseEvent(new LastIDCorrection(getLocalHostID(),
 								hostID, l));
 					}
-					cp.setTransferInProgress(false);
+					try {
+						lockWrite();
+						cp.acknowledge(l, maxSynchronizationWindowSize);
+					}
+					finally {
+						unlockWrite();
+					}
 					synchronizedDataIfNecessary(cp);
 				//}
 			}
 			synchronizeMetaData();
 		}
 
+		/**
+		 * @param hostID the peer
+		 * @param transfersGeneration receives the generation of the transfers to the peer
+		 * @return the last transaction identifier exported to the peer and not yet acknowledged, or {@link Long#MIN_VALUE}
+		 */
+		long getLastExportedTransactionID(DecentralizedValue hostID, AtomicInteger transfersGeneration) {
+			try {
+				lockWrite();
+				ConnectedPeers cp=initializedHooks.get(hostID);
+				if (cp==null)
+					return Long.MIN_VALUE;
+				transfersGeneration.set(cp.getTransfersGeneration());
+				return cp.getLastExportedTransactionID();
+			}
+			finally {
+				unlockWrite();
+			}
+		}
+
+		/**
+		 * Register a batch of transactions exported to the given peer, and prepare the next batch if the
+		 * synchronization window is not full
+		 */
+		void batchExported(DecentralizedValue hostID, int transfersGeneration, long lastExportedTransactionID, long exportDurationInNs) throws DatabaseException {
+			ConnectedPeers cp;
+			try {
+				lockWrite();
+				cp=initializedHooks.get(hostID);
+				if (cp==null || !cp.isConnected())
+					return;
+				cp.batchExported(transfersGeneration, lastExportedTransactionID, exportDurationInNs);
+			}
+			finally {
+				unlockWrite();
+			}
+			synchronizedDataIfNecessary(cp);
+		}
+
 		void sendLastValidatedIDIfConnected(DatabaseHooksTable.Record hook) throws DatabaseException {
 			
 			try {
@@ -1686,10 +1858,10 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 					public boolean nextRecord(Record _record) throws DatabaseException {
 						ConnectedPeers cp = initializedHooks.get(_record.getHostID());
 						if (cp != null && cp.isConnected() && !_record.concernsLocalDatabaseHost()) {
-							if (!cp.isTransferInProgress())
+							if (!cp.isTransferInProgress(maxSynchronizationWindowSize))
 							{
-								if (lastID > _record.getLastValidatedLocalTransactionID()) {
-									cp.setTransferInProgress(true);
+								if (lastID > Math.max(_record.getLastValidatedLocalTransactionID(), cp.getLastExportedTransactionID())) {
+									cp.newBatchToExport();
 									addNewDatabaseEvent(new DatabaseEventsToSynchronizeP2P(
 											getLocalHostID(), _record, lastID,
 											maxTransactionsToSynchronizeAtTheSameTime));
@@ -1713,15 +1885,15 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 		@SuppressWarnings("UnusedReturnValue")
         private long synchronizedDataIfNecessary(ConnectedPeers peer) throws DatabaseException {
-			if (peer.isTransferInProgress())
+			if (peer.isTransferInProgress(maxSynchronizationWindowSize))
 				return -1;
 			long lastID = getTransactionIDTable().getLastTransactionID();
 			
 			try {
 				lockWrite();
 				DatabaseHooksTable.Record hook = getDatabaseHooksTable().getHook(peer.getHostID());
-				if (lastID > hook.getLastValidatedLocalTransactionID() && !peer.isTransferInProgress()) {
-					peer.setTransferInProgress(true);
+				if (lastID > Math.max(hook.getLastValidatedLocalTransactionID(), peer.getLastExportedTransactionID()) && !peer.isTransferInProgress(maxSynchronizationWindowSize)) {
+					peer.newBatchToExport();
 					addNewDatabaseEvent(new DatabaseEventsToSynchronizeP2P(
 							getLocalHostID(), hook, lastID,
 							maxTransactionsToSynchronizeAtTheSameTime));
@@ -1957,6 +2129,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 							networkLogger.info(h.getHostID()+" disconnected !");
 					}
 					this.events.clear();
+					metricsListener.synchronizerQueueDepthChanged(0);
 					initializedHooks.remove(hostID);
 					if (notifier!=null) {
 						for (ConnectedPeers h : initializedHooks.values()) {
@@ -2640,7 +2813,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				cp = initializedHooks.get(idCorrection.getHostSource());
 				if (cp == null || !cp.isConnected())
 					throw new DatabaseException("The host " + idCorrection.getHostSource() + " is not connected !");
-				cp.setTransferInProgress(false);
+				cp.resetTransfers();
 			}
 			finally
 			{
@@ -3213,12 +3386,18 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				throw new NullPointerException("wrapper");
 			if (maxEventsRecords == 0)
 				return false;
-			return wrapper.runSynchronizedTransaction(new SynchronizedTransaction<Boolean>() {
+			final DatabaseSynchronizer synchronizer=wrapper.getSynchronizer();
+			final AtomicInteger transfersGeneration=new AtomicInteger();
+			final AtomicLong lastExportedTransactionID=new AtomicLong();
+			long start=System.nanoTime();
+			boolean res=wrapper.runSynchronizedTransaction(new SynchronizedTransaction<Boolean>() {
 
 				@Override
 				public Boolean run() throws Exception {
+					//the following batches are exported before the previous ones are acknowledged
+					long from=synchronizer.getLastExportedTransactionID(hostIDDestination, transfersGeneration);
 					int number = wrapper.getDatabaseTransactionsPerHostTable().exportTransactions(outputStreamGetter.initOrResetOutputStream(), hookID,
-							maxEventsRecords);
+							maxEventsRecords, from, lastExportedTransactionID);
 					return number > 0;
 				}
 
@@ -3237,6 +3416,8 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 				}
 			});
+			synchronizer.batchExported(hostIDDestination, transfersGeneration.get(), lastExportedTransactionID.get(), System.nanoTime()-start);
+			return res;
 
 
 		}
@@ -3311,14 +3492,14 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 	}
 
-	private Lock getLocker() {
+	private DatabaseReadWriteLock getLocker() {
 		synchronized (DatabaseWrapper.class) {
 			String f = databaseIdentifier;
 
-			Lock rwl = lockers.get(f);
+			DatabaseReadWriteLock rwl = lockers.get(f);
 			if (rwl == null) {
 
-				rwl = new ReentrantLock();
+				rwl = new DatabaseReadWriteLock();
 				lockers.put(f, rwl);
 				number_of_shared_lockers.put(f, 1);
 			} else
@@ -3421,6 +3602,9 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				/*
 				 * try {
 				 */
+				//prepared statements are associated with the previous connection
+				if (transaction != null)
+					transaction.clearPreparedStatements();
 				if (sql_connection != null && !sql_connection.isValid(5))
 					closeConnection(sql_connection, false);
 				if (sql_connection == null || sql_connection.isClosed())
@@ -3464,18 +3648,21 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 						setNetworkLogLevel(Level.OFF);
 						closed = true;
 						//removeClosedDatabaseWrapper(this);
-						for (Iterator<Session> it = threadPerConnection.iterator(); it.hasNext();) {
-							Session s = it.next();
-							/*
-							 * if (threadPerConnectionInProgress.containsKey(c.getKey())) continue;
-							 */
-							try {
-								if (!s.getConnection().isClosed())
-									closeConnection(s.getConnection(), true);
-							} catch (SQLException e) {
-								e.printStackTrace();
-							} finally {
-								it.remove();
+						synchronized (threadPerConnection) {
+							for (Iterator<Session> it = threadPerConnection.iterator(); it.hasNext(); ) {
+								Session s = it.next();
+								/*
+								 * if (threadPerConnectionInProgress.containsKey(c.getKey())) continue;
+								 */
+								try {
+									s.clearPreparedStatements();
+									if (!s.getConnection().isClosed())
+										closeConnection(s.getConnection(), true);
+								} catch (SQLException e) {
+									e.printStackTrace();
+								} finally {
+									it.remove();
+								}
 							}
 						}
 					}
@@ -3549,26 +3736,67 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		return databaseName;
 	}
 
-	private final Lock locker;
+	private final DatabaseReadWriteLock locker;
 	
 	protected void lockRead()
 	{
-		locker.lock();
+		locker.lockRead();
 	}
 	
 	protected void unlockRead()
 	{
-		locker.unlock();
+		locker.unlockRead();
 	}
 	
 	protected void lockWrite()
 	{
-		locker.lock();
+		locker.lockWrite();
 	}
 	
 	protected void unlockWrite()
 	{
-		locker.unlock();
+		locker.unlockWrite();
+	}
+
+	/**
+	 * @see DatabaseReadWriteLock#canLockWrite()
+	 */
+	boolean canLockWrite()
+	{
+		return locker.canLockWrite();
+	}
+
+	/**
+	 * @return true if the current thread holds a database lock or runs a transaction. In this case, queries
+	 * cannot be delegated to another thread without risking a deadlock, or without ignoring uncommitted data.
+	 */
+	boolean isLockedOrInTransactionByCurrentThread()
+	{
+		return locker.isLockedByCurrentThread() || isInTransactionByCurrentThread();
+	}
+
+	/**
+	 * @see DatabaseReadWriteLock#getTaskWithDelegatedReadLock(Callable)
+	 */
+	<V> Callable<V> getTaskWithDelegatedReadLock(Callable<V> task)
+	{
+		return locker.getTaskWithDelegatedReadLock(task);
+	}
+
+	boolean isInTransactionByCurrentThread()
+	{
+		synchronized (threadPerConnection) {
+			return getSession(threadPerConnectionInProgress, Thread.currentThread())!=null;
+		}
+	}
+
+	/**
+	 * @return the fetch size given to the JDBC driver when records are parsed without being stored into memory,
+	 * or 0 if the driver default must be used
+	 */
+	protected int getStreamingFetchSize()
+	{
+		return 256;
 	}
 
 	protected int getMaxKeySize()
@@ -3578,12 +3806,65 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 
 
+	private final AtomicInteger preparedStatementsGeneration=new AtomicInteger(0);
+
+	/**
+	 * Prepared statements cached by sessions can reference tables whose structure has changed.
+	 */
+	void invalidatePreparedStatements() {
+		preparedStatementsGeneration.incrementAndGet();
+	}
+
+	static final class PreparedStatementKey {
+		private final String sql;
+		private final int resultSetType;
+		private final int resultSetConcurrency;
+		private final boolean returnGeneratedKeys;
+		private final int hashCode;
+
+		PreparedStatementKey(String sql, int resultSetType, int resultSetConcurrency, boolean returnGeneratedKeys) {
+			this.sql = sql;
+			this.resultSetType = resultSetType;
+			this.resultSetConcurrency = resultSetConcurrency;
+			this.returnGeneratedKeys = returnGeneratedKeys;
+			this.hashCode = Objects.hash(sql, resultSetType, resultSetConcurrency, returnGeneratedKeys);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			PreparedStatementKey that = (PreparedStatementKey) o;
+			return resultSetType == that.resultSetType && resultSetConcurrency == that.resultSetConcurrency
+					&& returnGeneratedKeys == that.returnGeneratedKeys && sql.equals(that.sql);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
 	class Session {
 		private Connection connection;
 		private final Thread thread;
 		private final long threadID;
 		private final Set<Table<?>> memoryTablesToRefresh;
+		private final Map<Table<?>, ArrayList<Table.MemoryTableChange>> memoryTablesChanges=new HashMap<>();
 		private final HashMap<Package, BackupRestoreManager.AbstractTransaction> backupManager=new HashMap<>();
+		private final LinkedHashMap<PreparedStatementKey, PreparedStatement> cachedPreparedStatements=new LinkedHashMap<PreparedStatementKey, PreparedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PreparedStatementKey, PreparedStatement> eldest) {
+				if (size()>MAX_CACHED_PREPARED_STATEMENTS_PER_SESSION)
+				{
+					closePreparedStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		private final IdentityHashMap<PreparedStatement, PreparedStatementKey> usedPreparedStatements=new IdentityHashMap<>();
+		private int preparedStatementsGeneration;
 
 		Session(Connection connection, Thread thread) {
 
@@ -3596,19 +3877,156 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		void addTableToRefresh(Table<?> table)
 		{
 			memoryTablesToRefresh.add(table);
+			if (memoryTablesChanges.remove(table)!=null)
+				table.uncommittedMemoryChanges.decrementAndGet();
 		}
-		
+
+		void addMemoryTableChange(Table<?> table, Table.MemoryTableChange change)
+		{
+			//the table will be reloaded anyway
+			if (memoryTablesToRefresh.contains(table))
+				return;
+			ArrayList<Table.MemoryTableChange> changes=memoryTablesChanges.get(table);
+			if (changes==null)
+			{
+				changes=new ArrayList<>();
+				memoryTablesChanges.put(table, changes);
+				table.uncommittedMemoryChanges.incrementAndGet();
+			}
+			changes.add(change);
+		}
+
+		/**
+		 * @return the number of changes staged for each memory table, in order to cancel the changes done
+		 * after a savepoint with {@link #cancelMemoryTablesChanges(Map)}
+		 */
+		Map<Table<?>, Integer> getMemoryTablesChangesPositions()
+		{
+			HashMap<Table<?>, Integer> res=new HashMap<>();
+			for (Map.Entry<Table<?>, ArrayList<Table.MemoryTableChange>> e : memoryTablesChanges.entrySet())
+				res.put(e.getKey(), e.getValue().size());
+			return res;
+		}
+
+		/**
+		 * Remove the changes staged after the given positions, when a nested transaction is rolled back to its savepoint.
+		 */
+		void cancelMemoryTablesChanges(Map<Table<?>, Integer> positions)
+		{
+			for (Iterator<Map.Entry<Table<?>, ArrayList<Table.MemoryTableChange>>> it=memoryTablesChanges.entrySet().iterator();it.hasNext();)
+			{
+				Map.Entry<Table<?>, ArrayList<Table.MemoryTableChange>> e=it.next();
+				Integer position=positions.get(e.getKey());
+				if (position==null)
+				{
+					it.remove();
+					e.getKey().uncommittedMemoryChanges.decrementAndGet();
+				}
+				else
+				{
+					ArrayList<Table.MemoryTableChange> changes=e.getValue();
+					changes.subList(position, changes.size()).clear();
+				}
+			}
+		}
+
+		boolean hasMemoryTableChanges(Table<?> table)
+		{
+			return memoryTablesChanges.containsKey(table);
+		}
+
 		void refreshAllMemoryTables()
 		{
+			for (Map.Entry<Table<?>, ArrayList<Table.MemoryTableChange>> e : memoryTablesChanges.entrySet())
+			{
+				e.getKey().applyMemoryChanges(e.getValue());
+				e.getKey().uncommittedMemoryChanges.decrementAndGet();
+			}
+			memoryTablesChanges.clear();
 			for (Table<?> t : memoryTablesToRefresh)
 				t.setToRefreshNow();
 			memoryTablesToRefresh.clear();
 		}
+
+		/**
+		 * Changes which were not applied to the memory snapshots, after a rollback, or after
+		 * a transaction which has not been committed by this session, are replaced by a full reload.
+		 */
+		void cancelMemoryTablesChanges()
+		{
+			for (Table<?> t : memoryTablesChanges.keySet())
+			{
+				t.setToRefreshNow();
+				t.uncommittedMemoryChanges.decrementAndGet();
+			}
+			memoryTablesChanges.clear();
+		}
 		
 		void setConnection(Connection c) {
+			if (connection!=c)
+				clearPreparedStatements();
 			connection = c;
 		}
 
+		/**
+		 * Returns a prepared statement of the cache, or a new prepared statement. A statement returned by this
+		 * function is used by only one query at the same time, and must be given back with
+		 * {@link #releasePreparedStatement(PreparedStatement)} instead of being closed.
+		 */
+		PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, boolean returnGeneratedKeys) throws SQLException {
+			//the database schema has changed
+			if (preparedStatementsGeneration!=DatabaseWrapper.this.preparedStatementsGeneration.get())
+				clearPreparedStatements();
+			PreparedStatementKey key=new PreparedStatementKey(sql, resultSetType, resultSetConcurrency, returnGeneratedKeys);
+			PreparedStatement res=cachedPreparedStatements.remove(key);
+			boolean hit=res!=null && !res.isClosed();
+			metricsListener.preparedStatementCacheAccessed(hit);
+			if (!hit) {
+				if (returnGeneratedKeys)
+					res = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+				else
+					res = connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+			}
+			usedPreparedStatements.put(res, key);
+			return res;
+		}
+
+		void releasePreparedStatement(PreparedStatement statement) throws SQLException {
+			PreparedStatementKey key=usedPreparedStatements.remove(statement);
+			//the statement has been invalidated, or the same query is already cached
+			if (key==null || statement.isClosed() || cachedPreparedStatements.containsKey(key))
+				statement.close();
+			else {
+				try {
+					statement.clearParameters();
+					//a batch is left pending when an exception occurs between addBatch and executeBatch
+					statement.clearBatch();
+				} catch (SQLException e) {
+					//the statement cannot be reused
+					closePreparedStatement(statement);
+					return;
+				}
+				cachedPreparedStatements.put(key, statement);
+			}
+		}
+
+		void clearPreparedStatements() {
+			for (PreparedStatement ps : cachedPreparedStatements.values())
+				closePreparedStatement(ps);
+			cachedPreparedStatements.clear();
+			//used statements are closed when they are released
+			usedPreparedStatements.clear();
+			preparedStatementsGeneration=DatabaseWrapper.this.preparedStatementsGeneration.get();
+		}
+
+		private void closePreparedStatement(PreparedStatement ps) {
+			try {
+				ps.close();
+			} catch (SQLException ignored) {
+				//the connection can be already closed
+			}
+		}
+
 		Connection getConnection() {
 			return connection;
 		}
@@ -3680,8 +4098,10 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			boolean transactionOK = false;
 			if (commit) {
 				transactionOK = validateTmpTransaction();
-			} else
+			} else {
 				cancelTmpTransaction();
+				cancelMemoryTablesChanges();
+			}
 
 			/*
 			 * if (sessionLocked) { sessionLocked=false; locker.unlockWrite();
@@ -3710,7 +4130,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 					public Void run() throws Exception {
 						for (TransactionPerDatabase t : temporaryTransactions.values()) {
 							t.transaction = getDatabaseTransactionEventsTable().addRecord(t.transaction);
-							for (DatabaseEventsTable.Record r : t.events) {
+							for (DatabaseEventsTable.Record r : t.events.values()) {
 								r.setTransaction(t.transaction);
 								getDatabaseEventsTable().addRecord(r);
 							}
@@ -3771,15 +4191,21 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 						final DatabaseEventsTable.Record originalEvent = new DatabaseEventsTable.Record(
 								transaction.transaction, event, DatabaseWrapper.this);
 						DatabaseEventsTable.Record eventr = originalEvent;
+						final PendingEventKey key = new PendingEventKey(originalEvent);
 
-						for (Iterator<DatabaseEventsTable.Record> it = transaction.events.iterator(); it.hasNext();) {
-							DatabaseEventsTable.Record _record = it.next();
-							if (_record == null)
-								throw new NullPointerException();
-							if (_record.getConcernedTable().equals(originalEvent.getConcernedTable())
-								&& (event.getType()==DatabaseEventType.REMOVE_ALL_RECORDS_WITH_CASCADE || Arrays.equals(_record.getConcernedSerializedPrimaryKey(),
-									originalEvent.getConcernedSerializedPrimaryKey())
-							)) {
+						if (event.getType()==DatabaseEventType.REMOVE_ALL_RECORDS_WITH_CASCADE) {
+							for (Iterator<DatabaseEventsTable.Record> it = transaction.events.values().iterator(); it.hasNext();) {
+								DatabaseEventsTable.Record _record = it.next();
+								if (_record.getConcernedTable().equals(originalEvent.getConcernedTable())) {
+									it.remove();
+									nb.decrementAndGet();
+								}
+							}
+						}
+						else {
+							//there is at most one pending event per record
+							DatabaseEventsTable.Record _record = transaction.events.remove(key);
+							if (_record != null) {
 								if (event.getType() == DatabaseEventType.UPDATE
 										&& _record.getType() == DatabaseEventType.ADD.getByte()) {
 									eventr = new DatabaseEventsTable.Record(transaction.transaction,
@@ -3791,8 +4217,6 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 										&& _record.getType() == DatabaseEventType.ADD.getByte()) {
 									eventr = null;
 								}
-
-								it.remove();
 								nb.decrementAndGet();
 							}
 						}
@@ -3804,7 +4228,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 								tables.add(t);
 							}
 
-							for (Iterator<DatabaseEventsTable.Record> it = transaction.events.iterator(); it
+							for (Iterator<DatabaseEventsTable.Record> it = transaction.events.values().iterator(); it
 									.hasNext();) {
 								DatabaseEventsTable.Record _record = it.next();
 								if (_record.getType()==DatabaseEventType.REMOVE_ALL_RECORDS_WITH_CASCADE.getByte() ||
@@ -3848,7 +4272,8 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 							if (hosts != null)
 								transaction.concernedHosts.addAll(hosts);
 							eventr.setPosition(actualPosition.getAndIncrement());
-							transaction.events.add(eventr);
+							//the insertion order keeps events sorted by position
+							transaction.events.put(key, eventr);
 							nb.incrementAndGet();
 						}
 
@@ -4044,7 +4469,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			if (eventsStoredIntoMemory) {
 				for (TransactionPerDatabase t : temporaryTransactions.values()) {
 					int nb = 0;
-					for (Iterator<DatabaseEventsTable.Record> it = t.events.iterator(); it.hasNext();) {
+					for (Iterator<DatabaseEventsTable.Record> it = t.events.values().iterator(); it.hasNext();) {
 						DatabaseEventsTable.Record dr = it.next();
 						if (dr.getPosition() >= position) {
 							it.remove();
@@ -4169,7 +4594,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 																			t.transaction.concernedDatabasePackage,
 																			t.concernedHosts)));
 															transactionsID.put(e.getKey(), t.transaction.id);
-															for (DatabaseEventsTable.Record r : t.events) {
+															for (DatabaseEventsTable.Record r : t.events.values()) {
 																r.setTransaction(finalTR.get());
 																getDatabaseEventsTable().addRecord(r);
 															}
@@ -4332,11 +4757,43 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 	}
 
+	/**
+	 * Identifies the record concerned by a pending event
+	 */
+	private static final class PendingEventKey {
+		private final String concernedTable;
+		private final byte[] concernedSerializedPrimaryKey;
+		private final int hashCode;
+
+		PendingEventKey(DatabaseEventsTable.Record event) {
+			this.concernedTable = event.getConcernedTable();
+			this.concernedSerializedPrimaryKey = event.getConcernedSerializedPrimaryKey();
+			this.hashCode = 31 * concernedTable.hashCode() + Arrays.hashCode(concernedSerializedPrimaryKey);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			PendingEventKey that = (PendingEventKey) o;
+			return hashCode == that.hashCode && concernedTable.equals(that.concernedTable)
+					&& Arrays.equals(concernedSerializedPrimaryKey, that.concernedSerializedPrimaryKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
 	private static class TransactionPerDatabase {
 		DatabaseTransactionEventsTable.Record transaction;
 		AtomicInteger eventsNumber;
 		final Set<DecentralizedValue> concernedHosts;
-		final ArrayList<DatabaseEventsTable.Record> events;
+		/**
+		 * Pending events indexed by concerned record, and sorted by position
+		 */
+		final LinkedHashMap<PendingEventKey, DatabaseEventsTable.Record> events;
 
 		TransactionPerDatabase(DatabaseTransactionEventsTable.Record transaction, int maxEventsNumberKeptIntoMemory) {
 			if (transaction == null)
@@ -4344,7 +4801,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			this.transaction = transaction;
 			this.eventsNumber = new AtomicInteger(0);
 			concernedHosts = new HashSet<>();
-			events = new ArrayList<>(maxEventsNumberKeptIntoMemory);
+			events = new LinkedHashMap<>(Math.min(maxEventsNumberKeptIntoMemory, 1024));
 		}
 	}
 
@@ -4382,8 +4839,8 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 
 	ConnectionWrapper isNewTransactionAndStartIt() throws DatabaseException {
 		Thread t = Thread.currentThread();
-		try {
-			lockWrite();
+		//sessions are protected by their own monitor in order to not exclude concurrent read transactions
+		synchronized (threadPerConnection) {
 			Session c = getSession(threadPerConnectionInProgress, t);
 
 			if (c == null) {
@@ -4398,17 +4855,12 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			} else
 				return new ConnectionWrapper(c, false);
 		}
-		finally
-		{
-			unlockWrite();
-		}
 		
 	}
 
 	protected Session getConnectionAssociatedWithCurrentThread() throws DatabaseException {
 		
-		try {
-			lockWrite();
+		synchronized (threadPerConnection) {
 			Session c = getSession(threadPerConnectionInProgress, Thread.currentThread());
 
 			Connection c2 = getOpenedSqlConnection(c);
@@ -4419,21 +4871,17 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			}
 			return c;
 		}
-		finally
-		{
-			unlockWrite();
-		}
 
 	}
 
 	void releaseTransaction() throws DatabaseException {
-		try {
+		synchronized (threadPerConnection) {
 			
 			try {
-				lockWrite();
 				Session c = removeSession(threadPerConnectionInProgress, Thread.currentThread());
 				if (c == null)
 					throw new IllegalAccessError();
+				c.cancelMemoryTablesChanges();
 				if (closed || alwaysDisconnectAfterOnTransaction) {
 					if (!c.getConnection().isClosed())
 						closeConnection(c.getConnection(), true);
@@ -4443,6 +4891,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 					Session s = it.next();
 
 					if (!s.getThread().isAlive()) {
+						s.clearPreparedStatements();
 						if (!s.getConnection().isClosed() && !s.getConnection().isClosed())
 							closeConnection(s.getConnection(), alwaysDisconnectAfterOnTransaction);
 
@@ -4453,10 +4902,6 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				throw DatabaseException.getDatabaseException(e);
 			}
 		}
-		finally
-		{
-			unlockWrite();
-		}
 		
 	}
 
@@ -4668,14 +5113,23 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		}
 
 		if (cw.newTransaction) {
+			final DatabaseMetricsListener metricsListener=this.metricsListener;
+			final boolean measure=metricsListener!=NO_METRICS_LISTENER;
+			long start;
+			long lockWaitDuration=0, runDuration=0, commitDuration=0, memoryTablesRefreshDuration=0;
+			int retriesNumber=0;
+			boolean committed=false;
 			try
 			{
 				if (needsLock)
 				{
+					start=measure?System.nanoTime():0;
 					if (writeData)
 						lockWrite();
 					else
 						lockRead();
+					if (measure)
+						lockWaitDuration+=System.nanoTime()-start;
 				}
 				if (databasePackage!=null)
 				{
@@ -4703,17 +5157,35 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 							savePoint = savePoint(cw.connection.getConnection(), savePointName);
 						}
 						cw.connection.resetTmpTransaction(true, true);
-						_transaction.initOrReset();
-						res = _transaction.run(this);
+						start=measure?System.nanoTime():0;
+						try {
+							_transaction.initOrReset();
+							res = _transaction.run(this);
+						}
+						finally {
+							if (measure)
+								runDuration+=System.nanoTime()-start;
+						}
 						if (writeData)
 							cw.connection.clearTransactions(true);
 						try
 						{
-							if (writeData)
+							if (writeData) {
+								start=measure?System.nanoTime():0;
 								lockWrite();
+								if (measure)
+									lockWaitDuration+=System.nanoTime()-start;
+							}
+							start=measure?System.nanoTime():0;
 							commit(cw.connection.getConnection());
-							if (writeData)
+							if (measure)
+								commitDuration+=System.nanoTime()-start;
+							if (writeData) {
+								start=measure?System.nanoTime():0;
 								cw.connection.refreshAllMemoryTables();
+								if (measure)
+									memoryTablesRefreshDuration+=System.nanoTime()-start;
+							}
 						}
 						finally
 						{
@@ -4728,6 +5200,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 						}
 							
 						endTransaction(cw.connection);
+						committed=true;
 					} catch (DatabaseException e) {
 						Throwable t=e.getCause();
 						while (t!=null)
@@ -4819,6 +5292,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 					}
 					if (retry)
 					{
+						++retriesNumber;
 						cw = isNewTransactionAndStartIt();
 						if (!cw.newTransaction)
 							throw new IllegalAccessError();
@@ -4831,7 +5305,9 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 					else
 						unlockRead();
 				}
-
+				if (measure)
+					metricsListener.transactionFinished(_transaction.getTransactionIsolation(), writeData, retriesNumber,
+							lockWaitDuration, runDuration, commitDuration, memoryTablesRefreshDuration, committed);
 			}
 			
 		} else {
@@ -4839,13 +5315,19 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 			Savepoint savePoint = null;
 			int previousPosition=-1;
 			Map<Package, Long> backupPositions=null;
-
+			Map<Table<?>, Integer> memoryTablesChangesPositions=null;
+			if (writeData && needsLock && !locker.canLockWrite())
+				throw new DatabaseException("A transaction that writes data cannot be nested into a read only transaction or into a read only query. The read lock cannot be upgraded atomically to the write lock.");
+			final boolean nestedWriteLock=writeData && needsLock && !locker.isWriteLockedByCurrentThread();
+			if (nestedWriteLock)
+				lockWrite();
 			try {
 				if (writeData && !defaultTransaction && supportSavePoint(cw.connection.getConnection()))
 				{
 					Session s=getConnectionAssociatedWithCurrentThread();
 					previousPosition = s.getActualPositionEvent();
 					backupPositions=s.getBackupPositions();
+					memoryTablesChangesPositions=s.getMemoryTablesChangesPositions();
 
 					savePointName = generateSavePointName();
 					savePoint = savePoint(cw.connection.getConnection(), savePointName);
@@ -4861,7 +5343,9 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				try {
 					if (writeData && savePoint != null) {
 						rollback(cw.connection.getConnection(), savePointName, savePoint);
-						getConnectionAssociatedWithCurrentThread().cancelTmpTransactionEvents(previousPosition, backupPositions);
+						Session s=getConnectionAssociatedWithCurrentThread();
+						s.cancelTmpTransactionEvents(previousPosition, backupPositions);
+						s.cancelMemoryTablesChanges(memoryTablesChangesPositions);
 						if (mustReleaseSavepointAfterRollBack())
 							releasePoint(cw.connection.getConnection(), savePointName, savePoint);
 					}
@@ -4871,6 +5355,9 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 				throw e;
 			} catch (SQLException e) {
 				throw DatabaseException.getDatabaseException(e);
+			} finally {
+				if (nestedWriteLock)
+					unlockWrite();
 			}
 		}
 		return res;
@@ -5238,6 +5725,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		}
 		finally
 		{
+			invalidatePreparedStatements();
 			unlockWrite();
 		}
 	}
@@ -5709,6 +6197,7 @@ public abstract class DatabaseWrapper implements AutoCloseable {
 		}
 		finally
 		{
+			invalidatePreparedStatements();
 			unlockWrite();
 		}
 	}
@@ -39,11 +39,20 @@ package com.distrimind.ood.database;
 
 import com.distrimind.ood.database.exceptions.ConstraintsNotRespectedDatabaseException;
 import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.ood.database.exceptions.UncheckedDatabaseException;
+import com.distrimind.ood.database.fieldaccessors.ComposedFieldAccessor;
 import com.distrimind.ood.database.fieldaccessors.FieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.ForeignKeyFieldAccessor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class enables to group results according given table fields. It is
@@ -53,23 +62,33 @@ import java.util.HashMap;
  * {@link com.distrimind.ood.database.Table#getGroupedResults(String...)} or
  * {@link com.distrimind.ood.database.Table#getGroupedResults(Collection, String...)}.
  * 
+ * Groups are indexed with a hash map, so adding a record costs a constant time
+ * whatever the number of groups is.
+ * 
  * @author Jason Mahdoub
  * @since 1.0
- * @version 1.0
+ * @version 1.1
  * @param <T>
  *            The type of the DatabaseRecord.
  */
 public final class GroupedResults<T extends DatabaseRecord> {
+	/**
+	 * Under this number of records, {@link #addRecords(Collection, boolean)} does not split the grouping into several
+	 * tasks.
+	 */
+	public static final int PARALLEL_GROUPING_THRESHOLD = 4096;
+
 	private class Field {
 		private final String field_name;
 		private final FieldAccessor field ;
+		private final boolean declaredIntoRecord;
 
 		public Field(String _field_name) throws ConstraintsNotRespectedDatabaseException {
 			field_name = _field_name;
 			this.field=GroupedResults.this.table.getFieldAccessor(_field_name);
 			if (this.field==null)
 				throw new ConstraintsNotRespectedDatabaseException("The field " + field_name + " does not exists.");
-
+			this.declaredIntoRecord=field_name.indexOf('.')<0;
 		}
 
 		public String getName() {
@@ -77,20 +96,81 @@ public final class GroupedResults<T extends DatabaseRecord> {
 		}
 
 		public boolean equals(T o1, Object o2) throws DatabaseException {
-			Object record=GroupedResults.this.table.getFieldAccessorAndValue(o1, field_name).getValue();
-			return this.field.equals(record, o2);
+			return this.field.equals(getInstance(o1), o2);
 		}
 
 		public Object getValue(T o) throws DatabaseException {
-			Object record=GroupedResults.this.table.getFieldAccessorAndValue(o, field_name).getValue();
-			return this.field.getValue(record);
+			return this.field.getValue(getInstance(o));
+		}
+
+		private Object getInstance(T o) throws DatabaseException {
+			if (declaredIntoRecord)
+				return o;
+			else
+				return GroupedResults.this.table.getFieldAccessorAndValue(o, field_name).getValue();
+		}
+
+		public Object getKeyValue(Object value) throws DatabaseException {
+			return GroupedResults.getKeyValue(field, value);
+		}
+
+	}
+
+	/**
+	 * Immutable group identity, built from the values of the group fields. Values that do not implement equals and
+	 * hashCode like the field accessors compare them (foreign keys, composed fields and byte arrays) are converted
+	 * into arrays.
+	 */
+	private static final class GroupKey {
+		private final Object[] values;
+		private final int hash_code;
+
+		GroupKey(Object[] values) {
+			this.values = values;
+			this.hash_code = Arrays.deepHashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash_code;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this)
+				return true;
+			if (!(o instanceof GroupKey))
+				return false;
+			GroupKey k = (GroupKey) o;
+			return hash_code == k.hash_code && Arrays.deepEquals(values, k.values);
 		}
+	}
 
+	private static Object getKeyValue(FieldAccessor fa, Object value) throws DatabaseException {
+		if (value == null)
+			return null;
+		if (fa instanceof ForeignKeyFieldAccessor) {
+			//foreign keys are compared through the primary keys of the pointed record
+			return getKeyValues(((ForeignKeyFieldAccessor) fa).getPointedTable().getPrimaryKeysFieldAccessors(), value);
+		} else if (fa instanceof ComposedFieldAccessor) {
+			return getKeyValues(((ComposedFieldAccessor) fa).getFieldAccessors(), value);
+		} else
+			return value;
+	}
+
+	private static Object[] getKeyValues(List<FieldAccessor> fields, Object instance) throws DatabaseException {
+		Object[] res = new Object[fields.size()];
+		for (int i = 0; i < res.length; i++) {
+			FieldAccessor fa = fields.get(i);
+			res[i] = getKeyValue(fa, fa.getValue(instance));
+		}
+		return res;
 	}
 
 	protected final Table<T> table;
 	protected final ArrayList<Field> group_definition = new ArrayList<>();
 	private final ArrayList<Group> groups = new ArrayList<>();
+	private final HashMap<GroupKey, Group> groupsIndex = new HashMap<>();
 
 	@SuppressWarnings("unchecked")
 	private GroupedResults(DatabaseWrapper _sql_connection, int databaseVersion, Collection<T> _records, Class<T> _class_record,
@@ -112,6 +192,20 @@ public final class GroupedResults<T extends DatabaseRecord> {
 			addRecords(_records);
 	}
 
+	private Object[] getValues(T _record) throws DatabaseException {
+		Object[] values = new Object[group_definition.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = group_definition.get(i).getValue(_record);
+		return values;
+	}
+
+	private GroupKey getKey(Object[] values) throws DatabaseException {
+		Object[] keyValues = new Object[values.length];
+		for (int i = 0; i < values.length; i++)
+			keyValues[i] = group_definition.get(i).getKeyValue(values[i]);
+		return new GroupKey(keyValues);
+	}
+
 	/**
 	 * Add a record and sort it according the group definition.
 	 * 
@@ -121,11 +215,15 @@ public final class GroupedResults<T extends DatabaseRecord> {
 	 *             if a database exception occurs
 	 */
 	public void addRecord(T _record) throws DatabaseException {
-		for (Group g : groups) {
-			if (g.addRecord(_record))
-				return;
+		Object[] values = getValues(_record);
+		GroupKey key = getKey(values);
+		Group g = groupsIndex.get(key);
+		if (g == null) {
+			g = new Group(key, values);
+			groupsIndex.put(key, g);
+			groups.add(g);
 		}
-		groups.add(new Group(_record));
+		g.results.add(_record);
 	}
 
 	/**
@@ -137,8 +235,104 @@ public final class GroupedResults<T extends DatabaseRecord> {
 	 *             if a database exception occurs
 	 */
 	public void addRecords(Collection<T> _records) throws DatabaseException {
-		for (T r : _records) {
-			addRecord(r);
+		addRecords(_records, false);
+	}
+
+	/**
+	 * Add records and sort them according the group definition.
+	 * 
+	 * When <code>parallel</code> is true and when the collection is big enough, the
+	 * collection is split and grouped by the common fork/join pool. Partial results
+	 * are then merged. The order of the groups and the order of the records into
+	 * each group are the same than with a sequential grouping.
+	 * 
+	 * @param _records
+	 *            the records to add
+	 * @param parallel
+	 *            true if the grouping can be done in parallel
+	 * @throws DatabaseException
+	 *             if a database exception occurs
+	 */
+	public void addRecords(Collection<T> _records, boolean parallel) throws DatabaseException {
+		if (!parallel || _records.size() < PARALLEL_GROUPING_THRESHOLD) {
+			for (T r : _records) {
+				addRecord(r);
+			}
+			return;
+		}
+		List<T> records = _records instanceof List ? (List<T>) _records : new ArrayList<>(_records);
+		LinkedHashMap<GroupKey, PartialGroup> partialGroups;
+		try {
+			partialGroups = ForkJoinPool.commonPool().invoke(new GroupingTask(records, 0, records.size()));
+		} catch (UncheckedDatabaseException e) {
+			throw e.getCause();
+		}
+		for (Map.Entry<GroupKey, PartialGroup> e : partialGroups.entrySet()) {
+			Group g = groupsIndex.get(e.getKey());
+			if (g == null) {
+				g = new Group(e.getKey(), e.getValue().values);
+				groupsIndex.put(e.getKey(), g);
+				groups.add(g);
+			}
+			g.results.addAll(e.getValue().results);
+		}
+	}
+
+	private final class PartialGroup {
+		private final Object[] values;
+		private final ArrayList<T> results = new ArrayList<>();
+
+		PartialGroup(Object[] values) {
+			this.values = values;
+		}
+	}
+
+	private final class GroupingTask extends RecursiveTask<LinkedHashMap<GroupKey, PartialGroup>> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<T> records;
+		private final int start, end;
+
+		GroupingTask(List<T> records, int start, int end) {
+			this.records = records;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected LinkedHashMap<GroupKey, PartialGroup> compute() {
+			if (end - start <= PARALLEL_GROUPING_THRESHOLD) {
+				LinkedHashMap<GroupKey, PartialGroup> res = new LinkedHashMap<>();
+				try {
+					for (int i = start; i < end; i++) {
+						T r = records.get(i);
+						Object[] values = getValues(r);
+						GroupKey key = getKey(values);
+						PartialGroup g = res.get(key);
+						if (g == null) {
+							g = new PartialGroup(values);
+							res.put(key, g);
+						}
+						g.results.add(r);
+					}
+				} catch (DatabaseException e) {
+					throw new UncheckedDatabaseException(e);
+				}
+				return res;
+			}
+			int middle = (start + end) >>> 1;
+			GroupingTask left = new GroupingTask(records, start, middle);
+			left.fork();
+			LinkedHashMap<GroupKey, PartialGroup> right = new GroupingTask(records, middle, end).compute();
+			LinkedHashMap<GroupKey, PartialGroup> res = left.join();
+			for (Map.Entry<GroupKey, PartialGroup> e : right.entrySet()) {
+				PartialGroup g = res.get(e.getKey());
+				if (g == null)
+					res.put(e.getKey(), e.getValue());
+				else
+					g.results.addAll(e.getValue().results);
+			}
+			return res;
 		}
 	}
 
@@ -158,29 +352,42 @@ public final class GroupedResults<T extends DatabaseRecord> {
 	 * 
 	 * @author Jason Mahdjoub
 	 * @since 1.0
-	 * @version 1.0
+	 * @version 1.1
 	 *
 	 */
 	public class Group {
 		protected final HashMap<String, Object> group;
 		protected final int hash_code;
 		protected final ArrayList<T> results;
+		private final GroupKey key;
 
-		protected Group(HashMap<String, Object> _group) {
+		protected Group(HashMap<String, Object> _group) throws DatabaseException {
 			group = _group;
-			hash_code = group.hashCode();
+			Object[] values = new Object[group_definition.size()];
+			for (int i = 0; i < values.length; i++)
+				values[i] = group.get(group_definition.get(i).getName());
+			key = getKey(values);
+			hash_code = key.hashCode();
 			results = new ArrayList<>();
 		}
 
 		protected Group(T _record) throws DatabaseException {
+			this(getValues(_record));
+			results.add(_record);
+		}
+
+		private Group(Object[] values) throws DatabaseException {
+			this(getKey(values), values);
+		}
+
+		private Group(GroupKey key, Object[] values) {
 			group = new HashMap<>();
-			for (Field fa : group_definition) {
-				group.put(fa.getName(), fa.getValue(_record));
+			for (int i = 0; i < values.length; i++) {
+				group.put(group_definition.get(i).getName(), values[i]);
 			}
-
-			hash_code = group.hashCode();
+			this.key = key;
+			hash_code = key.hashCode();
 			results = new ArrayList<>();
-			results.add(_record);
 		}
 
 		protected boolean addRecord(T _record) throws DatabaseException {
@@ -217,11 +424,7 @@ public final class GroupedResults<T extends DatabaseRecord> {
 		}
 
 		public boolean equals(Group _group) {
-			for (String s : group.keySet()) {
-				if (!group.get(s).equals(_group.group.get(s)))
-					return false;
-			}
-			return true;
+			return key.equals(_group.key);
 		}
 
 		/**
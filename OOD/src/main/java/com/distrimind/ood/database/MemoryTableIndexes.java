@@ -0,0 +1,511 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.ood.database.fieldaccessors.ComposedFieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.FieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.ForeignKeyFieldAccessor;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes built over the records snapshot of a table loaded into memory (see
+ * {@link com.distrimind.ood.database.annotations.LoadToMemory}).
+ *
+ * A hash index is available for the primary keys, for each unique field, and
+ * for each field whose annotation {@link com.distrimind.ood.database.annotations.Field#index()}
+ * is true. A sorted index is available for numeric fields whose annotation
+ * {@link com.distrimind.ood.database.annotations.Field#index()} is true.
+ *
+ * Indexes are built the first time they are used, and are never modified: a
+ * new instance is created for each new snapshot. The indexes that are not
+ * concerned by the changes of a commit are carried over to the new instance.
+ * They return the positions of candidate records into the snapshot, in
+ * ascending order. Candidates are a
+ * superset of the expected records, and must be tested like the other records.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+public final class MemoryTableIndexes<T extends DatabaseRecord> {
+	private static final Object NULL_KEY = new Object();
+	private static final Object NOT_INDEXABLE = new Object();
+	private static final int[] EMPTY = new int[0];
+
+	final ArrayList<T> records;
+	private final Table<T> table;
+	private volatile HashMap<Object, Positions> primaryKeysIndex = null;
+	private final ConcurrentHashMap<FieldAccessor, HashMap<Object, Positions>> hashIndexes = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<FieldAccessor, SortedIndex> sortedIndexes = new ConcurrentHashMap<>();
+
+	MemoryTableIndexes(Table<T> table, ArrayList<T> records) {
+		this.table = table;
+		this.records = records;
+	}
+
+	/**
+	 * Returns the positions of the records whose field can be equal to the given
+	 * value
+	 *
+	 * @param fieldAccessor
+	 *            the field accessor of the table
+	 * @param value
+	 *            the searched value
+	 * @return the positions of the candidate records, or null if no index can be
+	 *         used
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	public int[] getPositionsWithEqualValue(FieldAccessor fieldAccessor, Object value) throws DatabaseException {
+		HashMap<Object, Positions> index = getHashIndex(fieldAccessor);
+		if (index == null)
+			return null;
+		Object key = getKey(fieldAccessor, value);
+		if (key == NOT_INDEXABLE)
+			return null;
+		Positions p = index.get(key);
+		return p == null ? EMPTY : p.toArray();
+	}
+
+	/**
+	 * Returns the positions of the records whose numeric field is lower than the
+	 * given value. Null values are considered as lower than other values.
+	 *
+	 * @param fieldAccessor
+	 *            the field accessor of the table
+	 * @param value
+	 *            the upper bound
+	 * @param inclusive
+	 *            true if the upper bound is included
+	 * @return the positions of the candidate records, or null if no index can be
+	 *         used
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	public int[] getPositionsLowerThan(FieldAccessor fieldAccessor, BigDecimal value, boolean inclusive) throws DatabaseException {
+		SortedIndex index = getSortedIndex(fieldAccessor);
+		if (index == null || value == null)
+			return null;
+		int end = index.bound(value, inclusive);
+		int[] res = Arrays.copyOf(index.nullPositions, index.nullPositions.length + end);
+		System.arraycopy(index.positions, 0, res, index.nullPositions.length, end);
+		Arrays.sort(res);
+		return res;
+	}
+
+	/**
+	 * Returns the positions of the records whose numeric field is greater than
+	 * the given value. Null values are considered as lower than other values.
+	 *
+	 * @param fieldAccessor
+	 *            the field accessor of the table
+	 * @param value
+	 *            the lower bound
+	 * @param inclusive
+	 *            true if the lower bound is included
+	 * @return the positions of the candidate records, or null if no index can be
+	 *         used
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	public int[] getPositionsGreaterThan(FieldAccessor fieldAccessor, BigDecimal value, boolean inclusive) throws DatabaseException {
+		SortedIndex index = getSortedIndex(fieldAccessor);
+		if (index == null || value == null)
+			return null;
+		int start = index.bound(value, !inclusive);
+		int[] res = Arrays.copyOfRange(index.positions, start, index.positions.length);
+		Arrays.sort(res);
+		return res;
+	}
+
+	/**
+	 * Returns the positions of the records that can correspond to all the given
+	 * fields
+	 *
+	 * @param fields
+	 *            the fields values
+	 * @param fieldAccessors
+	 *            the accessors of the given fields
+	 * @return the positions of the candidate records, or null if no index can be
+	 *         used
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	int[] getPositionsWithAllFields(Map<String, Object> fields, List<FieldAccessor> fieldAccessors) throws DatabaseException {
+		int[] res = null;
+		if (table.primary_keys_fields.size() > 1) {
+			boolean allPrimaryKeys = true;
+			for (FieldAccessor fa : table.primary_keys_fields) {
+				if (!fields.containsKey(fa.getFieldName())) {
+					allPrimaryKeys = false;
+					break;
+				}
+			}
+			if (allPrimaryKeys) {
+				Positions p = getPositionsWithPrimaryKeys(fields);
+				if (p != null)
+					return p.toArray();
+			}
+		}
+		for (FieldAccessor fa : fieldAccessors) {
+			if (!fields.containsKey(fa.getFieldName()))
+				continue;
+			int[] p = getPositionsWithEqualValue(fa, fields.get(fa.getFieldName()));
+			if (p != null && (res == null || p.length < res.length)) {
+				res = p;
+				if (res.length <= 1)
+					break;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the record whose primary keys can correspond to the given keys
+	 *
+	 * @param keys
+	 *            the primary keys values
+	 * @return the candidate records, or null if no index can be used
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	ArrayList<T> getRecordsWithPrimaryKeys(Map<String, Object> keys) throws DatabaseException {
+		Positions p = getPositionsWithPrimaryKeys(keys);
+		if (p == null)
+			return null;
+		return getRecords(p.toArray());
+	}
+
+	/**
+	 * Returns the indexes of a new snapshot, where records of this snapshot have
+	 * been replaced, and where records have been appended. The other records must
+	 * keep their positions. Built indexes whose keys are not modified by the
+	 * replaced records are carried over, and completed with the appended records
+	 * without modifying the indexes of this snapshot. Other indexes will be built
+	 * again when they are used.
+	 *
+	 * @param newRecords
+	 *            the new snapshot
+	 * @param replacedPositions
+	 *            the positions of the replaced records
+	 * @return the indexes of the new snapshot
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	MemoryTableIndexes<T> getIndexesOfNewSnapshot(ArrayList<T> newRecords, List<Integer> replacedPositions) throws DatabaseException {
+		MemoryTableIndexes<T> res = new MemoryTableIndexes<>(table, newRecords);
+		HashMap<Object, Positions> index = primaryKeysIndex;
+		if (index != null)
+			res.primaryKeysIndex = getHashIndexOfNewSnapshot(index, null, newRecords, replacedPositions);
+		for (Map.Entry<FieldAccessor, HashMap<Object, Positions>> e : hashIndexes.entrySet()) {
+			index = getHashIndexOfNewSnapshot(e.getValue(), e.getKey(), newRecords, replacedPositions);
+			if (index != null)
+				res.hashIndexes.put(e.getKey(), index);
+		}
+		if (newRecords.size() == records.size()) {
+			for (Map.Entry<FieldAccessor, SortedIndex> e : sortedIndexes.entrySet()) {
+				if (e.getValue().positions != null && hasSameSortedValues(e.getKey(), newRecords, replacedPositions))
+					res.sortedIndexes.put(e.getKey(), e.getValue());
+			}
+		}
+		return res;
+	}
+
+	private HashMap<Object, Positions> getHashIndexOfNewSnapshot(HashMap<Object, Positions> index, FieldAccessor fieldAccessor,
+			ArrayList<T> newRecords, List<Integer> replacedPositions) throws DatabaseException {
+		for (int p : replacedPositions) {
+			Object key = getIndexKey(fieldAccessor, newRecords.get(p));
+			if (key == NOT_INDEXABLE || !key.equals(getIndexKey(fieldAccessor, records.get(p))))
+				return null;
+		}
+		if (newRecords.size() == records.size())
+			return index;
+		HashMap<Object, Positions> res = new HashMap<>(index);
+		for (int i = records.size(); i < newRecords.size(); i++) {
+			Object key = getIndexKey(fieldAccessor, newRecords.get(i));
+			if (key == NOT_INDEXABLE)
+				return null;
+			Positions p = res.get(key);
+			p = p == null ? new Positions() : p.copy();
+			p.add(i);
+			res.put(key, p);
+		}
+		return res;
+	}
+
+	private boolean hasSameSortedValues(FieldAccessor fieldAccessor, ArrayList<T> newRecords, List<Integer> replacedPositions) throws DatabaseException {
+		for (int p : replacedPositions) {
+			Object v1 = fieldAccessor.getValue(records.get(p));
+			Object v2 = fieldAccessor.getValue(newRecords.get(p));
+			if (v1 == null || v2 == null) {
+				if (v1 != v2)
+					return false;
+			} else {
+				if (!(v2 instanceof Number))
+					return false;
+				BigDecimal b2 = toBigDecimal((Number) v2);
+				if (b2 == null || b2.compareTo(toBigDecimal((Number) v1)) != 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the key of the primary keys index if the given field accessor is null, or the key of the hash index of the given field
+	 */
+	private Object getIndexKey(FieldAccessor fieldAccessor, Object record) throws DatabaseException {
+		return fieldAccessor == null ? getPrimaryKeysKey(table, record) : getKey(fieldAccessor, fieldAccessor.getValue(record));
+	}
+
+	ArrayList<T> getRecords(int[] positions) {
+		ArrayList<T> res = new ArrayList<>(positions.length);
+		for (int p : positions)
+			res.add(records.get(p));
+		return res;
+	}
+
+	private Positions getPositionsWithPrimaryKeys(Map<String, Object> keys) throws DatabaseException {
+		HashMap<Object, Positions> index = primaryKeysIndex;
+		if (index == null) {
+			index = new HashMap<>();
+			for (int i = 0; i < records.size(); i++) {
+				Object key = getPrimaryKeysKey(table, records.get(i));
+				if (key == NOT_INDEXABLE)
+					return null;
+				index.computeIfAbsent(key, k -> new Positions()).add(i);
+			}
+			primaryKeysIndex = index;
+		}
+		Object[] values = new Object[table.primary_keys_fields.size()];
+		for (int i = 0; i < values.length; i++) {
+			FieldAccessor fa = table.primary_keys_fields.get(i);
+			values[i] = getKey(fa, keys.get(fa.getFieldName()));
+			if (values[i] == NOT_INDEXABLE)
+				return null;
+		}
+		Positions p = index.get(Arrays.asList(values));
+		return p == null ? new Positions() : p;
+	}
+
+	private boolean isHashIndexable(FieldAccessor fieldAccessor) {
+		if (fieldAccessor instanceof ComposedFieldAccessor || !table.fields.contains(fieldAccessor))
+			return false;
+		return (fieldAccessor.isPrimaryKey() && table.primary_keys_fields.size() == 1) || fieldAccessor.isUnique()
+				|| fieldAccessor.hasToCreateIndex();
+	}
+
+	private HashMap<Object, Positions> getHashIndex(FieldAccessor fieldAccessor) throws DatabaseException {
+		HashMap<Object, Positions> index = hashIndexes.get(fieldAccessor);
+		if (index == null) {
+			if (!isHashIndexable(fieldAccessor))
+				return null;
+			index = new HashMap<>();
+			for (int i = 0; i < records.size(); i++) {
+				Object key = getKey(fieldAccessor, fieldAccessor.getValue(records.get(i)));
+				if (key == NOT_INDEXABLE)
+					return null;
+				index.computeIfAbsent(key, k -> new Positions()).add(i);
+			}
+			hashIndexes.putIfAbsent(fieldAccessor, index);
+		}
+		return index;
+	}
+
+	private SortedIndex getSortedIndex(FieldAccessor fieldAccessor) throws DatabaseException {
+		SortedIndex index = sortedIndexes.get(fieldAccessor);
+		if (index == null) {
+			if (!fieldAccessor.hasToCreateIndex() || !fieldAccessor.isComparable() || !table.fields.contains(fieldAccessor))
+				return null;
+			index = new SortedIndex(fieldAccessor);
+			sortedIndexes.putIfAbsent(fieldAccessor, index);
+		}
+		return index.positions == null ? null : index;
+	}
+
+	private static Object getPrimaryKeysKey(Table<?> table, Object record) throws DatabaseException {
+		Object[] values = new Object[table.primary_keys_fields.size()];
+		for (int i = 0; i < values.length; i++) {
+			FieldAccessor fa = table.primary_keys_fields.get(i);
+			values[i] = getKey(fa, fa.getValue(record));
+			if (values[i] == NOT_INDEXABLE)
+				return NOT_INDEXABLE;
+		}
+		return Arrays.asList(values);
+	}
+
+	/**
+	 * Converts a field value into a hash key. Two values that can be equal
+	 * according {@link FieldAccessor#equals(Object, Object)} must have the same
+	 * key.
+	 */
+	private static Object getKey(FieldAccessor fieldAccessor, Object value) throws DatabaseException {
+		if (value == null)
+			return NULL_KEY;
+		if (fieldAccessor instanceof ComposedFieldAccessor)
+			return NOT_INDEXABLE;
+		if (fieldAccessor instanceof ForeignKeyFieldAccessor) {
+			Table<?> pointedTable = ((ForeignKeyFieldAccessor) fieldAccessor).getPointedTable();
+			if (!pointedTable.getClassRecord().isInstance(value))
+				return NOT_INDEXABLE;
+			return getPrimaryKeysKey(pointedTable, value);
+		}
+		Class<?> type = fieldAccessor.getFieldClassType();
+		if (value instanceof Number && (Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != boolean.class && type != char.class)))
+			return getNumericKey((Number) value);
+		if (type.isPrimitive()) {
+			if (!(value instanceof Boolean || value instanceof Character))
+				return NOT_INDEXABLE;
+		} else if (!type.isInstance(value))
+			return NOT_INDEXABLE;
+		if (value instanceof byte[])
+			return ByteBuffer.wrap((byte[]) value);
+		if (value instanceof Date)
+			//Date and Timestamp compare their time
+			return ((Date) value).getTime();
+		if (value.getClass().isArray())
+			return NOT_INDEXABLE;
+		return value;
+	}
+
+	private static Object getNumericKey(Number value) {
+		BigDecimal bd = toBigDecimal(value);
+		if (bd == null)
+			return NOT_INDEXABLE;
+		return bd.signum() == 0 ? BigDecimal.ZERO : bd.stripTrailingZeros();
+	}
+
+	//same conversion than RuleInstance.compareTo
+	private static BigDecimal toBigDecimal(Number value) {
+		if (value instanceof BigDecimal)
+			return (BigDecimal) value;
+		try {
+			return new BigDecimal(value.toString());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static final class Positions {
+		private int[] values = new int[1];
+		private int size = 0;
+
+		void add(int position) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = position;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+		Positions copy() {
+			Positions res = new Positions();
+			res.values = Arrays.copyOf(values, size + 1);
+			res.size = size;
+			return res;
+		}
+	}
+
+	private final class SortedIndex {
+		private final BigDecimal[] keys;
+		private final int[] positions;
+		private final int[] nullPositions;
+
+		SortedIndex(FieldAccessor fieldAccessor) throws DatabaseException {
+			ArrayList<Integer> nulls = new ArrayList<>();
+			ArrayList<Integer> notNulls = new ArrayList<>(records.size());
+			final BigDecimal[] values = new BigDecimal[records.size()];
+			boolean indexable = true;
+			for (int i = 0; i < records.size(); i++) {
+				Object v = fieldAccessor.getValue(records.get(i));
+				if (v == null)
+					nulls.add(i);
+				else if (v instanceof Number && (values[i] = toBigDecimal((Number) v)) != null)
+					notNulls.add(i);
+				else {
+					indexable = false;
+					break;
+				}
+			}
+			if (indexable) {
+				notNulls.sort((p1, p2) -> values[p1].compareTo(values[p2]));
+				keys = new BigDecimal[notNulls.size()];
+				positions = new int[notNulls.size()];
+				for (int i = 0; i < positions.length; i++) {
+					positions[i] = notNulls.get(i);
+					keys[i] = values[positions[i]];
+				}
+				nullPositions = new int[nulls.size()];
+				for (int i = 0; i < nullPositions.length; i++)
+					nullPositions[i] = nulls.get(i);
+			} else {
+				keys = null;
+				positions = null;
+				nullPositions = null;
+			}
+		}
+
+		/**
+		 * @return the number of keys lower than the given value, or lower or equal if
+		 *         inclusive is true
+		 */
+		int bound(BigDecimal value, boolean inclusive) {
+			int low = 0, high = keys.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int c = keys[mid].compareTo(value);
+				if (c < 0 || (inclusive && c == 0))
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,346 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import com.distrimind.ood.database.exceptions.ConstraintsNotRespectedDatabaseException;
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.ood.database.fieldaccessors.FieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.ForeignKeyFieldAccessor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor that parses query results sequentially, using keyset pagination (also called seek pagination).
+ *
+ * Contrary to {@link Cursor}, pages are not selected with a row offset, which cost grows with the position into
+ * the table, but with the last ordered tuple returned by the previous page :
+ * <code>WHERE k1&gt;=lastK1 AND (k1&gt;lastK1 OR (k1=lastK1 AND k2&gt;lastK2)) ORDER BY k1, k2 LIMIT pageSize</code>.
+ * The leading bound lets the database use an index over the first sort field. Every page has then the same
+ * cost, whatever the position into the table.
+ *
+ * Records are sorted according the given fields. Primary keys that are not part of the given fields are added at
+ * the end of the sort order, in order to guarantee a strict ordering. All these fields must be comparable and
+ * not null. A foreign key, given as sort field or being part of the primary keys, is replaced by the primary keys
+ * of the pointed table, which are compared through a junction : <code>fk.id</code>. Lazy loaded foreign keys are
+ * not supported. Fields that are not comparable, like byte arrays, decentralized IDs, UUIDs, composed fields or
+ * booleans, are not supported either. In these cases, {@link Cursor} must be used.
+ *
+ * When prefetching is enabled, the next page is loaded into a background thread while the current page is
+ * consumed. Background threads are shared between every seek cursor, and their number is bounded. Prefetching is
+ * not done if the current thread holds a lock or runs a transaction, or if too many pages are already waiting
+ * for being prefetched : the next page is then loaded into the current thread.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+public class SeekCursor<T extends DatabaseRecord> implements AutoCloseable {
+	public static final int DEFAULT_PAGE_SIZE=Cursor.DEFAULT_CACHE_SIZE;
+	private static final String SEEK_PARAMETER_PREFIX="seekCursorKey";
+	private static final int MAX_PREFETCH_THREADS=Math.max(2, Runtime.getRuntime().availableProcessors());
+	private static final ThreadPoolExecutor prefetchExecutor;
+	static
+	{
+		prefetchExecutor=new ThreadPoolExecutor(MAX_PREFETCH_THREADS, MAX_PREFETCH_THREADS, 1, TimeUnit.MINUTES,
+				new ArrayBlockingQueue<>(MAX_PREFETCH_THREADS*4), r -> {
+			Thread t=new Thread(r, "OOD seek cursor prefetch");
+			t.setDaemon(true);
+			return t;
+		});
+		prefetchExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	private final Table<T> table;
+	private final String whereClause;
+	private final Map<String, Object> parameters;
+	private final int pageSize;
+	private final boolean ascendant;
+	private final boolean prefetch;
+	private final String[] fields;
+	private final FieldAccessor[] fieldAccessors;
+	private ArrayList<T> page;
+	private int pagePosition;
+	private Object[] lastKey;
+	private boolean lastPageReached;
+	private FutureTask<ArrayList<T>> nextPage;
+	private boolean closed;
+
+	SeekCursor(Table<T> table, String whereClause, Map<String, Object> parameters, int pageSize, boolean ascendant, boolean prefetch, String ... fields) throws ConstraintsNotRespectedDatabaseException {
+		if (table==null)
+			throw new NullPointerException();
+		if (pageSize<1)
+			throw new IllegalArgumentException("The page size must be greater than 0");
+		this.table = table;
+		this.whereClause=whereClause;
+		this.parameters=parameters==null? new HashMap<>():parameters;
+		this.pageSize=pageSize;
+		this.ascendant=ascendant;
+		this.prefetch=prefetch;
+		ArrayList<String> f=new ArrayList<>();
+		if (fields!=null) {
+			for (String field : fields) {
+				FieldAccessor fa=table.getFieldAccessor(field);
+				if (fa instanceof ForeignKeyFieldAccessor)
+					addForeignKeyFields(f, field, (ForeignKeyFieldAccessor)fa);
+				else if (!f.contains(field))
+					f.add(field);
+			}
+		}
+		addPrimaryKeyFields(f, "", table);
+		this.fields=f.toArray(new String[0]);
+		this.fieldAccessors=new FieldAccessor[this.fields.length];
+		for (int i=0;i<this.fields.length;i++)
+		{
+			FieldAccessor fa=table.getFieldAccessor(this.fields[i]);
+			if (fa==null)
+				throw new ConstraintsNotRespectedDatabaseException("The field " + this.fields[i] + " does not exists.");
+			if (!fa.isComparable())
+				throw new ConstraintsNotRespectedDatabaseException(
+						"The field " + this.fields[i] + " starting in the class/table " + table.getClass().getName()
+								+ " is not a comparable field. Keyset pagination is not possible.");
+			fieldAccessors[i]=fa;
+		}
+		this.page=null;
+		this.pagePosition=0;
+		this.lastKey=null;
+		this.lastPageReached=false;
+		this.nextPage=null;
+		this.closed=false;
+	}
+
+	private static void addPrimaryKeyFields(ArrayList<String> f, String prefix, Table<?> table) throws ConstraintsNotRespectedDatabaseException {
+		for (FieldAccessor fa : table.getPrimaryKeysFieldAccessors())
+		{
+			String field=prefix+fa.getFieldName();
+			if (fa instanceof ForeignKeyFieldAccessor)
+				addForeignKeyFields(f, field, (ForeignKeyFieldAccessor)fa);
+			else if (!f.contains(field))
+				f.add(field);
+		}
+	}
+
+	private static void addForeignKeyFields(ArrayList<String> f, String field, ForeignKeyFieldAccessor fa) throws ConstraintsNotRespectedDatabaseException {
+		//a foreign key is sorted according the primary keys of the pointed table, which are read from the pointed record
+		if (fa.isLazyLoading())
+			throw new ConstraintsNotRespectedDatabaseException("The foreign key " + field
+					+ " is lazy loaded. Keyset pagination is not possible since the pointed record is not loaded.");
+		addPrimaryKeyFields(f, field+".", fa.getPointedTable());
+	}
+
+	/**
+	 * @return the fields according which records are sorted, including primary keys. Foreign keys are replaced by
+	 * the primary keys of the pointed tables.
+	 */
+	public String[] getSortFields() {
+		return fields.clone();
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public boolean isAscendant() {
+		return ascendant;
+	}
+
+	public boolean hasNext() throws DatabaseException {
+		if (closed)
+			return false;
+		if (page!=null && pagePosition<page.size())
+			return true;
+		if (lastPageReached)
+			return false;
+		loadNextPage();
+		return pagePosition<page.size();
+	}
+
+	public T next() throws DatabaseException {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return page.get(pagePosition++);
+	}
+
+	/**
+	 * Restart the parsing from the first record. Data are reloaded.
+	 */
+	public void refreshData()
+	{
+		cancelNextPage();
+		this.page=null;
+		this.pagePosition=0;
+		this.lastKey=null;
+		this.lastPageReached=false;
+		this.closed=false;
+	}
+
+	/**
+	 * Stop the parsing and cancel prefetching
+	 */
+	@Override
+	public void close() {
+		cancelNextPage();
+		this.page=null;
+		this.closed=true;
+	}
+
+	private void cancelNextPage()
+	{
+		if (nextPage!=null)
+		{
+			//a running query is not interrupted, since JDBC drivers do not support interruptions during I/O
+			nextPage.cancel(false);
+			nextPage=null;
+		}
+	}
+
+	private void loadNextPage() throws DatabaseException {
+		ArrayList<T> p=null;
+		if (nextPage!=null)
+		{
+			if (nextPage.isDone() || !table.getDatabaseWrapper().isLockedOrInTransactionByCurrentThread()) {
+				try {
+					p = nextPage.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw DatabaseException.getDatabaseException(e);
+				} catch (ExecutionException e) {
+					throw DatabaseException.getDatabaseException(e);
+				}
+				finally {
+					nextPage=null;
+				}
+			}
+			else
+				cancelNextPage();
+		}
+		if (p==null)
+			p=getPage(lastKey);
+		page=p;
+		pagePosition=0;
+		if (page.size()<pageSize)
+			lastPageReached=true;
+		else
+		{
+			lastKey=getKey(page.get(page.size()-1));
+			if (prefetch && !table.getDatabaseWrapper().isLockedOrInTransactionByCurrentThread())
+				prefetchPage(lastKey);
+		}
+	}
+
+	private void prefetchPage(final Object[] key)
+	{
+		FutureTask<ArrayList<T>> task=new FutureTask<>(() -> getPage(key));
+		try {
+			prefetchExecutor.execute(task);
+			nextPage=task;
+		}
+		catch(RejectedExecutionException e)
+		{
+			nextPage=null;
+		}
+	}
+
+	private Object[] getKey(T record) throws DatabaseException {
+		Object[] res=new Object[fields.length];
+		for (int i=0;i<fields.length;i++)
+		{
+			Table.FieldAccessorValue fav=table.getFieldAccessorAndValue(record, fields[i]);
+			Object v=fav==null || fav.getValue()==null?null:fav.getFieldAccessor().getValue(fav.getValue());
+			if (v==null)
+				throw new ConstraintsNotRespectedDatabaseException("The field " + fields[i] + " is null. Keyset pagination is not possible with null values.");
+			res[i]=v;
+		}
+		return res;
+	}
+
+	private ArrayList<T> getPage(Object[] key) throws DatabaseException {
+		if (key==null)
+			return table.getPaginatedOrderedRecords(1, pageSize, whereClause, parameters, ascendant, fields);
+		HashMap<String, Object> p=new HashMap<>(parameters);
+		StringBuilder where=new StringBuilder();
+		if (whereClause!=null)
+		{
+			where.append("(")
+					.append(whereClause)
+					.append(") AND ");
+		}
+		String comparator=ascendant?">":"<";
+		p.put(SEEK_PARAMETER_PREFIX+0, key[0]);
+		if (fields.length>1)
+		{
+			//leading bound over the first sort field, in order to use its index
+			where.append(fields[0])
+					.append(comparator)
+					.append("=%")
+					.append(SEEK_PARAMETER_PREFIX)
+					.append(0)
+					.append(" AND ");
+		}
+		where.append("(");
+		for (int i=0;i<fields.length;i++)
+		{
+			if (i>0)
+				where.append(" OR ");
+			where.append("(");
+			for (int j=0;j<i;j++) {
+				where.append(fields[j])
+						.append("=%")
+						.append(SEEK_PARAMETER_PREFIX)
+						.append(j)
+						.append(" AND ");
+			}
+			where.append(fields[i])
+					.append(comparator)
+					.append("%")
+					.append(SEEK_PARAMETER_PREFIX)
+					.append(i)
+					.append(")");
+			p.put(SEEK_PARAMETER_PREFIX+i, key[i]);
+		}
+		where.append(")");
+		return table.getPaginatedOrderedRecords(1, pageSize, where.toString(), p, ascendant, fields);
+	}
+}
@@ -0,0 +1,180 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database;
+
+import com.distrimind.util.io.RandomOutputStream;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Serialized events of local transactions, shared by the exports sent to the different peers.
+ * The events of a transaction are serialized once, and then their bytes are written as is to the stream of every peer.
+ * The transaction header is not cached: its concerned hosts can change after an export, when a peer is added.
+ *
+ * The least recently used transactions are evicted when the cache size exceeds its limit.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+final class SerializedTransactionsCache {
+	private final LinkedHashMap<Long, Entry> entries=new LinkedHashMap<>(16, 0.75f, true);
+	private final long maxSizeInBytes;
+	private final long maxTransactionSizeInBytes;
+	private long sizeInBytes=0;
+	private long hitsNumber=0;
+	private long missesNumber=0;
+
+	SerializedTransactionsCache(long maxSizeInBytes) {
+		if (maxSizeInBytes<0)
+			throw new IllegalArgumentException();
+		this.maxSizeInBytes = maxSizeInBytes;
+		//big transactions would evict too many transactions
+		this.maxTransactionSizeInBytes = maxSizeInBytes/16;
+	}
+
+	/**
+	 * @return the maximum size of the serialized events of a transaction which can be cached
+	 */
+	long getMaxTransactionSizeInBytes() {
+		return maxTransactionSizeInBytes;
+	}
+
+	/**
+	 * @return the number of transactions whose events were found into the cache
+	 */
+	synchronized long getHitsNumber() {
+		return hitsNumber;
+	}
+
+	/**
+	 * @return the number of transactions whose events were not found into the cache
+	 */
+	synchronized long getMissesNumber() {
+		return missesNumber;
+	}
+
+	/**
+	 * @param transaction the transaction
+	 * @return the serialized events of the transaction, or null if they were not cached
+	 */
+	synchronized SerializedEvents get(DatabaseTransactionEventsTable.Record transaction) {
+		Entry e=entries.get(transaction.getID());
+		//identifiers of canceled transactions can be used again
+		if (e!=null && !Objects.equals(e.timeUTC, transaction.getTimeUTC()))
+		{
+			remove(transaction.getID());
+			e=null;
+		}
+		if (e==null) {
+			++missesNumber;
+			return null;
+		}
+		++hitsNumber;
+		return e.serializedEvents;
+	}
+
+	synchronized void put(DatabaseTransactionEventsTable.Record transaction, byte[] serializedEvents) {
+		if (serializedEvents.length>maxTransactionSizeInBytes)
+			return;
+		remove(transaction.getID());
+		entries.put(transaction.getID(), new Entry(transaction.getTimeUTC(), new SerializedEvents(serializedEvents, 0, serializedEvents.length)));
+		sizeInBytes+=serializedEvents.length;
+		for (Iterator<Map.Entry<Long, Entry>> it=entries.entrySet().iterator(); sizeInBytes>maxSizeInBytes && it.hasNext();) {
+			sizeInBytes-=it.next().getValue().serializedEvents.length();
+			it.remove();
+		}
+	}
+
+	private void remove(long transactionID) {
+		Entry e=entries.remove(transactionID);
+		if (e!=null)
+			sizeInBytes-=e.serializedEvents.length();
+	}
+
+	/**
+	 * Remove the transactions whose identifier is greater or equal to the given identifier
+	 * @param transactionID the first removed transaction identifier
+	 */
+	synchronized void removeTransactionsFromID(long transactionID) {
+		for (Iterator<Map.Entry<Long, Entry>> it=entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Long, Entry> e=it.next();
+			if (e.getKey()>=transactionID) {
+				sizeInBytes-=e.getValue().serializedEvents.length();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Read only slice of serialized events. Its bytes are never modified, so that they can be written to the
+	 * streams of several peers at the same time, without being copied first.
+	 */
+	static final class SerializedEvents {
+		private final byte[] bytes;
+		private final int offset;
+		private final int length;
+
+		SerializedEvents(byte[] bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		int length() {
+			return length;
+		}
+
+		void writeTo(RandomOutputStream out) throws IOException {
+			out.write(bytes, offset, length);
+		}
+	}
+
+	private static final class Entry {
+		private final Long timeUTC;
+		private final SerializedEvents serializedEvents;
+
+		Entry(Long timeUTC, SerializedEvents serializedEvents) {
+			this.timeUTC = timeUTC;
+			this.serializedEvents = serializedEvents;
+		}
+	}
+}
@@ -43,9 +43,11 @@ import com.distrimind.ood.database.annotations.ExcludeFromDecentralization;
 import com.distrimind.ood.database.annotations.ForeignKey;
 import com.distrimind.ood.database.annotations.LoadToMemory;
 import com.distrimind.ood.database.exceptions.*;
+import com.distrimind.ood.database.fieldaccessors.ColumnIndexes;
 import com.distrimind.ood.database.fieldaccessors.ComposedFieldAccessor;
 import com.distrimind.ood.database.fieldaccessors.FieldAccessor;
 import com.distrimind.ood.database.fieldaccessors.ForeignKeyFieldAccessor;
+import com.distrimind.ood.interpreter.CompiledRuleInstance;
 import com.distrimind.ood.interpreter.Interpreter;
 import com.distrimind.ood.interpreter.RuleInstance;
 import com.distrimind.ood.interpreter.RuleInstance.TableJunction;
@@ -67,11 +69,14 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This abstract class represent a generic Sql Table wrapper, which enables the
@@ -145,6 +150,9 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	ArrayList<FieldAccessor> fields;
 	private final ArrayList<FieldAccessor> fields_without_primary_and_foreign_keys = new ArrayList<>();
 	private final AtomicReference<ArrayList<T>> records_instances = new AtomicReference<>(new ArrayList<>());
+	private volatile MemoryTableIndexes<T> memoryTableIndexes = null;
+	private MemoryPositions memoryPositions = null;
+	private final Object memoryRefreshLock = new Object();
 	private final boolean is_loaded_in_memory;
 	private String table_name;
 	//private String all_fields_list_for_select;
@@ -159,6 +167,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	public static final int MAX_TABLE_NAME_SIZE_IN_BYTES = MAX_DATABASE_PACKAGE_NAME_LENGTH*2;
 	public static final int MAX_PRIMARY_KEYS_SIZE_IN_BYTES = 3072;
 	public static final int MAX_NON_KEYS_SIZE_IN_BYTES = 33554432;
+	public static final int DEFAULT_BATCH_INSERT_SIZE = 1000;
 	private int databaseVersion=-1;
 	private boolean isPrimaryKeysAndForeignKeysSame;
 	boolean hasBackupManager =false;
@@ -221,6 +230,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		{
 			fa.changeInternalTableName(oldTableName, table_name, newDatabaseVersion);
 		}
+		clearSqlQueriesCache();
 		if (isLoadedInMemory())
 			this.memoryToRefresh();
 	}
@@ -319,20 +329,13 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		return is_synchronized_with_sql_database && (refreshInterval <= 0 || last_refresh + refreshInterval > System.currentTimeMillis());
 	}
 
+	/**
+	 * Must be called by a thread that holds the lock, which excludes writers
+	 */
 	void memoryRefreshed(ArrayList<T> res) {
-		
-		try
-		{
-			sql_connection.lockWrite();
-			records_instances.set(res);
-			is_synchronized_with_sql_database = true;
-			last_refresh = System.currentTimeMillis();
-		}
-		finally
-		{
-			sql_connection.unlockWrite();
-		}
-		
+		records_instances.set(res);
+		is_synchronized_with_sql_database = true;
+		last_refresh = System.currentTimeMillis();
 	}
 
 	/**
@@ -359,6 +362,231 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		is_synchronized_with_sql_database = false;
 	}
 
+	/**
+	 * Number of sessions whose uncommitted changes are not visible into the memory
+	 * snapshot of this table
+	 */
+	final AtomicInteger uncommittedMemoryChanges = new AtomicInteger(0);
+
+	/**
+	 * Change done on a record of a table loaded into memory. It is applied to the
+	 * memory snapshot when the transaction is committed.
+	 */
+	static final class MemoryTableChange {
+		final DatabaseRecord removedRecord;
+		final DatabaseRecord addedRecord;
+
+		MemoryTableChange(DatabaseRecord removedRecord, DatabaseRecord addedRecord) {
+			this.removedRecord = removedRecord;
+			this.addedRecord = addedRecord;
+		}
+	}
+
+	/**
+	 * Register a record added, altered or removed, in order to update the memory
+	 * snapshot when the transaction is committed, instead of reloading the whole
+	 * table.
+	 *
+	 * @param removedRecord
+	 *            the removed record, or null
+	 * @param addedRecord
+	 *            the added or altered record, or null. It is copied.
+	 * @param modifications
+	 *            the modifications to apply to the copy of the added record, or
+	 *            null
+	 */
+	private void memoryRecordChanged(T removedRecord, T addedRecord, Map<String, Object> modifications) throws DatabaseException {
+		if (!isLoadedInMemory())
+			return;
+		try {
+			T copy = null;
+			if (addedRecord != null) {
+				copy = copyRecord(addedRecord);
+				if (modifications != null) {
+					for (FieldAccessor fa : fields) {
+						if (modifications.containsKey(fa.getFieldName()))
+							fa.setValue(copy, modifications.get(fa.getFieldName()));
+					}
+				}
+			}
+			getDatabaseWrapper().getConnectionAssociatedWithCurrentThread()
+					.addMemoryTableChange(this, new MemoryTableChange(removedRecord, copy));
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
+	/**
+	 * Apply committed changes to a copy of the memory snapshot. The write lock of
+	 * the database wrapper must be held.
+	 *
+	 * Only the positions of the changed records are computed. The built indexes
+	 * that are not concerned by the changes are carried over to the new snapshot.
+	 */
+	@SuppressWarnings("unchecked")
+	void applyMemoryChanges(List<MemoryTableChange> changes) {
+		if (!is_synchronized_with_sql_database)
+			return;
+		try {
+			ArrayList<T> records = records_instances.get();
+			MemoryPositions positions = memoryPositions;
+			if (positions == null || positions.records != records)
+				memoryPositions = positions = new MemoryPositions(records);
+			ArrayList<T> res = new ArrayList<>(records.size() + changes.size());
+			res.addAll(records);
+			ArrayList<Integer> replacedPositions = new ArrayList<>();
+			int firstRemovedPosition = -1;
+			for (MemoryTableChange c : changes) {
+				if (c.removedRecord != null) {
+					Integer i = positions.positions.remove(getPrimaryKeyValues(c.removedRecord));
+					if (i != null) {
+						res.set(i, null);
+						positions.keys.set(i, null);
+						if (firstRemovedPosition < 0 || i < firstRemovedPosition)
+							firstRemovedPosition = i;
+					}
+				}
+				if (c.addedRecord != null) {
+					PrimaryKeyValues k = getPrimaryKeyValues(c.addedRecord);
+					Integer i = positions.positions.get(k);
+					if (i == null) {
+						positions.positions.put(k, res.size());
+						positions.keys.add(k);
+						res.add((T) c.addedRecord);
+					} else {
+						res.set(i, (T) c.addedRecord);
+						if (i < records.size())
+							replacedPositions.add(i);
+					}
+				}
+			}
+			if (firstRemovedPosition >= 0)
+				positions.removeNullRecords(res, firstRemovedPosition);
+			positions.records = res;
+			MemoryTableIndexes<T> indexes = memoryTableIndexes;
+			memoryTableIndexes = firstRemovedPosition < 0 && indexes != null && indexes.records == records
+					? indexes.getIndexesOfNewSnapshot(res, replacedPositions) : null;
+			records_instances.set(res);
+		} catch (DatabaseException e) {
+			memoryPositions = null;
+			setToRefreshNow();
+		}
+	}
+
+	/**
+	 * Positions of the records of the memory snapshot, according their primary
+	 * keys. They are only used by {@link #applyMemoryChanges(List)}, and are
+	 * updated with each snapshot.
+	 */
+	private final class MemoryPositions {
+		private ArrayList<T> records;
+		private final HashMap<PrimaryKeyValues, Integer> positions;
+		private final ArrayList<PrimaryKeyValues> keys;
+
+		MemoryPositions(ArrayList<T> records) throws DatabaseException {
+			this.records = records;
+			this.positions = new HashMap<>(Math.max(16, (int) (records.size() / 0.75f) + 1));
+			this.keys = new ArrayList<>(records.size());
+			for (T r : records) {
+				PrimaryKeyValues k = getPrimaryKeyValues(r);
+				positions.put(k, keys.size());
+				keys.add(k);
+			}
+		}
+
+		/**
+		 * Remove the null records of the given snapshot, and shift the positions of
+		 * the following records
+		 */
+		void removeNullRecords(ArrayList<T> res, int firstRemovedPosition) {
+			int j = firstRemovedPosition;
+			for (int i = firstRemovedPosition; i < res.size(); i++) {
+				T r = res.get(i);
+				if (r != null) {
+					PrimaryKeyValues k = keys.get(i);
+					res.set(j, r);
+					keys.set(j, k);
+					positions.put(k, j);
+					++j;
+				}
+			}
+			res.subList(j, res.size()).clear();
+			keys.subList(j, keys.size()).clear();
+		}
+	}
+
+	private PrimaryKeyValues getPrimaryKeyValues(DatabaseRecord record) throws DatabaseException {
+		return getKeyValues(primary_keys_fields, record);
+	}
+
+	private PrimaryKeyValues getKeyValues(List<FieldAccessor> keyFields, DatabaseRecord record) throws DatabaseException {
+		ArrayList<Object> values = new ArrayList<>();
+		for (FieldAccessor fa : keyFields) {
+			for (SqlFieldInstance sfi : fa.getSqlFieldsInstances(getSqlTableName(), record))
+				values.add(sfi.instance);
+		}
+		return new PrimaryKeyValues(values.toArray());
+	}
+
+	/**
+	 * Returns the indexes of the given records snapshot
+	 *
+	 * @param records
+	 *            the records returned by {@link #getRecords(long, long, boolean)}
+	 * @return the indexes, or null if the given records are not the current
+	 *         snapshot
+	 */
+	private MemoryTableIndexes<T> getMemoryTableIndexes(ArrayList<T> records) {
+		if (records != records_instances.get())
+			return null;
+		MemoryTableIndexes<T> res = memoryTableIndexes;
+		if (res == null || res.records != records)
+			memoryTableIndexes = res = new MemoryTableIndexes<>(this, records);
+		return res;
+	}
+
+	/**
+	 * Returns the records that can be concerned by the given query, using the
+	 * indexes of the memory snapshot. The returned records must still be tested.
+	 */
+	private List<T> getCandidateRecords(ArrayList<T> records, CompiledRuleInstance<T> compiledRule) throws DatabaseException {
+		if (compiledRule == null)
+			return records;
+		MemoryTableIndexes<T> indexes = getMemoryTableIndexes(records);
+		if (indexes == null)
+			return records;
+		int[] positions = compiledRule.getCandidatePositions(indexes);
+		if (positions == null)
+			return records;
+		return indexes.getRecords(positions);
+	}
+
+	/**
+	 * Returns the records that can correspond to the given filter, using the
+	 * indexes of the memory snapshot. The returned records must still be tested.
+	 */
+	private List<T> getCandidateRecords(ArrayList<T> records, Filter<T> filter) throws DatabaseException {
+		if (!(filter instanceof Table.SimpleAllFieldsFilter))
+			return records;
+		MemoryTableIndexes<T> indexes = getMemoryTableIndexes(records);
+		if (indexes == null)
+			return records;
+		SimpleAllFieldsFilter f = (SimpleAllFieldsFilter) filter;
+		int[] positions = indexes.getPositionsWithAllFields(f.given_fields, f.fields_accessor);
+		if (positions == null)
+			return records;
+		return indexes.getRecords(positions);
+	}
+
+	/**
+	 * Tells if the current transaction has altered this table, so that the memory
+	 * snapshot cannot be used to read its own modifications.
+	 */
+	private boolean hasUncommittedMemoryChanges() throws DatabaseException {
+		return uncommittedMemoryChanges.get() > 0 && sql_connection.isInTransactionByCurrentThread()
+				&& sql_connection.getConnectionAssociatedWithCurrentThread().hasMemoryTableChanges(this);
+	}
+
 	void memoryToRefresh() throws DatabaseException {
 		getDatabaseWrapper().getConnectionAssociatedWithCurrentThread().addTableToRefresh(this);
 		setToRefreshNow();
@@ -607,6 +835,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
             st = sql_connection.getConnectionAssociatedWithCurrentThread().getConnection().createStatement();
             String sqlQuery = sql_connection.getDropTableCascadeQuery(this);
             st.executeUpdate(sqlQuery);
+			sql_connection.invalidatePreparedStatements();
 			sql_connection = null;
 		} catch (SQLException e) {
 			throw DatabaseException.getDatabaseException(e);
@@ -743,7 +972,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				/*
 				 * check the database
 				 */
-				if (createDatabaseIfNecessaryAndCheckIt)
+				if (createDatabaseIfNecessaryAndCheckIt) {
 					sql_connection.runTransaction(new Transaction() {
 						@Override
 						public Package getConcernedDatabasePackage() {
@@ -842,6 +1071,12 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 						public void initOrReset() {
 						}
 					}, true);
+					//indexes declared after the creation of the table are created now
+					for (FieldAccessor fa : fields) {
+						if (fa.hasToCreateIndex() && !hasIndex(fa))
+							createIndex(fa);
+					}
+				}
 			} else {
 				if (createDatabaseIfNecessaryAndCheckIt) {
 					for (FieldAccessor f : fields)
@@ -993,64 +1228,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 					}, true);
 					for (FieldAccessor fa : fields) {
-						if (fa.hasToCreateIndex()) {
-							final StringBuilder indexCreationQuery = new StringBuilder("CREATE INDEX ");
-							indexCreationQuery.append(fa.getIndexName());
-							indexCreationQuery.append(" ON ");
-							indexCreationQuery.append(getSqlTableName()).append(" (");
-							boolean first2 = true;
-							for (SqlField sf : fa.getDeclaredSqlFields()) {
-								if (first2)
-									first2 = false;
-								else
-									indexCreationQuery.append(", ");
-								indexCreationQuery.append(sf.shortField).append(fa.isDescendentIndex() ? " DESC" : "");
-							}
-							indexCreationQuery.append(")");
-							sql_connection.runTransaction(new Transaction() {
-								@Override
-								public Package getConcernedDatabasePackage() {
-									return Table.this.getClass().getPackage();
-								}
-
-								@Override
-								public TransactionIsolation getTransactionIsolation() {
-									return TransactionIsolation.TRANSACTION_SERIALIZABLE;
-								}
-
-								@Override
-								public boolean doesWriteData() {
-									return true;
-								}
-
-								@Override
-								public Object run(DatabaseWrapper sql_connection) throws DatabaseException {
-									Statement st = null;
-									try {
-										st = sql_connection.getConnectionAssociatedWithCurrentThread().getConnection()
-												.createStatement();
-
-										st.executeUpdate(indexCreationQuery.toString());
-
-									} catch (SQLException e) {
-										throw DatabaseException.getDatabaseException(e);
-									} finally {
-										try {
-											assert st != null;
-											st.close();
-										} catch (SQLException e) {
-											throw DatabaseException.getDatabaseException(e);
-										}
-									}
-									return null;
-								}
-
-								@Override
-								public void initOrReset() {
-								}
-
-							}, true);
-						}
+						if (fa.hasToCreateIndex())
+							createIndex(fa);
 					}
 
 				} else
@@ -1084,6 +1263,111 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	}
 
+	private boolean hasIndex(final FieldAccessor fa) throws DatabaseException {
+		return (Boolean) sql_connection.runTransaction(new Transaction() {
+			@Override
+			public Package getConcernedDatabasePackage() {
+				return Table.this.getClass().getPackage();
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_READ_COMMITTED;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return false;
+			}
+
+			@Override
+			public Boolean run(DatabaseWrapper sql_connection) throws DatabaseException {
+				try {
+					DatabaseMetaData metaData = sql_connection.getConnectionAssociatedWithCurrentThread().getConnection().getMetaData();
+					//the table name is not quoted, so that the database can change its case
+					String tableName = getSqlTableName();
+					if (metaData.storesLowerCaseIdentifiers())
+						tableName = tableName.toLowerCase();
+					else if (metaData.storesUpperCaseIdentifiers())
+						tableName = tableName.toUpperCase();
+					try (ResultSet rs = metaData.getIndexInfo(null, null, tableName, false, false)) {
+						while (rs.next()) {
+							if (fa.getIndexName().equalsIgnoreCase(rs.getString("INDEX_NAME")))
+								return true;
+						}
+						return false;
+					}
+				} catch (SQLException e) {
+					throw DatabaseException.getDatabaseException(e);
+				}
+			}
+
+			@Override
+			public void initOrReset() {
+			}
+
+		}, true);
+	}
+
+	private void createIndex(FieldAccessor fa) throws DatabaseException {
+		final StringBuilder indexCreationQuery = new StringBuilder("CREATE INDEX ");
+		indexCreationQuery.append(fa.getIndexName());
+		indexCreationQuery.append(" ON ");
+		indexCreationQuery.append(getSqlTableName()).append(" (");
+		boolean first = true;
+		for (SqlField sf : fa.getDeclaredSqlFields()) {
+			if (first)
+				first = false;
+			else
+				indexCreationQuery.append(", ");
+			indexCreationQuery.append(sf.shortField).append(fa.isDescendentIndex() ? " DESC" : "");
+		}
+		indexCreationQuery.append(")");
+		sql_connection.runTransaction(new Transaction() {
+			@Override
+			public Package getConcernedDatabasePackage() {
+				return Table.this.getClass().getPackage();
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public Object run(DatabaseWrapper sql_connection) throws DatabaseException {
+				Statement st = null;
+				try {
+					st = sql_connection.getConnectionAssociatedWithCurrentThread().getConnection()
+							.createStatement();
+
+					st.executeUpdate(indexCreationQuery.toString());
+
+				} catch (SQLException e) {
+					throw DatabaseException.getDatabaseException(e);
+				} finally {
+					try {
+						assert st != null;
+						st.close();
+					} catch (SQLException e) {
+						throw DatabaseException.getDatabaseException(e);
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public void initOrReset() {
+			}
+
+		}, true);
+	}
+
 	boolean isPointedByTableLoadedIntoMemoryInCascade(List<NeighboringTable> list_tables_pointing_to_this_table,
 			List<Class<?>> tableAlreadyParsed) throws DatabaseException {
 		if (tableAlreadyParsed.contains(this.getClass()))
@@ -1102,6 +1386,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	void initializeStep3() throws DatabaseException {
 		try {
 			sql_connection.lockWrite();
+			clearSqlQueriesCache();
 			isPointedByTableLoadedIntoMemory = isPointedByTableLoadedIntoMemoryInCascade(
 					list_tables_pointing_to_this_table, new ArrayList<>());
 
@@ -1316,7 +1601,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			final StringBuilder query = new StringBuilder("SELECT ");
 			getSqlSelectStep1Fields(query, true);
 			query.append(" FROM ");
-			getFromPart(query, true, null);
+			//the records pointed by lazy foreign keys are loaded by a separated query
+			getFromPart(query, true, false, null);
 			query.append(" WHERE ");
 			boolean first = true;
 			for (SqlFieldInstance sfi : _sql_field_instances) {
@@ -1359,11 +1645,21 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				@Override
 				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
 					try (ReadQuery rq = new ReadQuery(
-							_sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), sqlQuery)) {
+							_sql_connection.getConnectionAssociatedWithCurrentThread(), sqlQuery)) {
 						if (rq.result_set.next()) {
 							T res = getNewRecordInstance(true);
-							for (FieldAccessor fa : fields) {
-								fa.setValue(getSqlTableName(), res, rq.result_set, _previous_pointing_records);
+							ColumnIndexes.Binding previousBinding=bindColumnIndexes(sqlQuery, rq.result_set);
+							try {
+								for (FieldAccessor fa : fields) {
+									fa.setValue(getSqlTableName(), res, rq.result_set, _previous_pointing_records);
+								}
+								if (hasLazyForeignKeys()) {
+									LazyForeignKeysLoader loader=new LazyForeignKeysLoader();
+									loader.addReferences(Table.this, res, rq.result_set);
+									loader.loadPointedRecords();
+								}
+							} finally {
+								ColumnIndexes.unbind(previousBinding);
 							}
 							return res;
 						}
@@ -1394,61 +1690,284 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		return getNewRecordInstance(default_constructor_field, createdIntoDatabase);
 	}
 
-	private void getSqlSelectStep1Fields(StringBuilder sb, boolean includeAllJunctions) {
+	private T getNewRecordInstance(ResultSet resultSet) throws DatabaseException, InstantiationException,
+			IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		T res = getNewRecordInstance(default_constructor_field, true);
+		for (FieldAccessor f : fields) {
+			f.setValue(getSqlTableName(), res, resultSet, isLoadedInMemory()?new ArrayList<>():null);
+		}
+		return res;
+	}
 
-		getSqlSelectStep1Fields(getSqlTableName(), includeAllJunctions, null, sb, sb.length());
+	/**
+	 * Number of pointing records read before loading the records they point to
+	 * through lazy foreign keys.
+	 */
+	private static final int LAZY_FOREIGN_KEYS_PAGE_SIZE = 256;
+
+	private volatile Boolean lazyForeignKeys=null;
+
+	/**
+	 * Tells if this table, or one of the tables it joins, declares a foreign key
+	 * whose pointed records are lazily loaded.
+	 */
+	boolean hasLazyForeignKeys() {
+		Boolean res=lazyForeignKeys;
+		if (res==null)
+			lazyForeignKeys=res=hasLazyForeignKeys(new HashSet<>());
+		return res;
 	}
 
-	private void getSqlSelectStep1Fields(String sqlTableName, boolean includeAllJunctions, Set<TableJunction> tablesJunction,
-										 StringBuilder sb, int startSize) {
-		if (containsLoopBetweenTables) {
-			includeAllJunctions = false;
-			if (tablesJunction != null)
-				tablesJunction = null;
+	private boolean hasLazyForeignKeys(Set<Table<?>> parsedTables) {
+		if (!parsedTables.add(this))
+			return false;
+		for (ForeignKeyFieldAccessor fa : foreign_keys_fields) {
+			if (fa.isLazyLoading() || fa.getPointedTable().hasLazyForeignKeys(parsedTables))
+				return true;
 		}
-		for (FieldAccessor fa : fields)
-		{
-			for (SqlField sf : fa.getDeclaredSqlFields()) {
-				if (sb.length() > startSize)
-					sb.append(", ");
-				sb.append(sqlTableName)
-						.append(".")
-						.append(sf.shortField)
-						.append(" AS ");
-				sb.append(sqlTableName)
-						.append("__")
-						.append(sf.sqlFieldAliasName);
+		return false;
+	}
+
+	/**
+	 * Read a page of records, and then load the records pointed by their lazy
+	 * foreign keys, with one query per pointed table.
+	 *
+	 * @return false if the result set has no more rows
+	 */
+	private boolean readPageWithLazyForeignKeys(ResultSet resultSet, int pageSize, Collection<T> page)
+			throws DatabaseException, SQLException, InstantiationException, IllegalAccessException,
+			InvocationTargetException {
+		LazyForeignKeysLoader loader=new LazyForeignKeysLoader();
+		boolean hasNext=true;
+		int size=0;
+		while (size<pageSize && (hasNext=resultSet.next())) {
+			T record=getNewRecordInstance(resultSet);
+			loader.addReferences(this, record, resultSet);
+			page.add(record);
+			++size;
+		}
+		loader.loadPointedRecords();
+		return hasNext;
+	}
+
+	private void loadLazilyPointedRecords(final List<PrimaryKeyValues> references, Map<PrimaryKeyValues, DatabaseRecord> loadedRecords,
+										  LazyForeignKeysLoader loader) throws DatabaseException {
+		SqlQuery query=new SqlQuery(getSqlSelectFromPart(true, false)+" WHERE "+getSqlPrimaryKeyCondition(references.size())) {
+			@Override
+			void finishPrepareStatement(PreparedStatement st) throws SQLException {
+				int index=1;
+				for (PrimaryKeyValues r : references) {
+					for (Object v : r.values)
+						FieldAccessor.setValue(getDatabaseWrapper(), st, index++, v);
+				}
 			}
+		};
+		boolean lazy=hasLazyForeignKeys();
+		try (ReadQuery rq = new ReadQuery(sql_connection.getConnectionAssociatedWithCurrentThread(), query)) {
+			ColumnIndexes.Binding previousBinding=bindColumnIndexes(query, rq.result_set);
+			try {
+				while (rq.result_set.next()) {
+					T record = getNewRecordInstance(rq.result_set);
+					if (lazy)
+						loader.addReferences(this, record, rq.result_set);
+					loadedRecords.put(getPrimaryKeyValues(rq.result_set), record);
+				}
+			} finally {
+				ColumnIndexes.unbind(previousBinding);
+			}
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
 		}
+	}
 
-		for (ForeignKeyFieldAccessor fa : foreign_keys_fields) {
-			Table<?> t = fa.getPointedTable();
-			if (includeAllJunctions || containsPointedTable(tablesJunction, t))
-				t.getSqlSelectStep1Fields(sqlTableName+fa.getTableAliasName(), includeAllJunctions, tablesJunction, sb, startSize);
+	private PrimaryKeyValues getPrimaryKeyValues(ResultSet resultSet) throws SQLException {
+		ArrayList<Object> values=new ArrayList<>();
+		for (FieldAccessor fa : primary_keys_fields) {
+			for (SqlField sf : fa.getDeclaredSqlFields())
+				values.add(resultSet.getObject(getSqlTableName()+"__"+sf.sqlFieldAliasName));
 		}
-
+		return new PrimaryKeyValues(values.toArray());
 	}
-	SqlQuery getSqlGeneralSelect(boolean loadJunctions) {
-		return getSqlGeneralSelect(-1,-1,loadJunctions);
 
-	}
-	SqlQuery getSqlGeneralSelect(long startPosition, long rowLimit, boolean loadJunctions) {
-		StringBuilder sb=new StringBuilder("SELECT ");
-		getSqlSelectStep1Fields(sb, loadJunctions);
-		sb.append(" FROM ");
-		getFromPart(sb, loadJunctions, null);
-		sb.append(getLimitSqlPart(startPosition, rowLimit));
-		return new SqlQuery(sb.toString());
-	}
+	/**
+	 * Values of primary keys, or values of a foreign key ordered like the primary
+	 * keys of the pointed table, which can be used as hash key
+	 */
+	private static final class PrimaryKeyValues {
+		private final Object[] values;
+		private final int hashCode;
+
+		PrimaryKeyValues(Object[] values) {
+			this.values = values;
+			this.hashCode = Arrays.deepHashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this)
+				return true;
+			if (o == null || o.getClass() != PrimaryKeyValues.class)
+				return false;
+			PrimaryKeyValues r = (PrimaryKeyValues) o;
+			return hashCode == r.hashCode && Arrays.deepEquals(values, r.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	private static final class PendingForeignKey {
+		private final Object record;
+		private final ForeignKeyFieldAccessor foreignKey;
+
+		PendingForeignKey(Object record, ForeignKeyFieldAccessor foreignKey) {
+			this.record = record;
+			this.foreignKey = foreignKey;
+		}
+	}
+
+	/**
+	 * Gather the lazy foreign keys of a page of records, and load the pointed
+	 * records with one query per pointed table. Pointed records that declare lazy
+	 * foreign keys too are completed by the next round, until no reference remains.
+	 */
+	private static final class LazyForeignKeysLoader {
+		private HashMap<Table<?>, LinkedHashMap<PrimaryKeyValues, ArrayList<PendingForeignKey>>> pendingReferences=new HashMap<>();
+		private final HashMap<Table<?>, HashMap<PrimaryKeyValues, DatabaseRecord>> loadedRecords=new HashMap<>();
+
+		void addReferences(Table<?> table, DatabaseRecord record, ResultSet resultSet) throws DatabaseException {
+			addReferences(table, table.getSqlTableName(), record, resultSet, Collections.newSetFromMap(new IdentityHashMap<>()));
+		}
+
+		private void addReferences(Table<?> table, String sqlTableName, Object record, ResultSet resultSet, Set<Object> parsedRecords) throws DatabaseException {
+			if (!parsedRecords.add(record))
+				return;
+			for (ForeignKeyFieldAccessor fa : table.foreign_keys_fields) {
+				if (fa.isLazyLoading()) {
+					Object[] reference=fa.getLazyReference(sqlTableName, resultSet);
+					if (reference!=null)
+						pendingReferences.computeIfAbsent(fa.getPointedTable(), k -> new LinkedHashMap<>())
+								.computeIfAbsent(new PrimaryKeyValues(reference), k -> new ArrayList<>())
+								.add(new PendingForeignKey(record, fa));
+				}
+				else if (fa.getPointedTable().hasLazyForeignKeys()) {
+					Object pointedRecord=fa.getValue(record);
+					if (pointedRecord!=null)
+						addReferences(fa.getPointedTable(), sqlTableName+fa.getTableAliasName(), pointedRecord, resultSet, parsedRecords);
+				}
+			}
+		}
+
+		void loadPointedRecords() throws DatabaseException {
+			while (!pendingReferences.isEmpty()) {
+				HashMap<Table<?>, LinkedHashMap<PrimaryKeyValues, ArrayList<PendingForeignKey>>> references=pendingReferences;
+				pendingReferences=new HashMap<>();
+				for (Map.Entry<Table<?>, LinkedHashMap<PrimaryKeyValues, ArrayList<PendingForeignKey>>> e : references.entrySet()) {
+					Table<?> table=e.getKey();
+					HashMap<PrimaryKeyValues, DatabaseRecord> loaded=loadedRecords.computeIfAbsent(table, k -> new HashMap<>());
+					ArrayList<PrimaryKeyValues> toLoad=new ArrayList<>();
+					for (PrimaryKeyValues r : e.getValue().keySet()) {
+						if (!loaded.containsKey(r))
+							toLoad.add(r);
+					}
+					for (int i=0;i<toLoad.size();i+=LAZY_FOREIGN_KEYS_PAGE_SIZE)
+						table.loadLazilyPointedRecords(toLoad.subList(i, Math.min(toLoad.size(), i+LAZY_FOREIGN_KEYS_PAGE_SIZE)), loaded, this);
+					for (Map.Entry<PrimaryKeyValues, ArrayList<PendingForeignKey>> e2 : e.getValue().entrySet()) {
+						DatabaseRecord pointedRecord=loaded.get(e2.getKey());
+						if (pointedRecord==null)
+							continue;
+						for (PendingForeignKey p : e2.getValue())
+							p.foreignKey.setValue(p.record, pointedRecord);
+					}
+				}
+			}
+		}
+	}
+
+	private void getSqlSelectStep1Fields(StringBuilder sb, boolean includeAllJunctions) {
+
+		getSqlSelectStep1Fields(getSqlTableName(), includeAllJunctions, null, sb, sb.length());
+	}
+
+	private void getSqlSelectStep1Fields(String sqlTableName, boolean includeAllJunctions, Set<TableJunction> tablesJunction,
+										 StringBuilder sb, int startSize) {
+		if (containsLoopBetweenTables) {
+			includeAllJunctions = false;
+			if (tablesJunction != null)
+				tablesJunction = null;
+		}
+		for (FieldAccessor fa : fields)
+		{
+			for (SqlField sf : fa.getDeclaredSqlFields()) {
+				if (sb.length() > startSize)
+					sb.append(", ");
+				sb.append(sqlTableName)
+						.append(".")
+						.append(sf.shortField)
+						.append(" AS ");
+				sb.append(sqlTableName)
+						.append("__")
+						.append(sf.sqlFieldAliasName);
+			}
+		}
+
+		for (ForeignKeyFieldAccessor fa : foreign_keys_fields) {
+			Table<?> t = fa.getPointedTable();
+			//the columns of lazily loaded records are read by a separated query
+			if (!fa.isLazyLoading() && (includeAllJunctions || containsPointedTable(tablesJunction, t)))
+				t.getSqlSelectStep1Fields(sqlTableName+fa.getTableAliasName(), includeAllJunctions, tablesJunction, sb, startSize);
+		}
+
+	}
+	SqlQuery getSqlGeneralSelect(boolean loadJunctions) {
+		return getSqlGeneralSelect(-1,-1,loadJunctions);
+
+	}
+	SqlQuery getSqlGeneralSelect(long startPosition, long rowLimit, boolean loadJunctions) {
+		//no condition references the lazily loaded tables, so they do not need to be joined
+		String limit=getLimitSqlPart(startPosition, rowLimit);
+		if (limit.length()==0)
+			return new SqlQuery(getSqlSelectFromPart(loadJunctions, false));
+		return new SqlQuery(getSqlSelectFromPart(loadJunctions, false) + limit);
+	}
+
+	/**
+	 * The select part and the from part of the general select query only depend on the table structure.
+	 * They are computed once, instead of parsing all fields and all junctions for each query.
+	 */
+	private volatile String sqlSelectFromPartWithJunctions=null;
+	private volatile String sqlSelectFromPartWithoutLazyJunctions=null;
+	private volatile String sqlSelectFromPartWithoutJunctions=null;
+
+	private String getSqlSelectFromPart(boolean loadJunctions) {
+		return getSqlSelectFromPart(loadJunctions, true);
+	}
+
+	private String getSqlSelectFromPart(boolean loadJunctions, boolean includeLazyJunctions) {
+		String res=loadJunctions?(includeLazyJunctions?sqlSelectFromPartWithJunctions:sqlSelectFromPartWithoutLazyJunctions):sqlSelectFromPartWithoutJunctions;
+		if (res==null) {
+			StringBuilder sb = new StringBuilder("SELECT ");
+			getSqlSelectStep1Fields(sb, loadJunctions);
+			sb.append(" FROM ");
+			getFromPart(sb, loadJunctions, includeLazyJunctions, null);
+			res=sb.toString();
+			if (!loadJunctions)
+				sqlSelectFromPartWithoutJunctions=res;
+			else if (includeLazyJunctions)
+				sqlSelectFromPartWithJunctions=res;
+			else
+				sqlSelectFromPartWithoutLazyJunctions=res;
+		}
+		return res;
+	}
 
 	@SuppressWarnings("SameParameterValue")
 	SqlQuery getSqlGeneralSelect(long startPosition, long rowLimit, boolean loadJunctions, boolean ascendant, String[] orderByFields) {
 		if (orderByFields != null && orderByFields.length > 0)
 			loadJunctions = true;
-		StringBuilder sb=new StringBuilder("SELECT ");
-		getSqlSelectStep1Fields(sb, loadJunctions);
-		sb.append(" FROM ");
-		getFromPart(sb, loadJunctions, null);
+		StringBuilder sb=new StringBuilder(getSqlSelectFromPart(loadJunctions));
 		getOrderByPart(sb, ascendant, orderByFields);
 		sb.append(getLimitSqlPart(startPosition, rowLimit));
 		return new SqlQuery(sb.toString());
@@ -1487,13 +2006,17 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	}
 
 	private void getFromPart(StringBuilder sb, boolean includeAllJunctions, Set<TableJunction> tablesJunction) {
+		getFromPart(sb, includeAllJunctions, true, tablesJunction);
+	}
+
+	private void getFromPart(StringBuilder sb, boolean includeAllJunctions, boolean includeLazyJunctions, Set<TableJunction> tablesJunction) {
 		sb.append(this.getSqlTableName());
 		if (this.getClass().getSimpleName().equalsIgnoreCase("LastValidatedDistantIDPerClientTable"))
 		if (!includeAllJunctions && (tablesJunction == null || tablesJunction.size() == 0))
 			return ;
 
 		for (ForeignKeyFieldAccessor fa : getForeignKeysFieldAccessors()) {
-			getFromPart(sb, fa, includeAllJunctions, tablesJunction);
+			getFromPart(sb, getSqlTableName(), fa, includeAllJunctions, includeLazyJunctions, tablesJunction);
 		}
 	}
 
@@ -1526,13 +2049,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		return false;
 
 	}
-	private void getFromPart(StringBuilder sb, ForeignKeyFieldAccessor fa, boolean includeAllJunctions,
-									 Set<TableJunction> tablesJunction) {
-
-		getFromPart(sb, getSqlTableName(), fa, includeAllJunctions, tablesJunction);
-	}
 	private void getFromPart(StringBuilder sb, String sqlTableName, ForeignKeyFieldAccessor fa, boolean includeAllJunctions,
-			Set<TableJunction> tablesJunction) {
+			boolean includeLazyJunctions, Set<TableJunction> tablesJunction) {
 		if (containsLoopBetweenTables) {
 			includeAllJunctions = false;
 			if (tablesJunction != null)
@@ -1541,6 +2059,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 		if (!includeAllJunctions && !containsPointedTable(tablesJunction, fa.getPointedTable()))
 			return;
+		if (fa.isLazyLoading() && !includeLazyJunctions)
+			return;
 		sb.append(" LEFT OUTER JOIN ")
 				.append(fa.getPointedTable().getSqlTableName())
 				.append(" ")
@@ -1562,7 +2082,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		}
 		Table<?> t = fa.getPointedTable();
 		for (ForeignKeyFieldAccessor fa2 : t.getForeignKeysFieldAccessors()) {
-			t.getFromPart(sb, sqlTableName+fa.getTableAliasName(), fa2, includeAllJunctions, tablesJunction);
+			t.getFromPart(sb, sqlTableName+fa.getTableAliasName(), fa2, includeAllJunctions, includeLazyJunctions, tablesJunction);
 		}
 	}
 
@@ -1600,10 +2120,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 								 boolean _ascendant, String... _fields) {
 		if (_fields.length > 0)
 			loadJunctions = true;
-		StringBuilder sb=new StringBuilder("SELECT ");
-		getSqlSelectStep1Fields(sb, loadJunctions);
-		sb.append(" FROM ");
-		getFromPart(sb, loadJunctions, null);
+		StringBuilder sb=new StringBuilder(getSqlSelectFromPart(loadJunctions));
 
 
 		if (condition == null || condition.trim().equals("")) {
@@ -1689,8 +2206,86 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		}
 	}
 
+	/**
+	 * Generated queries, whose text only depends on the table structure and on the query shape
+	 */
+	private final ConcurrentHashMap<String, String> sqlQueriesCache=new ConcurrentHashMap<>();
+	private static final int MAX_CACHED_SQL_QUERIES=256;
+
+	/**
+	 * Generated queries must be computed again when the table name or the table junctions change
+	 */
+	private void clearSqlQueriesCache() {
+		sqlSelectFromPartWithJunctions=null;
+		sqlSelectFromPartWithoutLazyJunctions=null;
+		sqlSelectFromPartWithoutJunctions=null;
+		sqlPrimaryKeyCondition=null;
+		sqlInsertQueryWithAllFields=null;
+		sqlInsertQueryWithoutAutoPrimaryKeys=null;
+		sqlQueriesCache.clear();
+		columnIndexesCache.clear();
+	}
+
+	private void cacheSqlQuery(String shape, String query) {
+		if (sqlQueriesCache.size()<MAX_CACHED_SQL_QUERIES)
+			sqlQueriesCache.put(shape, query);
+	}
+
+	/**
+	 * Indexes of the columns returned by the generated queries, resolved once per list of selected columns
+	 */
+	private final ConcurrentHashMap<String, ColumnIndexes> columnIndexesCache=new ConcurrentHashMap<>();
+
+	private ColumnIndexes getColumnIndexes(SqlQuery query, ResultSet resultSet) throws SQLException {
+		String q=query.getQuery();
+		int i=q.indexOf(" FROM ");
+		if (i<0)
+			return ColumnIndexes.getColumnIndexes(resultSet, sql_connection.supportFullSqlFieldName());
+		//the returned columns only depend on the selected columns
+		String selectedColumns=q.substring(0, i);
+		ColumnIndexes res=columnIndexesCache.get(selectedColumns);
+		if (res==null) {
+			res=ColumnIndexes.getColumnIndexes(resultSet, sql_connection.supportFullSqlFieldName());
+			if (columnIndexesCache.size()<MAX_CACHED_SQL_QUERIES)
+				columnIndexesCache.put(selectedColumns, res);
+		}
+		return res;
+	}
+
+	/**
+	 * Bind the column indexes of the given query to its result set, so that field accessors do not search their columns for each row.
+	 * The returned binding must be restored with {@link ColumnIndexes#unbind(ColumnIndexes.Binding)}.
+	 */
+	private ColumnIndexes.Binding bindColumnIndexes(SqlQuery query, ResultSet resultSet) throws SQLException {
+		return getColumnIndexes(query, resultSet).bind(resultSet);
+	}
+
 	String getSqlGeneralSelectWithFieldMatch(long rowStart, long rowLength, List<FieldAccessor> fieldAccessors, boolean loadJunctions, Map<String, Object> fields, String AndOr,
 			boolean ascendant, String[] orderByFields) {
+		String shape=null;
+		if (orderByFields==null && rowLength<0) {
+			StringBuilder sbShape=new StringBuilder("SWFM").append(loadJunctions).append(AndOr);
+			for (String key : fields.keySet()) {
+				for (FieldAccessor fa : fieldAccessors) {
+					if (fa.getFieldName().equals(key)) {
+						sbShape.append(',').append(key);
+						break;
+					}
+				}
+			}
+			shape=sbShape.toString();
+			String res=sqlQueriesCache.get(shape);
+			if (res!=null)
+				return res;
+		}
+		String res=getSqlGeneralSelectWithFieldMatchImpl(rowStart, rowLength, fieldAccessors, loadJunctions, fields, AndOr, ascendant, orderByFields);
+		if (shape!=null)
+			cacheSqlQuery(shape, res);
+		return res;
+	}
+
+	private String getSqlGeneralSelectWithFieldMatchImpl(long rowStart, long rowLength, List<FieldAccessor> fieldAccessors, boolean loadJunctions, Map<String, Object> fields, String AndOr,
+			boolean ascendant, String[] orderByFields) {
 		StringBuilder sb = new StringBuilder(getSqlGeneralSelect(loadJunctions).getQuery());
 		boolean first = true;
 		sb.append(" WHERE");
@@ -1792,7 +2387,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	 */
 	public final long getRecordsNumber(Filter<T> _filter, String whereCondition, Map<String, Object> parameters)
 			throws DatabaseException {
-		try (Lock ignored = new ReadLock(this)) {
+		try (Lock ignored = new ReadLock(this, true)) {
 			return getRowCount(_filter, whereCondition, parameters, false);
 		} catch (Exception e) {
 			throw DatabaseException.getDatabaseException(e);
@@ -1863,7 +2458,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	 *             if a Sql exception occurs.
 	 */
 	public final long getRecordsNumber(Filter<T> _filter) throws DatabaseException {
-		try (Lock ignored = new ReadLock(this)) {
+		try (Lock ignored = new ReadLock(this, true)) {
 			return getRowCount(_filter, false);
 		} catch (Exception e) {
 			throw DatabaseException.getDatabaseException(e);
@@ -1989,9 +2584,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		final RuleInstance rule = Interpreter.getRuleInstance(where);
 		if (isLoadedInMemory()) {
 			ArrayList<T> records = getRecords(-1, -1, is_already_sql_transaction);
+			final CompiledRuleInstance<T> compiledRule = rule.compile(this, parameters);
 			long rowCount = 0;
-			for (T r : records) {
-				if (rule.isConcernedBy(this, parameters, r)) {
+			for (T r : getCandidateRecords(records, compiledRule)) {
+				if (compiledRule.isConcernedBy(r)) {
 					if (_filter.nextRecord(r))
 						++rowCount;
 					if (_filter.isTableParsingStopped())
@@ -2029,9 +2625,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			ArrayList<T> records = getRecords(-1, -1, is_already_sql_transaction);
 			if (rule==null)
 				return records.size();
+			final CompiledRuleInstance<T> compiledRule = rule.compile(this, parameters);
 			long rowCount = 0;
-			for (T r : records) {
-				if (rule.isConcernedBy(this, parameters, r)) {
+			for (T r : getCandidateRecords(records, compiledRule)) {
+				if (compiledRule.isConcernedBy(r)) {
 					++rowCount;
 				}
 			}
@@ -2059,7 +2656,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				@Override
 				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
 					try (ReadQuery rq = new ReadQuery(
-							_sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(),
+							_sql_connection.getConnectionAssociatedWithCurrentThread(),
 							getSqlGeneralCount(sqlQuery, sqlParameters, tablesJunction))) {
 						if (rq.result_set.next()) {
 							return rq.result_set.getLong(1);
@@ -2558,12 +3155,13 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	public final ArrayList<T> getPaginatedOrderedRecords(long rowPos, long rowLength, final Filter<T> _filter,
 														 String whereCondition, Map<String, Object> parameters, boolean _ascendant, String... _fields)
 			throws DatabaseException {
-		try (Lock ignored = new ReadLock(this)) {
+		try (Lock ignored = new ReadLock(this, true)) {
 			final RuleInstance rule = whereCondition == null ? null : Interpreter.getRuleInstance(whereCondition);
 			if (isLoadedInMemory()) {
 				final SortedArray res = new SortedArray(rowPos, rowLength, _ascendant, _fields);
-				for (T r : getRecords(-1, -1, false)) {
-					if ((rule == null || rule.isConcernedBy(this, parameters, r)) && _filter.nextRecord(r))
+				final CompiledRuleInstance<T> compiledRule = rule == null ? null : rule.compile(this, parameters);
+				for (T r : getCandidateRecords(getRecords(-1, -1, false), compiledRule)) {
+					if ((compiledRule == null || compiledRule.isConcernedBy(r)) && _filter.nextRecord(r))
 						res.addRecord(r);
 					if (_filter.isTableParsingStopped())
 						break;
@@ -2842,6 +3440,88 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	{
 		return new Cursor<>(this, whereCondition, parameters, cacheSize, ascendant, fields);
 	}
+
+	/**
+	 * Seek cursors enable to parse query data sequentially without loading data into memory.
+	 * Contrary to {@link Cursor}, pages are not selected with a row offset but with the last sorted values of the
+	 * previous page. Each page has then the same cost, whatever the position into the table.
+	 * The next page is prefetched into a background thread while the current page is consumed.
+	 *
+	 * This function returns records ordered according primary keys.
+	 *
+	 * @param ascendant
+	 *            this parameter must be true if the records should be sorted from
+	 *            the lower value to the highest value, false else.
+	 * @return a seek cursor which point the ordered results of the asked query
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if a primary key is not a comparable field, or is a lazy loaded foreign key. Foreign keys are
+	 *             replaced by the primary keys of the pointed table.
+	 * @see SeekCursor
+	 */
+	public SeekCursor<T> getSeekCursor(boolean ascendant) throws ConstraintsNotRespectedDatabaseException {
+		return new SeekCursor<>(this, null, null, SeekCursor.DEFAULT_PAGE_SIZE, ascendant, true);
+	}
+
+	/**
+	 * Seek cursors enable to parse query data sequentially without loading data into memory.
+	 * Contrary to {@link Cursor}, pages are not selected with a row offset but with the last sorted values of the
+	 * previous page. Each page has then the same cost, whatever the position into the table.
+	 * The next page is prefetched into a background thread while the current page is consumed.
+	 *
+	 * This function returns ordered records.
+	 *
+	 * @param whereCondition
+	 *            the sql equivalent where condition
+	 * @param parameters
+	 *            the sql parameters used for the where condition
+	 * @param ascendant
+	 *            this parameter must be true if the records should be sorted from
+	 *            the lower value to the highest value, false else.
+	 * @param fields
+	 *            the first given field corresponds to the field by which the table
+	 *            is sorted. If two records are equals, then the second given field
+	 *            is used, etc. Primary keys are added at the end of the given fields.
+	 *            Only comparable and not null fields are authorized.
+	 * @return a seek cursor which point the ordered results of the asked query
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if a given field or a primary key is not a comparable field, or is a lazy loaded foreign key.
+	 *             Foreign keys are replaced by the primary keys of the pointed table.
+	 * @see SeekCursor
+	 */
+	public SeekCursor<T> getSeekCursor(String whereCondition, Map<String, Object> parameters, boolean ascendant, String ... fields) throws ConstraintsNotRespectedDatabaseException {
+		return new SeekCursor<>(this, whereCondition, parameters, SeekCursor.DEFAULT_PAGE_SIZE, ascendant, true, fields);
+	}
+
+	/**
+	 * Seek cursors enable to parse query data sequentially without loading data into memory.
+	 * Contrary to {@link Cursor}, pages are not selected with a row offset but with the last sorted values of the
+	 * previous page. Each page has then the same cost, whatever the position into the table.
+	 *
+	 * This function returns ordered records.
+	 *
+	 * @param whereCondition
+	 *            the sql equivalent where condition
+	 * @param parameters
+	 *            the sql parameters used for the where condition
+	 * @param pageSize the number of records loaded for each query
+	 * @param prefetch true if the next page must be loaded into a background thread while the current page is consumed
+	 * @param ascendant
+	 *            this parameter must be true if the records should be sorted from
+	 *            the lower value to the highest value, false else.
+	 * @param fields
+	 *            the first given field corresponds to the field by which the table
+	 *            is sorted. If two records are equals, then the second given field
+	 *            is used, etc. Primary keys are added at the end of the given fields.
+	 *            Only comparable and not null fields are authorized.
+	 * @return a seek cursor which point the ordered results of the asked query
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if a given field or a primary key is not a comparable field, or is a lazy loaded foreign key.
+	 *             Foreign keys are replaced by the primary keys of the pointed table.
+	 * @see SeekCursor
+	 */
+	public SeekCursor<T> getSeekCursor(String whereCondition, Map<String, Object> parameters, int pageSize, boolean prefetch, boolean ascendant, String ... fields) throws ConstraintsNotRespectedDatabaseException {
+		return new SeekCursor<>(this, whereCondition, parameters, pageSize, ascendant, prefetch, fields);
+	}
 	/**
 	 * Returns the records of this table, corresponding to a query, and ordered
 	 * according the given fields, in an ascendant way or in a descendant way.
@@ -2877,8 +3557,9 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 			if (isLoadedInMemory()) {
 				final SortedArray res = new SortedArray(rowPos, rowLength, _ascendant, _fields);
-				for (T r : getRecords(-1, -1, false)) {
-					if ((rule == null || rule.isConcernedBy(this, parameters, r)))
+				final CompiledRuleInstance<T> compiledRule = rule == null ? null : rule.compile(this, parameters);
+				for (T r : getCandidateRecords(getRecords(-1, -1, false), compiledRule)) {
+					if ((compiledRule == null || compiledRule.isConcernedBy(r)))
 						res.addRecord(r);
 				}
 				return res.getRecords();
@@ -3070,32 +3751,44 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			throws DatabaseException {
 		// try(ReadWriteLock.Lock lock=sql_connection.locker.getAutoCloseableReadLock())
 		{
-			if (isLoadedInMemory()) {
+			if (isLoadedInMemory() && !hasUncommittedMemoryChanges()) {
 				if (!isSynchronizedWithSqlDatabase()) {
+					//a thread that already holds the read lock cannot take the write lock, but its read lock excludes writers
+					final boolean writeLock=sql_connection.canLockWrite();
 					try
 					{
-						sql_connection.lockWrite();
-					
-						final ArrayList<T> res = new ArrayList<>();
-						getListRecordsFromSqlConnection(new Runnable() {
-	
-							@Override
-							public boolean setInstance(T _instance, ResultSet _cursor) {
-								res.add(_instance);
-								return true;
-							}
-	
-							@Override
-							public void init(int _field_count) {
-								res.clear();
-								res.ensureCapacity(_field_count);
+						if (writeLock)
+							sql_connection.lockWrite();
+						else
+							sql_connection.lockRead();
+						synchronized (memoryRefreshLock) {
+							//another reader can have refreshed the memory while this thread was waiting for the lock
+							if (!isSynchronizedWithSqlDatabase()) {
+								final ArrayList<T> res = new ArrayList<>();
+								getListRecordsFromSqlConnection(new Runnable() {
+
+									@Override
+									public boolean setInstance(T _instance, ResultSet _cursor) {
+										res.add(_instance);
+										return true;
+									}
+
+									@Override
+									public void init(int _field_count) {
+										res.clear();
+										res.ensureCapacity(_field_count);
+									}
+								}, getSqlGeneralSelect(true), TransactionIsolation.TRANSACTION_READ_COMMITTED);
+								memoryRefreshed(res);
 							}
-						}, getSqlGeneralSelect(true), TransactionIsolation.TRANSACTION_READ_COMMITTED);
-						memoryRefreshed(res);
+						}
 					}
 					finally
 					{
-						sql_connection.unlockWrite();
+						if (writeLock)
+							sql_connection.unlockWrite();
+						else
+							sql_connection.unlockRead();
 					}
 					
 					
@@ -3191,7 +3884,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			throws DatabaseException {
 		if (_filter == null)
 			throw new NullPointerException("The parameter _filter is a null pointer !");
-		try (Lock ignored = new ReadLock(this)) {
+		try (Lock ignored = new ReadLock(this, true)) {
 			return getRecords(rowPos, rowLength, _filter, false);
 		} catch (Exception e) {
 			throw Objects.requireNonNull(DatabaseException.getDatabaseException(e));
@@ -3202,7 +3895,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			throws DatabaseException {
 		if (_filter == null)
 			throw new NullPointerException("The parameter _filter is a null pointer !");
-		try (Lock ignored = new ReadLock(this)) {
+		try (Lock ignored = new ReadLock(this, true)) {
 			//noinspection unchecked
 			return getRecords(rowPos, rowLength, (Filter<T>)_filter, false);
 		} catch (Exception e) {
@@ -3306,7 +3999,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		// synchronized(sql_connection)
 		{
 
-			try (Lock ignored = new ReadLock(this)) {
+			try (Lock ignored = new ReadLock(this, true)) {
 				return getRecords(rowPos, rowLength, _filter, whereCondition, parameters, false);
 			} catch (Exception e) {
 				throw DatabaseException.getDatabaseException(e);
@@ -3408,38 +4101,306 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		}
 	}
 
-    @SuppressWarnings("SameParameterValue")
-    private ArrayList<T> getRecords(final long rowPos, final long rowLength, final Filter<T> _filter, String where,
-                                    Map<String, Object> parameters, boolean is_already_sql_transaction) throws DatabaseException {
-		final ArrayList<T> res = new ArrayList<>();
-		final RuleInstance rule = Interpreter.getRuleInstance(where);
+	/**
+	 * Parse every record of this table, without storing them into memory.
+	 * Records are given to the function {@link Filter#nextRecord(DatabaseRecord)}, whose returned value is ignored.
+	 * The parsing can be stopped with {@link Filter#stopTableParsing()}.
+	 *
+	 * @param _filter
+	 *            the filter that receives records
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 */
+	public final void forEachRecord(final Filter<T> _filter) throws DatabaseException {
+		forEachRecord(_filter, null, null);
+	}
+
+	/**
+	 * Parse the records of this table corresponding to a given SQL condition, without storing them into memory.
+	 * Records are given to the function {@link Filter#nextRecord(DatabaseRecord)}, whose returned value is ignored.
+	 * The parsing can be stopped with {@link Filter#stopTableParsing()}.
+	 *
+	 * @param _filter
+	 *            the filter that receives records
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 */
+	public final void forEachRecord(final Filter<T> _filter, String whereCondition, Map<String, Object> parameters)
+			throws DatabaseException {
+		if (_filter == null)
+			throw new NullPointerException("The parameter _filter is a null pointer !");
+		try (Lock ignored = new ReadLock(this, true)) {
+			forEachRecord(_filter, whereCondition, parameters, false);
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
+	/**
+	 * Returns a stream of the records of this table. Records are loaded lazily and are not stored into memory.
+	 *
+	 * The stream must be used into a try-with-resources statement, in order to be closed when it is not completely
+	 * consumed, for example with {@link Stream#findFirst()}, {@link Stream#limit(long)} or {@link Stream#anyMatch}.
+	 * Database exceptions are thrown as {@link UncheckedDatabaseException}.
+	 *
+	 * @return the stream of the records
+	 * @see #stream(String, Map)
+	 */
+	public final Stream<T> stream() {
+		return stream(null, null);
+	}
+
+	/**
+	 * Returns a stream of the records of this table corresponding to a given SQL condition.
+	 * Records are loaded lazily and are not stored into memory.
+	 *
+	 * If the stream is consumed outside a transaction, records are loaded page by page with a {@link SeekCursor}
+	 * ordered according the primary keys. Each page is loaded into its own short read transaction, and no lock is
+	 * kept between two pages, so the consumer can modify the table while it parses the stream. Records added or
+	 * modified during the parsing may then be visible or not. The next page is prefetched by the bounded thread
+	 * pool shared by seek cursors. If primary keys are not comparable or are lazy loaded foreign keys, pages are
+	 * selected with a row offset.
+	 * If the stream is consumed into a transaction, the query is run into the current transaction. The stream must
+	 * then be consumed and closed before the end of the transaction.
+	 *
+	 * The stream must be used into a try-with-resources statement, in order to be closed when it is not completely
+	 * consumed, for example with {@link Stream#findFirst()}, {@link Stream#limit(long)} or {@link Stream#anyMatch}.
+	 * Database exceptions are thrown as {@link UncheckedDatabaseException}.
+	 *
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the stream of the corresponding records
+	 */
+	public final Stream<T> stream(String whereCondition, Map<String, Object> parameters) {
+		final StreamedRecordsIterator iterator=new StreamedRecordsIterator(whereCondition, parameters);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(iterator::close);
+	}
+
+	private void forEachRecord(final Filter<T> _filter, String whereCondition, Map<String, Object> parameters,
+							   boolean is_already_sql_transaction) throws DatabaseException {
+		final RuleInstance rule = whereCondition == null ? null : Interpreter.getRuleInstance(whereCondition);
 		if (isLoadedInMemory()) {
-			ArrayList<T> records = getRecords(-1, -1, is_already_sql_transaction);
-			int pos = 0;
-			for (T r : records) {
-				if (rule.isConcernedBy(this, parameters, r)
-						&& ((rowPos <= 0 || rowLength <= 0) || (++pos >= rowPos && (rowPos - pos) < rowLength))) {
-					if (_filter.nextRecord(r))
-						res.add(r);
-					if (_filter.isTableParsingStopped()
-							|| (rowPos > 0 && rowLength > 0 && (rowPos - pos) >= rowLength - 1))
+			final CompiledRuleInstance<T> compiledRule = rule == null ? null : rule.compile(this, parameters);
+			for (T r : getCandidateRecords(getRecords(-1, -1, is_already_sql_transaction), compiledRule)) {
+				if (compiledRule == null || compiledRule.isConcernedBy(r)) {
+					_filter.nextRecord(r);
+					if (_filter.isTableParsingStopped())
 						break;
 				}
 			}
 		} else {
-			HashMap<Integer, Object> sqlParameters = new HashMap<>();
-			String sqlQuery = rule.translateToSqlQuery(this, parameters, sqlParameters, new HashSet<>())
-					.toString();
-			final AtomicInteger pos = new AtomicInteger(0);
 			getListRecordsFromSqlConnection(new Runnable() {
 
 				@Override
 				public boolean setInstance(T r, ResultSet _cursor) throws DatabaseException {
-					if (_filter.nextRecord(r) && ((rowPos <= 0 || rowLength <= 0)
-							|| (pos.incrementAndGet() >= rowPos && (rowPos - pos.get()) < rowLength)))
-						res.add(r);
-					return !_filter.isTableParsingStopped()
-							|| !(rowPos > 0 && rowLength > 0 && (rowPos - pos.get()) >= rowLength - 1);
+					_filter.nextRecord(r);
+					return !_filter.isTableParsingStopped();
+				}
+
+				@Override
+				public void init(int _field_count) {
+				}
+			}, getStreamingSqlQuery(rule, parameters), TransactionIsolation.TRANSACTION_READ_COMMITTED);
+		}
+	}
+
+	private SqlQuery getStreamingSqlQuery(RuleInstance rule, Map<String, Object> parameters) throws DatabaseException {
+		SqlQuery query;
+		if (rule == null)
+			query = getSqlGeneralSelect(true);
+		else {
+			HashMap<Integer, Object> sqlParameters = new HashMap<>();
+			String sqlQuery = rule.translateToSqlQuery(this, parameters, sqlParameters, new HashSet<>())
+					.toString();
+			query = getSqlGeneralSelect(-1, -1, true, sqlQuery, sqlParameters);
+		}
+		query.fetchSize = sql_connection.getStreamingFetchSize();
+		return query;
+	}
+
+	private static final int STREAM_PAGE_SIZE = 256;
+
+	private final class StreamedRecordsIterator implements Iterator<T>, AutoCloseable {
+		private final String whereCondition;
+		private final Map<String, Object> parameters;
+		private boolean started = false;
+		private boolean finished = false;
+		private T next = null;
+		private Iterator<T> memoryIterator = null;
+		private AbstractReadQuery readQuery = null;
+		private ColumnIndexes readQueryColumnIndexes = null;
+		private final ArrayDeque<T> lazyPage = new ArrayDeque<>();
+		private boolean hasNextRow = true;
+		private SeekCursor<T> seekCursor = null;
+		private ArrayDeque<T> offsetPage = null;
+		private long offsetPosition = 1;
+		private boolean lastOffsetPageReached = false;
+		private boolean closed = false;
+
+		StreamedRecordsIterator(String whereCondition, Map<String, Object> parameters) {
+			this.whereCondition = whereCondition;
+			this.parameters = parameters;
+		}
+
+		private void start() throws DatabaseException {
+			started = true;
+			if (isLoadedInMemory()) {
+				memoryIterator = (whereCondition == null ? getRecords() : getRecords(whereCondition, parameters)).iterator();
+			} else if (sql_connection.isInTransactionByCurrentThread()) {
+				//the current transaction is used, in order to see its modifications, and in order to not wait for its locks
+				try {
+					final RuleInstance rule = whereCondition == null ? null : Interpreter.getRuleInstance(whereCondition);
+					SqlQuery query = getStreamingSqlQuery(rule, parameters);
+					readQuery = new ReadQuery(sql_connection.getConnectionAssociatedWithCurrentThread(), query);
+					readQueryColumnIndexes = getColumnIndexes(query, readQuery.result_set);
+				} catch (Exception e) {
+					throw DatabaseException.getDatabaseException(e);
+				}
+			} else {
+				//no lock is kept between two pages, in order to let the consumer modify the table
+				try {
+					seekCursor = new SeekCursor<>(Table.this, whereCondition, parameters, STREAM_PAGE_SIZE, true, true);
+				} catch (ConstraintsNotRespectedDatabaseException e) {
+					//primary keys are not comparable
+					offsetPage = new ArrayDeque<>(STREAM_PAGE_SIZE);
+				}
+			}
+		}
+
+		private T readNextFromOffsetPage() throws DatabaseException {
+			if (offsetPage.isEmpty() && !lastOffsetPageReached) {
+				ArrayList<T> page = whereCondition == null ? getPaginatedRecords(offsetPosition, STREAM_PAGE_SIZE)
+						: getPaginatedRecords(offsetPosition, STREAM_PAGE_SIZE, whereCondition, parameters);
+				offsetPosition += page.size();
+				lastOffsetPageReached = page.size() < STREAM_PAGE_SIZE;
+				offsetPage.addAll(page);
+			}
+			return offsetPage.poll();
+		}
+
+		private T readNext() throws DatabaseException {
+			if (memoryIterator != null) {
+				return memoryIterator.hasNext() ? memoryIterator.next() : null;
+			} else if (readQuery != null) {
+				ColumnIndexes.Binding previousBinding=readQueryColumnIndexes.bind(readQuery.result_set);
+				try {
+					if (hasLazyForeignKeys()) {
+						if (lazyPage.isEmpty() && hasNextRow)
+							hasNextRow=readPageWithLazyForeignKeys(readQuery.result_set, LAZY_FOREIGN_KEYS_PAGE_SIZE, lazyPage);
+						return lazyPage.poll();
+					}
+					if (readQuery.result_set.next())
+						return getNewRecordInstance(readQuery.result_set);
+					else
+						return null;
+				} catch (Exception e) {
+					throw DatabaseException.getDatabaseException(e);
+				} finally {
+					ColumnIndexes.unbind(previousBinding);
+				}
+			} else if (seekCursor != null) {
+				return seekCursor.hasNext() ? seekCursor.next() : null;
+			} else {
+				return readNextFromOffsetPage();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next != null)
+				return true;
+			if (finished || closed)
+				return false;
+			try {
+				if (!started)
+					start();
+				next = readNext();
+			} catch (DatabaseException e) {
+				close();
+				throw new UncheckedDatabaseException(e);
+			}
+			if (next == null) {
+				finished = true;
+				close();
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			T res = next;
+			next = null;
+			return res;
+		}
+
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			next = null;
+			if (seekCursor != null)
+				seekCursor.close();
+			offsetPage = null;
+			if (readQuery != null) {
+				try {
+					readQuery.close();
+				} catch (Exception e) {
+					throw new UncheckedDatabaseException(DatabaseException.getDatabaseException(e));
+				} finally {
+					readQuery = null;
+				}
+			}
+		}
+	}
+
+    @SuppressWarnings("SameParameterValue")
+    private ArrayList<T> getRecords(final long rowPos, final long rowLength, final Filter<T> _filter, String where,
+                                    Map<String, Object> parameters, boolean is_already_sql_transaction) throws DatabaseException {
+		final ArrayList<T> res = new ArrayList<>();
+		final RuleInstance rule = Interpreter.getRuleInstance(where);
+		if (isLoadedInMemory()) {
+			ArrayList<T> records = getRecords(-1, -1, is_already_sql_transaction);
+			final CompiledRuleInstance<T> compiledRule = rule.compile(this, parameters);
+			int pos = 0;
+			for (T r : getCandidateRecords(records, compiledRule)) {
+				if (compiledRule.isConcernedBy(r)
+						&& ((rowPos <= 0 || rowLength <= 0) || (++pos >= rowPos && (rowPos - pos) < rowLength))) {
+					if (_filter.nextRecord(r))
+						res.add(r);
+					if (_filter.isTableParsingStopped()
+							|| (rowPos > 0 && rowLength > 0 && (rowPos - pos) >= rowLength - 1))
+						break;
+				}
+			}
+		} else {
+			HashMap<Integer, Object> sqlParameters = new HashMap<>();
+			String sqlQuery = rule.translateToSqlQuery(this, parameters, sqlParameters, new HashSet<>())
+					.toString();
+			final AtomicInteger pos = new AtomicInteger(0);
+			getListRecordsFromSqlConnection(new Runnable() {
+
+				@Override
+				public boolean setInstance(T r, ResultSet _cursor) throws DatabaseException {
+					if (_filter.nextRecord(r) && ((rowPos <= 0 || rowLength <= 0)
+							|| (pos.incrementAndGet() >= rowPos && (rowPos - pos.get()) < rowLength)))
+						res.add(r);
+					return !_filter.isTableParsingStopped()
+							|| !(rowPos > 0 && rowLength > 0 && (rowPos - pos.get()) >= rowLength - 1);
 				}
 
 				@Override
@@ -3458,7 +4419,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		if (isLoadedInMemory()) {
 			ArrayList<T> records = getRecords(-1, -1, is_already_sql_transaction);
 			int pos = 0;
-			for (T r : records) {
+			//the position counts all records, so indexes are used only without pagination
+			for (T r : (rowPos < 1 || rowLength < 1) ? getCandidateRecords(records, _filter) : records) {
 				if (((rowPos < 1 || rowLength < 1) || ((++pos) >= rowPos && (rowPos - pos) < rowLength))
 						&& _filter.nextRecord(r))
 					res.add(r);
@@ -3491,6 +4453,25 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		return res;
 	}
 
+	/**
+	 * Returns true if the table contains at mean one record. Contrary to
+	 * {@link #getRecordsNumber()}, records are not counted : the query stops at the
+	 * first record.
+	 *
+	 * @return true if the table is not empty
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @since OOD 3.1.0
+	 */
+	public final boolean hasRecords() throws DatabaseException {
+		return hasRecords(new Filter<T>() {
+			@Override
+			public boolean nextRecord(T _record) {
+				return true;
+			}
+		});
+	}
+
 	/**
 	 * Returns true if there is at mean one record which corresponds to the given
 	 * filter.
@@ -3509,7 +4490,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			throw new NullPointerException("The parameter _filter is a null pointer !");
 		// synchronized(sql_connection)
 		{
-			try (Lock ignored = new ReadLock(this)) {
+			try (Lock ignored = new ReadLock(this, true)) {
 				return hasRecords(_filter, false);
 			} catch (Exception e) {
 				throw DatabaseException.getDatabaseException(e);
@@ -3621,7 +4602,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	private boolean hasRecords(final Filter<T> _filter, boolean is_sql_transaction) throws DatabaseException {
 		if (isLoadedInMemory()) {
 			ArrayList<T> records = getRecords(-1, -1, is_sql_transaction);
-			for (T r : records) {
+			for (T r : getCandidateRecords(records, _filter)) {
 				if (_filter.nextRecord(r))
 					return true;
 				if (_filter.isTableParsingStopped())
@@ -3962,124 +4943,708 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
-	 * 
-	 * @param _fields
-	 *            the fields that filter the result. Must be formatted as follow :
-	 *            {"field1", value1,"field2", value2, etc.}
-	 * @return the corresponding records.
+	 * Returns aggregated values (equivalent to COUNT, SUM, MIN, MAX and AVG with SQL) for each group of records
+	 * (equivalent to GROUP BY with SQL). Contrary to {@link #getGroupedResults(String...)}, records are not loaded.
+	 * The aggregation is done by the database, excepted when the table is loaded into memory.
+	 *
+	 * @param aggregates
+	 *            the aggregates to compute for each group
+	 * @param groupByFields
+	 *            the fields that define the groups. It is possible to use fields of records pointed by foreign
+	 *            keys. In this case, to group according the field A of the foreign key FK1, please enter "FK1.A".
+	 *            Foreign keys cannot be directly used. If no field is given, only one group is returned.
+	 * @return one aggregated result for each group. The order of the results is not specified.
 	 * @throws DatabaseException
-	 *             if a Sql exception occurs.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws FieldDatabaseException
-	 *             if the given fields do not correspond to the table fields.
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if a field is not compatible with its aggregate function
+	 * @see Aggregate
+	 * @since OOD 3.1.0
 	 */
-	public final ArrayList<T> getRecordsWithAllFields(Object... _fields) throws DatabaseException {
-		return getRecordsWithAllFields(transformToMapField(_fields));
+	public final ArrayList<AggregatedResult> getAggregatedResults(Aggregate[] aggregates, String... groupByFields)
+			throws DatabaseException {
+		return getAggregatedResults(aggregates, null, new HashMap<>(), groupByFields);
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
+	 * Returns aggregated values (equivalent to COUNT, SUM, MIN, MAX and AVG with SQL) for each group of records
+	 * (equivalent to GROUP BY with SQL), and for records corresponding to the given query. Contrary to
+	 * {@link #getGroupedResults(String...)}, records are not loaded. The aggregation is done by the database,
+	 * excepted when the table is loaded into memory.
 	 *
-	 * @param ascendant
-	 *            true if the fields must be sorted with an ascendant way
-	 * @param orderByFields
-	 *            order by the given fields
-	 * @param _fields
-	 *            the fields that filter the result. Must be formatted as follow :
-	 *            {"field1", value1,"field2", value2, etc.}
-	 * @return the corresponding records.
+	 * @param aggregates
+	 *            the aggregates to compute for each group
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @param groupByFields
+	 *            the fields that define the groups. It is possible to use fields of records pointed by foreign
+	 *            keys. In this case, to group according the field A of the foreign key FK1, please enter "FK1.A".
+	 *            Foreign keys cannot be directly used. If no field is given, only one group is returned.
+	 * @return one aggregated result for each group. The order of the results is not specified.
 	 * @throws DatabaseException
-	 *             if a Sql exception occurs.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws FieldDatabaseException
-	 *             if the given fields do not correspond to the table fields.
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if a field is not compatible with its aggregate function
+	 * @see Aggregate
+	 * @since OOD 3.1.0
 	 */
-	public final ArrayList<T> getRecordsWithAllFieldsOrdered(boolean ascendant, String[] orderByFields,
-			Object... _fields) throws DatabaseException {
-		return getRecordsWithAllFieldsOrdered(ascendant, orderByFields, transformToMapField(_fields));
+	public final ArrayList<AggregatedResult> getAggregatedResults(Aggregate[] aggregates, String whereCondition,
+			Map<String, Object> parameters, String... groupByFields) throws DatabaseException {
+		if (aggregates == null)
+			throw new NullPointerException();
+		if (aggregates.length == 0)
+			throw new ConstraintsNotRespectedDatabaseException("It must have at mean one aggregate to compute.");
+		if (groupByFields == null)
+			groupByFields = new String[0];
+		try (Lock ignored = new ReadLock(this)) {
+			final RuleInstance rule = (whereCondition == null || whereCondition.trim().length() == 0) ? null
+					: Interpreter.getRuleInstance(whereCondition);
+			final AggregateQuery query = new AggregateQuery(aggregates, groupByFields);
+			if (isLoadedInMemory()) {
+				final CompiledRuleInstance<T> compiledRule = rule == null ? null : rule.compile(this, parameters);
+				ArrayList<T> records = new ArrayList<>();
+				for (T r : getCandidateRecords(getRecords(-1, -1, false), compiledRule)) {
+					if (compiledRule == null || compiledRule.isConcernedBy(r))
+						records.add(r);
+				}
+				return query.aggregate(records);
+			} else {
+				final HashMap<Integer, Object> sqlParameters = new HashMap<>();
+				final String sqlCondition = rule == null ? null
+						: rule.translateToSqlQuery(this, parameters, sqlParameters, query.tablesJunction).toString();
+				final SqlQuery sqlQuery = query.getSqlQuery(sqlCondition, sqlParameters);
+				Transaction t = new Transaction() {
+					@Override
+					public Package getConcernedDatabasePackage() {
+						return Table.this.getClass().getPackage();
+					}
+
+					@Override
+					public TransactionIsolation getTransactionIsolation() {
+						return TransactionIsolation.TRANSACTION_READ_COMMITTED;
+					}
+
+					@Override
+					public boolean doesWriteData() {
+						return false;
+					}
+
+					@Override
+					public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+						try (ReadQuery rq = new ReadQuery(
+								_sql_connection.getConnectionAssociatedWithCurrentThread(), sqlQuery)) {
+							ArrayList<AggregatedResult> res = new ArrayList<>();
+							while (rq.result_set.next())
+								res.add(query.getAggregatedResult(rq.result_set));
+							return res;
+						} catch (Exception e) {
+							throw DatabaseException.getDatabaseException(e);
+						}
+					}
+
+					@Override
+					public void initOrReset() {
+					}
+
+				};
+				//noinspection unchecked
+				return (ArrayList<AggregatedResult>) sql_connection.runTransaction(t, true);
+			}
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
-	 * 
-	 * @param _fields
-	 *            the fields that filter the result.
-	 * @return the corresponding records.
+	 * Returns aggregated values (equivalent to COUNT, SUM, MIN, MAX and AVG with SQL) for all records of the table.
+	 *
+	 * @param aggregates
+	 *            the aggregates to compute
+	 * @return the aggregated result
 	 * @throws DatabaseException
-	 *             if a Sql exception occurs.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws FieldDatabaseException
-	 *             if the given fields do not correspond to the table fields.
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if a field is not compatible with its aggregate function
+	 * @see #getAggregatedResults(Aggregate[], String, Map, String...)
+	 * @since OOD 3.1.0
 	 */
-	public final ArrayList<T> getRecordsWithAllFields(final Map<String, Object> _fields) throws DatabaseException {
-		return getRecordsWithAllFieldsOrdered(true, null, _fields);
+	public final AggregatedResult getAggregatedResult(Aggregate... aggregates) throws DatabaseException {
+		return getAggregatedResults(aggregates).get(0);
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
-	 * 
-	 * @param ascendant
-	 *            order by ascendant (true) or descendant (false)
-	 * @param orderByFields
-	 *            order by the given fields
-	 * @param _fields
-	 *            the fields that filter the result.
-	 * @return the corresponding records.
+	 * Returns aggregated values (equivalent to COUNT, SUM, MIN, MAX and AVG with SQL) for records corresponding to
+	 * the given query.
+	 *
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @param aggregates
+	 *            the aggregates to compute
+	 * @return the aggregated result
 	 * @throws DatabaseException
-	 *             if a Sql exception occurs.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws FieldDatabaseException
-	 *             if the given fields do not correspond to the table fields.
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if a field is not compatible with its aggregate function
+	 * @see #getAggregatedResults(Aggregate[], String, Map, String...)
+	 * @since OOD 3.1.0
 	 */
-	public final ArrayList<T> getRecordsWithAllFieldsOrdered(boolean ascendant, String[] orderByFields,
-			final Map<String, Object> _fields) throws DatabaseException {
-		return getPaginatedRecordsWithAllFieldsOrdered(-1, -1, ascendant, orderByFields, _fields);
+	public final AggregatedResult getAggregatedResult(String whereCondition, Map<String, Object> parameters,
+			Aggregate... aggregates) throws DatabaseException {
+		return getAggregatedResults(aggregates, whereCondition, parameters).get(0);
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
-	 * 
-	 * @param rowPos
-	 *            row position (first starts with 1)
-	 * @param rowLength
-	 *            page length (size of the returned result)
-	 * @param ascendant
-	 *            order by ascendant (true) or descendant (false)
-	 * @param orderByFields
-	 *            order by the given fields
-	 * @param _fields
-	 *            the fields that filter the result.
-	 * @return the corresponding records.
+	 * Returns the minimum value of a field, for records corresponding to the given query. The minimum is computed by
+	 * the database, and can use an index of the field.
+	 *
+	 * @param fieldName
+	 *            the field name. Only comparable fields are authorized. It is possible to use fields of records
+	 *            pointed by foreign keys, like with {@link #getOrderedRecords(boolean, String...)}.
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results, or null if all records are concerned
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the minimum value, or null if no record corresponds
 	 * @throws DatabaseException
-	 *             if a Sql exception occurs.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws FieldDatabaseException
-	 *             if the given fields do not correspond to the table fields.
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if the field is not comparable
+	 * @see Aggregate#min(String)
+	 * @since OOD 3.1.0
 	 */
-	public final ArrayList<T> getPaginatedRecordsWithAllFieldsOrdered(long rowPos, long rowLength, boolean ascendant,
-																	  String[] orderByFields, Object... _fields) throws DatabaseException {
-		return getPaginatedRecordsWithAllFieldsOrdered(rowPos, rowLength, ascendant, orderByFields,
-				transformToMapField(_fields));
+	public final Object getMinValue(String fieldName, String whereCondition, Object... parameters)
+			throws DatabaseException {
+		return getMinValue(fieldName, whereCondition, convertToMap(parameters));
 	}
 
 	/**
-	 * Returns the records which correspond to the given fields. All given fields
-	 * must correspond exactly to the returned records.
-	 * 
-	 * @param rowPos
-	 *            row position (first starts with 1)
-	 * @param rowLength
+	 * Returns the minimum value of a field, for records corresponding to the given query. The minimum is computed by
+	 * the database, and can use an index of the field.
+	 *
+	 * @param fieldName
+	 *            the field name. Only comparable fields are authorized. It is possible to use fields of records
+	 *            pointed by foreign keys, like with {@link #getOrderedRecords(boolean, String...)}.
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results, or null if all records are concerned
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the minimum value, or null if no record corresponds
+	 * @throws DatabaseException
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if the field is not comparable
+	 * @see Aggregate#min(String)
+	 * @since OOD 3.1.0
+	 */
+	public final Object getMinValue(String fieldName, String whereCondition, Map<String, Object> parameters)
+			throws DatabaseException {
+		return getAggregatedResult(whereCondition, parameters, Aggregate.min(fieldName)).getValue(0);
+	}
+
+	/**
+	 * Returns the maximum value of a field, for records corresponding to the given query. The maximum is computed by
+	 * the database, and can use an index of the field.
+	 *
+	 * @param fieldName
+	 *            the field name. Only comparable fields are authorized. It is possible to use fields of records
+	 *            pointed by foreign keys, like with {@link #getOrderedRecords(boolean, String...)}.
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results, or null if all records are concerned
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the maximum value, or null if no record corresponds
+	 * @throws DatabaseException
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if the field is not comparable
+	 * @see Aggregate#max(String)
+	 * @since OOD 3.1.0
+	 */
+	public final Object getMaxValue(String fieldName, String whereCondition, Object... parameters)
+			throws DatabaseException {
+		return getMaxValue(fieldName, whereCondition, convertToMap(parameters));
+	}
+
+	/**
+	 * Returns the maximum value of a field, for records corresponding to the given query. The maximum is computed by
+	 * the database, and can use an index of the field.
+	 *
+	 * @param fieldName
+	 *            the field name. Only comparable fields are authorized. It is possible to use fields of records
+	 *            pointed by foreign keys, like with {@link #getOrderedRecords(boolean, String...)}.
+	 * @param whereCondition
+	 *            the SQL WHERE condition that filter the results, or null if all records are concerned
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the maximum value, or null if no record corresponds
+	 * @throws DatabaseException
+	 *             if a database exception occurs
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if an unknown field is given, or if the field is not comparable
+	 * @see Aggregate#max(String)
+	 * @since OOD 3.1.0
+	 */
+	public final Object getMaxValue(String fieldName, String whereCondition, Map<String, Object> parameters)
+			throws DatabaseException {
+		return getAggregatedResult(whereCondition, parameters, Aggregate.max(fieldName)).getValue(0);
+	}
+
+	private static boolean isSummable(FieldAccessor fa) {
+		Class<?> c = fa.getFieldClassType();
+		return c == byte.class || c == short.class || c == int.class || c == long.class || c == Byte.class
+				|| c == Short.class || c == Integer.class || c == Long.class || isFloatingPoint(fa);
+	}
+
+	private static boolean isFloatingPoint(FieldAccessor fa) {
+		Class<?> c = fa.getFieldClassType();
+		return c == float.class || c == double.class || c == Float.class || c == Double.class;
+	}
+
+	/**
+	 * Returns a new instance of the class that declares the given field. Aggregated values are decoded into this
+	 * instance.
+	 */
+	private Object getNewFieldOwnerInstance(String fieldName) throws DatabaseException {
+		try {
+			int indexEnd = 0;
+			int indexStart = 0;
+			StringBuilder prevPrefix = new StringBuilder();
+			List<FieldAccessor> fields = this.fields;
+			Object owner = getNewRecordInstance(false);
+			while (fields != null) {
+				while (indexEnd < fieldName.length()) {
+					if (fieldName.charAt(indexEnd) == '.')
+						break;
+					++indexEnd;
+				}
+				if (indexStart >= indexEnd)
+					break;
+				String prefix = prevPrefix + fieldName.substring(indexStart, indexEnd);
+				for (FieldAccessor f : fields) {
+					if (f.getFieldName().equals(prefix)) {
+						if (indexEnd == fieldName.length())
+							return owner;
+						else if (f instanceof ForeignKeyFieldAccessor) {
+							return ((ForeignKeyFieldAccessor) f).getPointedTable().getNewFieldOwnerInstance(fieldName.substring(indexEnd + 1));
+						} else if (f instanceof ComposedFieldAccessor) {
+							final Class<?> c = f.getField().getType();
+							Constructor<?> constructor = AccessController.doPrivileged((PrivilegedExceptionAction<Constructor<?>>) () -> {
+								Constructor<?> res = c.getDeclaredConstructor();
+								res.setAccessible(true);
+								return res;
+							});
+							owner = constructor.newInstance();
+							fields = ((ComposedFieldAccessor) f).getFieldAccessors();
+							indexStart = indexEnd += 1;
+							prevPrefix.append(prefix).append(".");
+							break;
+						}
+					}
+				}
+				if (indexStart != indexEnd)
+					fields = null;
+			}
+		} catch (PrivilegedActionException e) {
+			throw DatabaseException.getDatabaseException(e.getException());
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+		throw new ConstraintsNotRespectedDatabaseException("The field " + fieldName + " does not exists.");
+	}
+
+	private final class AggregateQuery {
+		private final Aggregate[] aggregates;
+		private final String[] groupByFields;
+		private final FieldAccessor[] groupByFieldAccessors;
+		private final String[] groupBySqlTableNames;
+		private final FieldAccessor[] aggregatedFieldAccessors;
+		private final String[] aggregatedSqlTableNames;
+		private final Set<TableJunction> tablesJunction = new HashSet<>();
+
+		AggregateQuery(Aggregate[] aggregates, String[] groupByFields) throws ConstraintsNotRespectedDatabaseException {
+			this.aggregates = aggregates.clone();
+			this.groupByFields = groupByFields.clone();
+			this.groupByFieldAccessors = new FieldAccessor[groupByFields.length];
+			this.groupBySqlTableNames = new String[groupByFields.length];
+			for (int i = 0; i < groupByFields.length; i++) {
+				Reference<String> sqlTableName = new Reference<>();
+				FieldAccessor fa = getFieldAccessor(groupByFields[i], tablesJunction, sqlTableName);
+				if (fa == null)
+					throw new ConstraintsNotRespectedDatabaseException("The field " + groupByFields[i] + " does not exists.");
+				if (fa.isForeignKey())
+					throw new ConstraintsNotRespectedDatabaseException("The field " + groupByFields[i]
+							+ " is a foreign key. Please group results according the fields of the pointed records.");
+				groupByFieldAccessors[i] = fa;
+				groupBySqlTableNames[i] = sqlTableName.get();
+			}
+			this.aggregatedFieldAccessors = new FieldAccessor[aggregates.length];
+			this.aggregatedSqlTableNames = new String[aggregates.length];
+			for (int i = 0; i < aggregates.length; i++) {
+				Aggregate a = aggregates[i];
+				if (a == null)
+					throw new NullPointerException();
+				if (a.getFieldName() == null)
+					continue;
+				Reference<String> sqlTableName = new Reference<>();
+				FieldAccessor fa = getFieldAccessor(a.getFieldName(), tablesJunction, sqlTableName);
+				if (fa == null)
+					throw new ConstraintsNotRespectedDatabaseException("The field " + a.getFieldName() + " does not exists.");
+				switch (a.getFunction()) {
+					case COUNT:
+						break;
+					case SUM:
+					case AVG:
+						if (!isSummable(fa))
+							throw new ConstraintsNotRespectedDatabaseException("The field " + a.getFieldName()
+									+ " starting in the class/table " + Table.this.getClass().getName()
+									+ " is not a numeric field compatible with " + a.getFunction() + ".");
+						break;
+					case MIN:
+					case MAX:
+						if (!fa.isComparable() || fa.getDeclaredSqlFields().length > 1)
+							throw new ConstraintsNotRespectedDatabaseException("The field " + a.getFieldName()
+									+ " starting in the class/table " + Table.this.getClass().getName()
+									+ " is not a comparable field.");
+						break;
+				}
+				aggregatedFieldAccessors[i] = fa;
+				aggregatedSqlTableNames[i] = sqlTableName.get();
+			}
+		}
+
+		SqlQuery getSqlQuery(String condition, final Map<Integer, Object> parameters) {
+			StringBuilder sb = new StringBuilder("SELECT ");
+			StringBuilder groupBy = new StringBuilder();
+			for (int i = 0; i < groupByFieldAccessors.length; i++) {
+				for (SqlField sf : groupByFieldAccessors[i].getDeclaredSqlFields()) {
+					if (groupBy.length() > 0) {
+						groupBy.append(", ");
+						sb.append(", ");
+					}
+					String column = groupBySqlTableNames[i] + "." + sf.shortField;
+					groupBy.append(column);
+					sb.append(column)
+							.append(" AS ")
+							.append(getGroupColumnsPrefix(i))
+							.append("__")
+							.append(sf.sqlFieldAliasName);
+				}
+			}
+			for (int i = 0; i < aggregates.length; i++) {
+				if (i > 0 || groupBy.length() > 0)
+					sb.append(", ");
+				FieldAccessor fa = aggregatedFieldAccessors[i];
+				String column = fa == null ? "*" : aggregatedSqlTableNames[i] + "." + fa.getDeclaredSqlFields()[0].shortField;
+				switch (aggregates[i].getFunction()) {
+					case COUNT:
+					case SUM:
+						sb.append(aggregates[i].getFunction().name())
+								.append("(")
+								.append(column)
+								.append(") AS ")
+								.append(getAggregateColumnName(i));
+						break;
+					case AVG:
+						//the average is computed with the sum and the count, in order to not depend on the database rounding
+						sb.append("SUM(")
+								.append(column)
+								.append(") AS ")
+								.append(getAggregateColumnName(i))
+								.append(", COUNT(")
+								.append(column)
+								.append(") AS ")
+								.append(getAggregateColumnName(i))
+								.append("C");
+						break;
+					case MIN:
+					case MAX:
+						//the field accessor decode the value through the alias name
+						sb.append(aggregates[i].getFunction().name())
+								.append("(")
+								.append(column)
+								.append(") AS ")
+								.append(getAggregateColumnName(i))
+								.append("__")
+								.append(fa.getDeclaredSqlFields()[0].sqlFieldAliasName);
+						break;
+				}
+			}
+			sb.append(" FROM ");
+			getFromPart(sb, false, tablesJunction);
+			boolean hasCondition = condition != null && condition.trim().length() > 0;
+			if (hasCondition)
+				sb.append(" WHERE ").append(condition);
+			if (groupBy.length() > 0)
+				sb.append(" GROUP BY ").append(groupBy);
+			if (!hasCondition)
+				return new SqlQuery(sb.toString());
+			return new SqlQuery(sb.toString()) {
+				@Override
+				void finishPrepareStatement(PreparedStatement st) throws SQLException {
+					if (parameters != null) {
+						int index = 1;
+
+						Object p = parameters.get(index);
+						while (p != null) {
+
+							FieldAccessor.setValue(getDatabaseWrapper(), st, index, p);
+							p = parameters.get(++index);
+						}
+
+					}
+				}
+			};
+		}
+
+		private String getGroupColumnsPrefix(int groupIndex) {
+			return "G" + groupIndex;
+		}
+
+		private String getAggregateColumnName(int aggregateIndex) {
+			return "A" + aggregateIndex;
+		}
+
+		AggregatedResult getAggregatedResult(ResultSet rs) throws DatabaseException, SQLException {
+			HashMap<String, Object> group = new HashMap<>();
+			for (int i = 0; i < groupByFieldAccessors.length; i++) {
+				Object owner = getNewFieldOwnerInstance(groupByFields[i]);
+				groupByFieldAccessors[i].setValue(getGroupColumnsPrefix(i), owner, rs, null);
+				group.put(groupByFields[i], groupByFieldAccessors[i].getValue(owner));
+			}
+			Object[] values = new Object[aggregates.length];
+			for (int i = 0; i < aggregates.length; i++) {
+				FieldAccessor fa = aggregatedFieldAccessors[i];
+				String column = getAggregateColumnName(i);
+				switch (aggregates[i].getFunction()) {
+					case COUNT:
+						values[i] = rs.getLong(column);
+						break;
+					case SUM:
+						if (isFloatingPoint(fa)) {
+							double d = rs.getDouble(column);
+							values[i] = rs.wasNull() ? null : d;
+						} else {
+							long l = rs.getLong(column);
+							values[i] = rs.wasNull() ? null : l;
+						}
+						break;
+					case AVG: {
+						double sum = rs.getDouble(column);
+						long count = rs.getLong(column + "C");
+						values[i] = count == 0 ? null : sum / count;
+						break;
+					}
+					case MIN:
+					case MAX: {
+						Object owner = getNewFieldOwnerInstance(aggregates[i].getFieldName());
+						rs.getObject(column + "__" + fa.getDeclaredSqlFields()[0].sqlFieldAliasName);
+						if (rs.wasNull())
+							values[i] = null;
+						else {
+							fa.setValue(column, owner, rs, null);
+							values[i] = fa.getValue(owner);
+						}
+						break;
+					}
+				}
+			}
+			return new AggregatedResult(group, aggregates, values);
+		}
+
+		ArrayList<AggregatedResult> aggregate(ArrayList<T> records) throws DatabaseException {
+			ArrayList<AggregatedResult> res = new ArrayList<>();
+			if (groupByFields.length == 0)
+				res.add(aggregate(new HashMap<>(), records));
+			else {
+				for (GroupedResults<T>.Group g : getGroupedResults(records, groupByFields).getGroupedResults())
+					res.add(aggregate(g.getGroupIdentity(), g.getResults()));
+			}
+			return res;
+		}
+
+		@SuppressWarnings("unchecked")
+		private AggregatedResult aggregate(HashMap<String, Object> group, ArrayList<T> records) throws DatabaseException {
+			Object[] values = new Object[aggregates.length];
+			for (int i = 0; i < aggregates.length; i++) {
+				FieldAccessor fa = aggregatedFieldAccessors[i];
+				Aggregate a = aggregates[i];
+				if (fa == null) {
+					values[i] = (long) records.size();
+					continue;
+				}
+				long count = 0;
+				long longSum = 0;
+				double doubleSum = 0;
+				Comparable<Object> extremum = null;
+				for (T r : records) {
+					FieldAccessorValue fav = getFieldAccessorAndValue(r, a.getFieldName());
+					Object v = fav == null || fav.getValue() == null ? null : fa.getValue(fav.getValue());
+					if (v == null)
+						continue;
+					++count;
+					switch (a.getFunction()) {
+						case SUM:
+						case AVG:
+							if (isFloatingPoint(fa))
+								doubleSum += ((Number) v).doubleValue();
+							else
+								longSum += ((Number) v).longValue();
+							break;
+						case MIN:
+							if (extremum == null || extremum.compareTo(v) > 0)
+								extremum = (Comparable<Object>) v;
+							break;
+						case MAX:
+							if (extremum == null || extremum.compareTo(v) < 0)
+								extremum = (Comparable<Object>) v;
+							break;
+						case COUNT:
+							break;
+					}
+				}
+				switch (a.getFunction()) {
+					case COUNT:
+						values[i] = count;
+						break;
+					case SUM:
+						values[i] = count == 0 ? null : (isFloatingPoint(fa) ? (Object) doubleSum : (Object) longSum);
+						break;
+					case AVG:
+						values[i] = count == 0 ? null : (isFloatingPoint(fa) ? doubleSum : (double) longSum) / count;
+						break;
+					case MIN:
+					case MAX:
+						values[i] = extremum;
+						break;
+				}
+			}
+			return new AggregatedResult(group, aggregates, values);
+		}
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 * 
+	 * @param _fields
+	 *            the fields that filter the result. Must be formatted as follow :
+	 *            {"field1", value1,"field2", value2, etc.}
+	 * @return the corresponding records.
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if the given fields do not correspond to the table fields.
+	 */
+	public final ArrayList<T> getRecordsWithAllFields(Object... _fields) throws DatabaseException {
+		return getRecordsWithAllFields(transformToMapField(_fields));
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 *
+	 * @param ascendant
+	 *            true if the fields must be sorted with an ascendant way
+	 * @param orderByFields
+	 *            order by the given fields
+	 * @param _fields
+	 *            the fields that filter the result. Must be formatted as follow :
+	 *            {"field1", value1,"field2", value2, etc.}
+	 * @return the corresponding records.
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if the given fields do not correspond to the table fields.
+	 */
+	public final ArrayList<T> getRecordsWithAllFieldsOrdered(boolean ascendant, String[] orderByFields,
+			Object... _fields) throws DatabaseException {
+		return getRecordsWithAllFieldsOrdered(ascendant, orderByFields, transformToMapField(_fields));
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 * 
+	 * @param _fields
+	 *            the fields that filter the result.
+	 * @return the corresponding records.
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if the given fields do not correspond to the table fields.
+	 */
+	public final ArrayList<T> getRecordsWithAllFields(final Map<String, Object> _fields) throws DatabaseException {
+		return getRecordsWithAllFieldsOrdered(true, null, _fields);
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 * 
+	 * @param ascendant
+	 *            order by ascendant (true) or descendant (false)
+	 * @param orderByFields
+	 *            order by the given fields
+	 * @param _fields
+	 *            the fields that filter the result.
+	 * @return the corresponding records.
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if the given fields do not correspond to the table fields.
+	 */
+	public final ArrayList<T> getRecordsWithAllFieldsOrdered(boolean ascendant, String[] orderByFields,
+			final Map<String, Object> _fields) throws DatabaseException {
+		return getPaginatedRecordsWithAllFieldsOrdered(-1, -1, ascendant, orderByFields, _fields);
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 * 
+	 * @param rowPos
+	 *            row position (first starts with 1)
+	 * @param rowLength
+	 *            page length (size of the returned result)
+	 * @param ascendant
+	 *            order by ascendant (true) or descendant (false)
+	 * @param orderByFields
+	 *            order by the given fields
+	 * @param _fields
+	 *            the fields that filter the result.
+	 * @return the corresponding records.
+	 * @throws DatabaseException
+	 *             if a Sql exception occurs.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if the given fields do not correspond to the table fields.
+	 */
+	public final ArrayList<T> getPaginatedRecordsWithAllFieldsOrdered(long rowPos, long rowLength, boolean ascendant,
+																	  String[] orderByFields, Object... _fields) throws DatabaseException {
+		return getPaginatedRecordsWithAllFieldsOrdered(rowPos, rowLength, ascendant, orderByFields,
+				transformToMapField(_fields));
+	}
+
+	/**
+	 * Returns the records which correspond to the given fields. All given fields
+	 * must correspond exactly to the returned records.
+	 * 
+	 * @param rowPos
+	 *            row position (first starts with 1)
+	 * @param rowLength
 	 *            page length (size of the returned result)
 	 * @param ascendant
 	 *            order by ascendant (true) or descendant (false)
@@ -4881,6 +6446,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		try {
 			PreparedStatement statement= sql_connection.getConnectionAssociatedWithCurrentThread().getConnection().prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
 			int res=statement.executeUpdate();
+			recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, res);
 
 			if (res!=0 && isLoadedInMemory()) {
 				memoryToRefreshWithCascade();
@@ -5327,13 +6893,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	 *             if parameters are null pointers.
 	 */
 	public final long removeRecords(String whereCommand, Object... parameters) throws DatabaseException {
-		return removeRecords(new Filter<T>() {
-
-			@Override
-			public boolean nextRecord(T _record) {
-				return true;
-			}
-		}, whereCommand, whereCommand == null ? new HashMap<>() : convertToMap(parameters));
+		return removeRecords(whereCommand, whereCommand == null ? new HashMap<>() : convertToMap(parameters));
 	}
 
 	/**
@@ -5408,6 +6968,9 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	public final long removeRecords(String whereCommand, Map<String, Object> parameters) throws DatabaseException {
 		{
 			try (Lock ignored = new WriteLock(this)) {
+				long res=removeRecordsWithSqlCondition(whereCommand, parameters);
+				if (res>=0)
+					return res;
 				return removeRecords(new Filter<T>() {
 
 					@Override
@@ -5510,6 +7073,162 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	}
 
+	/**
+	 * Translate the given WHERE command into a condition which does not need
+	 * junctions, and which can be used into DELETE and UPDATE queries.
+	 *
+	 * @return the SQL condition, an empty builder if there is no condition, or
+	 *         null if the command references other tables
+	 */
+	private StringBuilder getSqlConditionWithoutJunctions(String where, Map<String, Object> parameters,
+														  Map<Integer, Object> sqlParameters) throws DatabaseException {
+		StringBuilder condition=new StringBuilder();
+		if (where == null || where.trim().equals(""))
+			return condition;
+		Set<TableJunction> tablesJunction=new HashSet<>();
+		condition.append("(")
+				.append(Interpreter.getRuleInstance(where).translateToSqlQuery(this, parameters, sqlParameters, tablesJunction))
+				.append(")");
+		return tablesJunction.isEmpty()?condition:null;
+	}
+
+	/**
+	 * Complete the given condition in order to exclude records which are pointed
+	 * by other records, with one anti-join per pointing foreign key.
+	 *
+	 * @return false if this table points to itself, so that the anti-join cannot
+	 *         be used into a DELETE query
+	 */
+	private boolean appendNotPointedCondition(StringBuilder condition) throws DatabaseException {
+		int aliasNumber=0;
+		for (NeighboringTable nt : list_tables_pointing_to_this_table) {
+			Table<?> t = nt.getPointingTable();
+			if (t == this)
+				return false;
+			for (ForeignKeyFieldAccessor fkfa : t.foreign_keys_fields) {
+				if (!fkfa.isAssignableTo(getClassRecord()))
+					continue;
+				String alias="NP"+(++aliasNumber)+"__";
+				if (condition.length()>0)
+					condition.append(" AND ");
+				condition.append("NOT EXISTS (SELECT 1 FROM ")
+						.append(t.getSqlTableName())
+						.append(" ")
+						.append(alias)
+						.append(" WHERE ");
+				boolean first=true;
+				for (SqlField sf : fkfa.getDeclaredSqlFields()) {
+					if (first)
+						first=false;
+					else
+						condition.append(" AND ");
+					condition.append(alias)
+							.append(".")
+							.append(sf.shortField)
+							.append("=")
+							.append(getSqlTableName())
+							.append(".")
+							.append(sf.shortPointedField);
+				}
+				condition.append(")");
+			}
+		}
+		return true;
+	}
+
+	private static void setSqlParameters(DatabaseWrapper sql_connection, PreparedStatement st, int index, Map<Integer, Object> sqlParameters) throws SQLException {
+		int i=1;
+		Object p = sqlParameters.get(i);
+		while (p != null) {
+			FieldAccessor.setValue(sql_connection, st, index++, p);
+			p = sqlParameters.get(++i);
+		}
+	}
+
+	/**
+	 * Remove, with one DELETE query, the records which correspond to the given
+	 * WHERE condition, and which are not pointed by other records. The records are
+	 * read before being removed only when synchronization or backup events must be
+	 * generated.
+	 *
+	 * @return the number of deleted records, or -1 if the where condition
+	 *         references other tables, or if this table points to itself
+	 */
+	private long removeRecordsWithSqlCondition(String where, Map<String, Object> parameters) throws DatabaseException {
+		final HashMap<Integer, Object> sqlParameters = new HashMap<>();
+		final StringBuilder condition = getSqlConditionWithoutJunctions(where, parameters, sqlParameters);
+		if (condition == null || !appendNotPointedCondition(condition))
+			return -1;
+		return (long)sql_connection.runTransaction(new Transaction() {
+			@Override
+			public Package getConcernedDatabasePackage() {
+				return Table.this.getClass().getPackage();
+			}
+
+			@Override
+			public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+				final ArrayList<T> removedRecords;
+				if (hasBackupManager || supportSynchronizationWithOtherPeers()) {
+					removedRecords = new ArrayList<>();
+					getListRecordsFromSqlConnection(new Runnable() {
+						@Override
+						public void init(int _field_count) {
+
+						}
+
+						@Override
+						public boolean setInstance(T _instance, ResultSet _cursor) {
+							removedRecords.add(_instance);
+							return true;
+						}
+					}, getSqlGeneralSelect(-1, -1, true, condition.toString(), sqlParameters), TransactionIsolation.TRANSACTION_REPEATABLE_READ);
+					if (removedRecords.isEmpty())
+						return 0L;
+				}
+				else
+					removedRecords = null;
+
+				long deleted_records_number;
+				try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
+						_sql_connection.getConnectionAssociatedWithCurrentThread(),
+						"DELETE FROM " + Table.this.getSqlTableName() + (condition.length() == 0 ? "" : " WHERE " + condition))) {
+					setSqlParameters(getDatabaseWrapper(), puq.statement, 1, sqlParameters);
+					deleted_records_number = puq.statement.executeUpdate();
+					recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, deleted_records_number);
+				} catch (Exception e) {
+					throw DatabaseException.getDatabaseException(e);
+				}
+				if (removedRecords != null) {
+					if (deleted_records_number != removedRecords.size())
+						throw new DatabaseIntegrityException("Unexpected exception");
+					DatabaseWrapper.Session session = getDatabaseWrapper().getConnectionAssociatedWithCurrentThread();
+					for (T r : removedRecords) {
+						r.__createdIntoDatabase = false;
+						session.addEvent(new TableEvent<>(-1, DatabaseEventType.REMOVE, Table.this, r, null, null), true);
+					}
+				}
+				if (deleted_records_number > 0 && isLoadedInMemory())
+					memoryToRefresh();
+				return deleted_records_number;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_REPEATABLE_READ;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+		}, true);
+	}
+
 	@SuppressWarnings({"SameParameterValue", "unused"})
     private int removeRecords(final Filter<T> _filter, boolean is_already_in_transaction)
 			throws DatabaseException {
@@ -5958,7 +7677,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
                 @Override
                 public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
                     try (ReadQuery prq = new ReadQuery(
-                            _sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), sqlQuery)) {
+                            _sql_connection.getConnectionAssociatedWithCurrentThread(), sqlQuery)) {
                         if (prq.result_set.next()) {
                             return Boolean.TRUE;
                         }
@@ -6248,7 +7967,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		}
 
 		try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-				sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(),
+				sql_connection.getConnectionAssociatedWithCurrentThread(),
 				"DELETE FROM " + Table.this.getSqlTableName() + " WHERE " + getSqlPrimaryKeyCondition(1))) {
 			int index = 1;
 			for (FieldAccessor fa : primary_keys_fields) {
@@ -6256,6 +7975,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				index += fa.getDeclaredSqlFields().length;
 			}
 			int nb = puq.statement.executeUpdate();
+			recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, nb);
 			if (nb == 0)
 				throw new RecordNotFoundDatabaseException("the given record was not into the table "
 						+ Table.this.getClass().getSimpleName() + ". It has been probably already removed.");
@@ -6268,8 +7988,8 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			throw DatabaseException.getDatabaseException(e);
 		}
 
-		if (refreshMemory && Table.this.isLoadedInMemory())
-			memoryToRefresh();
+		if (refreshMemory)
+			memoryRecordChanged(record, null, null);
 		record.__createdIntoDatabase = false;
 	}
 	@SuppressWarnings("SameParameterValue")
@@ -6336,7 +8056,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	private void removeUntypedRecordWithCascadeImpl(final T record, final boolean synchronizeIfNecessary,
 													boolean refreshMemory) throws DatabaseException {
 		try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-				sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(),
+				sql_connection.getConnectionAssociatedWithCurrentThread(),
 				"DELETE FROM " + Table.this.getSqlTableName() + " WHERE " + getSqlPrimaryKeyCondition(1))) {
 			int index = 1;
 			for (FieldAccessor fa : primary_keys_fields) {
@@ -6344,6 +8064,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				index += fa.getDeclaredSqlFields().length;
 			}
 			int nb = puq.statement.executeUpdate();
+			recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, nb);
 			if (nb == 0)
 				throw new RecordNotFoundDatabaseException("the given record was not into the table "
 						+ Table.this.getClass().getSimpleName() + ". It has been probably already removed.");
@@ -6467,7 +8188,19 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	}
 
+	private volatile String sqlPrimaryKeyCondition=null;
+
 	private String getSqlPrimaryKeyCondition(int repeat) {
+		if (repeat==1) {
+			String res=sqlPrimaryKeyCondition;
+			if (res==null)
+				sqlPrimaryKeyCondition=res=getSqlPrimaryKeyConditionImpl(1);
+			return res;
+		}
+		return getSqlPrimaryKeyConditionImpl(repeat);
+	}
+
+	private String getSqlPrimaryKeyConditionImpl(int repeat) {
 		StringBuilder sb = new StringBuilder();
 		boolean parenthesis = repeat > 1;
 		boolean first_group = true;
@@ -6543,7 +8276,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 												+ getClass().getSimpleName());
 					}
 					try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-							_sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), "DELETE FROM "
+							_sql_connection.getConnectionAssociatedWithCurrentThread(), "DELETE FROM "
 									+ Table.this.getSqlTableName() + " WHERE " + getSqlPrimaryKeyCondition(_records.size()))) {
 						int index = 1;
 						for (T r : _records) {
@@ -6554,6 +8287,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 							r.__createdIntoDatabase = false;
 						}
 						int number = puq.statement.executeUpdate();
+						recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, number);
 						if (number != _records.size())
 							throw new RecordNotFoundDatabaseException("There is " + (_records.size() - number)
 									+ " records which have not been found into the table " + Table.this.getClass().getSimpleName()
@@ -6561,11 +8295,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 					} catch (Exception e) {
 						throw DatabaseException.getDatabaseException(e);
 					}
-					for (T r : _records)
+					for (T r : _records) {
 						getDatabaseWrapper().getConnectionAssociatedWithCurrentThread().addEvent(
 								new TableEvent<>(-1, DatabaseEventType.REMOVE, Table.this,r, null, null), true);
-					if (isLoadedInMemory()) {
-						memoryToRefresh();
+						memoryRecordChanged(r, null, null);
 					}
 
 					return null;
@@ -6640,7 +8373,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
                 boolean onDeleted=false;
 				try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-						_sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), "DELETE FROM " + Table.this.getSqlTableName() + " WHERE " + getSqlPrimaryKeyCondition(_records.size()))) {
+						_sql_connection.getConnectionAssociatedWithCurrentThread(), "DELETE FROM " + Table.this.getSqlTableName() + " WHERE " + getSqlPrimaryKeyCondition(_records.size()))) {
 					int index = 1;
 					for (T r : _records) {
 						for (FieldAccessor fa : primary_keys_fields) {
@@ -6650,6 +8383,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 						r.__createdIntoDatabase = false;
 					}
 					int nb = puq.statement.executeUpdate();
+					recordsProcessed(DatabaseMetricsListener.RecordsOperation.DELETE, nb);
 					if (nb != _records.size())
 						throw new RecordNotFoundDatabaseException("There is " + (_records.size() - nb) + " (about "
 								+ _records.size()
@@ -6688,6 +8422,11 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	}
 
+	final void recordsProcessed(DatabaseMetricsListener.RecordsOperation operation, long recordsNumber) {
+		if (recordsNumber>0)
+			sql_connection.getMetricsListener().recordsProcessed(this, operation, recordsNumber);
+	}
+
 	abstract class Runnable {
 		public Runnable() {
 
@@ -6702,8 +8441,71 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		public abstract boolean setInstance(T _instance, ResultSet _cursor) throws DatabaseException;
 	}
 
+	private volatile String sqlInsertQueryWithAllFields=null;
+	private volatile String sqlInsertQueryWithoutAutoPrimaryKeys=null;
+
+	/**
+	 * @param fields the fields of the record to insert, or null if all fields are given
+	 * @return the insert query
+	 */
+	private String getSqlInsertQuery(Map<String, Object> fields) {
+		int autoPrimaryKeysNumber=0;
+		if (fields!=null) {
+			for (FieldAccessor fa : auto_primary_keys_fields) {
+				if (fields.containsKey(fa.getFieldName()))
+					++autoPrimaryKeysNumber;
+			}
+		}
+		if (fields==null || autoPrimaryKeysNumber==auto_primary_keys_fields.size()) {
+			String res=sqlInsertQueryWithAllFields;
+			if (res==null)
+				sqlInsertQueryWithAllFields=res=getSqlInsertQueryImpl(null);
+			return res;
+		}
+		else if (autoPrimaryKeysNumber==0) {
+			String res=sqlInsertQueryWithoutAutoPrimaryKeys;
+			if (res==null)
+				sqlInsertQueryWithoutAutoPrimaryKeys=res=getSqlInsertQueryImpl(fields);
+			return res;
+		}
+		else
+			return getSqlInsertQueryImpl(fields);
+	}
+
+	private String getSqlInsertQueryImpl(Map<String, Object> fields) {
+		StringBuilder query = new StringBuilder("INSERT INTO " + Table.this.getSqlTableName() + "(");
+		boolean first = true;
+		for (FieldAccessor fa : Table.this.fields) {
+			if (fields==null || !fa.isAutoPrimaryKey() || fields.containsKey(fa.getFieldName())) {
+				for (SqlField sf : fa.getDeclaredSqlFields()) {
+					if (first)
+						first = false;
+					else
+						query.append(", ");
+					query.append(sf.shortField);
+				}
+			}
+		}
+		query.append(") VALUES(");
+		first = true;
+		for (FieldAccessor fa : Table.this.fields) {
+			if (fields==null || !fa.isAutoPrimaryKey() || fields.containsKey(fa.getFieldName())) {
+				for (int i = 0; i < fa.getDeclaredSqlFields().length; i++) {
+					if (first)
+						first = false;
+					else
+						query.append(", ");
+					query.append("?");
+				}
+			}
+		}
+		query.append(")").append(sql_connection.getSqlComma());
+		return query.toString();
+	}
+
 	static class SqlQuery {
 		String query;
+		int fetchSize = 0;
 
 		SqlQuery(String query) {
 			this.query = query;
@@ -6750,18 +8552,40 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 			@Override
 			public Object run(DatabaseWrapper sql_connection) throws DatabaseException {
+				long readRecordsNumber=0;
+				ColumnIndexes.Binding previousBinding=null;
+				boolean bound=false;
 				try (AbstractReadQuery rq = (updatable
 						? new UpdatableReadQuery(
-								sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), query)
-						: new ReadQuery(sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(),
+								sql_connection.getConnectionAssociatedWithCurrentThread(), query)
+						: new ReadQuery(sql_connection.getConnectionAssociatedWithCurrentThread(),
 								query))) {
+					previousBinding=bindColumnIndexes(query, rq.result_set);
+					bound=true;
 					_runnable.init();
+					if (hasLazyForeignKeys()) {
+						//updatable cursors stay on the row of the given record
+						int pageSize=updatable?1:LAZY_FOREIGN_KEYS_PAGE_SIZE;
+						ArrayList<T> page=new ArrayList<>(pageSize);
+						boolean hasNext=true;
+						while (hasNext) {
+							page.clear();
+							hasNext=readPageWithLazyForeignKeys(rq.result_set, pageSize, page);
+							for (T r : page) {
+								++readRecordsNumber;
+								if (!_runnable.setInstance(r, rq.result_set))
+									return null;
+							}
+						}
+						return null;
+					}
 					while (rq.result_set.next()) {
 						T field_instance = getNewRecordInstance(default_constructor_field, true);
 
 						for (FieldAccessor f : fields_accessor) {
 							f.setValue(getSqlTableName(), field_instance, rq.result_set, isLoadedInMemory()?new ArrayList<>():null);
 						}
+						++readRecordsNumber;
 						if (!_runnable.setInstance(field_instance, rq.result_set)) {
 							break;
 						}
@@ -6772,6 +8596,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 					throw new DatabaseException("Impossible to instantiate a DatabaseRecord ", e);
 				} catch (Exception e) {
 					throw DatabaseException.getDatabaseException(e);
+				} finally {
+					if (bound)
+						ColumnIndexes.unbind(previousBinding);
+					recordsProcessed(DatabaseMetricsListener.RecordsOperation.READ, readRecordsNumber);
 				}
 			}
 
@@ -6849,7 +8677,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				@Override
 				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
 					try (ReadQuery rq = new ReadQuery(
-							_sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(), sqlQuery)) {
+							_sql_connection.getConnectionAssociatedWithCurrentThread(), sqlQuery)) {
 						if (rq.result_set.next())
 							return Boolean.TRUE;
 						else
@@ -7059,6 +8887,24 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		return map;
 	}
 
+	private void checkFieldsToAdd(Map<String, Object> _fields) throws FieldDatabaseException {
+		int number = 0;
+		for (FieldAccessor fa : fields) {
+			if (!fa.isAutoPrimaryKey() && !fa.isRandomPrimaryKey()) {
+				Object obj = _fields.get(fa.getFieldName());
+				if (obj == null) {
+					if (fa.isNotNull())
+						throw new FieldDatabaseException("The field " + fa.getFieldName() + " can't be null.");
+				} else
+					number++;
+			}
+		}
+		if (number > _fields.size())
+			throw new FieldDatabaseException("The number (" + fields.size()
+					+ ") of given fields does not correspond to the expected minimum number (" + number
+					+ ") of fields (Null fields, AutoPrimaryKeys and RandomPrimaryKeys are excluded).");
+	}
+
 	@SuppressWarnings("SameParameterValue")
     private T addRecord(final Map<String, Object> _fields, boolean already_in_transaction)
 			throws DatabaseException {
@@ -7086,21 +8932,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			@Override
 			public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
 
-				int number = 0;
-				for (FieldAccessor fa : Table.this.fields) {
-					if (!fa.isAutoPrimaryKey() && !fa.isRandomPrimaryKey()) {
-						Object obj = _fields.get(fa.getFieldName());
-						if (obj == null) {
-							if (fa.isNotNull())
-								throw new FieldDatabaseException("The field " + fa.getFieldName() + " can't be null.");
-						} else
-							number++;
-					}
-				}
-				if (number > _fields.size())
-					throw new FieldDatabaseException("The number (" + fields.size()
-							+ ") of given fields does not correspond to the expected minimum number (" + number
-							+ ") of fields (Null fields, AutoPrimaryKeys and RandomPrimaryKeys are excluded).");
+				checkFieldsToAdd(_fields);
 
 				final Map<String, Object> fields=new HashMap<>(_fields);
 				try {
@@ -7206,37 +9038,11 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 														+ fa.getPointedTable().getClass().getSimpleName());
 								}
 
-								StringBuilder query = new StringBuilder("INSERT INTO " + Table.this.getSqlTableName() + "(");
-								boolean first = true;
-								for (FieldAccessor fa : Table.this.fields) {
-									if (!fa.isAutoPrimaryKey() || fields.containsKey(fa.getFieldName())) {
-										for (SqlField sf : fa.getDeclaredSqlFields()) {
-											if (first)
-												first = false;
-											else
-												query.append(", ");
-											query.append(sf.shortField);
-										}
-									}
-								}
-								query.append(") VALUES(");
-								first = true;
-								for (FieldAccessor fa : Table.this.fields) {
-									if (!fa.isAutoPrimaryKey() || fields.containsKey(fa.getFieldName())) {
-										for (int i = 0; i < fa.getDeclaredSqlFields().length; i++) {
-											if (first)
-												first = false;
-											else
-												query.append(", ");
-											query.append("?");
-										}
-									}
-								}
-								query.append(")").append(sql_connection.getSqlComma());
+								String query = getSqlInsertQuery(fields);
 								boolean generatedKeys=auto_primary_keys_fields.size()>0 && !include_auto_pk;
 								try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-										_db.getConnectionAssociatedWithCurrentThread().getConnection(),
-										query.toString(), generatedKeys)) {
+										_db.getConnectionAssociatedWithCurrentThread(),
+										query, generatedKeys)) {
 
 									int index = 1;
 									int autoPKIndex=1;
@@ -7254,6 +9060,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 										}
 									}
 									puq.statement.executeUpdate();
+									recordsProcessed(DatabaseMetricsListener.RecordsOperation.INSERT, 1);
 
 									if (generatedKeys)
 									{
@@ -7311,8 +9118,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 					if (hasBackupManager || synchronizeIfNecessary)
 						getDatabaseWrapper().getConnectionAssociatedWithCurrentThread().addEvent(
 								new TableEvent<>(-1, DatabaseEventType.ADD, Table.this,null, instance, hostsDestinations), synchronizeIfNecessary);
-					if (isLoadedInMemory())
-						memoryToRefresh();
+					memoryRecordChanged(null, instance, null);
 					return instance;
 
 				} catch (IllegalArgumentException | InstantiationException | InvocationTargetException | IllegalAccessException e) {
@@ -7324,84 +9130,568 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			@Override
 			public void initOrReset() {
 
-			}
+			}
+
+			@Override
+			public Package getConcernedDatabasePackage() {
+				return Table.this.getClass().getPackage();
+			}
+
+		}, true);
+	}
+
+	/**
+	 * Add a collection of records into the database with a collection of maps of
+	 * fields corresponding to these records. The string type in the Map corresponds
+	 * to the name of the field, and the Object type field corresponds the value of
+	 * the field.
+	 * 
+	 * @param _records
+	 *            the list of fields of every record to include into the database.
+	 *            Must be formatted as follow : {"field1", value1,"field2", value2,
+	 *            etc.}
+	 * @return the created records
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if the given primary keys already exists into the table, or if a
+	 *             field which has the unique property exists already into the
+	 *             table.
+	 * @throws FieldDatabaseException
+	 *             if one of the given fields does not exists into the database, or
+	 *             if fields are lacking.
+	 * @throws RecordNotFoundDatabaseException
+	 *             if one of the field is a foreign key and point to a record of
+	 *             another table which does not exist.
+	 */
+
+	public final ArrayList<T> addRecords(Object[]... _records) throws DatabaseException {
+		return addRecords(transformToMapField(_records));
+	}
+
+	/**
+	 * Add a collection of records into the database with a collection of maps of
+	 * fields corresponding to these records. The string type in the Map corresponds
+	 * to the name of the field, and the Object type field corresponds the value of
+	 * the field.
+	 * 
+	 * @param _records
+	 *            the list of fields of every record to include into the database
+	 * @return the created records
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if the given primary keys already exists into the table, or if a
+	 *             field which has the unique property exists already into the
+	 *             table.
+	 * @throws FieldDatabaseException
+	 *             if one of the given fields does not exists into the database, or
+	 *             if fields are lacking.
+	 * @throws RecordNotFoundDatabaseException
+	 *             if one of the field is a foreign key and point to a record of
+	 *             another table which does not exist.
+	 */
+	@SafeVarargs
+	public final ArrayList<T> addRecords(final Map<String, Object>... _records) throws DatabaseException {
+		if (_records == null)
+			throw new NullPointerException("The parameter _records is a null pointer !");
+		return addRecords(DEFAULT_BATCH_INSERT_SIZE, Arrays.asList(_records));
+	}
+
+	/**
+	 * Add a collection of records into the database with a collection of maps of
+	 * fields corresponding to these records. The string type in the Map corresponds
+	 * to the name of the field, and the Object type field corresponds the value of
+	 * the field.
+	 *
+	 * Records are inserted into the same transaction, through JDBC batches of
+	 * <code>batchSize</code> records. Before executing a batch, its foreign keys,
+	 * its random or given primary keys, and its unique fields are checked with one
+	 * query per key, using the IN operator when the key is stored into one
+	 * column. Records whose auto primary keys must be generated by the
+	 * database cannot be inserted through a JDBC batch : they are inserted one by one.
+	 *
+	 * @param batchSize
+	 *            the maximum number of records inserted through a same JDBC batch
+	 * @param _records
+	 *            the list of fields of every record to include into the database
+	 * @return the created records, with the same order than the given collection
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws IllegalArgumentException
+	 *             if <code>batchSize</code> is lower than 1.
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if the given primary keys already exists into the table, or if a
+	 *             field which has the unique property exists already into the
+	 *             table.
+	 * @throws FieldDatabaseException
+	 *             if one of the given fields does not exists into the database, or
+	 *             if fields are lacking.
+	 * @throws RecordNotFoundDatabaseException
+	 *             if one of the field is a foreign key and point to a record of
+	 *             another table which does not exist.
+	 */
+	public final ArrayList<T> addRecords(final int batchSize, final Collection<Map<String, Object>> _records) throws DatabaseException {
+		if (_records == null)
+			throw new NullPointerException("The parameter _records is a null pointer !");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than 0");
+		// synchronized(sql_connection)
+		{
+			try (Lock ignored = new WriteLock(this)) {
+				return addRecordsWithBatch(batchSize, _records);
+			} catch (Exception e) {
+				throw DatabaseException.getDatabaseException(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ArrayList<T> addRecordsWithBatch(final int batchSize, final Collection<Map<String, Object>> _records) throws DatabaseException {
+		return (ArrayList<T>) sql_connection.runTransaction(new Transaction() {
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+				ArrayList<T> res = new ArrayList<>(_records.size());
+				BatchInsert batch = new BatchInsert(Math.min(batchSize, _records.size()));
+				for (Map<String, Object> m : _records) {
+					if (m == null)
+						throw new NullPointerException("One of the given records is a null pointer !");
+					if (batch.add(m)) {
+						if (batch.size() >= batchSize)
+							batch.flush(res);
+					}
+					else {
+						//the auto primary key must be generated by the database
+						batch.flush(res);
+						res.add(addRecord(m, true));
+					}
+				}
+				batch.flush(res);
+				return res;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+
+			@Override
+			public Package getConcernedDatabasePackage() {
+				return Table.this.getClass().getPackage();
+			}
+		}, true);
+	}
+
+	private final class BatchInsert {
+		private final ArrayList<T> instances;
+		private final ArrayList<boolean[]> generatedRandomKeys;
+		private final ArrayList<FieldAccessor> randomPrimaryKeys = new ArrayList<>();
+
+		BatchInsert(int capacity) {
+			instances = new ArrayList<>(capacity);
+			generatedRandomKeys = new ArrayList<>(capacity);
+			for (FieldAccessor fa : auto_random_primary_keys_fields) {
+				if (fa.isRandomPrimaryKey())
+					randomPrimaryKeys.add(fa);
+			}
+		}
+
+		int size() {
+			return instances.size();
+		}
+
+		boolean add(Map<String, Object> _fields) throws DatabaseException {
+			for (FieldAccessor fa : auto_primary_keys_fields) {
+				if (!fa.isManualAutoPrimaryKey() && _fields.get(fa.getFieldName()) == null)
+					return false;
+			}
+			checkFieldsToAdd(_fields);
+			try {
+				T instance = getNewRecordInstance(true);
+				boolean[] generated = new boolean[randomPrimaryKeys.size()];
+				for (FieldAccessor fa : fields) {
+					Object value = _fields.get(fa.getFieldName());
+					if (value == null) {
+						if (fa.isRandomPrimaryKey()) {
+							value = fa.autoGenerateValue(getDatabaseWrapper().getSecureRandomForKeys());
+							generated[randomPrimaryKeys.indexOf(fa)] = true;
+						}
+						else if (fa.isAutoPrimaryKey())
+							value = sql_connection.getNextAutoIncrement(Table.this, fa);
+					}
+					fa.setValue(instance, value);
+				}
+				instances.add(instance);
+				generatedRandomKeys.add(generated);
+				return true;
+			} catch (IllegalArgumentException | InstantiationException | InvocationTargetException | IllegalAccessException e) {
+				throw new DatabaseException("Impossible to add a new field on the table/class " + Table.this.getClass().getSimpleName() + ".",
+						e);
+			}
+		}
+
+		private ArrayList<Map<String, Object>> getKeys(FieldAccessor fa, List<T> instances) throws DatabaseException {
+			ArrayList<Map<String, Object>> res = new ArrayList<>(instances.size());
+			for (T instance : instances)
+				res.add(Collections.singletonMap(fa.getFieldName(), fa.getValue(instance)));
+			return res;
+		}
+
+		/**
+		 * Check the foreign keys of the chunk with one query per foreign key
+		 */
+		private void checkForeignKeys() throws DatabaseException {
+			for (ForeignKeyFieldAccessor fa : foreign_keys_fields) {
+				Table<?> pointedTable = fa.getPointedTable();
+				HashSet<PrimaryKeyValues> keys = new HashSet<>();
+				ArrayList<DatabaseRecord> pointedRecords = new ArrayList<>();
+				for (T instance : instances) {
+					DatabaseRecord val = (DatabaseRecord) fa.getValue(instance);
+					if (val != null && keys.add(pointedTable.getPrimaryKeyValues(val)))
+						pointedRecords.add(val);
+				}
+				if (pointedTable.getRecordsNumberWithKeys(pointedTable.primary_keys_fields, pointedRecords) != pointedRecords.size())
+					throw new RecordNotFoundDatabaseException(
+							"A record, contained as foreign key into the field "
+									+ fa.getFieldName() + " into the table " + Table.this.getClass().getSimpleName()
+									+ " does not exists into the table "
+									+ pointedTable.getClass().getSimpleName() + ". No record have been added.");
+			}
+		}
+
+		/**
+		 * Check the given primary keys and the unique fields of the chunk with one
+		 * query per key. Random primary keys are checked by
+		 * {@link #checkRandomPrimaryKeys()}, and auto primary keys are generated
+		 * by the database sequences.
+		 */
+		private void checkUniqueKeys() throws DatabaseException {
+			if (auto_random_primary_keys_fields.isEmpty())
+				checkUniqueKeys(primary_keys_fields, instances);
+			for (FieldAccessor fa : fields) {
+				if (fa.isUnique() && !fa.isPrimaryKey()) {
+					ArrayList<T> notNull = new ArrayList<>(instances.size());
+					for (T instance : instances) {
+						if (fa.getValue(instance) != null)
+							notNull.add(instance);
+					}
+					checkUniqueKeys(Collections.singletonList(fa), notNull);
+				}
+			}
+		}
+
+		private void checkUniqueKeys(List<FieldAccessor> keyFields, List<T> instances) throws DatabaseException {
+			HashSet<PrimaryKeyValues> keys = new HashSet<>();
+			for (T instance : instances) {
+				if (!keys.add(getKeyValues(keyFields, instance)))
+					throw new ConstraintsNotRespectedDatabaseException(
+							"Several given records into the table " + Table.this.getClass().getSimpleName()
+									+ " have the same unique field or the same primary keys. No record have been added.");
+			}
+			if (getRecordsNumberWithKeys(keyFields, instances) > 0)
+				throw new ConstraintsNotRespectedDatabaseException(
+						"One of the given records into the table " + Table.this.getClass().getSimpleName()
+								+ " have the same unique field or the same primary keys than one of the records stored into the database. No record have been added.");
+		}
+
+		@SuppressWarnings("unchecked")
+		private void checkRandomPrimaryKeys() throws DatabaseException {
+			for (int f = 0; f < randomPrimaryKeys.size(); f++) {
+				FieldAccessor fa = randomPrimaryKeys.get(f);
+				List<FieldAccessor> keyFields = Collections.singletonList(fa);
+				ArrayList<T> given = new ArrayList<>();
+				ArrayList<T> toCheck = new ArrayList<>();
+				for (int i = 0; i < instances.size(); i++) {
+					if (generatedRandomKeys.get(i)[f]) {
+						if (fa.needToCheckUniquenessOfAutoGeneratedValues())
+							toCheck.add(instances.get(i));
+					}
+					else
+						given.add(instances.get(i));
+				}
+				if (given.size() > 0)
+					checkUniqueKeys(keyFields, given);
+				//collisions of generated keys are exceptional : they are searched only if the count query finds some
+				while (toCheck.size() > 0 && getRecordsNumberWithKeys(keyFields, toCheck) > 0) {
+					ArrayList<T> existing = getRecordsWithOneOfFields(getKeys(fa, toCheck).toArray(new Map[0]));
+					ArrayList<T> regenerated = new ArrayList<>();
+					for (T instance : toCheck) {
+						Object value = fa.getValue(instance);
+						for (T r : existing) {
+							if (fa.equals(r, value)) {
+								fa.setValue(instance, fa.autoGenerateValue(getDatabaseWrapper().getSecureRandomForKeys()));
+								regenerated.add(instance);
+								break;
+							}
+						}
+					}
+					toCheck = regenerated;
+				}
+			}
+		}
+
+		void flush(ArrayList<T> res) throws DatabaseException {
+			if (instances.size() == 0)
+				return;
+			checkForeignKeys();
+			checkRandomPrimaryKeys();
+			checkUniqueKeys();
+
+			try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
+					sql_connection.getConnectionAssociatedWithCurrentThread(), getSqlInsertQuery(null))) {
+				for (T instance : instances) {
+					int index = 1;
+					for (FieldAccessor fa : fields) {
+						fa.getValue(instance, puq.statement, index);
+						index += fa.getDeclaredSqlFields().length;
+					}
+					puq.statement.addBatch();
+				}
+				puq.statement.executeBatch();
+				recordsProcessed(DatabaseMetricsListener.RecordsOperation.INSERT, instances.size());
+			} catch (SQLException e) {
+				if (isDuplicateKeyException(e))
+					throw new ConstraintsNotRespectedDatabaseException(
+							"Constraints was not respected when inserting a field into the table "
+									+ Table.this.getClass().getSimpleName() + " v" + Table.this.getDatabaseVersion()
+									+ ". It is possible that the group of primary keys was not unique, or that a unique field was already present into the database.",
+							e);
+				else
+					throw DatabaseException.getDatabaseException(e);
+			} catch (Exception e) {
+				throw DatabaseException.getDatabaseException(e);
+			}
+			DatabaseWrapper.Session session = getDatabaseWrapper().getConnectionAssociatedWithCurrentThread();
+			for (T instance : instances) {
+				session.addEvent(new TableEvent<>(-1, DatabaseEventType.ADD, Table.this, null, instance, null), true);
+				memoryRecordChanged(null, instance, null);
+			}
+			res.addAll(instances);
+			instances.clear();
+			generatedRandomKeys.clear();
+		}
+	}
+
+	/**
+	 * Add records coming from a backup with one batch of inserts. Foreign keys and
+	 * unique fields are not checked record per record : they are checked by the
+	 * database constraints when the batch is executed.
+	 *
+	 * @param records
+	 *            the records to add, with all their fields, including primary keys
+	 * @throws ConstraintsNotRespectedDatabaseException
+	 *             if the database constraints were not respected
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 */
+	final void addUntypedRecordsForRestoration(final List<DatabaseRecord> records) throws DatabaseException {
+		if (records.size() == 0)
+			return;
+		try (Lock ignored = new WriteLock(this)) {
+			//not a default transaction, so that a savepoint is set when this transaction is nested, and a failed batch
+			//is rolled back before the records are restored one by one
+			sql_connection.runTransaction(new Transaction() {
+
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+				}
+
+				@Override
+				public boolean doesWriteData() {
+					return true;
+				}
+
+				@SuppressWarnings("unchecked")
+				@Override
+				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+					DatabaseWrapper.Session session = _sql_connection.getConnectionAssociatedWithCurrentThread();
+					try (PreparedUpdateQuery puq = new PreparedUpdateQuery(session, getSqlInsertQuery(null))) {
+						for (DatabaseRecord instance : records) {
+							int index = 1;
+							for (FieldAccessor fa : fields) {
+								fa.getValue(instance, puq.statement, index);
+								index += fa.getDeclaredSqlFields().length;
+							}
+							puq.statement.addBatch();
+						}
+						puq.statement.executeBatch();
+						recordsProcessed(DatabaseMetricsListener.RecordsOperation.INSERT, records.size());
+					} catch (SQLException e) {
+						if (isDuplicateKeyException(e))
+							throw new ConstraintsNotRespectedDatabaseException(
+									"Constraints was not respected when restoring records into the table "
+											+ Table.this.getClass().getSimpleName() + " v" + Table.this.getDatabaseVersion(),
+									e);
+						else
+							throw DatabaseException.getDatabaseException(e);
+					} catch (Exception e) {
+						throw DatabaseException.getDatabaseException(e);
+					}
+					for (DatabaseRecord instance : records) {
+						instance.__createdIntoDatabase = true;
+						session.addEvent(new TableEvent<>(-1, DatabaseEventType.ADD, Table.this, null, (T) instance, null), true);
+						memoryRecordChanged(null, (T) instance, null);
+					}
+					return null;
+				}
+
+				@Override
+				public void initOrReset() {
+
+				}
+
+				@Override
+				public Package getConcernedDatabasePackage() {
+					return Table.this.getClass().getPackage();
+				}
+			}, false);
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
+	private static final int MAX_KEYS_PER_QUERY = 500;
+
+	/**
+	 * Returns the number of records whose key fields are equal to the key fields
+	 * of one of the given records, with one query per group of
+	 * {@link #MAX_KEYS_PER_QUERY} records. Keys stored into one column are
+	 * searched with the IN operator.
+	 *
+	 * @param keyFields
+	 *            the key fields of this table, like its primary keys or a unique
+	 *            field
+	 * @param records
+	 *            records of this table, whose keys are distinct
+	 * @return the number of found records
+	 * @throws DatabaseException
+	 *             if a problem occurs
+	 */
+	private long getRecordsNumberWithKeys(final List<FieldAccessor> keyFields, final List<? extends DatabaseRecord> records) throws DatabaseException {
+		if (records.isEmpty())
+			return 0;
+		if (isLoadedInMemory()) {
+			long res = 0;
+			HashMap<String, Object> keys = new HashMap<>();
+			for (DatabaseRecord r : records) {
+				for (FieldAccessor fa : keyFields)
+					keys.put(fa.getFieldName(), fa.getValue(r));
+				if (hasRecordsWithAllFields(keys))
+					++res;
+			}
+			return res;
+		}
+		int columns = 0;
+		for (FieldAccessor fa : keyFields)
+			columns += fa.getDeclaredSqlFields().length;
+		long res = 0;
+		for (int start = 0; start < records.size(); start += MAX_KEYS_PER_QUERY) {
+			final List<? extends DatabaseRecord> group = records.subList(start, Math.min(records.size(), start + MAX_KEYS_PER_QUERY));
+			StringBuilder sb = new StringBuilder("SELECT COUNT(*) FROM ").append(getSqlTableName()).append(" WHERE ");
+			if (columns == 1) {
+				sb.append(keyFields.get(0).getDeclaredSqlFields()[0].field).append(" IN (");
+				for (int i = 0; i < group.size(); i++) {
+					if (i > 0)
+						sb.append(", ");
+					sb.append("?");
+				}
+				sb.append(")");
+			} else {
+				for (int i = 0; i < group.size(); i++) {
+					if (i > 0)
+						sb.append(" OR ");
+					sb.append("(");
+					boolean first = true;
+					for (FieldAccessor fa : keyFields) {
+						for (SqlField sf : fa.getDeclaredSqlFields()) {
+							if (first)
+								first = false;
+							else
+								sb.append(" AND ");
+							sb.append(sf.field).append(" = ?");
+						}
+					}
+					sb.append(")");
+				}
+			}
+			sb.append(sql_connection.getSqlComma());
+			final SqlQuery sqlQuery = new SqlQuery(sb.toString()) {
+				@Override
+				void finishPrepareStatement(PreparedStatement st) throws DatabaseException {
+					int index = 1;
+					for (DatabaseRecord r : group) {
+						for (FieldAccessor fa : keyFields) {
+							fa.getValue(r, st, index);
+							index += fa.getDeclaredSqlFields().length;
+						}
+					}
+				}
+			};
+			res += (Long) sql_connection.runTransaction(new Transaction() {
+				@Override
+				public Package getConcernedDatabasePackage() {
+					return Table.this.getClass().getPackage();
+				}
+
+				@Override
+				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+					try (ReadQuery rq = new ReadQuery(_sql_connection.getConnectionAssociatedWithCurrentThread(), sqlQuery)) {
+						if (rq.result_set.next())
+							return rq.result_set.getLong(1);
+						else
+							throw new DatabaseException("Unexpected exception.");
+					} catch (Exception e) {
+						throw DatabaseException.getDatabaseException(e);
+					}
+				}
 
-			@Override
-			public Package getConcernedDatabasePackage() {
-				return Table.this.getClass().getPackage();
-			}
+				@Override
+				public boolean doesWriteData() {
+					return false;
+				}
 
-		}, true);
-	}
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_READ_COMMITTED;
+				}
 
-	/**
-	 * Add a collection of records into the database with a collection of maps of
-	 * fields corresponding to these records. The string type in the Map corresponds
-	 * to the name of the field, and the Object type field corresponds the value of
-	 * the field.
-	 * 
-	 * @param _records
-	 *            the list of fields of every record to include into the database.
-	 *            Must be formatted as follow : {"field1", value1,"field2", value2,
-	 *            etc.}
-	 * @return the created records
-	 * @throws DatabaseException
-	 *             if a problem occurs during the insertion into the Sql database.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws ConstraintsNotRespectedDatabaseException
-	 *             if the given primary keys already exists into the table, or if a
-	 *             field which has the unique property exists already into the
-	 *             table.
-	 * @throws FieldDatabaseException
-	 *             if one of the given fields does not exists into the database, or
-	 *             if fields are lacking.
-	 * @throws RecordNotFoundDatabaseException
-	 *             if one of the field is a foreign key and point to a record of
-	 *             another table which does not exist.
-	 */
+				@Override
+				public void initOrReset() {
 
-	public final ArrayList<T> addRecords(Object[]... _records) throws DatabaseException {
-		return addRecords(transformToMapField(_records));
+				}
+			}, true);
+		}
+		return res;
 	}
 
-	/**
-	 * Add a collection of records into the database with a collection of maps of
-	 * fields corresponding to these records. The string type in the Map corresponds
-	 * to the name of the field, and the Object type field corresponds the value of
-	 * the field.
-	 * 
-	 * @param _records
-	 *            the list of fields of every record to include into the database
-	 * @return the created records
-	 * @throws DatabaseException
-	 *             if a problem occurs during the insertion into the Sql database.
-	 * @throws NullPointerException
-	 *             if parameters are null pointers.
-	 * @throws ConstraintsNotRespectedDatabaseException
-	 *             if the given primary keys already exists into the table, or if a
-	 *             field which has the unique property exists already into the
-	 *             table.
-	 * @throws FieldDatabaseException
-	 *             if one of the given fields does not exists into the database, or
-	 *             if fields are lacking.
-	 * @throws RecordNotFoundDatabaseException
-	 *             if one of the field is a foreign key and point to a record of
-	 *             another table which does not exist.
-	 */
-	@SafeVarargs
-	public final ArrayList<T> addRecords(final Map<String, Object>... _records) throws DatabaseException {
-		// synchronized(sql_connection)
-		{
-			try (Lock ignored = new WriteLock(this)) {
-				ArrayList<T> res = new ArrayList<>();
-				for (Map<String, Object> m : _records)
-					res.add(addRecord(m, false));
-				return res;
-			} catch (Exception e) {
-				throw DatabaseException.getDatabaseException(e);
-			}
+	private boolean isDuplicateKeyException(SQLException e) {
+		//batch exceptions can chain or wrap the exception of the concerned record
+		for (SQLException se = e; se != null; se = se.getNextException()) {
+			if (sql_connection.isDuplicateKeyException(se))
+				return true;
+			if (se.getCause() instanceof SQLException && se.getCause() != se.getNextException()
+					&& sql_connection.isDuplicateKeyException((SQLException) se.getCause()))
+				return true;
 		}
+		return false;
 	}
 
 	/**
@@ -7606,7 +9896,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			}
 
 			try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
-					sql_connection.getConnectionAssociatedWithCurrentThread().getConnection(),
+					sql_connection.getConnectionAssociatedWithCurrentThread(),
 					query.toString())) {
 				int index = 1;
 				for (FieldAccessor fa : fields) {
@@ -7620,6 +9910,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 					index += fa.getDeclaredSqlFields().length;
 				}
 				int nb = puq.statement.executeUpdate();
+				recordsProcessed(DatabaseMetricsListener.RecordsOperation.UPDATE, nb);
 				if (nb > 1)
 					throw new DatabaseIntegrityException(
 							"More than one record have been found with the given primary keys. No record have been altered.");
@@ -7641,8 +9932,13 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				else
 					throw DatabaseException.getDatabaseException(e);
 			}
-			if (!isInSQLTransaction)
-				memoryToRefreshWithCascade();
+			if (!isInSQLTransaction) {
+				//records of other tables loaded into memory can point to the altered record
+				if (isLoadedInMemory() && !pkChanged && !isPointedDirectlyOrIndirectlyByTablesLoadedIntoMemory())
+					memoryRecordChanged(null, _record, _fields);
+				else
+					memoryToRefreshWithCascade();
+			}
 			if (hasBackupManager || synchronizeIfNecessary) {
 
 				if (pkChanged) {
@@ -8012,6 +10308,221 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	}
 
+	/**
+	 * Alter the records which correspond to the given WHERE condition, by setting
+	 * the same values to all of them. When the WHERE condition only references
+	 * fields of this table, only one UPDATE query is executed. Otherwise, records
+	 * are altered one by one, like with
+	 * {@link #updateRecords(AlterRecordFilter, String, Map)}. Note that
+	 * modification of primary keys and unique keys are not permitted with this
+	 * function.
+	 *
+	 * @param modifications
+	 *            the fields to alter with their new values. Must be formatted as
+	 *            follow : {"field1", value1,"field2", value2, etc.}
+	 * @param whereCommand
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the number of altered records
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if one of the given fields to change does not exists into the
+	 *             database, or if one of the given fields to change is a primary
+	 *             key or a unique field.
+	 * @throws RecordNotFoundDatabaseException
+	 *             if one of the given field to alter is a foreign key which points
+	 *             to a non-existing record.
+	 */
+	public final long updateRecords(Map<String, Object> modifications, String whereCommand, Object... parameters)
+			throws DatabaseException {
+		return updateRecords(modifications, whereCommand,
+				whereCommand == null ? new HashMap<>() : convertToMap(parameters));
+	}
+
+	/**
+	 * Alter the records which correspond to the given WHERE condition, by setting
+	 * the same values to all of them. When the WHERE condition only references
+	 * fields of this table, only one UPDATE query is executed. Otherwise, records
+	 * are altered one by one, like with
+	 * {@link #updateRecords(AlterRecordFilter, String, Map)}. Note that
+	 * modification of primary keys and unique keys are not permitted with this
+	 * function.
+	 *
+	 * @param modifications
+	 *            the fields to alter with their new values
+	 * @param whereCommand
+	 *            the SQL WHERE condition that filter the results
+	 * @param parameters
+	 *            the used parameters with the WHERE condition
+	 * @return the number of altered records
+	 * @throws DatabaseException
+	 *             if a problem occurs during the insertion into the Sql database.
+	 * @throws NullPointerException
+	 *             if parameters are null pointers.
+	 * @throws FieldDatabaseException
+	 *             if one of the given fields to change does not exists into the
+	 *             database, or if one of the given fields to change is a primary
+	 *             key or a unique field.
+	 * @throws RecordNotFoundDatabaseException
+	 *             if one of the given field to alter is a foreign key which points
+	 *             to a non-existing record.
+	 */
+	public final long updateRecords(final Map<String, Object> modifications, String whereCommand,
+			final Map<String, Object> parameters) throws DatabaseException {
+		if (modifications == null)
+			throw new NullPointerException("The parameter modifications is a null pointer !");
+		if (modifications.isEmpty())
+			return 0;
+		final HashMap<Integer, Object> sqlParameters = new HashMap<>();
+		final StringBuilder condition = getSqlConditionWithoutJunctions(whereCommand, parameters, sqlParameters);
+		if (condition == null) {
+			final AtomicLong updated = new AtomicLong(0);
+			updateRecords(new AlterRecordFilter<T>() {
+				@Override
+				public void nextRecord(T _record) {
+					update(modifications);
+					updated.incrementAndGet();
+				}
+			}, whereCommand, parameters);
+			return updated.get();
+		}
+		try (Lock ignored = new WriteLock(Table.this)) {
+			final T values = getNewRecordInstance(false);
+			final ArrayList<FieldAccessor> modifiedFields = new ArrayList<>(modifications.size());
+			for (Map.Entry<String, Object> e : modifications.entrySet()) {
+				FieldAccessor found = null;
+				for (FieldAccessor fa : fields) {
+					if (fa.getFieldName().equals(e.getKey())) {
+						found = fa;
+						break;
+					}
+				}
+				if (found == null)
+					throw new FieldDatabaseException(
+							"The given field " + e.getKey() + " is not contained into the table " + getClass().getSimpleName());
+				if (found.isPrimaryKey() || found.isUnique())
+					throw new FieldDatabaseException("The given field " + e.getKey()
+							+ " is a primary key or a unique key, and cannot be altered for several records.");
+				if (found.isForeignKey()) {
+					DatabaseRecord dr = (DatabaseRecord) e.getValue();
+					if (dr != null && !((ForeignKeyFieldAccessor) found).getPointedTable().contains(false, dr))
+						throw new RecordNotFoundDatabaseException("The field " + found.getFieldName()
+								+ " given in parameters point to a DatabaseRecord which is not contained into the database.");
+				}
+				found.setValue(values, e.getValue());
+				modifiedFields.add(found);
+			}
+
+
+			final StringBuilder query = new StringBuilder("UPDATE " + Table.this.getSqlTableName() + " SET ");
+			boolean first = true;
+			for (FieldAccessor fa : modifiedFields) {
+				for (SqlField sf : fa.getDeclaredSqlFields()) {
+					if (first)
+						first = false;
+					else
+						query.append(", ");
+					query.append(sf.shortField).append(" = ?");
+				}
+			}
+			if (condition.length() > 0)
+				query.append(" WHERE ").append(condition);
+
+			return (long) sql_connection.runTransaction(new Transaction() {
+				@Override
+				public Package getConcernedDatabasePackage() {
+					return Table.this.getClass().getPackage();
+				}
+
+				@Override
+				public Object run(DatabaseWrapper _sql_connection) throws DatabaseException {
+					final ArrayList<T> oldRecords;
+					if (hasBackupManager || supportSynchronizationWithOtherPeers()) {
+						oldRecords = new ArrayList<>();
+						getListRecordsFromSqlConnection(new Runnable() {
+							@Override
+							public void init(int _field_count) {
+
+							}
+
+							@Override
+							public boolean setInstance(T _instance, ResultSet _cursor) {
+								oldRecords.add(_instance);
+								return true;
+							}
+						}, condition.length() == 0 ? getSqlGeneralSelect(true) : getSqlGeneralSelect(-1, -1, true, condition.toString(), sqlParameters),
+								TransactionIsolation.TRANSACTION_REPEATABLE_READ);
+						if (oldRecords.isEmpty())
+							return 0L;
+					}
+					else
+						oldRecords = null;
+
+					long updated_records_number;
+					try (PreparedUpdateQuery puq = new PreparedUpdateQuery(
+							_sql_connection.getConnectionAssociatedWithCurrentThread(), query.toString())) {
+						int index = 1;
+						for (FieldAccessor fa : modifiedFields) {
+							fa.getValue(values, puq.statement, index);
+							index += fa.getDeclaredSqlFields().length;
+						}
+						setSqlParameters(getDatabaseWrapper(), puq.statement, index, sqlParameters);
+						updated_records_number = puq.statement.executeUpdate();
+						recordsProcessed(DatabaseMetricsListener.RecordsOperation.UPDATE, updated_records_number);
+					} catch (SQLException e) {
+						if (sql_connection.isDuplicateKeyException(e))
+							throw new ConstraintsNotRespectedDatabaseException(
+									"Constraints was not respected. It possible that the given unique keys does not respect constraints of unity.",
+									e);
+						else
+							throw DatabaseException.getDatabaseException(e);
+					} catch (Exception e) {
+						throw DatabaseException.getDatabaseException(e);
+					}
+					if (oldRecords != null) {
+						if (updated_records_number != oldRecords.size())
+							throw new DatabaseIntegrityException("Unexpected exception");
+						DatabaseWrapper.Session session = getDatabaseWrapper().getConnectionAssociatedWithCurrentThread();
+						try {
+							for (T oldRecord : oldRecords) {
+								T newRecord = copyRecord(oldRecord);
+								for (FieldAccessor fa : modifiedFields)
+									fa.setValue(newRecord, fa.getValue(values));
+								session.addEvent(new TableEvent<>(-1, DatabaseEventType.UPDATE, Table.this, oldRecord, newRecord, null), true);
+							}
+						} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+							throw DatabaseException.getDatabaseException(e);
+						}
+					}
+					if (updated_records_number > 0 && isLoadedInMemory())
+						memoryToRefreshWithCascade();
+					return updated_records_number;
+				}
+
+				@Override
+				public void initOrReset() {
+
+				}
+
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_REPEATABLE_READ;
+				}
+
+				@Override
+				public boolean doesWriteData() {
+					return true;
+				}
+			}, true);
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
 	/*
 	 * protected final BigInteger getRandomPositiveBigIntegerValue(int bits) {
 	 * return new BigInteger(bits, rand); }
@@ -8093,7 +10604,9 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		try {
 			if (isLoadedInMemory()) {
 				ArrayList<T> field_instances = getRecords(-1, -1, false);
-				for (T field_instance : field_instances) {
+				MemoryTableIndexes<T> indexes = getMemoryTableIndexes(field_instances);
+				List<T> candidates = indexes == null ? null : indexes.getRecordsWithPrimaryKeys(keys);
+				for (T field_instance : candidates == null ? field_instances : candidates) {
 					boolean ok = true;
 					for (FieldAccessor f : primary_keys_fields) {
 						Object obj = keys.get(f.getFieldName());
@@ -8271,6 +10784,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		protected WriteLock(Table<?> _current_table, ArrayList<Table<?>> _comes_from_tables,
 				Table<?> _from_comes_original_table) throws DatabaseException {
 			super();
+			if (_current_table.hasToBeLocked() && !_current_table.sql_connection.canLockWrite())
+				throw new ConcurrentTransactionDatabaseException(
+						"Attempting to write on the table " + _current_table.getClass().getSimpleName()
+								+ " into a read only transaction or into a read only query. The read lock cannot be upgraded.");
 			/*synchronized (actual_locks) */{
 
 				try {
@@ -8349,16 +10866,33 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 	}
 
 	private static class ReadLock extends Lock {
+		private final boolean writeLocked;
+
 		public ReadLock(Table<?> _current_table) throws DatabaseException {
-			this(_current_table, new ArrayList<>(20));
+			this(_current_table, false);
+		}
+
+		/**
+		 * @param _current_table the locked table
+		 * @param _callbacks true if user callbacks, that can write data, are called while the lock is held.
+		 * The write lock is then taken when possible, since the read lock cannot be upgraded.
+		 * @throws DatabaseException if a problem occurs
+		 */
+		public ReadLock(Table<?> _current_table, boolean _callbacks) throws DatabaseException {
+			this(_current_table, new ArrayList<>(20), _callbacks);
 		}
 
 		protected ReadLock(Table<?> _current_table, ArrayList<Table<?>> _comes_from_tables) throws DatabaseException {
+			this(_current_table, _comes_from_tables, false);
+		}
+
+		private ReadLock(Table<?> _current_table, ArrayList<Table<?>> _comes_from_tables, boolean _callbacks) throws DatabaseException {
 			super();
+			writeLocked = _callbacks && _current_table.sql_connection.canLockWrite();
 			/*synchronized (actual_locks) */{
 
 				try {
-					_current_table.lockIfNecessary(false);
+					_current_table.lockIfNecessary(writeLocked);
 
 					initialize(_current_table);
 					if (!isValid())
@@ -8385,7 +10919,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 						e2.printStackTrace();
 						throw new IllegalAccessError("");
 					}
-					actual_table.unlockIfNecessary(false);
+					actual_table.unlockIfNecessary(writeLocked);
 					throw e;
 				}
 			}
@@ -8422,7 +10956,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
                         }
 					}
 				} finally {
-					actual_table.unlockIfNecessary(false);
+					actual_table.unlockIfNecessary(writeLocked);
 				}
 			}
 		}
@@ -8430,9 +10964,35 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 
 	static abstract class Query implements AutoCloseable {
 		protected final Connection sql_connection;
+		/**
+		 * The session whose prepared statements cache is used, or null
+		 */
+		protected final DatabaseWrapper.Session session;
 
 		public Query(Connection _sql_connection) {
 			sql_connection = _sql_connection;
+			session = null;
+		}
+
+		public Query(DatabaseWrapper.Session _session) {
+			sql_connection = _session.getConnection();
+			session = _session;
+		}
+
+		protected PreparedStatement prepareStatement(String query, int _result_set_type, int _result_set_concurrency, boolean returnGeneratedKeys) throws SQLException {
+			if (session != null)
+				return session.prepareStatement(query, _result_set_type, _result_set_concurrency, returnGeneratedKeys);
+			else if (returnGeneratedKeys)
+				return sql_connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+			else
+				return sql_connection.prepareStatement(query, _result_set_type, _result_set_concurrency);
+		}
+
+		protected void closeStatement(PreparedStatement statement) throws SQLException {
+			if (session != null)
+				session.releasePreparedStatement(statement);
+			else
+				statement.close();
 		}
 
 	}
@@ -8444,10 +11004,27 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		protected AbstractReadQuery(Connection _sql_connection, SqlQuery query, int _result_set_type,
 									int _result_set_concurrency) throws SQLException, DatabaseException {
 			super(_sql_connection);
+			executeQuery(query, _result_set_type, _result_set_concurrency);
+		}
+
+		protected AbstractReadQuery(DatabaseWrapper.Session _session, SqlQuery query, int _result_set_type,
+									int _result_set_concurrency) throws SQLException, DatabaseException {
+			super(_session);
+			executeQuery(query, _result_set_type, _result_set_concurrency);
+		}
 
-			statement = sql_connection.prepareStatement(query.getQuery(), _result_set_type, _result_set_concurrency);
-			query.finishPrepareStatement(statement);
-			result_set = statement.executeQuery();
+		private void executeQuery(SqlQuery query, int _result_set_type, int _result_set_concurrency) throws SQLException, DatabaseException {
+			statement = prepareStatement(query.getQuery(), _result_set_type, _result_set_concurrency, false);
+			try {
+				if (query.fetchSize > 0 || session != null)
+					statement.setFetchSize(query.fetchSize);
+				query.finishPrepareStatement(statement);
+				result_set = statement.executeQuery();
+			} catch (SQLException | DatabaseException e) {
+				closeStatement(statement);
+				statement = null;
+				throw e;
+			}
 		}
 
 		protected AbstractReadQuery(Connection _sql_connection, ResultSet resultSet) {
@@ -8461,7 +11038,7 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			result_set.close();
 			result_set = null;
 			if (statement != null) {
-				statement.close();
+				closeStatement(statement);
 				statement = null;
 			}
 		}
@@ -8472,6 +11049,10 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 			super(_sql_connection, query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		}
 
+		public ReadQuery(DatabaseWrapper.Session _session, SqlQuery query) throws SQLException, DatabaseException {
+			super(_session, query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		}
+
 		public ReadQuery(Connection _sql_connection, ResultSet resultSet) {
 			super(_sql_connection, resultSet);
 		}
@@ -8500,6 +11081,11 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 				throws SQLException, DatabaseException {
 			super(_sql_connection, query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
 		}
+
+		public UpdatableReadQuery(DatabaseWrapper.Session _session, SqlQuery query)
+				throws SQLException, DatabaseException {
+			super(_session, query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+		}
 	}
 
 
@@ -8511,16 +11097,21 @@ public abstract class Table<T extends DatabaseRecord> implements Comparable<Tabl
 		}
 		public PreparedUpdateQuery(Connection _sql_connection, String query, boolean returnGeneratedKeys) throws SQLException {
 			super(_sql_connection);
-			if (returnGeneratedKeys)
-				statement = sql_connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-			else
-				statement = sql_connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
-					ResultSet.CONCUR_UPDATABLE);
+			statement = prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, returnGeneratedKeys);
+		}
+
+		public PreparedUpdateQuery(DatabaseWrapper.Session _session, String query) throws SQLException {
+			this(_session, query, false);
+		}
+
+		public PreparedUpdateQuery(DatabaseWrapper.Session _session, String query, boolean returnGeneratedKeys) throws SQLException {
+			super(_session);
+			statement = prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, returnGeneratedKeys);
 		}
 
 		@Override
 		public void close() throws Exception {
-			statement.close();
+			closeStatement(statement);
 			statement = null;
 		}
 	}
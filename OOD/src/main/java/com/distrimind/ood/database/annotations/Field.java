@@ -71,7 +71,9 @@ public @interface Field {
 	/**
 	 * 
 	 * @return true if the field has to be indexed into the database in order to
-	 *         increase the database parse when this field is concerned.
+	 *         increase the database parse when this field is concerned. A foreign
+	 *         key which is part of a composed primary key can also be indexed, in
+	 *         order to accelerate the queries that filter only on it.
 	 */
 	boolean index() default false;
 
@@ -47,11 +47,26 @@ import java.lang.annotation.Target;
  * foreign key. The type of this field must inherit the class
  * {@link com.distrimind.ood.database.DatabaseRecord}.
  *
+ * By default, the pointed record is loaded with the pointing record, through a
+ * junction, and recursively for the foreign keys of the pointed record. When
+ * {@link #lazyLoading()} is set, only the foreign key columns are read, and the
+ * pointed records are loaded after each page of results, with one query per
+ * pointed table.
+ *
  * @author Jason Mahdjoub
- * @version 1.0
+ * @version 1.1
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ForeignKey {
-
+	/**
+	 * Tells if the pointed record must be loaded separately from the pointing
+	 * record. The pointed records are then not joined into queries that do not
+	 * reference them, and are loaded by batches : one query per pointed table and
+	 * per page of pointing records.
+	 *
+	 * @return true if the pointed record is lazily loaded
+	 * @since OOD 3.1.0
+	 */
+	boolean lazyLoading() default false;
 }
@@ -0,0 +1,132 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.database.fieldaccessors;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Indexes of the columns of a result set, resolved once per query shape.
+ *
+ * Indexes are bound to the result set which is read by the current thread, so that field accessors do not search
+ * their columns for each row.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+public final class ColumnIndexes {
+	private static final ThreadLocal<Binding> currentBinding=new ThreadLocal<>();
+
+	private final HashMap<String, Integer> indexes;
+
+	private ColumnIndexes(HashMap<String, Integer> indexes) {
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Resolve the indexes of the columns of the given result set
+	 * @param resultSet the result set
+	 * @param useColumnLabels true if columns are identified with their labels, false if they are identified with their names
+	 * @return the column indexes
+	 * @throws SQLException if a database access error occurs
+	 */
+	public static ColumnIndexes getColumnIndexes(ResultSet resultSet, boolean useColumnLabels) throws SQLException {
+		ResultSetMetaData rsmd = resultSet.getMetaData();
+		int columnCount=rsmd.getColumnCount();
+		HashMap<String, Integer> indexes=new HashMap<>(columnCount*2);
+		for (int i = 1; i <= columnCount; i++) {
+			String name=useColumnLabels?rsmd.getColumnLabel(i):rsmd.getColumnName(i);
+			//like findColumn, keep the first column which has the given name
+			indexes.putIfAbsent(getNormalizedColumnName(name), i);
+		}
+		return new ColumnIndexes(indexes);
+	}
+
+	static String getNormalizedColumnName(String name)
+	{
+		return name.toUpperCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Bind these indexes to the given result set for the current thread
+	 * @param resultSet the result set read by the current thread
+	 * @return the previous binding, that must be restored with {@link #unbind(Binding)}
+	 */
+	public Binding bind(ResultSet resultSet) {
+		Binding previous=currentBinding.get();
+		currentBinding.set(new Binding(resultSet, this));
+		return previous;
+	}
+
+	/**
+	 * Restore the binding of the current thread
+	 * @param previous the binding returned by {@link #bind(ResultSet)}
+	 */
+	public static void unbind(Binding previous) {
+		if (previous==null)
+			currentBinding.remove();
+		else
+			currentBinding.set(previous);
+	}
+
+	/**
+	 * @param resultSet the result set
+	 * @param normalizedColumnName the upper case column name
+	 * @return the index of the column, or -1 if the given result set is not bound to the current thread or if the column was not resolved
+	 */
+	static int getColumnIndex(ResultSet resultSet, String normalizedColumnName) {
+		Binding b=currentBinding.get();
+		if (b==null || b.resultSet!=resultSet)
+			return -1;
+		Integer res=b.columnIndexes.indexes.get(normalizedColumnName);
+		return res==null?-1:res;
+	}
+
+	public static final class Binding {
+		private final ResultSet resultSet;
+		private final ColumnIndexes columnIndexes;
+
+		private Binding(ResultSet resultSet, ColumnIndexes columnIndexes) {
+			this.resultSet = resultSet;
+			this.columnIndexes = columnIndexes;
+		}
+	}
+}
@@ -106,7 +106,7 @@ public class DateFieldAccessor extends FieldAccessor {
 	public void setValue(String sqlTableName, Object _class_instance, ResultSet _result_set, ArrayList<DatabaseRecord> _pointing_records)
 			throws DatabaseException {
 		try {
-			Timestamp res = _result_set.getTimestamp(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
+			Timestamp res = _result_set.getTimestamp(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
 			if (res == null && isNotNull())
 				throw new DatabaseIntegrityException("Unexpected exception.");
 			if (res==null)
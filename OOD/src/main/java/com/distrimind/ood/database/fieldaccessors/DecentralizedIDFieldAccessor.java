@@ -177,8 +177,8 @@ public class DecentralizedIDFieldAccessor extends FieldAccessor {
 	public void setValue(String sqlTableName, Object _class_instance, ResultSet _result_set, ArrayList<DatabaseRecord> _pointing_records)
 			throws DatabaseException {
 		try {
-			Long ts = _result_set==null?null:(Long)_result_set.getLong(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
-			Long wsseq = _result_set==null?null:(Long)_result_set.getLong(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[1])));
+			Long ts = _result_set==null?null:(Long)_result_set.getLong(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
+			Long wsseq = _result_set==null?null:(Long)_result_set.getLong(getColumnIndex(_result_set, sqlTableName, sql_fields[1]));
 
 			if (ts==null)
 				field.set(_class_instance, null);
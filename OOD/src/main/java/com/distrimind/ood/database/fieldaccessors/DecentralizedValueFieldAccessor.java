@@ -250,9 +250,9 @@ public class DecentralizedValueFieldAccessor extends FieldAccessor {
 		try {
 			byte[] res;
 			if (isVarBinary) {
-				res = _result_set.getBytes(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
+				res = _result_set.getBytes(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
 			} else {
-				res = getBytes(_result_set.getBigDecimal(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0]))));
+				res = getBytes(_result_set.getBigDecimal(getColumnIndex(_result_set, sqlTableName, sql_fields[0])));
 			}
 			if (res == null && isNotNull())
 				throw new DatabaseIntegrityException("Unexpected exception. Null value was found into a not null field "
@@ -170,7 +170,7 @@ public class DoubleNumberFieldAccessor extends FieldAccessor {
 
 
 	private Double getDouble(String sqlTableName, ResultSet _result_set) throws SQLException {
-		int colIndex= getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0]));
+		int colIndex= getColumnIndex(_result_set, sqlTableName, sql_fields[0]);
 		Object res = _result_set.getObject(colIndex);
 		if (res==null)
 			return null;
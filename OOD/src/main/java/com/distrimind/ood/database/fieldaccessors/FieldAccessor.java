@@ -60,6 +60,7 @@ import java.security.PrivilegedExceptionAction;
 import java.sql.*;
 import java.util.Date;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 
@@ -91,6 +92,9 @@ public abstract class FieldAccessor {
 	protected final boolean useBlob;
 	private final boolean manual_auto_primary_key;
 	protected final boolean supportQuotes;
+	private final boolean supportFullSqlFieldName;
+	private final ConcurrentHashMap<String, ColumnNames> columnNames=new ConcurrentHashMap<>();
+	private static final int MAX_CACHED_COLUMN_NAMES=16;
 
 	private static final Class<?> databaseEventsRecordTableClass;
 
@@ -112,6 +116,7 @@ public abstract class FieldAccessor {
 		if (compatible_classes == null)
 			throw new NullPointerException("compatible_classes");
 		this.supportQuotes=DatabaseWrapperAccessor.supportsItalicQuotesWithTableAndFieldNames(_sql_connection);
+		this.supportFullSqlFieldName=DatabaseWrapperAccessor.supportFullSqlFieldName(_sql_connection);
 		this.compatible_classes = compatible_classes;
 		sql_connection = _sql_connection;
 		field = _field;
@@ -210,9 +215,10 @@ public abstract class FieldAccessor {
 			start_value = -1;
 			bits_number = -1;
 		}
+		//a foreign key is indexed only if it is a part of a composed primary key
 		if (field.isAnnotationPresent(com.distrimind.ood.database.annotations.Field.class)
-				&& field.getAnnotation(com.distrimind.ood.database.annotations.Field.class).index() && !primary_key
-				&& !foreign_key) {
+				&& field.getAnnotation(com.distrimind.ood.database.annotations.Field.class).index()
+				&& (primary_key == foreign_key) && (!primary_key || severalPrimaryKeysPresentIntoTable)) {
 			hasToCreateIndex = true;
 			descendantIndex = field.getAnnotation(com.distrimind.ood.database.annotations.Field.class)
 					.descendingIndex();
@@ -237,6 +243,7 @@ public abstract class FieldAccessor {
 			sf.field=sf.field.replace(oldInternalTableName, internalTableName);
 			sf.fieldWithoutQuote =sf.fieldWithoutQuote.replace(oldInternalTableName, internalTableName);
 		}
+		columnNames.clear();
 	}
 
 
@@ -824,9 +831,59 @@ public abstract class FieldAccessor {
 			throw new DatabaseException("Unexpected exception.");
 	}
 
+	/**
+	 * Get the index of the column which corresponds to the given sql field, without computing its name for each row
+	 * @param _result_set the result set
+	 * @param sqlTableName the name or the alias of the table into the query
+	 * @param sqlField one of the declared sql fields of this accessor
+	 * @return the column index
+	 * @throws SQLException if the column was not found
+	 */
+	protected final int getColumnIndex(ResultSet _result_set, String sqlTableName, SqlField sqlField) throws SQLException {
+		ColumnNames cn=getColumnNames(sqlTableName);
+		SqlField[] sfs=cn.sqlFields;
+		for (int i=0;i<sfs.length;i++) {
+			if (sfs[i]==sqlField) {
+				int index=ColumnIndexes.getColumnIndex(_result_set, cn.normalizedNames[i]);
+				if (index>0)
+					return index;
+				return getColumnIndex(_result_set, cn.names[i]);
+			}
+		}
+		return getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sqlField));
+	}
+
+	private ColumnNames getColumnNames(String sqlTableName) {
+		ColumnNames res=columnNames.get(sqlTableName);
+		if (res==null) {
+			SqlField[] sfs=getDeclaredSqlFields();
+			String[] names=new String[sfs.length];
+			for (int i=0;i<sfs.length;i++)
+				names[i]=getSqlFieldName(sqlTableName, sfs[i]);
+			res=new ColumnNames(sfs, names);
+			if (columnNames.size()<MAX_CACHED_COLUMN_NAMES)
+				columnNames.put(sqlTableName, res);
+		}
+		return res;
+	}
+
+	private static final class ColumnNames {
+		private final SqlField[] sqlFields;
+		private final String[] names;
+		private final String[] normalizedNames;
+
+		ColumnNames(SqlField[] sqlFields, String[] names) {
+			this.sqlFields = sqlFields;
+			this.names = names;
+			this.normalizedNames = new String[names.length];
+			for (int i=0;i<names.length;i++)
+				normalizedNames[i] = ColumnIndexes.getNormalizedColumnName(names[i]);
+		}
+	}
+
 	protected int getColumnIndex(ResultSet _result_set, String fieldName) throws SQLException {
 
-		if (DatabaseWrapperAccessor.supportFullSqlFieldName(sql_connection)) {
+		if (supportFullSqlFieldName) {
 			return _result_set.findColumn(fieldName);
 		}
 		else {
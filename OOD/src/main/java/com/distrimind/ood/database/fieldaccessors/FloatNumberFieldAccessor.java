@@ -166,7 +166,7 @@ public class FloatNumberFieldAccessor extends FieldAccessor {
 	public void setValue(String sqlTableName, Object _class_instance, ResultSet _result_set, ArrayList<DatabaseRecord> _pointing_records)
 			throws DatabaseException {
 		try {
-			Object val = _result_set.getObject(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
+			Object val = _result_set.getObject(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
 			if (val == null && isNotNull())
 				throw new DatabaseIntegrityException("Unexpected exception");
 			if (val instanceof Double)
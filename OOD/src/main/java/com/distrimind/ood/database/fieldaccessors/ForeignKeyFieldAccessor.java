@@ -38,6 +38,7 @@ knowledge of the CeCILL-C license and that you accept its terms.
 package com.distrimind.ood.database.fieldaccessors;
 
 import com.distrimind.ood.database.*;
+import com.distrimind.ood.database.annotations.ForeignKey;
 import com.distrimind.ood.database.exceptions.DatabaseException;
 import com.distrimind.ood.database.exceptions.FieldDatabaseException;
 import com.distrimind.util.io.RandomInputStream;
@@ -58,7 +59,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * 
  * @author Jason Mahdjoub
- * @version 1.3
+ * @version 1.4
  * @since OOD 1.0
  */
 public class ForeignKeyFieldAccessor extends FieldAccessor {
@@ -68,6 +69,8 @@ public class ForeignKeyFieldAccessor extends FieldAccessor {
 	protected Table<? extends DatabaseRecord> pointed_table = null;
 	private int tableVersion;
 	private final String tableAliasName;
+	private volatile String[] lastPointedTableAlias=null;
+	private final boolean lazyLoading;
 	private static final AtomicInteger aliasNumber=new AtomicInteger(0);
 
 	private static Method get_new_record_instance_method;
@@ -93,11 +96,22 @@ public class ForeignKeyFieldAccessor extends FieldAccessor {
 		return tableAliasName;
 	}
 
+	/**
+	 * @return true if the pointed record is not joined to the pointing record, and
+	 *         is loaded separately
+	 * @see ForeignKey#lazyLoading()
+	 */
+	public boolean isLazyLoading() {
+		return lazyLoading;
+	}
+
 	protected ForeignKeyFieldAccessor(Table<?> table, DatabaseWrapper _sql_connection,
 									  Field _field, String parentFieldName, boolean severalPrimaryKeysPresentIntoTable) throws DatabaseException {
 		super(_sql_connection, _field, parentFieldName, getCompatibleClasses(_field), table, severalPrimaryKeysPresentIntoTable);
 		this.tableAliasName=Table.TABLE_ALIAS_NAME_PREFIX+aliasNumber.incrementAndGet()+"__";
 		this.tableVersion=table.getDatabaseVersion();
+		ForeignKey fk=_field.getAnnotation(ForeignKey.class);
+		this.lazyLoading=fk!=null && fk.lazyLoading();
 		if (!DatabaseRecord.class.isAssignableFrom(_field.getType()))
 			throw new DatabaseException("The field " + _field.getName() + " of the class "
 					+ _field.getDeclaringClass().getName() + " is not a DatabaseRecord.");
@@ -278,13 +292,18 @@ public class ForeignKeyFieldAccessor extends FieldAccessor {
 			//ArrayList<DatabaseRecord> list = _pointing_records == null ? new ArrayList<>() : _pointing_records;
 			if (_pointing_records!=null)
 				_pointing_records.add((DatabaseRecord) _class_instance);
+			if (lazyLoading) {
+				//the pointed record is loaded later, thanks to the values returned by getLazyReference
+				field.set(_class_instance, null);
+				return;
+			}
 
 			Table<?> t = getPointedTable();
 			boolean allNull=true;
 			SqlField[] sfs = getDeclaredSqlFields();
 			SqlFieldInstance[] sfis = new SqlFieldInstance[sfs.length];
 			for (int i = 0; i < sfs.length; i++) {
-				Object o=_result_set.getObject(getSqlFieldName(sqlTableName, sfs[i]));
+				Object o=_result_set.getObject(getColumnIndex(_result_set, sqlTableName, sfs[i]));
 				allNull&=(o==null);
 				sfis[i] = new SqlFieldInstance(supportQuotes, sfs[i], o);
 			}
@@ -329,8 +348,9 @@ public class ForeignKeyFieldAccessor extends FieldAccessor {
 				DatabaseRecord dr = (DatabaseRecord) get_new_record_instance_method.invoke(t,
 					t.getDefaultRecordConstructor(), true);
 
+				String pointedTableAlias=getPointedTableAlias(sqlTableName);
 				for (FieldAccessor fa : t.getFieldAccessors())
-					fa.setValue(sqlTableName+tableAliasName, dr, _result_set, _pointing_records);
+					fa.setValue(pointedTableAlias, dr, _result_set, _pointing_records);
 				field.set(_class_instance, dr);
 				if (_pointing_records!=null)
 					_pointing_records.add(dr);
@@ -342,6 +362,44 @@ public class ForeignKeyFieldAccessor extends FieldAccessor {
 
 	}
 
+	/**
+	 * The alias of the pointed table is computed once for the rows of a query, and not for each row
+	 */
+	private String getPointedTableAlias(String sqlTableName) {
+		String[] a=lastPointedTableAlias;
+		if (a==null || !a[0].equals(sqlTableName))
+			lastPointedTableAlias=a=new String[]{sqlTableName, sqlTableName+tableAliasName};
+		return a[1];
+	}
+
+	/**
+	 * Read the values of the foreign key columns, without reading the pointed
+	 * record. The returned values are ordered like the primary keys of the
+	 * pointed table.
+	 *
+	 * @param sqlTableName
+	 *            the alias of the pointing table into the query
+	 * @param _result_set
+	 *            the result set positioned on the pointing record
+	 * @return the foreign key values, or null if the foreign key is null
+	 * @throws DatabaseException
+	 *             if a database exception occurs
+	 */
+	public Object[] getLazyReference(String sqlTableName, ResultSet _result_set) throws DatabaseException {
+		try {
+			SqlField[] sfs = getDeclaredSqlFields();
+			Object[] res = new Object[sfs.length];
+			boolean allNull = true;
+			for (int i = 0; i < sfs.length; i++) {
+				res[i] = _result_set.getObject(getColumnIndex(_result_set, sqlTableName, sfs[i]));
+				allNull &= (res[i] == null);
+			}
+			return allNull ? null : res;
+		} catch (Exception e) {
+			throw DatabaseException.getDatabaseException(e);
+		}
+	}
+
 	@Override
 	public void getValue(Object _class_instance, PreparedStatement _prepared_statement, int _field_start)
 			throws DatabaseException {
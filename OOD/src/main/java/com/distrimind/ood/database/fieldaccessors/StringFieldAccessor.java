@@ -170,12 +170,12 @@ public class StringFieldAccessor extends FieldAccessor {
 			throws DatabaseException {
 		try {
 			if (sql_fields[0].type.startsWith("VARCHAR")) {
-				String res = _result_set.getString(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
+				String res = _result_set.getString(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
 				if (res == null && isNotNull())
 					throw new DatabaseIntegrityException("Unexpected exception.");
 				field.set(_class_instance, res);
 			} else {
-				Clob c = _result_set.getClob(getColumnIndex(_result_set, getSqlFieldName(sqlTableName, sql_fields[0])));
+				Clob c = _result_set.getClob(getColumnIndex(_result_set, sqlTableName, sql_fields[0]));
 				String res = c.getSubString(0, (int) c.length());
 				if (res == null && isNotNull())
 					throw new DatabaseIntegrityException("Unexpected exception.");
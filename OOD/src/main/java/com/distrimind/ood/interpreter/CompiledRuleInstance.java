@@ -0,0 +1,973 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.ood.interpreter;
+
+import com.distrimind.ood.database.DatabaseRecord;
+import com.distrimind.ood.database.MemoryTableIndexes;
+import com.distrimind.ood.database.Table;
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.ood.database.exceptions.DatabaseSyntaxException;
+import com.distrimind.ood.database.fieldaccessors.ComposedFieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.FieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.ForeignKeyFieldAccessor;
+import com.distrimind.ood.database.fieldaccessors.StringFieldAccessor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Query compiled for a given table and for given parameters, in order to test a great number of records without
+ * parsing the query tree for each record.
+ *
+ * The query tree is converted one time into a tree of conditions. Field accessors and paths through foreign keys
+ * are resolved, parameters and constants are converted, and like patterns are compiled during this step.
+ * Query parts that are not recognized by the compilation step are evaluated through {@link RuleInstance}.
+ *
+ * Equality and range conditions on indexed fields can be resolved through {@link MemoryTableIndexes}, in order
+ * to test only a subset of the records of a table loaded into memory.
+ *
+ * A compiled query is not thread safe.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.1
+ * @since OOD 3.1.0
+ * @see RuleInstance#compile(Table, Map)
+ */
+public final class CompiledRuleInstance<T extends DatabaseRecord> {
+	private final Condition<T> condition;
+
+	CompiledRuleInstance(Table<T> table, Map<String, Object> parameters, RuleInstance rule) {
+		this.condition = compileCondition(table, parameters, rule);
+	}
+
+	/**
+	 * @param record the record to test
+	 * @return true if the given record is concerned by the compiled query
+	 * @throws DatabaseException if a problem occurs
+	 */
+	public boolean isConcernedBy(T record) throws DatabaseException {
+		return condition.isConcernedBy(record);
+	}
+
+	/**
+	 * Use the given indexes to reduce the number of records to test. The returned records must still be tested with
+	 * {@link #isConcernedBy(DatabaseRecord)}.
+	 * @param indexes the indexes of the records snapshot
+	 * @return the positions of the records that can be concerned by this query into the records snapshot, in ascending
+	 * order, or null if all records must be tested
+	 * @throws DatabaseException if a problem occurs
+	 */
+	public int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+		return condition.getCandidatePositions(indexes);
+	}
+
+	private static int[] intersect(int[] p1, int[] p2) {
+		int[] res = new int[Math.min(p1.length, p2.length)];
+		int i = 0, j = 0, k = 0;
+		while (i < p1.length && j < p2.length) {
+			if (p1[i] < p2[j])
+				++i;
+			else if (p1[i] > p2[j])
+				++j;
+			else {
+				res[k++] = p1[i];
+				++i;
+				++j;
+			}
+		}
+		return Arrays.copyOf(res, k);
+	}
+
+	private static int[] union(int[] p1, int[] p2) {
+		int[] res = new int[p1.length + p2.length];
+		int i = 0, j = 0, k = 0;
+		while (i < p1.length || j < p2.length) {
+			if (j == p2.length || (i < p1.length && p1[i] < p2[j]))
+				res[k++] = p1[i++];
+			else if (i == p1.length || p1[i] > p2[j])
+				res[k++] = p2[j++];
+			else {
+				res[k++] = p1[i++];
+				++j;
+			}
+		}
+		return Arrays.copyOf(res, k);
+	}
+
+	private static <T extends DatabaseRecord> Condition<T> compileCondition(Table<T> table, Map<String, Object> parameters, RuleInstance rule) {
+		ArrayList<QueryPart> parts = rule.getParts();
+		switch (rule.getRule()) {
+			case QUERY:
+				if (parts.size() == 1)
+					return compileCondition(table, parameters, (RuleInstance) parts.get(0));
+				else if (parts.size() == 3) {
+					Symbol comp = (Symbol) ((RuleInstance) parts.get(1)).getParts().get(0);
+					Condition<T> c1 = compileCondition(table, parameters, (RuleInstance) parts.get(0));
+					Condition<T> c2 = compileCondition(table, parameters, (RuleInstance) parts.get(2));
+					if (comp.getType() == SymbolType.ANDCONDITION)
+						return new AndCondition<>(c1, c2);
+					else if (comp.getType() == SymbolType.ORCONDITION)
+						return new OrCondition<>(c1, c2);
+				}
+				break;
+			case COMPARE:
+				if (parts.size() == 3) {
+					RuleInstance ri2 = (RuleInstance) parts.get(1);
+					if (ri2.getRule() == Rule.QUERY)
+						return compileCondition(table, parameters, ri2);
+					RuleInstance ri1 = (RuleInstance) parts.get(0);
+					RuleInstance ri3 = (RuleInstance) parts.get(2);
+					SymbolType comp = ((Symbol) ri2.getParts().get(0)).getType();
+					switch (comp) {
+						case EQUALOPERATOR:
+						case NOTEQUALOPERATOR:
+							return new EqualsCondition<>(table, rule, getEquallableOperand(table, parameters, ri1),
+									getEquallableOperand(table, parameters, ri3), comp == SymbolType.NOTEQUALOPERATOR);
+						case LIKE:
+						case NOTLIKE:
+							return new LikeCondition<>(table, rule, getStringableOperand(table, parameters, ri1),
+									getStringableOperand(table, parameters, ri3), comp == SymbolType.NOTLIKE);
+						case LOWEROPERATOR:
+						case LOWEROREQUALOPERATOR:
+						case GREATEROPERATOR:
+						case GREATEROREQUALOPERATOR:
+							return new CompareCondition<>(table, rule, getComparableOperand(table, parameters, ri1),
+									getComparableOperand(table, parameters, ri3), comp);
+						default:
+							break;
+					}
+				}
+				break;
+			case NULLTEST:
+				if (parts.size() == 3) {
+					RuleInstance ri1 = (RuleInstance) parts.get(0);
+					RuleInstance ri2 = (RuleInstance) parts.get(1);
+					RuleInstance ri3 = (RuleInstance) parts.get(2);
+					SymbolType comp = ((Symbol) ri2.getParts().get(0)).getType();
+					Symbol s1 = getSingleSymbol(ri1);
+					if (ri3.getRule() == Rule.NULL && s1 != null && s1.getType() == SymbolType.IDENTIFIER
+							&& (comp == SymbolType.IS || comp == SymbolType.ISNOT))
+						return new EqualsCondition<>(table, rule, getEquallableOperand(table, parameters, ri1),
+								new ConstantOperand<>(null), comp == SymbolType.ISNOT);
+				}
+				break;
+			default:
+				break;
+		}
+		return new GenericCondition<>(table, parameters, rule);
+	}
+
+	private static Symbol getSingleSymbol(RuleInstance ri) {
+		while (ri.getParts().size() == 1) {
+			QueryPart qp = ri.getParts().get(0);
+			if (qp instanceof Symbol)
+				return ri.getRule() == Rule.TERME ? (Symbol) qp : null;
+			ri = (RuleInstance) qp;
+		}
+		return null;
+	}
+
+	/**
+	 * @param ri the rule
+	 * @return true if the value of the given rule depends on the tested record
+	 */
+	private static boolean dependsOnRecord(RuleInstance ri) {
+		for (QueryPart qp : ri.getParts()) {
+			if (qp instanceof Symbol) {
+				if (((Symbol) qp).getType() == SymbolType.IDENTIFIER)
+					return true;
+			} else if (dependsOnRecord((RuleInstance) qp))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove the parentheses around a term. The equallable value of a term between parentheses is the equallable
+	 * value of the term.
+	 */
+	private static RuleInstance removeParentheses(RuleInstance ri) {
+		RuleInstance r = ri;
+		while (r.getParts().size() == 1 && r.getParts().get(0) instanceof RuleInstance)
+			r = (RuleInstance) r.getParts().get(0);
+		if (r.getRule() == Rule.TERME && r.getParts().size() == 3)
+			return removeParentheses((RuleInstance) r.getParts().get(1));
+		return ri;
+	}
+
+	private static <T extends DatabaseRecord> Operand<T> getEquallableOperand(Table<T> table, Map<String, Object> parameters, RuleInstance ri) {
+		ri = removeParentheses(ri);
+		Symbol s = getSingleSymbol(ri);
+		if (s == null) {
+			if (dependsOnRecord(ri))
+				return new GenericOperand<>(table, parameters, ri);
+			try {
+				//the expression is evaluated one time
+				return new ConstantOperand<>(ri.getEquallable(table, parameters, null));
+			} catch (DatabaseException e) {
+				return new FailingOperand<>(e);
+			}
+		}
+		try {
+			if (s.getType() == SymbolType.IDENTIFIER) {
+				FieldPath path = FieldPath.getFieldPath(table, s.getSymbol());
+				if (path == null)
+					throw new DatabaseSyntaxException(
+							"Cannot find field " + s.getSymbol() + " into table " + table.getClass().getSimpleName());
+				return new FieldOperand<>(path);
+			} else
+				return new ConstantOperand<>(ri.getEquallable(table, parameters, null));
+		} catch (DatabaseException e) {
+			return new FailingOperand<>(e);
+		}
+	}
+
+	private static <T extends DatabaseRecord> Operand<T> getStringableOperand(Table<T> table, Map<String, Object> parameters, RuleInstance ri) {
+		Symbol s = getSingleSymbol(ri);
+		if (s == null) {
+			if (dependsOnRecord(ri))
+				return new GenericOperand<>(table, parameters, ri);
+			try {
+				return new ConstantOperand<>(ri.getStringable(table, parameters, null));
+			} catch (DatabaseException e) {
+				return new FailingOperand<>(e);
+			}
+		}
+		try {
+			if (s.getType() == SymbolType.IDENTIFIER) {
+				FieldPath path = FieldPath.getFieldPath(table, s.getSymbol());
+				if (path == null)
+					throw new DatabaseSyntaxException(
+							"Cannot find field " + s.getSymbol() + " into table " + table.getClass().getSimpleName());
+				if (!StringFieldAccessor.class.isAssignableFrom(path.fieldAccessor.getClass()))
+					throw new DatabaseSyntaxException(
+							"The field " + s.getSymbol() + " into table " + table.getClass().getSimpleName() + " is not a string !");
+				return new FieldOperand<>(path);
+			} else
+				return new ConstantOperand<>(ri.getStringable(table, parameters, null));
+		} catch (DatabaseException e) {
+			return new FailingOperand<>(e);
+		}
+	}
+
+	private static <T extends DatabaseRecord> Operand<T> getComparableOperand(Table<T> table, Map<String, Object> parameters, RuleInstance ri) {
+		Symbol s = getSingleSymbol(ri);
+		if (s == null) {
+			if (dependsOnRecord(ri))
+				return new GenericOperand<>(table, parameters, ri);
+			try {
+				return new ConstantOperand<>(ri.getComparable(table, parameters, null));
+			} catch (DatabaseException e) {
+				return new FailingOperand<>(e);
+			}
+		}
+		try {
+			if (s.getType() == SymbolType.IDENTIFIER) {
+				FieldPath path = FieldPath.getFieldPath(table, s.getSymbol());
+				if (path == null)
+					throw new DatabaseSyntaxException(
+							"Cannot find field " + s.getSymbol() + " into table " + table.getClass().getSimpleName());
+				if (!path.fieldAccessor.isComparable())
+					throw new DatabaseSyntaxException(
+							"The " + s.getSymbol() + " into table " + table.getClass().getSimpleName() + " is not comparable !");
+				return new FieldOperand<>(path);
+			} else
+				return new ConstantOperand<>(ri.getComparable(table, parameters, null));
+		} catch (DatabaseException e) {
+			return new FailingOperand<>(e);
+		}
+	}
+
+	/**
+	 * Path from a record to a field, through foreign keys and composed fields.
+	 */
+	static final class FieldPath {
+		private final FieldAccessor[] intermediateFieldAccessors;
+		final FieldAccessor fieldAccessor;
+
+		private FieldPath(List<FieldAccessor> intermediateFieldAccessors, FieldAccessor fieldAccessor) {
+			this.intermediateFieldAccessors = intermediateFieldAccessors.toArray(new FieldAccessor[0]);
+			this.fieldAccessor = fieldAccessor;
+		}
+
+		/**
+		 * @param record the record
+		 * @return the instance that contains the field, the record itself if the field is declared into the record,
+		 * or null if one of the intermediate foreign keys is null
+		 * @throws DatabaseException if a problem occurs
+		 */
+		Object getInstance(Object record) throws DatabaseException {
+			for (FieldAccessor fa : intermediateFieldAccessors) {
+				if (record == null)
+					return null;
+				record = fa.getValue(record);
+			}
+			return record;
+		}
+
+		/**
+		 * @param record the record
+		 * @return the field value, or null if one of the intermediate foreign keys is null
+		 * @throws DatabaseException if a problem occurs
+		 */
+		Object getValue(Object record) throws DatabaseException {
+			Object instance = getInstance(record);
+			return instance == null ? null : fieldAccessor.getValue(instance);
+		}
+
+		/**
+		 * @return true if the field is declared into the record
+		 */
+		boolean isDirect() {
+			return intermediateFieldAccessors.length == 0;
+		}
+
+		static FieldPath getFieldPath(Table<?> table, String fieldName) {
+			return getFieldPath(table, fieldName, new ArrayList<>());
+		}
+
+		//follow the same path than Table.getFieldAccessorAndValue
+		private static FieldPath getFieldPath(Table<?> table, String fieldName, ArrayList<FieldAccessor> intermediateFieldAccessors) {
+			int indexEnd = 0;
+			int indexStart = 0;
+			StringBuilder prevPrefix = new StringBuilder();
+			List<FieldAccessor> fields = table.getFieldAccessors();
+			while (fields != null) {
+				while (indexEnd < fieldName.length()) {
+					if (fieldName.charAt(indexEnd) == '.')
+						break;
+					++indexEnd;
+				}
+				if (indexStart >= indexEnd)
+					return null;
+
+				String prefix = prevPrefix + fieldName.substring(indexStart, indexEnd);
+
+				for (FieldAccessor f : fields) {
+					if (f.getFieldName().equals(prefix)) {
+						if (indexEnd == fieldName.length()) {
+							return new FieldPath(intermediateFieldAccessors, f);
+						} else if (f instanceof ForeignKeyFieldAccessor) {
+							intermediateFieldAccessors.add(f);
+							return getFieldPath(((ForeignKeyFieldAccessor) f).getPointedTable(), fieldName.substring(indexEnd + 1), intermediateFieldAccessors);
+						} else if (f instanceof ComposedFieldAccessor) {
+							intermediateFieldAccessors.add(f);
+							fields = ((ComposedFieldAccessor) f).getFieldAccessors();
+							indexStart = indexEnd += 1;
+							prevPrefix.append(prefix).append(".");
+							break;
+						}
+					}
+				}
+				if (indexStart != indexEnd)
+					fields = null;
+			}
+			return null;
+		}
+	}
+
+	static abstract class Operand<T extends DatabaseRecord> {
+		abstract Object getEquallable(T record) throws DatabaseException;
+
+		abstract Object getStringable(T record) throws DatabaseException;
+
+		abstract Object getComparable(T record) throws DatabaseException;
+	}
+
+	static final class ConstantOperand<T extends DatabaseRecord> extends Operand<T> {
+		final Object value;
+
+		ConstantOperand(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		Object getEquallable(T record) {
+			return value;
+		}
+
+		@Override
+		Object getStringable(T record) {
+			return value;
+		}
+
+		@Override
+		Object getComparable(T record) {
+			return value;
+		}
+	}
+
+	static final class FailingOperand<T extends DatabaseRecord> extends Operand<T> {
+		private final DatabaseException exception;
+
+		FailingOperand(DatabaseException exception) {
+			this.exception = exception;
+		}
+
+		@Override
+		Object getEquallable(T record) throws DatabaseException {
+			throw exception;
+		}
+
+		@Override
+		Object getStringable(T record) throws DatabaseException {
+			throw exception;
+		}
+
+		@Override
+		Object getComparable(T record) throws DatabaseException {
+			throw exception;
+		}
+	}
+
+	static final class GenericOperand<T extends DatabaseRecord> extends Operand<T> {
+		private final Table<T> table;
+		private final Map<String, Object> parameters;
+		private final RuleInstance rule;
+
+		GenericOperand(Table<T> table, Map<String, Object> parameters, RuleInstance rule) {
+			this.table = table;
+			this.parameters = parameters;
+			this.rule = rule;
+		}
+
+		@Override
+		Object getEquallable(T record) throws DatabaseException {
+			return rule.getEquallable(table, parameters, record);
+		}
+
+		@Override
+		Object getStringable(T record) throws DatabaseException {
+			return rule.getStringable(table, parameters, record);
+		}
+
+		@Override
+		Object getComparable(T record) throws DatabaseException {
+			return rule.getComparable(table, parameters, record);
+		}
+	}
+
+	static final class FieldOperand<T extends DatabaseRecord> extends Operand<T> {
+		final FieldPath path;
+
+		FieldOperand(FieldPath path) {
+			this.path = path;
+		}
+
+		@Override
+		Object getEquallable(T record) throws DatabaseException {
+			return new Table.FieldAccessorValue(path.fieldAccessor, path.getInstance(record));
+		}
+
+		@Override
+		Object getStringable(T record) throws DatabaseException {
+			return new Table.FieldAccessorValue(path.fieldAccessor, path.getInstance(record));
+		}
+
+		@Override
+		Object getComparable(T record) throws DatabaseException {
+			return path.getValue(record);
+		}
+	}
+
+	static abstract class Condition<T extends DatabaseRecord> {
+		abstract boolean isConcernedBy(T record) throws DatabaseException;
+
+		int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+			return null;
+		}
+	}
+
+	static final class GenericCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Table<T> table;
+		private final Map<String, Object> parameters;
+		private final RuleInstance rule;
+
+		GenericCondition(Table<T> table, Map<String, Object> parameters, RuleInstance rule) {
+			this.table = table;
+			this.parameters = parameters;
+			this.rule = rule;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			return rule.isConcernedBy(table, parameters, record);
+		}
+	}
+
+	static final class AndCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Condition<T> c1, c2;
+
+		AndCondition(Condition<T> c1, Condition<T> c2) {
+			this.c1 = c1;
+			this.c2 = c2;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			return c1.isConcernedBy(record) && c2.isConcernedBy(record);
+		}
+
+		@Override
+		int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+			int[] p1 = c1.getCandidatePositions(indexes);
+			if (p1 != null && p1.length == 0)
+				return p1;
+			int[] p2 = c2.getCandidatePositions(indexes);
+			if (p1 == null)
+				return p2;
+			if (p2 == null)
+				return p1;
+			return intersect(p1, p2);
+		}
+	}
+
+	static final class OrCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Condition<T> c1, c2;
+
+		OrCondition(Condition<T> c1, Condition<T> c2) {
+			this.c1 = c1;
+			this.c2 = c2;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			return c1.isConcernedBy(record) || c2.isConcernedBy(record);
+		}
+
+		@Override
+		int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+			int[] p1 = c1.getCandidatePositions(indexes);
+			if (p1 == null)
+				return null;
+			int[] p2 = c2.getCandidatePositions(indexes);
+			if (p2 == null)
+				return null;
+			return union(p1, p2);
+		}
+	}
+
+	/**
+	 * Integer constant that can be compared with byte, short, int and long values without instantiating a
+	 * BigDecimal for each record.
+	 */
+	private static final class LongConstant {
+		private final long value;
+		private final boolean equallable;
+
+		private LongConstant(long value, boolean equallable) {
+			this.value = value;
+			this.equallable = equallable;
+		}
+
+		static LongConstant getLongConstant(Object o) {
+			if (!(o instanceof BigDecimal))
+				return null;
+			BigDecimal bd = (BigDecimal) o;
+			try {
+				//BigDecimal.equals takes into account the scale
+				return new LongConstant(bd.stripTrailingZeros().longValueExact(), bd.scale() == 0);
+			} catch (ArithmeticException e) {
+				return null;
+			}
+		}
+
+		static boolean isIntegerValue(Object o) {
+			return o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+		}
+	}
+
+	/**
+	 * Decimal constant that can be compared with float or double values without instantiating a BigDecimal for
+	 * each record. Like {@link RuleInstance}, values are compared through their decimal representation. The
+	 * representation of the nearest float or double of the constant is computed one time : any other value has
+	 * a different representation, which is ordered like the value.
+	 */
+	private static final class FloatingPointConstant {
+		private final double value;
+		private final boolean floatPrecision;
+		//the representation of the nearest value is equal to the constant, including its scale
+		private final boolean equallable;
+		//comparison between the representation of the nearest value and the constant
+		private final int comparison;
+
+		private FloatingPointConstant(double value, boolean floatPrecision, boolean equallable, int comparison) {
+			this.value = value;
+			this.floatPrecision = floatPrecision;
+			this.equallable = equallable;
+			this.comparison = comparison;
+		}
+
+		static FloatingPointConstant getFloatingPointConstant(Object o, FieldAccessor fa) {
+			if (!(o instanceof BigDecimal))
+				return null;
+			BigDecimal bd = (BigDecimal) o;
+			Class<?> c = fa.getFieldClassType();
+			double value;
+			String representation;
+			boolean floatPrecision;
+			if (c == double.class || c == Double.class) {
+				value = bd.doubleValue();
+				if (Double.isInfinite(value))
+					return null;
+				representation = Double.toString(value);
+				floatPrecision = false;
+			} else if (c == float.class || c == Float.class) {
+				float f = bd.floatValue();
+				if (Float.isInfinite(f))
+					return null;
+				value = f;
+				representation = Float.toString(f);
+				floatPrecision = true;
+			} else
+				return null;
+			BigDecimal nearest = new BigDecimal(representation);
+			return new FloatingPointConstant(value, floatPrecision, nearest.equals(bd), nearest.compareTo(bd));
+		}
+
+		/**
+		 * @param v the value of a field
+		 * @return true if the given value can be compared with this constant. NaN and infinite values have no
+		 * decimal representation.
+		 */
+		boolean isCompatibleValue(Object v) {
+			if (floatPrecision)
+				return v instanceof Float && !((Float) v).isNaN() && !((Float) v).isInfinite();
+			else
+				return v instanceof Double && !((Double) v).isNaN() && !((Double) v).isInfinite();
+		}
+
+		boolean isEqualTo(double v) {
+			return equallable && v == value;
+		}
+
+		/**
+		 * @param v the value of a field
+		 * @return the comparison between the given value and this constant
+		 */
+		int compareTo(double v) {
+			if (v < value)
+				return -1;
+			else if (v > value)
+				return 1;
+			else
+				return comparison;
+		}
+	}
+
+	static final class EqualsCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Table<T> table;
+		private final RuleInstance rule;
+		private final Operand<T> o1, o2;
+		private final boolean not;
+		private final FieldPath path;
+		//operand compared with the field, when it is not a constant
+		private final Operand<T> other;
+		private final boolean fieldFirst;
+		private final Object constant;
+		private final LongConstant longConstant;
+		private final FloatingPointConstant floatingPointConstant;
+		private final boolean alwaysFalse;
+
+		EqualsCondition(Table<T> table, RuleInstance rule, Operand<T> o1, Operand<T> o2, boolean not) {
+			this.table = table;
+			this.rule = rule;
+			this.o1 = o1;
+			this.o2 = o2;
+			this.not = not;
+			FieldOperand<T> field = null;
+			Operand<T> other = null;
+			boolean alwaysFalse = false;
+			if (o1 instanceof FieldOperand) {
+				field = (FieldOperand<T>) o1;
+				other = o2;
+				this.fieldFirst = true;
+			} else if (o2 instanceof FieldOperand) {
+				field = (FieldOperand<T>) o2;
+				other = o1;
+				this.fieldFirst = false;
+				//a null value compared with a field is never equal, like in RuleInstance.equals
+				alwaysFalse = other instanceof ConstantOperand && ((ConstantOperand<T>) other).value == null;
+			} else
+				this.fieldFirst = true;
+			this.alwaysFalse = alwaysFalse;
+			if (field != null) {
+				this.path = field.path;
+				if (other instanceof ConstantOperand) {
+					Object c = stripQuotes(path, ((ConstantOperand<T>) other).value);
+					this.other = null;
+					this.constant = c;
+					this.longConstant = path.fieldAccessor.isComparable() ? LongConstant.getLongConstant(c) : null;
+					this.floatingPointConstant = path.fieldAccessor.isComparable() ? FloatingPointConstant.getFloatingPointConstant(c, path.fieldAccessor) : null;
+				} else {
+					this.other = other;
+					this.constant = null;
+					this.longConstant = null;
+					this.floatingPointConstant = null;
+				}
+			} else {
+				this.path = null;
+				this.other = null;
+				this.constant = null;
+				this.longConstant = null;
+				this.floatingPointConstant = null;
+			}
+		}
+
+		private static Object stripQuotes(FieldPath path, Object value) {
+			if (CharSequence.class.isAssignableFrom(path.fieldAccessor.getFieldClassType()) && value instanceof String) {
+				String s = (String) value;
+				if (s.startsWith("\"") && s.endsWith("\""))
+					return s.substring(1, s.length() - 1);
+			}
+			return value;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			return not != equals(record);
+		}
+
+		@Override
+		int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+			if (not || path == null || other != null || !path.isDirect())
+				return null;
+			if (alwaysFalse)
+				return new int[0];
+			return indexes.getPositionsWithEqualValue(path.fieldAccessor, constant);
+		}
+
+		private boolean equals(T record) throws DatabaseException {
+			if (path == null)
+				return rule.equals(table, record, o1.getEquallable(record), o2.getEquallable(record));
+			if (alwaysFalse)
+				return false;
+			if (other == null)
+				return equals(path.getInstance(record), constant, longConstant, floatingPointConstant);
+			Object value = other.getEquallable(record);
+			if (value == null && !fieldFirst)
+				return false;
+			return equals(path.getInstance(record), stripQuotes(path, value), null, null);
+		}
+
+		//same tests than RuleInstance.equals, without instantiating the field accessor value
+		private boolean equals(Object instance, Object value, LongConstant longConstant, FloatingPointConstant floatingPointConstant) throws DatabaseException {
+			try {
+				if (instance == null)
+					return value == null;
+				FieldAccessor fa = path.fieldAccessor;
+				if (CharSequence.class.isAssignableFrom(fa.getFieldClassType())) {
+					return fa.equals(instance, value);
+				} else if (fa.isComparable() && value instanceof BigDecimal) {
+					Object v = fa.getValue(instance);
+					if (v == null)
+						return false;
+					else if (longConstant != null && LongConstant.isIntegerValue(v))
+						return longConstant.equallable && longConstant.value == ((Number) v).longValue();
+					else if (floatingPointConstant != null && floatingPointConstant.isCompatibleValue(v))
+						return floatingPointConstant.isEqualTo(((Number) v).doubleValue());
+					else if (v instanceof BigDecimal)
+						//the decimal representation of a BigDecimal gives the same BigDecimal
+						return value.equals(v);
+					else
+						return value.equals(new BigDecimal(v.toString()));
+				} else {
+					return fa.equals(instance, value);
+				}
+			} catch (Exception e) {
+				throw new DatabaseSyntaxException("Unexpected exception ! ", e);
+			}
+		}
+	}
+
+	static final class CompareCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Table<T> table;
+		private final RuleInstance rule;
+		private final Operand<T> o1, o2;
+		private final SymbolType comp;
+		private final LongConstant longConstant1, longConstant2;
+		private final FloatingPointConstant floatingPointConstant1, floatingPointConstant2;
+
+		CompareCondition(Table<T> table, RuleInstance rule, Operand<T> o1, Operand<T> o2, SymbolType comp) {
+			this.table = table;
+			this.rule = rule;
+			//numbers are converted one time, instead of for each record like RuleInstance.compareTo
+			this.o1 = o2 instanceof FieldOperand ? toDecimalOperand(o1) : o1;
+			this.o2 = o1 instanceof FieldOperand ? toDecimalOperand(o2) : o2;
+			this.comp = comp;
+			if (this.o1 instanceof ConstantOperand && this.o2 instanceof FieldOperand) {
+				Object c = ((ConstantOperand<T>) this.o1).value;
+				this.longConstant1 = LongConstant.getLongConstant(c);
+				this.floatingPointConstant1 = FloatingPointConstant.getFloatingPointConstant(c, ((FieldOperand<T>) this.o2).path.fieldAccessor);
+			} else {
+				this.longConstant1 = null;
+				this.floatingPointConstant1 = null;
+			}
+			if (this.o2 instanceof ConstantOperand && this.o1 instanceof FieldOperand) {
+				Object c = ((ConstantOperand<T>) this.o2).value;
+				this.longConstant2 = LongConstant.getLongConstant(c);
+				this.floatingPointConstant2 = FloatingPointConstant.getFloatingPointConstant(c, ((FieldOperand<T>) this.o1).path.fieldAccessor);
+			} else {
+				this.longConstant2 = null;
+				this.floatingPointConstant2 = null;
+			}
+		}
+
+		private static <T extends DatabaseRecord> Operand<T> toDecimalOperand(Operand<T> o) {
+			if (o instanceof ConstantOperand) {
+				Object c = ((ConstantOperand<T>) o).value;
+				if (c instanceof Number && !(c instanceof BigDecimal)) {
+					try {
+						return new ConstantOperand<>(new BigDecimal(c.toString()));
+					} catch (NumberFormatException e) {
+						return o;
+					}
+				}
+			}
+			return o;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			Object v1 = o1.getComparable(record);
+			Object v2 = o2.getComparable(record);
+			int c;
+			if (longConstant2 != null && LongConstant.isIntegerValue(v1))
+				c = Long.compare(((Number) v1).longValue(), longConstant2.value);
+			else if (longConstant1 != null && LongConstant.isIntegerValue(v2))
+				c = Long.compare(longConstant1.value, ((Number) v2).longValue());
+			else if (floatingPointConstant2 != null && floatingPointConstant2.isCompatibleValue(v1))
+				c = floatingPointConstant2.compareTo(((Number) v1).doubleValue());
+			else if (floatingPointConstant1 != null && floatingPointConstant1.isCompatibleValue(v2))
+				c = -floatingPointConstant1.compareTo(((Number) v2).doubleValue());
+			else if (v1 instanceof BigDecimal && v2 instanceof BigDecimal)
+				c = ((BigDecimal) v1).compareTo((BigDecimal) v2);
+			else
+				c = rule.compareTo(table, record, v1, v2);
+			switch (comp) {
+				case LOWEROPERATOR:
+					return c < 0;
+				case GREATEROPERATOR:
+					return c > 0;
+				case LOWEROREQUALOPERATOR:
+					return c <= 0;
+				case GREATEROREQUALOPERATOR:
+					return c >= 0;
+				default:
+					throw new IllegalAccessError();
+			}
+		}
+
+		@Override
+		int[] getCandidatePositions(MemoryTableIndexes<T> indexes) throws DatabaseException {
+			FieldOperand<T> field;
+			Object constant;
+			boolean fieldFirst;
+			if (o1 instanceof FieldOperand && o2 instanceof ConstantOperand) {
+				field = (FieldOperand<T>) o1;
+				constant = ((ConstantOperand<T>) o2).value;
+				fieldFirst = true;
+			} else if (o1 instanceof ConstantOperand && o2 instanceof FieldOperand) {
+				field = (FieldOperand<T>) o2;
+				constant = ((ConstantOperand<T>) o1).value;
+				fieldFirst = false;
+			} else
+				return null;
+			if (!field.path.isDirect() || !(constant instanceof Number))
+				return null;
+			BigDecimal value;
+			try {
+				//same conversion than RuleInstance.compareTo
+				value = constant instanceof BigDecimal ? (BigDecimal) constant : new BigDecimal(constant.toString());
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			boolean lower = (comp == SymbolType.LOWEROPERATOR || comp == SymbolType.LOWEROREQUALOPERATOR) == fieldFirst;
+			boolean inclusive = comp == SymbolType.LOWEROREQUALOPERATOR || comp == SymbolType.GREATEROREQUALOPERATOR;
+			if (lower)
+				return indexes.getPositionsLowerThan(field.path.fieldAccessor, value, inclusive);
+			else
+				return indexes.getPositionsGreaterThan(field.path.fieldAccessor, value, inclusive);
+		}
+	}
+
+	static final class LikeCondition<T extends DatabaseRecord> extends Condition<T> {
+		private final Table<T> table;
+		private final RuleInstance rule;
+		private final Operand<T> o1, o2;
+		private final boolean not;
+		private final Matcher matcher;
+
+		LikeCondition(Table<T> table, RuleInstance rule, Operand<T> o1, Operand<T> o2, boolean not) {
+			this.table = table;
+			this.rule = rule;
+			this.o1 = o1;
+			this.o2 = o2;
+			this.not = not;
+			if (o1 instanceof FieldOperand && o2 instanceof ConstantOperand && ((ConstantOperand<T>) o2).value instanceof String) {
+				String s = (String) ((ConstantOperand<T>) o2).value;
+				if (s.startsWith("\"") && s.endsWith("\""))
+					s = s.substring(1, s.length() - 1);
+				//the matcher is reused for each record
+				this.matcher = SymbolType.convertLikeStringToPattern(s).matcher("");
+			}
+			else
+				this.matcher = null;
+		}
+
+		@Override
+		boolean isConcernedBy(T record) throws DatabaseException {
+			return not != like(record);
+		}
+
+		private boolean like(T record) throws DatabaseException {
+			if (matcher == null)
+				return rule.like(table, record, o1.getStringable(record), o2.getStringable(record));
+			FieldPath path = ((FieldOperand<T>) o1).path;
+			try {
+				String s = (String) path.getValue(record);
+				return s != null && matcher.reset(s).matches();
+			} catch (Exception e) {
+				throw new DatabaseSyntaxException("Unexpected exception ! ", e);
+			}
+		}
+	}
+}
@@ -41,6 +41,10 @@ import com.distrimind.ood.database.exceptions.UnrecognizedSymbolException;
 import com.distrimind.util.Reference;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 
@@ -63,11 +67,94 @@ public class Interpreter {
 	 * AtomicInteger(firstParameterIndex)).toString(); }
 	 */
 
+	public static final int DEFAULT_RULE_INSTANCES_CACHE_SIZE=1024;
+
+	private static int ruleInstancesCacheMaxSize=DEFAULT_RULE_INSTANCES_CACHE_SIZE;
+	private static final LinkedHashMap<String, RuleInstance> ruleInstancesCache=new LinkedHashMap<String, RuleInstance>(64, 0.75f, true) {
+		private static final long serialVersionUID = 6431287713064452347L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, RuleInstance> eldest) {
+			return size()>ruleInstancesCacheMaxSize;
+		}
+	};
+	private static final AtomicLong ruleInstancesCacheHits=new AtomicLong(0);
+	private static final AtomicLong ruleInstancesCacheMisses=new AtomicLong(0);
+
+	/**
+	 * Returns the query corresponding to the given where command. Parsed queries are kept into a LRU cache, so that
+	 * the same where command is parsed only one time. Returned instances are shared and must not be modified.
+	 * @param whereCommand the where command
+	 * @return the parsed query
+	 * @throws DatabaseSyntaxException if the where command is not valid
+	 */
 	public static RuleInstance getRuleInstance(String whereCommand) throws DatabaseSyntaxException {
 		if (whereCommand == null)
 			throw new NullPointerException("whereCommand");
+		RuleInstance res;
+		synchronized (ruleInstancesCache) {
+			res = ruleInstancesCache.get(whereCommand);
+		}
+		if (res != null) {
+			ruleInstancesCacheHits.incrementAndGet();
+			return res;
+		}
+		ruleInstancesCacheMisses.incrementAndGet();
 		ArrayList<QueryPart> qp = getRules(lexicalAnalyse(whereCommand));
-		return getQuery(whereCommand, qp);
+		res = getQuery(whereCommand, qp);
+		synchronized (ruleInstancesCache) {
+			if (ruleInstancesCacheMaxSize > 0)
+				ruleInstancesCache.put(whereCommand, res);
+		}
+		return res;
+	}
+
+	/**
+	 * @return the number of where commands that were found into the cache of parsed queries
+	 */
+	public static long getRuleInstancesCacheHits() {
+		return ruleInstancesCacheHits.get();
+	}
+
+	/**
+	 * @return the number of where commands that had to be parsed
+	 */
+	public static long getRuleInstancesCacheMisses() {
+		return ruleInstancesCacheMisses.get();
+	}
+
+	public static int getRuleInstancesCacheMaxSize() {
+		synchronized (ruleInstancesCache) {
+			return ruleInstancesCacheMaxSize;
+		}
+	}
+
+	/**
+	 * Set the maximum number of parsed queries kept into the cache. The least recently used queries are removed first.
+	 * @param maxSize the maximum number of parsed queries. 0 disables the cache.
+	 */
+	public static void setRuleInstancesCacheMaxSize(int maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException();
+		synchronized (ruleInstancesCache) {
+			ruleInstancesCacheMaxSize = maxSize;
+			Iterator<String> it = ruleInstancesCache.keySet().iterator();
+			while (ruleInstancesCache.size() > maxSize) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Remove all parsed queries from the cache, and reset cache counters
+	 */
+	public static void clearRuleInstancesCache() {
+		synchronized (ruleInstancesCache) {
+			ruleInstancesCache.clear();
+			ruleInstancesCacheHits.set(0);
+			ruleInstancesCacheMisses.set(0);
+		}
 	}
 	/*
 	 * public static <T extends DatabaseRecord> boolean isConcernedBy(String
@@ -105,6 +105,10 @@ public class RuleInstance implements QueryPart {
 		return "<" + rule.name() + ">";
 	}
 
+	ArrayList<QueryPart> getParts() {
+		return parts;
+	}
+
 	public Rule getRule() {
 		return rule;
 	}
@@ -349,16 +353,20 @@ public class RuleInstance implements QueryPart {
 
 	public <T extends DatabaseRecord> int compareTo(Table<T> table, T record, Object o1, Object o2)
 			throws DatabaseSyntaxException {
+		if (((o1==null || !Table.FieldAccessorValue.class.isAssignableFrom(o1.getClass()))
+				&& (o2!=null && Table.FieldAccessorValue.class.isAssignableFrom(o2.getClass())))
+				|| ((o1==null || !BigDecimal.class.isAssignableFrom(o1.getClass()))
+						&& (o2!=null && BigDecimal.class.isAssignableFrom(o2.getClass()))
+						&& (o1==null || !Table.FieldAccessorValue.class.isAssignableFrom(o1.getClass())))) {
+			//the operands are swapped, so the result must be inverted
+			return -compareToOrdered(table, record, o2, o1);
+		}
+		return compareToOrdered(table, record, o1, o2);
+	}
+
+	private <T extends DatabaseRecord> int compareToOrdered(Table<T> table, T record, Object o1, Object o2)
+			throws DatabaseSyntaxException {
 		try {
-			if (((o1==null || !Table.FieldAccessorValue.class.isAssignableFrom(o1.getClass()))
-					&& (o2!=null && Table.FieldAccessorValue.class.isAssignableFrom(o2.getClass())))
-					|| ((o1==null || !BigDecimal.class.isAssignableFrom(o1.getClass()))
-							&& (o2!=null && BigDecimal.class.isAssignableFrom(o2.getClass()))
-							&& (o1==null || !Table.FieldAccessorValue.class.isAssignableFrom(o1.getClass())))) {
-				Object o = o1;
-				o1 = o2;
-				o2 = o;
-			}
 			if (o1!=null && Table.FieldAccessorValue.class.isAssignableFrom(o1.getClass()))
 				o1 = ((Table.FieldAccessorValue) o1).getFieldAccessor().getValue(getRecordInstance(table, record, ((Table.FieldAccessorValue) o1).getFieldAccessor()));
 			if (o2!=null && Table.FieldAccessorValue.class.isAssignableFrom(o2.getClass()))
@@ -410,12 +418,12 @@ public class RuleInstance implements QueryPart {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		RuleInstance that = (RuleInstance) o;
-		return rule == that.rule && Objects.equals(parts, that.parts) && Objects.equals(cachedConstructors, that.cachedConstructors);
+		return rule == that.rule && Objects.equals(parts, that.parts);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(rule, parts, cachedConstructors);
+		return Objects.hash(rule, parts);
 	}
 
 	public <T extends DatabaseRecord> boolean equals(Table<T> table, T record, Object o1, Object o2)
@@ -685,6 +693,18 @@ public class RuleInstance implements QueryPart {
 		throw new IllegalAccessError();
 	}
 
+	/**
+	 * Compile this query for the given table and the given parameters, in order to test several records without
+	 * parsing the query tree for each record.
+	 * @param table the table
+	 * @param parameters the query parameters
+	 * @param <T> the record type
+	 * @return the compiled query
+	 */
+	public <T extends DatabaseRecord> CompiledRuleInstance<T> compile(Table<T> table, Map<String, Object> parameters) {
+		return new CompiledRuleInstance<>(table, parameters, this);
+	}
+
 	public <T extends DatabaseRecord> StringBuilder translateToSqlQuery(Table<T> table, Map<String, Object> parameters,
 			Map<Integer, Object> outputParameters, Set<TableJunction> tablesJunction) throws DatabaseSyntaxException {
 		return translateToSqlQuery(table, parameters, outputParameters, 1, tablesJunction);
@@ -435,7 +435,11 @@ public abstract class AbstractTestDatabaseBackupRestore {
 		if (useExternalBackup) {
 			long t=System.currentTimeMillis();
 			Thread.sleep(1);
-			BackupRestoreManager externalBRM = wrapper.getExternalBackupRestoreManager(externalBackupDirectory, Table1.class.getPackage(), getBackupConfiguration());
+			BackupConfiguration externalBackupConfiguration=getBackupConfiguration();
+			//tables are dumped in parallel
+			externalBackupConfiguration.setMaxThreadsNumberForBackupReference(2);
+			externalBackupConfiguration.setBackupCompressed(true);
+			BackupRestoreManager externalBRM = wrapper.getExternalBackupRestoreManager(externalBackupDirectory, Table1.class.getPackage(), externalBackupConfiguration);
 			Assert.assertNotNull(externalBRM);
 			Assert.assertTrue(externalBRM.isEmpty());
 			externalBRM.createBackupReference();
@@ -898,6 +902,156 @@ public abstract class AbstractTestDatabaseBackupRestore {
 	}
 
 
+	@Test
+	public void testRestorationBatchWithConflictingRow() throws Exception {
+		wrapper=loadWrapper(databaseDirectory, false, false);
+		final Table8 table8=wrapper.getTableInstance(Table8.class);
+		Map<String, Object> m=new HashMap<>();
+		m.put("pk1", 2L);
+		m.put("uniqueValue", 2);
+		m.put("val", 0);
+		table8.addRecord(m);
+		//getNewRecordInstance is not visible from Table8
+		Table<Table8.Record> table=table8;
+		final List<DatabaseRecord> records=new ArrayList<>();
+		for (int i=1;i<=3;i++)
+		{
+			Table8.Record r=table.getNewRecordInstance(false);
+			r.pk1=i;
+			r.uniqueValue=i;
+			r.val=i*10;
+			records.add(r);
+		}
+		wrapper.runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				//the second record is already present, so the batch fails and the records are restored one by one
+				BackupRestoreManager.restoreAddedRecords(table8, records);
+				//the transaction is still usable after the failed batch
+				Assert.assertEquals(table8.getRecordsNumber(), 3);
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+		Assert.assertEquals(table8.getRecordsNumber(), 3);
+		for (int i=1;i<=3;i++)
+		{
+			Table8.Record r=table8.getRecord("pk1", (long)i);
+			Assert.assertNotNull(r);
+			Assert.assertEquals(r.uniqueValue, i);
+			Assert.assertEquals(r.val, i*10);
+		}
+	}
+
+	@Test
+	public void testCompressedBackupIsSmaller() throws Exception {
+		long[] rawSizes=getBackupSizes(false);
+		long[] compressedSizes=getBackupSizes(true);
+		//backup references
+		Assert.assertTrue(compressedSizes[0]<rawSizes[0], "compressed="+compressedSizes[0]+", raw="+rawSizes[0]);
+		//backup increments
+		Assert.assertTrue(compressedSizes[1]<rawSizes[1], "compressed="+compressedSizes[1]+", raw="+rawSizes[1]);
+	}
+
+	private static long getDirectorySize(File directory)
+	{
+		long res=0;
+		File[] files=directory.listFiles();
+		if (files!=null) {
+			for (File f : files)
+				res += f.isDirectory() ? getDirectorySize(f) : f.length();
+		}
+		return res;
+	}
+
+	/**
+	 * Add records into one transaction, back them up, and restore them
+	 * @param compressed tells if backups are compressed
+	 * @return the size of an external backup reference of the added records, and the size of the internal backup increment that contains the transaction
+	 */
+	private long[] getBackupSizes(boolean compressed) throws Exception {
+		final File directory=new File("./compressedBackupDatabaseToTest");
+		final File backupDirectory=new File("./compressedExternalBackupToTest");
+		DatabaseWrapper.deleteDatabasesFiles(directory);
+		FileTools.deleteDirectory(backupDirectory);
+		DatabaseWrapper wrapper=new InFileEmbeddedH2DatabaseFactory(directory).getDatabaseWrapperSingleton();
+		try {
+			//no new backup reference is created during the test
+			BackupConfiguration backupConf=new BackupConfiguration(60000L, 120000L, 1000000, 200L, null);
+			backupConf.setBackupCompressed(compressed);
+			wrapper.getDatabaseConfigurationsBuilder()
+					.addConfiguration(new DatabaseConfiguration(new DatabaseSchema(Table1.class.getPackage(), TestDatabase.listClasses), backupConf), false, true)
+					.commit();
+			BackupRestoreManager internalBRM=wrapper.getBackupRestoreManager(Table1.class.getPackage());
+			Assert.assertNotNull(internalBRM);
+			long internalSize=getDirectorySize(internalBRM.getBackupDirectory());
+			final Table8 table8=wrapper.getTableInstance(Table8.class);
+			wrapper.runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+				@Override
+				public Void run() throws Exception {
+					Map<String, Object> m=new HashMap<>();
+					for (int i=0;i<1000;i++) {
+						m.put("uniqueValue", i);
+						m.put("val", i%10);
+						table8.addRecord(m);
+					}
+					return null;
+				}
+
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+				}
+
+				@Override
+				public boolean doesWriteData() {
+					return true;
+				}
+
+				@Override
+				public void initOrReset() {
+
+				}
+			});
+			internalSize=getDirectorySize(internalBRM.getBackupDirectory())-internalSize;
+			BackupConfiguration externalBackupConf=getBackupConfiguration();
+			externalBackupConf.setBackupCompressed(compressed);
+			BackupRestoreManager externalBRM=wrapper.getExternalBackupRestoreManager(backupDirectory, Table1.class.getPackage(), externalBackupConf);
+			Assert.assertNotNull(externalBRM);
+			externalBRM.createBackupReference();
+			long referenceSize=getDirectorySize(externalBRM.getBackupDirectory());
+
+			Thread.sleep(100);
+			long dateRestoration=System.currentTimeMillis();
+			Thread.sleep(100);
+			table8.removeRecords("val>=%val", "val", 0);
+			Assert.assertEquals(table8.getRecordsNumber(), 0);
+			Assert.assertTrue(internalBRM.restoreDatabaseToDateUTC(dateRestoration));
+			Assert.assertEquals(table8.getRecordsNumber(), 1000);
+			Assert.assertNotNull(table8.getRecord("uniqueValue", 999));
+			Assert.assertEquals(table8.getRecord("uniqueValue", 999).val, 9);
+			return new long[]{referenceSize, internalSize};
+		}
+		finally {
+			wrapper.deleteDatabasesFiles();
+			FileTools.deleteDirectory(backupDirectory);
+		}
+	}
+
 	@DataProvider(name="DataProvExtBackupRestore")
 	public Object[][] provideDataForExternalBackupRestore()
 	{
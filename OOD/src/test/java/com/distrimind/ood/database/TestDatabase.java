@@ -80,12 +80,15 @@ import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.testng.Assert.*;
 
@@ -111,6 +114,10 @@ public abstract class TestDatabase {
 	protected Table5 table5;
 	protected Table6 table6;
 	protected Table7 table7;
+	protected Table8 table8;
+	protected Table9 table9;
+	protected Table10 table10;
+	protected Table11 table11;
 	protected Table1 table1b;
 	protected Table2 table2b;
 	protected Table3 table3b;
@@ -118,7 +125,7 @@ public abstract class TestDatabase {
 	protected Table5 table5b;
 	protected Table6 table6b;
 
-	static Set<Class<?>> listClasses=new HashSet<>(Arrays.asList(Table1.class, Table2.class, Table3.class, Table4.class, Table5.class, Table6.class, Table7.class));
+	static Set<Class<?>> listClasses=new HashSet<>(Arrays.asList(Table1.class, Table2.class, Table3.class, Table4.class, Table5.class, Table6.class, Table7.class, Table8.class, Table9.class, Table10.class, Table11.class));
 	static Set<Class<?>> listClasses2=new HashSet<>(Arrays.asList(Group.class, Lecture.class, Student.class, StudentGroup.class, Teacher.class, TeacherLecture.class));
 	static DatabaseConfiguration dbConfig1 = new DatabaseConfiguration(new DatabaseSchema(Table1.class.getPackage(), listClasses));
 	static DatabaseConfiguration dbConfig2 = new DatabaseConfiguration(new DatabaseSchema(Lecture.class.getPackage(), listClasses2));
@@ -332,6 +339,10 @@ public abstract class TestDatabase {
 		table5 = sql_db.getTableInstance(Table5.class);
 		table6 = sql_db.getTableInstance(Table6.class);
 		table7 = sql_db.getTableInstance(Table7.class);
+		table8 = sql_db.getTableInstance(Table8.class);
+		table9 = sql_db.getTableInstance(Table9.class);
+		table10 = sql_db.getTableInstance(Table10.class);
+		table11 = sql_db.getTableInstance(Table11.class);
 		//Assert.assertEquals(table3.getSqlTableName(), Table3.class.getAnnotation(TableName.class).sqlTableName().toUpperCase());
 		boolean found=false;
 		for (FieldAccessor fa : table2.getFieldAccessors()) {
@@ -442,6 +453,10 @@ public abstract class TestDatabase {
 		table5 = sql_db.getTableInstance(Table5.class);
 		table6 = sql_db.getTableInstance(Table6.class);
 		table7 = sql_db.getTableInstance(Table7.class);
+		table8 = sql_db.getTableInstance(Table8.class);
+		table9 = sql_db.getTableInstance(Table9.class);
+		table10 = sql_db.getTableInstance(Table10.class);
+		table11 = sql_db.getTableInstance(Table11.class);
 		sql_dbb = getDatabaseWrapperInstanceB();
 		sql_dbb.getDatabaseConfigurationsBuilder()
 				.addConfiguration(dbConfig1, false, true)
@@ -1768,6 +1783,527 @@ public abstract class TestDatabase {
 
 	}
 
+	@Test(dependsOnMethods = { "testRemoveFilters" })
+	public void testSeekCursor() throws DatabaseException {
+		for (int i=0;i<10;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i%3);
+			map.put("val2", i);
+			map.put("val3", 0);
+			table9.addRecord(map);
+		}
+		testSeekCursor(table9.getOrderedRecords(true, "pk1"), table9.getSeekCursor(null, null, 3, true, true));
+		testSeekCursor(table9.getOrderedRecords(true, "pk1"), table9.getSeekCursor(null, null, 10, false, true));
+		testSeekCursor(table9.getOrderedRecords(true, "val1", "pk1"), table9.getSeekCursor(null, null, 2, true, true, "val1"));
+		Map<String, Object> parameters=new HashMap<>();
+		parameters.put("v", 2);
+		testSeekCursor(table9.getOrderedRecords("val2>=%v", parameters, false, "val1", "pk1"), table9.getSeekCursor("val2>=%v", parameters, 3, true, false, "val1"));
+		try
+		{
+			table1.getSeekCursor(true);
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		//the foreign key is replaced by the primary keys of Table1, which are not comparable
+		try
+		{
+			table2.getSeekCursor(true);
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		//lazy loaded foreign keys cannot be sorted
+		try
+		{
+			table10.getSeekCursor(null, null, true, "fk2");
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		table9.removeRecords(table9.getRecords());
+		Assert.assertEquals(0, table9.getRecordsNumber());
+	}
+
+	private static void testSeekCursor(List<Table9.Record> expected, SeekCursor<Table9.Record> cursor) throws DatabaseException {
+		try(SeekCursor<Table9.Record> c=cursor) {
+			int i = 0;
+			while (c.hasNext()) {
+				Table9.Record r = c.next();
+				Assert.assertTrue(i < expected.size());
+				Assert.assertEquals(r.pk1, expected.get(i++).pk1);
+			}
+			Assert.assertEquals(i, expected.size());
+			Assert.assertFalse(c.hasNext());
+		}
+	}
+
+	@Test(dependsOnMethods = { "testSeekCursor" })
+	public void testStreams() throws DatabaseException {
+		for (int i=0;i<10;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i%3);
+			map.put("val2", i);
+			map.put("val3", 0);
+			table7.addRecord(map);
+		}
+		Assert.assertEquals(table7.stream().count(), 10);
+		final Map<String, Object> parameters=new HashMap<>();
+		parameters.put("v", 0);
+		try(Stream<Table7.Record> s=table7.stream("val1=%v", parameters)) {
+			Assert.assertEquals(s.mapToInt(r -> r.val2).sum(), 18);
+		}
+		try(Stream<Table7.Record> s=table7.stream()) {
+			Assert.assertEquals(s.limit(3).count(), 3);
+		}
+		final AtomicInteger parsed=new AtomicInteger(0);
+		table7.forEachRecord(new Filter<Table7.Record>() {
+			@Override
+			public boolean nextRecord(Table7.Record _record) {
+				if (parsed.incrementAndGet()==4)
+					stopTableParsing();
+				return true;
+			}
+		});
+		Assert.assertEquals(parsed.get(), 4);
+		table7.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				HashMap<String, Object> map = new HashMap<>();
+				map.put("val1", 0);
+				map.put("val2", 10);
+				map.put("val3", 0);
+				table7.addRecord(map);
+				try(Stream<Table7.Record> s=table7.stream("val1=%v", parameters)) {
+					Assert.assertEquals(s.mapToInt(r -> r.val2).sum(), 28);
+				}
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+		//the consumer of a stream can modify the table while parsing it, without waiting for the end of the stream
+		table7.removeRecords(table7.getRecords());
+		ArrayList<Map<String, Object>> records=new ArrayList<>();
+		for (int i=0;i<1000;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", 1);
+			map.put("val2", i);
+			map.put("val3", 0);
+			records.add(map);
+		}
+		table7.addRecords(100, records);
+		int parsedRecords=0;
+		long start=System.currentTimeMillis();
+		parameters.put("v", 1);
+		try(Stream<Table7.Record> s=table7.stream("val1=%v", parameters)) {
+			for (Iterator<Table7.Record> it = s.iterator(); it.hasNext(); ) {
+				final Table7.Record r=it.next();
+				++parsedRecords;
+				if (r.val2%2==0)
+					table7.updateRecord(r, "val3", 1);
+				else if (r.val2%3==0)
+				{
+					table7.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+						@Override
+						public Void run() throws Exception {
+							table7.removeRecord(r);
+							return null;
+						}
+
+						@Override
+						public TransactionIsolation getTransactionIsolation() {
+							return TransactionIsolation.TRANSACTION_READ_COMMITTED;
+						}
+
+						@Override
+						public boolean doesWriteData() {
+							return true;
+						}
+
+						@Override
+						public void initOrReset() {
+
+						}
+					});
+				}
+			}
+		}
+		Assert.assertTrue(System.currentTimeMillis()-start<60000);
+		Assert.assertEquals(parsedRecords, 1000);
+		Assert.assertEquals(table7.getRecordsNumber("val1=%v AND val3=%w", "v", 1, "w", 1), 500);
+		Assert.assertEquals(table7.getRecordsNumber("val1=%v", "v", 1), 1000-167);
+		table7.removeRecords(table7.getRecords());
+		Assert.assertEquals(0, table7.getRecordsNumber());
+	}
+
+	@Test(dependsOnMethods = { "testStreams" })
+	public void testGroupedResults() throws DatabaseException {
+		for (int i=0;i<30;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i%3);
+			map.put("val2", i%5);
+			map.put("val3", i);
+			table7.addRecord(map);
+		}
+		ArrayList<Table7.Record> records=new ArrayList<>();
+		while (records.size()<=GroupedResults.PARALLEL_GROUPING_THRESHOLD*3)
+			records.addAll(table7.getRecords());
+		for (String[] fields : new String[][]{{"val1"}, {"val1", "val2"}}) {
+			GroupedResults<Table7.Record> sequential = table7.getGroupedResults(fields);
+			sequential.addRecords(records, false);
+			GroupedResults<Table7.Record> parallel = table7.getGroupedResults(fields);
+			parallel.addRecords(records, true);
+			Assert.assertEquals(sequential.getGroupedResults().size(), fields.length==1?3:15);
+			Assert.assertEquals(parallel.getGroupedResults().size(), sequential.getGroupedResults().size());
+			int total=0;
+			for (int i=0;i<sequential.getGroupedResults().size();i++) {
+				GroupedResults<Table7.Record>.Group gs=sequential.getGroupedResults().get(i);
+				GroupedResults<Table7.Record>.Group gp=parallel.getGroupedResults().get(i);
+				Assert.assertEquals(gp.getGroupIdentity(), gs.getGroupIdentity());
+				Assert.assertEquals(gp, gs);
+				Assert.assertEquals(gp.getResults(), gs.getResults());
+				for (Table7.Record r : gs.getResults()) {
+					Assert.assertEquals(r.val1, gs.getGroupIdentity().get("val1"));
+					if (fields.length>1)
+						Assert.assertEquals(r.val2, gs.getGroupIdentity().get("val2"));
+				}
+				total+=gs.getResults().size();
+			}
+			Assert.assertEquals(total, records.size());
+		}
+		table7.removeRecords(table7.getRecords());
+		Assert.assertEquals(0, table7.getRecordsNumber());
+	}
+
+	@Test(dependsOnMethods = { "testGroupedResults" })
+	public void testAggregatedResults() throws DatabaseException {
+		for (int i=0;i<30;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i%3);
+			map.put("val2", i%5);
+			map.put("val3", i);
+			table7.addRecord(map);
+		}
+		testAggregatedResults(table7, "val1", "val3", "val2", "val2>%v", 1);
+		testAggregatedResults(table7, null, "val3", "val2", null, null);
+		testAggregatedResults(table1, "byte_value", "long_value", "short_value", null, null);
+		testAggregatedResults(table3, "byte_value", "long_value", "short_value", null, null);
+		testAggregatedResults(table3, null, "int_value", "DateValue", "int_value>=%v", 0);
+		try {
+			table7.getAggregatedResult(Aggregate.sum("unknown_field"));
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		try {
+			table1.getAggregatedResult(Aggregate.sum("string_value"));
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		Assert.assertTrue(table7.hasRecords());
+		Assert.assertEquals(((Number)table7.getMinValue("val3", "val1=%v", "v", 1)).intValue(), 1);
+		Assert.assertEquals(((Number)table7.getMaxValue("val3", "val1=%v", "v", 1)).intValue(), 28);
+		Assert.assertNull(table7.getMinValue("val3", "val1=%v", "v", 3));
+		table7.removeRecords(table7.getRecords());
+		Assert.assertFalse(table7.hasRecords());
+		Assert.assertNull(table7.getMaxValue("val3", "val1=%v", "v", 1));
+		Assert.assertEquals(table7.getAggregatedResult(Aggregate.count(), Aggregate.sum("val3")).getLong(0), 0);
+		Assert.assertNull(table7.getAggregatedResult(Aggregate.count(), Aggregate.sum("val3")).getValue(1));
+	}
+
+	@Test(dependsOnMethods = { "testAggregatedResults" })
+	public void testBulkRemoveAndUpdate() throws DatabaseException {
+		for (int i=0;i<30;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i%3);
+			map.put("val2", i%5);
+			map.put("val3", i);
+			table7.addRecord(map);
+		}
+		HashMap<String, Object> modifications = new HashMap<>();
+		modifications.put("val3", 100);
+		Assert.assertEquals(table7.updateRecords(modifications, "val1=%v", "v", 0), 10);
+		List<Table7.Record> updated = table7.getRecords("val3=%v", "v", 100);
+		Assert.assertEquals(updated.size(), 10);
+		for (Table7.Record r : updated)
+			Assert.assertEquals(r.val1, 0);
+		Assert.assertEquals(table7.removeRecords("val2=%v", "v", 1), 6);
+		Assert.assertEquals(table7.getRecordsNumber(), 24);
+		Assert.assertEquals(table7.getRecords("val2=%v", "v", 1).size(), 0);
+		Assert.assertEquals(table7.removeRecords("val2=%v", "v", 1), 0);
+		try {
+			modifications.clear();
+			modifications.put("pk1", 1L);
+			table7.updateRecords(modifications, "val1=%v", "v", 0);
+			Assert.fail();
+		}
+		catch(FieldDatabaseException ignored)
+		{
+
+		}
+		table7.removeRecords(table7.getRecords());
+		Assert.assertEquals(0, table7.getRecordsNumber());
+	}
+
+	@Test(dependsOnMethods = { "testBulkRemoveAndUpdate" })
+	public void testMetricsListener() throws DatabaseException {
+		final EnumMap<DatabaseMetricsListener.RecordsOperation, AtomicInteger> records=new EnumMap<>(DatabaseMetricsListener.RecordsOperation.class);
+		for (DatabaseMetricsListener.RecordsOperation o : DatabaseMetricsListener.RecordsOperation.values())
+			records.put(o, new AtomicInteger());
+		final AtomicInteger transactions=new AtomicInteger();
+		DatabaseWrapper wrapper=table7.getDatabaseWrapper();
+		wrapper.setMetricsListener(new DatabaseMetricsListener() {
+			@Override
+			public void transactionFinished(TransactionIsolation transactionIsolation, boolean writeData, int retriesNumber, long lockWaitDurationInNs, long runDurationInNs, long commitDurationInNs, long memoryTablesRefreshDurationInNs, boolean committed) {
+				Assert.assertTrue(committed);
+				transactions.incrementAndGet();
+			}
+
+			@Override
+			public void recordsProcessed(Table<?> table, RecordsOperation operation, long recordsNumber) {
+				if (table==table7)
+					records.get(operation).addAndGet((int)recordsNumber);
+			}
+		});
+		try {
+			for (int i = 0; i < 10; i++) {
+				HashMap<String, Object> map = new HashMap<>();
+				map.put("val1", i % 2);
+				map.put("val2", i);
+				map.put("val3", i);
+				table7.addRecord(map);
+			}
+			HashMap<String, Object> modifications = new HashMap<>();
+			modifications.put("val3", 100);
+			table7.updateRecords(modifications, "val1=%v", "v", 0);
+			Assert.assertEquals(table7.getRecords().size(), 10);
+			table7.removeRecordsWithCascade("val1=%v", "v", 1);
+			Assert.assertTrue(transactions.get()>=13);
+			Assert.assertEquals(records.get(DatabaseMetricsListener.RecordsOperation.INSERT).get(), 10);
+			Assert.assertEquals(records.get(DatabaseMetricsListener.RecordsOperation.UPDATE).get(), 5);
+			Assert.assertEquals(records.get(DatabaseMetricsListener.RecordsOperation.DELETE).get(), 5);
+			Assert.assertTrue(records.get(DatabaseMetricsListener.RecordsOperation.READ).get()>=10);
+		}
+		finally {
+			wrapper.setMetricsListener(null);
+		}
+		table7.removeRecords(table7.getRecords());
+		Assert.assertEquals(0, table7.getRecordsNumber());
+	}
+
+	@Test(dependsOnMethods = { "testRemoveFilters" })
+	public void testBatchInsert() throws DatabaseException {
+		for (boolean givenPrimaryKeys : new boolean[]{false, true}) {
+			testBatchInsert(4, 3, givenPrimaryKeys);
+			testBatchInsert(4, 4, givenPrimaryKeys);
+			testBatchInsert(4, 9, givenPrimaryKeys);
+		}
+		//duplicate unique value into the second batch
+		List<Map<String, Object>> records=getBatchInsertRecords(10, true);
+		records.get(5).put("uniqueValue", records.get(4).get("uniqueValue"));
+		try {
+			table8.addRecords(4, records);
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+		//unique value already stored into the database, detected before executing the batch
+		Table8.Record storedRecord=table8.addRecord(getBatchInsertRecords(8, false).get(7));
+		try {
+			table8.addRecords(4, getBatchInsertRecords(10, true));
+			Assert.fail();
+		}
+		catch(ConstraintsNotRespectedDatabaseException ignored)
+		{
+
+		}
+		Assert.assertEquals(table8.getRecordsNumber(), 1);
+		table8.removeRecord(storedRecord);
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+		//the same insert query is used again after the failed batch
+		testBatchInsert(4, 10, true);
+		try {
+			table8.addRecords(0, getBatchInsertRecords(1, false));
+			Assert.fail();
+		}
+		catch(IllegalArgumentException ignored)
+		{
+
+		}
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+	}
+
+	@Test(dependsOnMethods = { "testBatchInsert" })
+	public void testPendingBatchOfReleasedStatement() throws DatabaseException {
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+		sql_db.runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				//same query than the batch insert of Table8
+				StringBuilder query=new StringBuilder("INSERT INTO "+table8.getSqlTableName()+"(");
+				int columns=0;
+				for (FieldAccessor fa : table8.getFieldAccessors()) {
+					for (SqlField sf : fa.getDeclaredSqlFields()) {
+						if (columns++>0)
+							query.append(", ");
+						query.append(sf.shortField);
+					}
+				}
+				query.append(") VALUES(");
+				for (int i=0;i<columns;i++)
+					query.append(i==0?"?":", ?");
+				query.append(")").append(sql_db.getSqlComma());
+
+				DatabaseWrapper.Session session=sql_db.getConnectionAssociatedWithCurrentThread();
+				PreparedStatement statement=session.prepareStatement(query.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, false);
+				for (int i=1;i<=columns;i++)
+					statement.setObject(i, 5000+i);
+				statement.addBatch();
+				//the statement is given back before executing the batch, as after an exception
+				session.releasePreparedStatement(statement);
+
+				statement=session.prepareStatement(query.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE, false);
+				try {
+					Assert.assertEquals(statement.executeBatch().length, 0);
+				}
+				finally {
+					session.releasePreparedStatement(statement);
+				}
+				testBatchInsert(4, 3, true);
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+	}
+
+	private static List<Map<String, Object>> getBatchInsertRecords(int recordsNumber, boolean givenPrimaryKeys)
+	{
+		ArrayList<Map<String, Object>> records=new ArrayList<>(recordsNumber);
+		for (int i=0;i<recordsNumber;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			if (givenPrimaryKeys)
+				map.put("pk1", 1000L+i);
+			map.put("uniqueValue", i);
+			map.put("val", i*2);
+			records.add(map);
+		}
+		return records;
+	}
+
+	private void testBatchInsert(int batchSize, int recordsNumber, boolean givenPrimaryKeys) throws DatabaseException {
+		ArrayList<Table8.Record> added=table8.addRecords(batchSize, getBatchInsertRecords(recordsNumber, givenPrimaryKeys));
+		Assert.assertEquals(added.size(), recordsNumber);
+		HashSet<Long> primaryKeys=new HashSet<>();
+		for (int i=0;i<recordsNumber;i++)
+		{
+			Table8.Record r=added.get(i);
+			Assert.assertEquals(r.uniqueValue, i);
+			Assert.assertTrue(primaryKeys.add(r.pk1));
+			if (givenPrimaryKeys)
+				Assert.assertEquals(r.pk1, 1000L+i);
+			Table8.Record stored=table8.getRecord("pk1", r.pk1);
+			Assert.assertNotNull(stored);
+			Assert.assertEquals(stored.uniqueValue, i);
+			Assert.assertEquals(stored.val, i*2);
+		}
+		Assert.assertEquals(table8.getRecordsNumber(), recordsNumber);
+		table8.removeRecords(table8.getRecords());
+		Assert.assertEquals(table8.getRecordsNumber(), 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R extends DatabaseRecord> void testAggregatedResults(Table<R> table, String groupField, String numericField, String comparableField, String where, Object parameter) throws DatabaseException {
+		HashMap<String, Object> parameters=new HashMap<>();
+		parameters.put("v", parameter);
+		List<R> records=where==null?table.getRecords():table.getRecords(where, parameters);
+		FieldAccessor groupFA=groupField==null?null:table.getFieldAccessor(groupField);
+		FieldAccessor numericFA=table.getFieldAccessor(numericField);
+		FieldAccessor comparableFA=table.getFieldAccessor(comparableField);
+		HashMap<Object, List<R>> expectedGroups=new HashMap<>();
+		for (R r : records)
+			expectedGroups.computeIfAbsent(groupFA==null?"":groupFA.getValue(r), k -> new ArrayList<>()).add(r);
+		if (groupFA==null && expectedGroups.isEmpty())
+			expectedGroups.put("", new ArrayList<>());
+		Aggregate[] aggregates=new Aggregate[]{Aggregate.count(), Aggregate.sum(numericField), Aggregate.min(comparableField), Aggregate.max(comparableField), Aggregate.avg(numericField)};
+		ArrayList<AggregatedResult> results=groupField==null?table.getAggregatedResults(aggregates, where, parameters):table.getAggregatedResults(aggregates, where, parameters, groupField);
+		Assert.assertEquals(results.size(), expectedGroups.size());
+		for (AggregatedResult ar : results) {
+			List<R> l=expectedGroups.get(groupFA==null?"":ar.getGroupIdentity().get(groupField));
+			Assert.assertNotNull(l, ar.toString());
+			Assert.assertEquals(ar.getValue(0), (long)l.size());
+			Assert.assertSame(ar.getValue(aggregates[0]), ar.getValue(0));
+			if (l.isEmpty()) {
+				for (int i=1;i<aggregates.length;i++)
+					Assert.assertNull(ar.getValue(i));
+				continue;
+			}
+			long sum=0;
+			Comparable<Object> min=null, max=null;
+			for (R r : l) {
+				sum+=((Number)numericFA.getValue(r)).longValue();
+				Comparable<Object> c=(Comparable<Object>)comparableFA.getValue(r);
+				if (min==null || min.compareTo(c)>0)
+					min=c;
+				if (max==null || max.compareTo(c)<0)
+					max=c;
+			}
+			Assert.assertEquals(ar.getValue(1), sum);
+			Assert.assertEquals(ar.getValue(2), min);
+			Assert.assertEquals(ar.getValue(3), max);
+			Assert.assertEquals(ar.getDouble(4), ((double)sum)/l.size(), 0.000001);
+		}
+	}
+
 	@Test(dependsOnMethods = { "testRemoveFilters" })
 	public void addForeignKeyAndTestUniqueKeys() throws DatabaseException {
 		addSecondRecord();
@@ -1988,6 +2524,374 @@ public abstract class TestDatabase {
 
 	}
 
+	@Test(dependsOnMethods = { "addForeignKeyAndTestUniqueKeys" })
+	public void testLazyForeignKeys() throws DatabaseException {
+		final Table5.Record r5 = table5.getRecords().get(0);
+		Map<String, Object> map = new HashMap<>();
+		map.put("fk2", r5);
+		Table10.Record r10 = table10.addRecord(map);
+		try {
+			//the pointed records of a batch are checked with one query
+			ArrayList<Table10.Record> batch = table10.addRecords(2, Arrays.asList(map, map, map));
+			Assert.assertEquals(batch.size(), 3);
+			Assert.assertEquals(table10.getRecordsNumber(), 4);
+			table10.removeRecords(batch);
+
+			Table10.Record r = table10.getRecords().get(0);
+			assertTrue(equals(r.fk2, r5));
+			Assert.assertNotNull(r.fk2.fr1_pk1);
+			Assert.assertEquals(r.fk2.fr1_pk1.pk1, r5.fr1_pk1.pk1);
+
+			List<Table10.Record> l10 = table10.getRecords("fk2.int_value=%v", "v", r5.int_value);
+			Assert.assertEquals(l10.size(), 1);
+			assertTrue(equals(l10.get(0).fk2, r5));
+			Assert.assertEquals(table10.getRecords("fk2.int_value=%v", "v", r5.int_value + 1).size(), 0);
+
+			table10.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+				@Override
+				public Void run() throws Exception {
+					int found = 0;
+					try (Stream<Table10.Record> s = table10.stream()) {
+						for (Iterator<Table10.Record> it = s.iterator(); it.hasNext(); ) {
+							if (TestDatabase.this.equals(it.next().fk2, r5))
+								++found;
+						}
+					}
+					Assert.assertEquals(found, 1);
+					return null;
+				}
+
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_READ_COMMITTED;
+				}
+
+				@Override
+				public boolean doesWriteData() {
+					return false;
+				}
+
+				@Override
+				public void initOrReset() {
+
+				}
+			});
+		}
+		finally {
+			table10.removeRecord(r10);
+		}
+		Assert.assertEquals(table10.getRecordsNumber(), 0);
+	}
+
+	@Test(dependsOnMethods = { "addForeignKeyAndTestUniqueKeys" })
+	public void testMemoryTableIndexes() throws DatabaseException {
+		Assert.assertTrue(table11.isLoadedInMemory());
+		Assert.assertTrue(table5.isLoadedInMemory());
+		for (int i=0;i<40;i++) {
+			Map<String, Object> map = new HashMap<>();
+			map.put("indexed_value", i % 10);
+			map.put("value", i % 10);
+			table11.addRecord(map);
+		}
+		testMemoryTableIndexes(table11);
+		//a new snapshot gets new indexes
+		Table11.Record first = table11.getRecords().get(0);
+		Map<String, Object> modifications = new HashMap<>();
+		modifications.put("indexed_value", 20);
+		modifications.put("value", 20);
+		table11.updateRecord(first, modifications);
+		Assert.assertEquals(table11.getRecordsNumber("indexed_value=%v", "v", 20), 1);
+		testMemoryTableIndexes(table11);
+		//indexes whose keys are not modified are carried over to the next snapshot
+		modifications.remove("indexed_value");
+		modifications.put("value", 21);
+		table11.updateRecord(table11.getRecords().get(1), modifications);
+		modifications.put("value", 20);
+		table11.updateRecord(table11.getRecords().get(1), modifications);
+		testMemoryTableIndexes(table11);
+		//appended records complete the carried over indexes
+		for (int i=0;i<5;i++) {
+			Map<String, Object> map = new HashMap<>();
+			map.put("indexed_value", 20);
+			map.put("value", 20);
+			table11.addRecord(map);
+		}
+		Assert.assertEquals(table11.getRecordsNumber(), 45);
+		Assert.assertEquals(table11.getRecordsNumber("indexed_value=%v", "v", 20), 6);
+		testMemoryTableIndexes(table11);
+		//removed records shift the positions of the following records
+		table11.removeRecord(table11.getRecords().get(10));
+		table11.removeRecord(table11.getRecords().get(20));
+		List<Table11.Record> records = table11.getRecords();
+		Assert.assertEquals(records.size(), 43);
+		for (Table11.Record r : records)
+			Assert.assertEquals(table11.getRecord("pk1", r.pk1).pk1, r.pk1);
+		Table11.Record last = records.get(records.size() - 1);
+		modifications.put("indexed_value", 21);
+		modifications.put("value", 21);
+		table11.updateRecord(last, modifications);
+		records = table11.getRecords();
+		Assert.assertEquals(records.size(), 43);
+		Assert.assertEquals(records.get(records.size() - 1).pk1, last.pk1);
+		Assert.assertEquals(records.get(records.size() - 1).indexed_value, 21);
+		testMemoryTableIndexes(table11);
+		table11.removeRecords(table11.getRecords());
+		Assert.assertEquals(table11.getRecordsNumber("indexed_value=%v", "v", 20), 0);
+		Assert.assertEquals(table11.getRecordsNumber(), 0);
+
+		for (Table5.Record r : table5.getRecords()) {
+			Assert.assertTrue(equals(table5.getRecord("fr1_pk1", r.fr1_pk1), r));
+			Assert.assertTrue(table5.hasRecordsWithAllFields("int_value", r.int_value));
+			Assert.assertEquals(table5.getRecords("int_value=%v", "v", r.int_value).size(), 1);
+		}
+		Assert.assertFalse(table5.hasRecordsWithAllFields("int_value", Integer.MIN_VALUE));
+	}
+
+	private static void testMemoryTableIndexes(Table11 table11) throws DatabaseException {
+		for (int v=-1;v<=21;v++) {
+			List<Table11.Record> l = table11.getRecords("indexed_value=%v", "v", v);
+			for (Table11.Record r : l)
+				Assert.assertEquals(r.indexed_value, v);
+			Assert.assertEquals(l.size(), table11.getRecords("value=%v", "v", v).size());
+			Assert.assertEquals(table11.getRecordsWithAllFields("indexed_value", v).size(), l.size());
+			Assert.assertEquals(table11.getRecordsNumber("indexed_value<%v", "v", v), table11.getRecordsNumber("value<%v", "v", v));
+			Assert.assertEquals(table11.getRecordsNumber("indexed_value>=%v", "v", v), table11.getRecordsNumber("value>=%v", "v", v));
+			Assert.assertEquals(table11.getRecordsNumber("%v>indexed_value", "v", v), table11.getRecordsNumber("value<%v", "v", v));
+			Assert.assertEquals(table11.getRecordsNumber("indexed_value<=%v OR indexed_value>%v", "v", v), table11.getRecordsNumber());
+			Assert.assertEquals(table11.getRecordsNumber("indexed_value<%v AND indexed_value>=%v", "v", v), 0);
+			Assert.assertEquals(table11.getRecordsNumber("indexed_value=%v AND value=%v", "v", v), l.size());
+		}
+	}
+
+	@Test(dependsOnMethods = { "addForeignKeyAndTestUniqueKeys" })
+	public void testIncrementalMemoryRefresh() throws DatabaseException {
+		Assert.assertTrue(table5.isLoadedInMemory());
+		final Table5.Record r5 = table5.getRecords().get(0);
+		final int initialValue = r5.int_value;
+		table5.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				HashMap<String, Object> map = new HashMap<>();
+				map.put("int_value", initialValue + 7);
+				table5.updateRecord(r5, map);
+				Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue + 7);
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+		Assert.assertEquals(table5.getRecords().size(), 1);
+		Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue + 7);
+		try {
+			table5.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+				@Override
+				public Void run() throws Exception {
+					HashMap<String, Object> map = new HashMap<>();
+					map.put("int_value", initialValue + 8);
+					table5.updateRecord(table5.getRecords().get(0), map);
+					throw new DatabaseException("rollback");
+				}
+
+				@Override
+				public TransactionIsolation getTransactionIsolation() {
+					return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+				}
+
+				@Override
+				public boolean doesWriteData() {
+					return true;
+				}
+
+				@Override
+				public void initOrReset() {
+
+				}
+			});
+			Assert.fail();
+		}
+		catch(DatabaseException ignored)
+		{
+
+		}
+		Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue + 7);
+		HashMap<String, Object> map = new HashMap<>();
+		map.put("int_value", initialValue);
+		table5.updateRecord(table5.getRecords().get(0), map);
+		Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue);
+		table5.checkDataIntegrity();
+	}
+
+	@Test(dependsOnMethods = { "testIncrementalMemoryRefresh" })
+	public void testNestedRollbackOfMemoryTableChanges() throws DatabaseException {
+		Assert.assertTrue(table5.isLoadedInMemory());
+		final Table5.Record r5 = table5.getRecords().get(0);
+		final int initialValue = r5.int_value;
+		table5.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				HashMap<String, Object> map = new HashMap<>();
+				map.put("int_value", initialValue + 7);
+				table5.updateRecord(r5, map);
+				try {
+					table5.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+						@Override
+						public Void run() throws Exception {
+							HashMap<String, Object> map = new HashMap<>();
+							map.put("int_value", initialValue + 8);
+							table5.updateRecord(table5.getRecords().get(0), map);
+							throw new DatabaseException("rollback");
+						}
+
+						@Override
+						public TransactionIsolation getTransactionIsolation() {
+							return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+						}
+
+						@Override
+						public boolean doesWriteData() {
+							return true;
+						}
+
+						@Override
+						public void initOrReset() {
+
+						}
+					});
+					Assert.fail();
+				}
+				catch(DatabaseException ignored)
+				{
+
+				}
+				Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue + 7);
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+		//the change rolled back to the savepoint must not be applied to the memory snapshot
+		Assert.assertEquals(table5.getRecords().size(), 1);
+		Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue + 7);
+		HashMap<String, Object> map = new HashMap<>();
+		map.put("int_value", initialValue);
+		table5.updateRecord(table5.getRecords().get(0), map);
+		Assert.assertEquals(table5.getRecords().get(0).int_value, initialValue);
+		table5.checkDataIntegrity();
+	}
+
+	@Test(dependsOnMethods = { "testNestedRollbackOfMemoryTableChanges" })
+	public void testFilterCallbacksCanTakeTheWriteLock() throws DatabaseException {
+		Assert.assertTrue(table5.isLoadedInMemory());
+		//the read lock cannot be upgraded : callbacks that can write data are called with the write lock
+		final AtomicInteger parsed=new AtomicInteger(0);
+		final AtomicBoolean writeLockPossible=new AtomicBoolean(true);
+		table5.forEachRecord(new Filter<Table5.Record>() {
+			@Override
+			public boolean nextRecord(Table5.Record _record) {
+				parsed.incrementAndGet();
+				if (!table5.getDatabaseWrapper().canLockWrite())
+					writeLockPossible.set(false);
+				return false;
+			}
+		});
+		Assert.assertTrue(parsed.get()>0);
+		Assert.assertTrue(writeLockPossible.get());
+		Assert.assertTrue(table5.getDatabaseWrapper().canLockWrite());
+	}
+
+	@Test(dependsOnMethods = { "testFilterCallbacksCanTakeTheWriteLock" })
+	public void testColumnIndexesOfQueryShapes() throws DatabaseException {
+		//foreign keys are read from the columns of the joined tables
+		Assert.assertTrue(table2.getRecordsNumber()>0);
+		ArrayList<Table1.Record> records1=table1.getRecords();
+		for (Table2.Record r2 : table2.getRecords()) {
+			Table1.Record pointed=null;
+			for (Table1.Record r1 : records1) {
+				if (r1.pk1==r2.fr1_pk1.pk1 && r1.pk2==r2.fr1_pk1.pk2)
+					pointed=r1;
+			}
+			Assert.assertNotNull(pointed);
+			Assert.assertEquals(r2.fr1_pk1.pk3, pointed.pk3);
+			Assert.assertEquals(r2.fr1_pk1.pk4, pointed.pk4);
+			Assert.assertEquals(r2.fr1_pk1.int_value, pointed.int_value);
+			Assert.assertEquals(r2.fr1_pk1.long_value, pointed.long_value);
+			Assert.assertEquals(r2.fr1_pk1.string_value, pointed.string_value);
+		}
+
+		final int marker=-7;
+		for (int i=0;i<10;i++)
+		{
+			HashMap<String, Object> map = new HashMap<>();
+			map.put("val1", i);
+			map.put("val2", i*10);
+			map.put("val3", marker);
+			table7.addRecord(map);
+		}
+		try {
+			//the same selected columns are reused with different conditions, orders and limits
+			for (int i=0;i<10;i++) {
+				ArrayList<Table7.Record> l=table7.getRecords("val3=%m AND val1=%v", "m", marker, "v", i);
+				Assert.assertEquals(l.size(), 1);
+				Assert.assertEquals(l.get(0).val2, i*10);
+			}
+			ArrayList<Table7.Record> ordered=table7.getOrderedRecords("val3=%m", Collections.<String, Object>singletonMap("m", marker), false, "val1");
+			Assert.assertEquals(ordered.size(), 10);
+			for (int i=0;i<10;i++) {
+				Assert.assertEquals(ordered.get(i).val1, 9-i);
+				Assert.assertEquals(ordered.get(i).val2, (9-i)*10);
+				Assert.assertEquals(ordered.get(i).val3, marker);
+			}
+			ArrayList<Table7.Record> page=table7.getPaginatedRecords(2, 3, "val3=%m", "m", marker);
+			Assert.assertEquals(page.size(), 3);
+			for (Table7.Record r : page)
+				Assert.assertEquals(r.val2, r.val1*10);
+
+			//queries run while another result set is read do not change the columns of the outer result set
+			final AtomicInteger parsed=new AtomicInteger(0);
+			table7.forEachRecord(new Filter<Table7.Record>() {
+				@Override
+				public boolean nextRecord(Table7.Record _record) throws DatabaseException {
+					Assert.assertEquals(_record.val2, _record.val1*10);
+					Assert.assertEquals(table7.getRecords("val3=%m AND val1=%v", "m", marker, "v", _record.val1).get(0).pk1, _record.pk1);
+					Assert.assertEquals(table2.getRecords().size(), table2.getRecordsNumber());
+					parsed.incrementAndGet();
+					return false;
+				}
+			}, "val3=%m", Collections.<String, Object>singletonMap("m", marker));
+			Assert.assertEquals(parsed.get(), 10);
+		}
+		finally {
+			table7.removeRecords("val3=%m", "m", marker);
+		}
+		Assert.assertEquals(table7.getRecords("val3=%m", "m", marker).size(), 0);
+	}
+
 	@Test(dependsOnMethods = { "addForeignKeyAndTestUniqueKeys" })
 	public void alterRecordWithCascade() throws DatabaseException, NoSuchAlgorithmException, NoSuchProviderException {
 		HashMap<String, Object> map = new HashMap<>();
@@ -3684,6 +4588,161 @@ public abstract class TestDatabase {
 			assertEqualsParameters(value, ep, "Parameter "+e.getKey()+". Class type source " + e.getValue().getClass()+", expected class "+ep.getClass()+".");
 		}
 		Assert.assertEquals(rule.isConcernedBy(table1, parameters, record), expectedTestResult, command);
+		Assert.assertEquals(rule.compile(table1, parameters).isConcernedBy(record), expectedTestResult, command);
+	}
+
+	@Test(dependsOnMethods = { "testCommandTranslatorInterpreter" })
+	public void testCompiledRuleInstances() throws DatabaseException {
+		Table1 table1= sql_db.getTableInstance(Table1.class);
+		Table1.Record record=new Table1.Record();
+		record.int_value=3;
+		record.long_value=3000000000L;
+		record.string_value="abcd";
+		HashMap<String, Object> parameters=new HashMap<>();
+		parameters.put("v", 3);
+		parameters.put("s", "ab%");
+		Object[][] commands=new Object[][]{
+				{"int_value<5", true},
+				{"int_value>5", false},
+				{"int_value<=3", true},
+				{"int_value>=3.5", false},
+				{"int_value=3", true},
+				{"int_value=3.0", false},
+				{"int_value!=3", false},
+				{"int_value=%v", true},
+				{"long_value>2147483648", true},
+				{"string_value=\"abcd\"", true},
+				{"string_value LIKE \"a_c%\"", true},
+				{"string_value NOT LIKE %s", false},
+				{"string_value LIKE \"b%\" OR int_value<5", true},
+				{"string_value LIKE \"b%\" AND int_value<5", false},
+				{"(int_value<5 AND int_value>1) AND (string_value=\"abcd\" OR int_value=%v)", true},
+		};
+		for (Object[] c : commands) {
+			String command=(String)c[0];
+			RuleInstance rule=Interpreter.getRuleInstance(command);
+			Assert.assertEquals(rule.isConcernedBy(table1, parameters, record), c[1], command);
+			Assert.assertEquals(rule.compile(table1, parameters).isConcernedBy(record), c[1], command);
+		}
+	}
+	
+	@Test(dependsOnMethods = { "testCommandTranslatorInterpreter" })
+	public void testCompiledDecimalComparisons() throws DatabaseException {
+		Table1 table1= sql_db.getTableInstance(Table1.class);
+		Table1.Record record=new Table1.Record();
+		record.int_value=3;
+		record.double_value=1.5;
+		record.float_value=0.1f;
+		record.BigDecimal_value=new BigDecimal("2.50");
+		HashMap<String, Object> parameters=new HashMap<>();
+		parameters.put("d", 1.5);
+		parameters.put("i", 2);
+		Object[][] commands=new Object[][]{
+				{"double_value=1.5", true},
+				//decimal values are equal only if they have the same scale
+				{"double_value=1.50", false},
+				{"double_value!=1.4", true},
+				{"double_value<1.6", true},
+				{"double_value>1.5", false},
+				{"double_value>=1.5", true},
+				{"double_value<1.5000000000000000001", true},
+				{"double_value>1.4999999999999999999", true},
+				{"1.6>double_value", true},
+				{"double_value=%d", true},
+				{"double_value<%i", true},
+				{"%i<double_value", false},
+				{"float_value=0.1", true},
+				{"float_value<0.1", false},
+				{"float_value<=0.1", true},
+				{"float_value>0.09", true},
+				{"BigDecimal_value=2.50", true},
+				{"BigDecimal_value=2.5", false},
+				{"BigDecimal_value<2.6", true},
+				{"BigDecimal_value>=2.5", true},
+				{"2.5<BigDecimal_value", false},
+				{"double_value=(1.5)", true},
+				{"int_value<(5)", true},
+		};
+		for (Object[] c : commands) {
+			String command=(String)c[0];
+			RuleInstance rule=Interpreter.getRuleInstance(command);
+			Assert.assertEquals(rule.isConcernedBy(table1, parameters, record), c[1], command);
+			Assert.assertEquals(rule.compile(table1, parameters).isConcernedBy(record), c[1], command);
+		}
+	}
+
+	@Test(dependsOnMethods = { "testCommandTranslatorInterpreter" })
+	public void testReversedComparisons() throws DatabaseException {
+		Table1 table1= sql_db.getTableInstance(Table1.class);
+		Table1.Record record=new Table1.Record();
+		record.int_value=3;
+		record.long_value=3000000000L;
+		HashMap<String, Object> parameters=new HashMap<>();
+		parameters.put("v", 3);
+		Object[][] commands=new Object[][]{
+				{"5>int_value", true},
+				{"5<int_value", false},
+				{"3<int_value", false},
+				{"3<=int_value", true},
+				{"2.5<int_value", true},
+				{"3.5<=int_value", false},
+				{"%v>=int_value", true},
+				{"%v>int_value", false},
+				{"2147483648<long_value", true},
+		};
+		for (Object[] c : commands) {
+			String command=(String)c[0];
+			RuleInstance rule=Interpreter.getRuleInstance(command);
+			Assert.assertEquals(rule.isConcernedBy(table1, parameters, record), c[1], command);
+			Assert.assertEquals(rule.compile(table1, parameters).isConcernedBy(record), c[1], command);
+		}
+		Assert.assertTrue(table3.isLoadedInMemory());
+		for (Table3.Record r : table3.getRecords()) {
+			Assert.assertEquals(table3.getRecordsNumber("%v>int_value", "v", r.int_value), table3.getRecordsNumber("int_value<%v", "v", r.int_value));
+			Assert.assertEquals(table3.getRecordsNumber("%v<=int_value", "v", r.int_value), table3.getRecordsNumber("int_value>=%v", "v", r.int_value));
+		}
+	}
+
+	@Test(dependsOnMethods = { "addForeignKeyAndTestUniqueKeys" })
+	public void testCompiledRuleInstancesWithNullForeignKey() throws DatabaseException {
+		Assert.assertFalse(table6.isLoadedInMemory());
+		//the record is not saved, so its foreign key can be set to null
+		Table6.Record record=table6.getRecords().get(0);
+		record.fk2=null;
+		HashMap<String, Object> parameters=new HashMap<>();
+		parameters.put("v", 3);
+		Object[][] commands=new Object[][]{
+				{"fk2.int_value=%v", false},
+				{"fk2.int_value!=%v", true},
+				{"fk2.int_value<%v", true},
+				{"fk2.int_value>=%v", false},
+				{"fk2.fr1_pk1.string_value LIKE \"a%\"", false},
+				{"fk2.fr1_pk1.string_value NOT LIKE \"a%\"", true},
+		};
+		for (Object[] c : commands) {
+			String command=(String)c[0];
+			Assert.assertEquals(Interpreter.getRuleInstance(command).compile(table6, parameters).isConcernedBy(record), c[1], command);
+		}
+	}
+
+	@Test(dependsOnMethods = { "testCommandTranslatorInterpreter" })
+	public void testRuleInstancesCache() throws DatabaseException {
+		String command="int_value>=%v AND (byte_value=1 OR char_value=%c)";
+		long misses=Interpreter.getRuleInstancesCacheMisses();
+		long hits=Interpreter.getRuleInstancesCacheHits();
+		RuleInstance rule=Interpreter.getRuleInstance(command);
+		Assert.assertTrue(Interpreter.getRuleInstancesCacheMisses()>misses || Interpreter.getRuleInstancesCacheHits()>hits);
+		hits=Interpreter.getRuleInstancesCacheHits();
+		Assert.assertSame(Interpreter.getRuleInstance(command), rule);
+		Assert.assertTrue(Interpreter.getRuleInstancesCacheHits()>hits);
+		try {
+			Interpreter.getRuleInstance("int_value>= AND");
+			Assert.fail();
+		}
+		catch(DatabaseSyntaxException ignored)
+		{
+
+		}
 	}
 	
 	private void assertEqualsParameters(Object parameter, Object expectedParameter, String message) throws IOException, SQLException
@@ -0,0 +1,170 @@
+
+/*
+Copyright or © or Copr. Jason Mahdjoub (01/04/2013)
+
+jason.mahdjoub@distri-mind.fr
+
+This software (Object Oriented Database (OOD)) is a computer program 
+whose purpose is to manage a local database with the object paradigm 
+and the java language 
+
+This software is governed by the CeCILL-C license under French law and
+abiding by the rules of distribution of free software.  You can  use, 
+modify and/ or redistribute the software under the terms of the CeCILL-C
+license as circulated by CEA, CNRS and INRIA at the following URL
+"http://www.cecill.info". 
+
+As a counterpart to the access to the source code and  rights to copy,
+modify and redistribute granted by the license, users are provided only
+with a limited warranty  and the software's author,  the holder of the
+economic rights,  and the successive licensors  have only  limited
+liability. 
+
+In this respect, the user's attention is drawn to the risks associated
+with loading,  using,  modifying and/or developing or reproducing the
+software by the user in light of its specific status of free software,
+that may mean  that it is complicated to manipulate,  and  that  also
+therefore means  that it is reserved for developers  and  experienced
+professionals having in-depth computer knowledge. Users are therefore
+encouraged to load and test the software's suitability as regards their
+requirements in conditions enabling the security of their systems and/or 
+data to be ensured and,  more generally, to use and operate it in the 
+same conditions as regards security. 
+
+The fact that you are presently reading this means that you have had
+knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.ood.database;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Check that writers of {@link DatabaseReadWriteLock} stay exclusive under contention, and that read locks cannot be
+ * upgraded. The contention itself is measured by DatabaseReadWriteLockBenchmark, into the OODBenchmarks project.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since OOD 3.1.0
+ */
+public class TestDatabaseReadWriteLockContention {
+	private static final int OPERATIONS_PER_THREAD=200;
+	private static final long READ_DURATION_IN_NANOS=TimeUnit.MICROSECONDS.toNanos(200);
+
+	private static void runContention(final DatabaseReadWriteLock locker, int threadsNumber, final int writePercentage) throws InterruptedException {
+		final AtomicInteger concurrentWriters=new AtomicInteger(0);
+		final AtomicInteger concurrentReaders=new AtomicInteger(0);
+		final AtomicReference<String> error=new AtomicReference<>(null);
+		ArrayList<Thread> threads=new ArrayList<>(threadsNumber);
+		for (int t=0;t<threadsNumber;t++)
+		{
+			final int threadIndex=t;
+			threads.add(new Thread(() -> {
+				for (int i=0;i<OPERATIONS_PER_THREAD;i++)
+				{
+					if ((i+threadIndex)%100<writePercentage)
+					{
+						locker.lockWrite();
+						try {
+							if (concurrentWriters.incrementAndGet()!=1 || concurrentReaders.get()!=0)
+								error.set("Write lock is not exclusive");
+							LockSupport.parkNanos(READ_DURATION_IN_NANOS);
+							concurrentWriters.decrementAndGet();
+						}
+						finally {
+							locker.unlockWrite();
+						}
+					}
+					else
+					{
+						locker.lockRead();
+						try {
+							concurrentReaders.incrementAndGet();
+							if (concurrentWriters.get()!=0)
+								error.set("Read lock acquired during writing");
+							LockSupport.parkNanos(READ_DURATION_IN_NANOS);
+							concurrentReaders.decrementAndGet();
+						}
+						finally {
+							locker.unlockRead();
+						}
+					}
+				}
+			}));
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		Assert.assertNull(error.get(), error.get());
+	}
+
+	@DataProvider(name="provideContentionParameters")
+	public Object[][] provideContentionParameters()
+	{
+		return new Object[][]{
+				{8, 0},
+				{8, 5},
+				{32, 0},
+				{32, 5},
+				{32, 50}
+		};
+	}
+
+	@Test(dataProvider = "provideContentionParameters")
+	public void testContention(int threadsNumber, int writePercentage) throws InterruptedException {
+		runContention(new DatabaseReadWriteLock(), threadsNumber, writePercentage);
+	}
+
+	@Test
+	public void testReadLockUpgradeRefused() throws InterruptedException {
+		final DatabaseReadWriteLock lock=new DatabaseReadWriteLock();
+		Assert.assertTrue(lock.canLockWrite());
+		lock.lockRead();
+		try {
+			Assert.assertFalse(lock.canLockWrite());
+			try {
+				lock.lockWrite();
+				lock.unlockWrite();
+				Assert.fail();
+			}
+			catch (IllegalStateException ignored)
+			{
+			}
+			Assert.assertFalse(lock.isWriteLockedByCurrentThread());
+		}
+		finally {
+			lock.unlockRead();
+		}
+		lock.lockWrite();
+		try {
+			lock.lockRead();
+			try {
+				Assert.assertTrue(lock.canLockWrite());
+				lock.lockWrite();
+				lock.unlockWrite();
+			}
+			finally {
+				lock.unlockRead();
+			}
+		}
+		finally {
+			lock.unlockWrite();
+		}
+		Thread t=new Thread(() -> {
+			lock.lockWrite();
+			lock.unlockWrite();
+		});
+		t.start();
+		t.join(5000);
+		Assert.assertFalse(t.isAlive());
+	}
+}
@@ -38,6 +38,7 @@ package com.distrimind.ood.database;
 import com.distrimind.ood.database.decentralizeddatabase.TableAlone;
 import com.distrimind.ood.database.decentralizeddatabase.TablePointed;
 import com.distrimind.ood.database.exceptions.DatabaseException;
+import com.distrimind.util.DecentralizedValue;
 import com.distrimind.util.crypto.SecureRandomType;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -45,6 +46,8 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -444,12 +447,142 @@ public abstract class TestDecentralizedDatabase extends CommonDecentralizedTests
 	}
 
 	@Test(dependsOnMethods = { "testSynchroTransactionTests" })
+	public void testSerializedTransactionsSharedBetweenPeers() throws Exception {
+		SerializedTransactionsCache cache=db1.getDbwrapper().getDatabaseTransactionsPerHostTable().getSerializedTransactionsCache();
+		ArrayList<TableEvent<DatabaseRecord>> levents = provideTableEventsForSynchro();
+		proceedEvent(db1, false, levents);
+		long misses=cache.getMissesNumber();
+		connectSelectedDatabase(db1, db2);
+		exchangeMessages();
+		disconnectSelectedDatabase(db1, db2);
+		testEventSynchronized(db2, levents, true);
+		Assert.assertTrue(cache.getMissesNumber()>misses);
+
+		// the events serialized for the second peer are reused for the third peer
+		long hits=cache.getHitsNumber();
+		connectSelectedDatabase(db1, db3);
+		exchangeMessages();
+		disconnectSelectedDatabase(db1, db3);
+		testEventSynchronized(db3, levents, true);
+		Assert.assertTrue(cache.getHitsNumber()>hits);
+
+		connectAllDatabase();
+		exchangeMessages();
+		disconnectAllDatabase();
+		checkAllDatabaseInternalDataUsedForSynchro();
+		testSynchronisation();
+	}
+
+	@Test(dependsOnMethods = { "testSerializedTransactionsSharedBetweenPeers" })
+	public void testEventsCoalescedIntoTransaction() throws Exception {
+		final TableAlone.Record removedRecord = db1.getTableAlone().addRecord(generatesTableAloneRecord());
+		connectAllDatabase();
+		exchangeMessages();
+		disconnectAllDatabase();
+		checkAllDatabaseInternalDataUsedForSynchro();
+
+		final TableAlone.Record addedRecord = generatesTableAloneRecord();
+		final TableAlone.Record cancelledRecord = generatesTableAloneRecord();
+		db1.getDbwrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+
+			@Override
+			public Void run() throws Exception {
+				TableAlone table = db1.getTableAlone();
+				// ADD then UPDATE gives one ADD event with the new values
+				table.addRecord(addedRecord);
+				table.updateRecord(addedRecord, "value", "updated value");
+				// ADD then REMOVE gives no event
+				table.addRecord(cancelledRecord);
+				table.removeRecord(cancelledRecord);
+				// UPDATE then REMOVE gives one REMOVE event
+				table.updateRecord(removedRecord, "value", "updated value");
+				table.removeRecord(removedRecord);
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_SERIALIZABLE;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
+			@Override
+			public void initOrReset() {
+
+			}
+		});
+
+		ArrayList<DatabaseEventsTable.Record> events = db1.getDbwrapper().getDatabaseEventsTable().getRecords();
+		events.sort(Comparator.comparingInt(DatabaseEventsTable.Record::getPosition));
+		Table<TableAlone.Record> aloneTable = db1.getTableAlone();
+		Assert.assertEquals(events.size(), 2);
+		Assert.assertEquals(events.get(0).getType(), DatabaseEventType.ADD.getByte());
+		Assert.assertEquals(events.get(0).getConcernedSerializedPrimaryKey(), aloneTable.serializePrimaryKeys(addedRecord));
+		Assert.assertEquals(events.get(1).getType(), DatabaseEventType.REMOVE.getByte());
+		Assert.assertEquals(events.get(1).getConcernedSerializedPrimaryKey(), aloneTable.serializePrimaryKeys(removedRecord));
+		Assert.assertTrue(events.get(0).getPosition() < events.get(1).getPosition());
+
+		connectAllDatabase();
+		exchangeMessages();
+		disconnectAllDatabase();
+		checkAllDatabaseInternalDataUsedForSynchro();
+		for (CommonDecentralizedTests.Database db : listDatabase) {
+			TableAlone.Record r = db.getTableAlone().getRecord("id", addedRecord.id, "id2", addedRecord.id2);
+			Assert.assertNotNull(r);
+			Assert.assertEquals(r.value, "updated value");
+			Assert.assertNull(db.getTableAlone().getRecord("id", cancelledRecord.id, "id2", cancelledRecord.id2));
+			Assert.assertNull(db.getTableAlone().getRecord("id", removedRecord.id, "id2", removedRecord.id2));
+		}
+		testSynchronisation();
+	}
+
+	@Test(dependsOnMethods = { "testEventsCoalescedIntoTransaction" })
+	public void testFirstLocalIDNotInformedBounds() throws Exception {
+		DatabaseDistantTransactionEvent table = db1.getDbwrapper().getDatabaseDistantTransactionEvent();
+		DatabaseHooksTable.Record hook = db1.getDbwrapper().getDatabaseHooksTable().getHook(db2.getHostID());
+		DecentralizedValue host = db3.getHostID();
+		long now = System.currentTimeMillis();
+		table.addRecord(new DatabaseDistantTransactionEvent.Record(1, 10, now, hook, false, new HashSet<>(Collections.singletonList(host)), false));
+		table.addRecord(new DatabaseDistantTransactionEvent.Record(2, 11, now, hook, false, new HashSet<>(), false));
+		table.addRecord(new DatabaseDistantTransactionEvent.Record(3, 12, now, hook, true, null, false));
+		table.addRecord(new DatabaseDistantTransactionEvent.Record(4, 13, now, hook, false, new HashSet<>(), false));
+		try {
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 10, 13), 11);
+			// both bounds are inclusive
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 11, 11), 11);
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 12, 13), 13);
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 10, 10), Long.MAX_VALUE);
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 12, 12), Long.MAX_VALUE);
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(host, 14, 13), Long.MAX_VALUE);
+			// the host that generated the transactions is never concerned
+			Assert.assertEquals(table.getFirstLocalIDNotInformed(db2.getHostID(), 10, 13), Long.MAX_VALUE);
+		}
+		finally {
+			table.removeRecords(table.getRecords());
+		}
+		checkAllDatabaseInternalDataUsedForSynchro();
+	}
+
+	@Test(dependsOnMethods = { "testFirstLocalIDNotInformedBounds" })
 	public void addNewPeer() throws Exception {
 		// TODO add new peer a second time at the end of these tests
 		connectAllDatabase();
 		testSynchronisation();
 		disconnectAllDatabase();
 		checkAllDatabaseInternalDataUsedForSynchro();
+
+		// export a transaction to the second peer only, so that its concerned hosts change when the new peer is added
+		ArrayList<TableEvent<DatabaseRecord>> levents = provideTableEventsForSynchro();
+		proceedEvent(db1, false, levents);
+		connectSelectedDatabase(db1, db2);
+		exchangeMessages();
+		testEventSynchronized(db2, levents, true);
+		disconnectSelectedDatabase(db1, db2);
+
 		accessNumberInProtectedEncriptionProfile =0;
 		DatabaseFactory<?> df= getDatabaseFactoryInstance4();
 		df.setEncryptionProfileProviders(signatureProfileProviderForAuthenticatedMessagesDestinedToCentralDatabaseBackup, encryptionProfileProviderForE2EDataDestinedCentralDatabaseBackup, protectedSignatureProfileProviderForAuthenticatedP2PMessages, SecureRandomType.DEFAULT);
@@ -477,6 +610,8 @@ public abstract class TestDecentralizedDatabase extends CommonDecentralizedTests
 		disconnectAllDatabase();
 		checkAllDatabaseInternalDataUsedForSynchro();
 		testSynchronisation();
+		for (CommonDecentralizedTests.Database db : listDatabase)
+			testEventSynchronized(db, levents, true);
 
 	}
 